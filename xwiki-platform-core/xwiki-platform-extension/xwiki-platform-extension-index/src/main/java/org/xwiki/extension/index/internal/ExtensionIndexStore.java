@@ -21,6 +21,7 @@
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -167,7 +168,10 @@ public class ExtensionIndexStore implements Initializable
     @Inject
     private InstalledExtensionRepository installedExtensions;
 
-    private int documentsToStore;
+    /**
+     * The updates waiting to be sent to Solr, in the order they were made.
+     */
+    private final List<SolrInputDocument> pendingDocuments = new ArrayList<>();
 
     @Override
     public void initialize() throws InitializationException
@@ -185,13 +189,32 @@ public void initialize() throws InitializationException
      */
     public void commit() throws SolrServerException, IOException
     {
-        // Reset counter
-        this.documentsToStore = 0;
+        // Send the pending updates
+        flush();
 
         // Commit
         this.client.commit();
     }
 
+    /**
+     * Send the pending updates to Solr in a single request, without committing them.
+     * 
+     * @throws IOException If there is a low-level I/O error.
+     * @throws SolrServerException if there is an error on the server
+     * @since 14.9RC1
+     */
+    public void flush() throws SolrServerException, IOException
+    {
+        // Send the updates while holding the lock to make sure they reach Solr in the order they were made
+        synchronized (this.pendingDocuments) {
+            if (!this.pendingDocuments.isEmpty()) {
+                this.client.add(this.pendingDocuments);
+
+                this.pendingDocuments.clear();
+            }
+        }
+    }
+
     /**
      * @param extensionId the extension id
      * @return the identifier of the Solr document holding the extension
@@ -545,16 +568,17 @@ public void add(Extension extension, boolean last) throws SolrServerException, I
 
     private boolean add(SolrInputDocument document) throws SolrServerException, IOException
     {
-        // Add the document to the Solr queue
-        this.client.add(document);
+        // Add the document to the queue of updates to send to Solr
+        synchronized (this.pendingDocuments) {
+            this.pendingDocuments.add(document);
 
-        // Check if it should be auto committed
-        ++this.documentsToStore;
-        if (this.documentsToStore == COMMIT_BATCH_SIZE) {
-            commit();
+            // Check if it should be auto committed
+            if (this.pendingDocuments.size() >= COMMIT_BATCH_SIZE) {
+                commit();
 
-            // The document has been committed
-            return true;
+                // The document has been committed
+                return true;
+            }
         }
 
         // The document has not been committed
@@ -569,6 +593,9 @@ private boolean add(SolrInputDocument document) throws SolrServerException, IOEx
      */
     public SolrExtension getSolrExtension(ExtensionId extensionId) throws SolrServerException, IOException
     {
+        // Make sure the pending updates are taken into account by the real time get
+        flush();
+
         return toSolrExtension(this.client.getById(toSolrId(extensionId)), extensionId);
     }
 
@@ -23,13 +23,19 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,11 +43,14 @@
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.IterableUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.namespace.Namespace;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.extension.Extension;
 import org.xwiki.extension.ExtensionContext;
 import org.xwiki.extension.ExtensionId;
@@ -140,8 +149,29 @@ public class ExtensionIndexJob extends AbstractJob<ExtensionIndexRequest, Defaul
     @Named(InstallPlanJob.JOBTYPE)
     private Provider<Job> installPlanJobProvider;
 
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
     private Collection<String> invalidFlavors;
 
+    /**
+     * The threads used to validate the extensions, {@code null} when validating them in the job thread.
+     */
+    private ExecutorService validationExecutor;
+
+    /**
+     * The result of the install plans already resolved during this job, indexed by extension and by state of the
+     * namespace (see {@link #getPlanKey(ExtensionId, Namespace)}). Many namespaces (typically wikis) share the same
+     * installed extensions and resolving the same plan for each of them is expensive.
+     */
+    private final Map<String, Optional<Extension>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * The state of each namespace, as used in the key of {@link #plans}.
+     */
+    private final Map<Namespace, String> namespaceStates = new ConcurrentHashMap<>();
+
     @Override
     public JobGroupPath getGroupPath()
     {
@@ -209,21 +239,33 @@ protected void runInternal() throws Exception
             addRemoteExtensions(indexedExtensions);
         }
 
-        // 3: Validate latest and recommended extensions versions (only if something was updated or if update was
-        // disabled)
-        Map<String, Set<Namespace>> missingExtension = new HashMap<>();
-        this.progress.startStep(this);
-        validateLastExtensions(indexedExtensions, missingExtension);
+        if (getRequest().getValidationThreads() > 1) {
+            this.validationExecutor = Executors.newFixedThreadPool(getRequest().getValidationThreads(),
+                new BasicThreadFactory.Builder().namingPattern("Extension index validation %d").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build());
+        }
 
-        // 4: Validate older extensions
-        this.progress.startStep(this);
-        if (!missingExtension.isEmpty()) {
-            validateOldExtensions(missingExtension, indexedExtensions);
+        try {
+            // 3: Validate latest and recommended extensions versions (only if something was updated or if update was
+            // disabled)
+            Map<String, Set<Namespace>> missingExtension = new ConcurrentHashMap<>();
+            this.progress.startStep(this);
+            validateLastExtensions(indexedExtensions, missingExtension);
+
+            // 4: Validate older extensions
+            this.progress.startStep(this);
+            if (!missingExtension.isEmpty()) {
+                validateOldExtensions(missingExtension, indexedExtensions);
+            }
+        } finally {
+            if (this.validationExecutor != null) {
+                this.validationExecutor.shutdownNow();
+            }
         }
     }
 
     private void validateLastExtensions(Map<String, SortedSet<Version>> indexedExtensions,
-        Map<String, Set<Namespace>> missingExtension)
+        Map<String, Set<Namespace>> missingExtension) throws InterruptedException
     {
         this.progress.pushLevelProgress(getRequest().getNamespaces().size(), getRequest().getNamespaces());
 
@@ -237,15 +279,80 @@ private void validateLastExtensions(Map<String, SortedSet<Version>> indexedExten
     }
 
     private void validateOldExtensions(Map<String, Set<Namespace>> missingExtension,
-        Map<String, SortedSet<Version>> indexedExtensions) throws SolrServerException, IOException
+        Map<String, SortedSet<Version>> indexedExtensions) throws InterruptedException
     {
         // Test older versions
-        this.progress.pushLevelProgress(missingExtension.size(), missingExtension);
-        for (Map.Entry<String, Set<Namespace>> entry : missingExtension.entrySet()) {
-            this.progress.startStep(getRequest().getNamespaces());
+        validate(missingExtension.entrySet(), entry -> {
             validateOlderExtensions(entry.getKey(), entry.getValue(), indexedExtensions);
+
+            return null;
+        });
+    }
+
+    /**
+     * Validate the passed elements, in parallel when validation threads are enabled. The progress and the commit of
+     * the index are handled in the job thread.
+     * 
+     * @param <T> the type of the elements to validate
+     * @param elements the elements to validate
+     * @param validator the validation to apply to each element
+     * @throws InterruptedException when the job thread is interrupted while waiting for the validation threads
+     */
+    private <T> void validate(Collection<T> elements, Validator<T> validator) throws InterruptedException
+    {
+        this.progress.pushLevelProgress(elements.size(), elements);
+
+        try {
+            if (this.validationExecutor != null) {
+                ComponentManager componentManager = this.componentManagerProvider.get();
+
+                List<FutureTask<Void>> tasks = new ArrayList<>(elements.size());
+                for (T element : elements) {
+                    FutureTask<Void> task = new FutureTask<>(() -> validateInSession(element, validator));
+                    tasks.add(task);
+                    this.validationExecutor.execute(new ExecutionContextRunnable(task, componentManager));
+                }
+
+                for (FutureTask<Void> task : tasks) {
+                    this.progress.startStep(elements);
+
+                    try {
+                        task.get();
+                    } catch (ExecutionException e) {
+                        this.logger.error("Unexpected error while validating extensions", e.getCause());
+                    }
+                }
+            } else {
+                for (T element : elements) {
+                    this.progress.startStep(elements);
+
+                    try {
+                        validator.validate(element);
+                    } catch (Exception e) {
+                        this.logger.error("Unexpected error while validating extensions", e);
+                    }
+                }
+            }
+
+            // Commit all the updates at once
+            this.indexStore.commit();
+        } catch (SolrServerException | IOException e) {
+            this.logger.error("Failed to commit the extension index", e);
+        } finally {
+            this.progress.popLevelProgress(elements);
+        }
+    }
+
+    private <T> Void validateInSession(T element, Validator<T> validator) throws Exception
+    {
+        // Share things like the Maven cache between the various install plans resolved for this element
+        this.extensionContext.pushSession();
+
+        try {
+            return validator.validate(element);
+        } finally {
+            this.extensionContext.popSession();
         }
-        this.progress.popLevelProgress(missingExtension);
     }
 
     private void add(ExtensionId extension, Map<String, SortedSet<Version>> extensions)
@@ -268,8 +375,6 @@ private Map<String, SortedSet<Version>> getIndexedExtensions() throws SolrServer
     private void validateOlderExtensions(String extensionId, Set<Namespace> namespaces,
         Map<String, SortedSet<Version>> indexedExtensions) throws SolrServerException, IOException
     {
-        boolean updated = false;
-
         SortedSet<Version> indexedVersions = indexedExtensions.get(extensionId);
 
         // If the extension is already compatible on any namespace check this specific version
@@ -286,17 +391,13 @@ private void validateOlderExtensions(String extensionId, Set<Namespace> namespac
 
                     } else {
                         // Search for a compatible version among the available versions
-                        updated |= validateOldExtension(extensionId, namespace, indexedVersions);
+                        validateOldExtension(extensionId, namespace, indexedVersions);
                     }
                 }
             } catch (Exception e) {
                 this.logger.error("Failed to validate extensions [{}] on namespace [{}]", extensionId, namespace, e);
             }
         }
-
-        if (updated) {
-            this.indexStore.commit();
-        }
     }
 
     private Version getStopVersion(String extensionId, String namespace)
@@ -355,7 +456,7 @@ private boolean validateExtension(String extensionId, Namespace namespace, Sorte
             }
 
             // Try older versions (but push it to a future step)
-            missingExtensions.computeIfAbsent(extensionId, key -> new HashSet<>()).add(namespace);
+            missingExtensions.computeIfAbsent(extensionId, key -> ConcurrentHashMap.newKeySet()).add(namespace);
 
             // Explicitly mark the extension as invalid (if this extension exist in the index)
             this.indexStore.updateCompatible(tryId, namespace.serialize(), null, true);
@@ -459,6 +560,83 @@ private boolean validate(ExtensionId extensionId, Namespace namespace, SortedSet
     }
 
     private Extension tryInstall(ExtensionId extensionId, Namespace namespace)
+    {
+        String planKey = getPlanKey(extensionId, namespace);
+
+        Optional<Extension> plan = this.plans.get(planKey);
+        if (plan == null) {
+            ExtensionPlan extensionPlan = resolveInstallPlan(extensionId, namespace);
+            ExtensionPlanTree tree = extensionPlan.getTree();
+
+            if (extensionPlan.getError() == null) {
+                // Get last element of the root tree node
+                ExtensionPlanNode node = IterableUtils.get(tree, tree.size() - 1);
+
+                plan = Optional.of(node.getAction().getExtension());
+            } else {
+                plan = Optional.empty();
+            }
+
+            // The plan (successful or not) cannot be reused for other namespaces when one of the extensions is
+            // restricted to some namespaces
+            if (isNamespaceIndependent(tree) && (plan.isPresent() || isNamespaceIndependent(extensionId))) {
+                this.plans.put(planKey, plan);
+            }
+        }
+
+        return plan.orElse(null);
+    }
+
+    /**
+     * @param extensionId the extension to install
+     * @param namespace the namespace where to install the extension
+     * @return the key of the install plan in {@link #plans}: two namespaces of the same type, with the same installed
+     *         extensions and allowing the same root modifications produce the same install plan
+     */
+    private String getPlanKey(ExtensionId extensionId, Namespace namespace)
+    {
+        String namespaceState = this.namespaceStates.computeIfAbsent(namespace,
+            key -> isAllowRootModications(key) + "/" + key.getType() + "/"
+                + this.installedExtensions.getInstalledExtensions(key.serialize()).stream()
+                    .map(installedExtension -> installedExtension.getId().toString()).sorted()
+                    .collect(Collectors.joining(",")));
+
+        return extensionId + "/" + namespaceState;
+    }
+
+    /**
+     * @param extensionId the extension which failed to be installed
+     * @return true if the extension is not restricted to some namespaces, in which case the failure is not specific
+     *         to the namespace where it was tried (the plan tree of a failed install does not always contain it)
+     */
+    private boolean isNamespaceIndependent(ExtensionId extensionId)
+    {
+        try {
+            return CollectionUtils.isEmpty(this.repositoryManager.resolve(extensionId).getAllowedNamespaces());
+        } catch (ResolveException e) {
+            // The extension cannot be installed anywhere
+            return true;
+        }
+    }
+
+    private boolean isNamespaceIndependent(Collection<? extends ExtensionPlanNode> nodes)
+    {
+        if (nodes == null) {
+            return true;
+        }
+
+        for (ExtensionPlanNode node : nodes) {
+            Extension extension = node.getAction().getExtension();
+            if ((extension != null && CollectionUtils.isNotEmpty(extension.getAllowedNamespaces()))
+                || !isNamespaceIndependent(node.getChildren())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private ExtensionPlan resolveInstallPlan(ExtensionId extensionId, Namespace namespace)
     {
         InstallRequest planRequest = new InstallRequest(getRequest());
         planRequest.setId((List<String>) null);
@@ -476,23 +654,20 @@ private Extension tryInstall(ExtensionId extensionId, Namespace namespace)
         Job job = this.installPlanJobProvider.get();
         job.initialize(planRequest);
 
-        // Ignore any log produced by the install plan job
-        getStatus().ignoreLogs(true);
-        try {
+        if (this.validationExecutor != null) {
+            // The logs of a validation thread don't end up in the job status
             job.run();
-        } finally {
-            getStatus().ignoreLogs(false);
-        }
-
-        if (job.getStatus().getError() == null) {
-            // Get last element of the root tree node
-            ExtensionPlanTree tree = ((ExtensionPlan) job.getStatus()).getTree();
-            ExtensionPlanNode node = IterableUtils.get(tree, tree.size() - 1);
-
-            return node.getAction().getExtension();
+        } else {
+            // Ignore any log produced by the install plan job
+            getStatus().ignoreLogs(true);
+            try {
+                job.run();
+            } finally {
+                getStatus().ignoreLogs(false);
+            }
         }
 
-        return null;
+        return (ExtensionPlan) job.getStatus();
     }
 
     private void addSearchableCompatibleExtension(Extension validExtension, Namespace namespace,
@@ -542,29 +717,22 @@ private boolean validateOldExtension(String extensionId, Namespace namespace, So
     }
 
     private void validateExtensions(Namespace namespace, Map<String, SortedSet<Version>> indexedExtensions,
-        Map<String, Set<Namespace>> missingExtensions)
+        Map<String, Set<Namespace>> missingExtensions) throws InterruptedException
     {
-        this.progress.pushLevelProgress(indexedExtensions.size(), indexedExtensions);
-
-        for (Map.Entry<String, SortedSet<Version>> entry : indexedExtensions.entrySet()) {
-            this.progress.startStep(indexedExtensions);
-
+        // Each extension is validated by a single thread at a time since the validation updates its indexed versions
+        validate(indexedExtensions.entrySet(), entry -> {
             String extensionId = entry.getKey();
             SortedSet<Version> indexedVersions = entry.getValue();
 
             try {
-                if (validateExtension(extensionId, namespace, indexedVersions, missingExtensions)) {
-                    // Commit right away since validating an extension can be very slow and we want to get as many
-                    // extensions as possible as fast as possible in the search result
-                    this.indexStore.commit();
-                }
+                validateExtension(extensionId, namespace, indexedVersions, missingExtensions);
             } catch (Exception e) {
                 this.logger.error("Failed to validate extension with if [{}] on namespace [{}]", extensionId, namespace,
                     e);
             }
-        }
 
-        this.progress.popLevelProgress(indexedExtensions);
+            return null;
+        });
     }
 
     private void addLocalExtensions(Map<String, SortedSet<Version>> indexedExtensions)
@@ -684,4 +852,21 @@ private boolean addRemoteExtensions(Searchable searchableRepository,
 
         return updated;
     }
+
+    /**
+     * The validation of an element.
+     * 
+     * @param <T> the type of the element to validate
+     * @version $Id$
+     */
+    @FunctionalInterface
+    private interface Validator<T>
+    {
+        /**
+         * @param element the element to validate
+         * @return nothing
+         * @throws Exception when failing to validate the element
+         */
+        Void validate(T element) throws Exception;
+    }
 }
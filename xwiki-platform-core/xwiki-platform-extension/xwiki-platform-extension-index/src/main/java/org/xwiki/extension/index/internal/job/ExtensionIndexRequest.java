@@ -41,6 +41,13 @@ public class ExtensionIndexRequest extends AbstractRequest
      */
     public static final List<String> JOB_ID = Arrays.asList("extension", "index");
 
+    /**
+     * The default number of threads used to validate the compatibility of the indexed extensions.
+     * 
+     * @since 14.9RC1
+     */
+    public static final int DEFAULT_VALIDATION_THREADS = 4;
+
     private static final long serialVersionUID = 1L;
 
     private boolean localExtensionsEnabled;
@@ -49,6 +56,8 @@ public class ExtensionIndexRequest extends AbstractRequest
 
     private List<Namespace> namespaces;
 
+    private int validationThreads = DEFAULT_VALIDATION_THREADS;
+
     /**
      * @param localExtensionsEnabled true if local extensions should be loaded
      * @param remoteExtensionsEnabled true if remote extensions should be loaded
@@ -78,6 +87,8 @@ public ExtensionIndexRequest(boolean localExtensionsEnabled, boolean remoteExten
     public ExtensionIndexRequest(ExtensionIndexRequest request)
     {
         this(request.isLocalExtensionsEnabled(), request.isRemoteExtensionsEnabled(), request.getNamespaces());
+
+        this.validationThreads = request.getValidationThreads();
     }
 
     /**
@@ -153,4 +164,24 @@ public List<Namespace> getNamespaces()
     {
         return this.namespaces;
     }
+
+    /**
+     * @return the number of threads used to validate the compatibility of the indexed extensions, 1 or less to
+     *         validate them in the job thread
+     * @since 14.9RC1
+     */
+    public int getValidationThreads()
+    {
+        return this.validationThreads;
+    }
+
+    /**
+     * @param validationThreads the number of threads used to validate the compatibility of the indexed extensions, 1
+     *            or less to validate them in the job thread
+     * @since 14.9RC1
+     */
+    public void setValidationThreads(int validationThreads)
+    {
+        this.validationThreads = validationThreads;
+    }
 }
@@ -21,25 +21,42 @@
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 
+import javax.inject.Named;
+import javax.inject.Provider;
+
 import org.apache.solr.client.solrj.SolrServerException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.namespace.Namespace;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.extension.AbstractExtension;
 import org.xwiki.extension.Extension;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.index.internal.ExtensionIndexStore;
+import org.xwiki.extension.job.internal.InstallPlanJob;
+import org.xwiki.extension.job.plan.ExtensionPlan;
 import org.xwiki.extension.repository.ExtensionRepositoryManager;
 import org.xwiki.extension.repository.result.CollectionIterableResult;
 import org.xwiki.extension.repository.search.SearchException;
 import org.xwiki.extension.repository.search.SearchableExtensionRepository;
+import org.xwiki.extension.version.Version;
+import org.xwiki.extension.version.internal.DefaultVersion;
+import org.xwiki.job.Job;
 import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -60,6 +77,25 @@
     @MockComponent
     private ExtensionRepositoryManager repositoryManager;
 
+    @MockComponent
+    @Named(InstallPlanJob.JOBTYPE)
+    private Provider<Job> installPlanJobProvider;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @MockComponent
+    private Execution execution;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private Job installPlanJob;
+
     private SearchableExtensionRepository repository1;
 
     private Extension extension11;
@@ -78,6 +114,13 @@ public TestExtension(ExtensionId id, String type)
         {
             super(null, id, type);
         }
+
+        public TestExtension(ExtensionId id, Collection<String> allowedNamespaces)
+        {
+            this(id, (String) null);
+
+            setAllowedNamespaces(allowedNamespaces);
+        }
     }
 
     @BeforeEach
@@ -96,6 +139,36 @@ void beforeEach() throws SearchException
             new CollectionIterableResult<Extension>(0, 0, Arrays.asList(this.extension21, this.extension22)));
 
         when(this.repositoryManager.getRepositories()).thenReturn(Arrays.asList(this.repository1, this.repository2));
+
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+    }
+
+    private ExtensionId mockFailingValidation(Collection<String> allowedNamespaces) throws Exception
+    {
+        ExtensionId extensionId = new ExtensionId("id11", "1.0");
+        when(this.indexStore.searchExtensionIds(any())).thenReturn(Collections.singleton(extensionId));
+        when(this.repositoryManager.resolveVersions("id11", 0, -1))
+            .thenReturn(new CollectionIterableResult<Version>(0, 0, Arrays.asList(new DefaultVersion("1.0"))));
+        when(this.repositoryManager.resolve(extensionId))
+            .thenReturn(new TestExtension(extensionId, allowedNamespaces));
+
+        this.installPlanJob = mock(Job.class);
+        ExtensionPlan plan = mock(ExtensionPlan.class);
+        when(plan.getError()).thenReturn(new Exception());
+        when(this.installPlanJob.getStatus()).thenReturn(plan);
+        when(this.installPlanJobProvider.get()).thenReturn(this.installPlanJob);
+
+        return extensionId;
+    }
+
+    private void validate(int validationThreads)
+    {
+        ExtensionIndexRequest request = new ExtensionIndexRequest(false, false,
+            Arrays.asList(new Namespace("wiki", "wiki1"), new Namespace("wiki", "wiki2")));
+        request.setValidationThreads(validationThreads);
+
+        this.job.initialize(request);
+        this.job.run();
     }
 
     @Test
@@ -113,4 +186,50 @@ void failingRepository1() throws SolrServerException, IOException, SearchExcepti
         verify(this.indexStore).add(this.extension21, true);
         verify(this.indexStore).add(this.extension22, true);
     }
+
+    @Test
+    void validateExtensionOnSeveralNamespaces() throws Exception
+    {
+        ExtensionId extensionId = mockFailingValidation(Collections.emptyList());
+
+        validate(1);
+
+        // Both wikis have the same installed extensions so the install plan is resolved only once
+        verify(this.installPlanJob).run();
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki1", null, true);
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki2", null, true);
+
+        // Each namespace round and the validation of older versions are committed at once
+        verify(this.indexStore, times(3)).commit();
+    }
+
+    @Test
+    void validateExtensionOnSeveralNamespacesWithValidationThreads() throws Exception
+    {
+        ExtensionId extensionId = mockFailingValidation(Collections.emptyList());
+
+        validate(2);
+
+        // The install plans are shared between the validation threads
+        verify(this.installPlanJob).run();
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki1", null, true);
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki2", null, true);
+
+        // The updates of the validation threads are committed by the job thread
+        verify(this.indexStore, times(3)).commit();
+    }
+
+    @Test
+    void validateRestrictedExtensionOnSeveralNamespaces() throws Exception
+    {
+        ExtensionId extensionId = mockFailingValidation(Arrays.asList("wiki:wiki2"));
+
+        validate(1);
+
+        // The extension fails to install on the first wiki because it's restricted to the second one, which says
+        // nothing about the second wiki
+        verify(this.installPlanJob, times(2)).run();
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki1", null, true);
+        verify(this.indexStore).updateCompatible(extensionId, "wiki:wiki2", null, true);
+    }
 }
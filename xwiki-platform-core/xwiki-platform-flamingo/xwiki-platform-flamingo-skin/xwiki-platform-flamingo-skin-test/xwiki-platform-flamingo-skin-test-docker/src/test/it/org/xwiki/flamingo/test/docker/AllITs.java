@@ -176,4 +176,10 @@ class NestedPDFExportIT extends PDFExportIT
     class NestedBacklinksIT extends BacklinksIT
     {
     }
+
+    @Nested
+    @DisplayName("Document Store Tests")
+    class NestedDocumentStoreIT extends DocumentStoreIT
+    {
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.flamingo.test.docker;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.docker.junit5.TestReference;
+import org.xwiki.test.docker.junit5.UITest;
+import org.xwiki.test.ui.TestUtils;
+import org.xwiki.test.ui.po.ViewPage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Functional tests for saving documents in the database.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@UITest
+class DocumentStoreIT
+{
+    /**
+     * Saves two copies of the same document, loaded before any of them is saved. The database must contain the last
+     * saved copy, even for the objects and properties which did not change compared to the loaded document.
+     */
+    @Test
+    void saveOutdatedDocument(TestUtils setup, TestReference testReference)
+    {
+        setup.loginAsSuperAdmin();
+
+        DocumentReference changedPropertyReference =
+            new DocumentReference("ChangedProperty", testReference.getLastSpaceReference());
+        DocumentReference removedObjectReference =
+            new DocumentReference("RemovedObject", testReference.getLastSpaceReference());
+        setup.deletePage(changedPropertyReference);
+        setup.deletePage(removedObjectReference);
+
+        StringBuilder script = new StringBuilder();
+        script.append("{{velocity}}\n");
+        script.append("#set ($context = $xcontext.context)\n");
+        script.append("#set ($wiki = $xwiki.getXWiki())\n");
+        script.append("#set ($class = $services.model.resolveDocument('XWiki.StyleSheetExtension'))\n");
+        // The first copy changes a property and the outdated second copy changes another one.
+        appendSaveOutdatedDocument(script, "ChangedProperty",
+            "#set ($discard = $first.getXObject($class).setStringValue('name', 'first'))",
+            "#set ($discard = $second.getXObject($class).setStringValue('use', 'onDemand'))");
+        script.append("\n\n");
+        // The first copy removes the object and the outdated second copy only changes the title.
+        appendSaveOutdatedDocument(script, "RemovedObject", "#set ($discard = $first.removeXObjects($class))",
+            "#set ($discard = $second.setTitle('second'))");
+        script.append("{{/velocity}}");
+
+        setup.createPage(testReference, script.toString());
+        ViewPage viewPage = setup.gotoPage(testReference);
+
+        // The database contains the last saved copy and not a mix of both copies.
+        assertEquals("initial onDemand\n\ninitial currentPage", viewPage.getContent());
+    }
+
+    private void appendSaveOutdatedDocument(StringBuilder script, String name, String firstChange,
+        String secondChange)
+    {
+        // Create the document.
+        script.append("#set ($reference = $services.model.resolveDocument('").append(name)
+            .append("', 'default', $doc.documentReference))\n");
+        script.append("#set ($target = $wiki.getDocument($reference, $context))\n");
+        script.append("#set ($object = $target.newXObject($class, $context))\n");
+        script.append("#set ($discard = $object.setStringValue('name', 'initial'))\n");
+        script.append("#set ($discard = $object.setStringValue('use', 'currentPage'))\n");
+        script.append("#set ($discard = $wiki.saveDocument($target, $context))\n");
+        // Load two copies of the document and save them one after the other.
+        script.append("#set ($loaded = $wiki.getDocument($reference, $context))\n");
+        script.append("#set ($first = $loaded.clone())\n");
+        script.append("#set ($second = $loaded.clone())\n");
+        script.append(firstChange).append('\n');
+        script.append("#set ($discard = $wiki.saveDocument($first, $context))\n");
+        script.append(secondChange).append('\n');
+        script.append("#set ($discard = $wiki.saveDocument($second, $context))\n");
+        // Print the object stored in the database.
+        script.append("#set ($discard = $wiki.flushCache($context))\n");
+        script.append("#set ($stored = $wiki.getDocument($reference, $context).getXObject($class))\n");
+        script.append("#if ($stored)$stored.getStringValue('name') $stored.getStringValue('use')#{else}none#end\n");
+    }
+}
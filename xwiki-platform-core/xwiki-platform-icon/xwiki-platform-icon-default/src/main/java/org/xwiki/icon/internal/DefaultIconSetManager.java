@@ -60,6 +60,10 @@ public class DefaultIconSetManager implements IconSetManager
 {
     private static final String DEFAULT_ICONSET_NAME = "default";
 
+    private static final String ICON_THEME_CLASS_SPACE = "IconThemesCode";
+
+    private static final String ICON_THEME_CLASS_NAME = "IconThemeClass";
+
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
@@ -188,6 +192,10 @@ public List<String> getIconSetNames() throws IconException
             String xwql = "SELECT obj.name FROM Document doc, doc.object(IconThemesCode.IconThemeClass) obj "
                     + "ORDER BY obj.name";
             Query query = queryManager.createQuery(xwql, Query.XWQL);
+            // The names only change when an icon theme is modified
+            query.setCacheable(true);
+            query.addCacheDependency(new DocumentReference(wikiDescriptorManager.getCurrentWikiId(),
+                ICON_THEME_CLASS_SPACE, ICON_THEME_CLASS_NAME));
             return query.execute();
         } catch (QueryException e) {
             throw new IconException("Failed to get the name of all icon sets.", e);
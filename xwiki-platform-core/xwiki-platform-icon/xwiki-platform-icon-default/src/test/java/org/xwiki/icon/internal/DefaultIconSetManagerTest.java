@@ -353,8 +353,14 @@ void getIconSetNames() throws Exception
         List<String> results = new ArrayList<>();
         when(query.<String>execute()).thenReturn(results);
 
+        when(this.wikiDescriptorManager.getCurrentWikiId()).thenReturn("wikiId");
+
         // Test
         assertTrue(results == this.iconSetManager.getIconSetNames());
+
+        // Verify
+        verify(query).setCacheable(true);
+        verify(query).addCacheDependency(new DocumentReference("wikiId", "IconThemesCode", "IconThemeClass"));
     }
 
     @Test
@@ -20,6 +20,7 @@
 package org.xwiki.index.tree.internal.nestedpages;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -32,6 +33,7 @@
 import javax.inject.Provider;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -69,6 +71,21 @@ public class DocumentTreeNode extends AbstractDocumentTreeNode implements Initia
 
     private static final String PARAMETER_EXCLUDED_DOCUMENTS = "excludedDocuments";
 
+    private static final String PARAMETER_PARENTS = "parents";
+
+    private static final String PARAMETER_DEFAULT_DOC_NAME = "defaultDocName";
+
+    private static final String PROPERTY_FILTER_HIDDEN_DOCUMENTS = "filterHiddenDocuments";
+
+    private static final String CONSTRAINT_NOT_TRANSLATION = "doc.translation = 0";
+
+    private static final String CONSTRAINT_TERMINAL_PAGE = "doc.name <> :defaultDocName";
+
+    /**
+     * The maximum number of parents for which to count the children with a single query.
+     */
+    private static final int CHILD_COUNT_BATCH_SIZE = 500;
+
     @Inject
     @Named("count")
     protected QueryFilter countQueryFilter;
@@ -234,6 +251,133 @@ protected int getChildCount(DocumentReference documentReference) throws Exceptio
         return getPseudoChildCount(documentReference) + getChildDocumentsCount(documentReference);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the child documents of the nested documents are counted in bulk (one grouped query per table and per batch
+     * of parent spaces). The pseudo child nodes (translations, attachments, etc.) and the children of the nodes whose
+     * parent has exclusions are still counted node by node. Note that the child nodes themselves are still fetched
+     * one parent at a time, using offset based pagination.
+     */
+    @Override
+    public Map<String, Integer> getChildCounts(Collection<String> nodeIds)
+    {
+        Map<String, Integer> childCounts = new LinkedHashMap<>();
+
+        // The nested documents whose child documents can be counted in bulk, grouped by wiki.
+        Map<String, Map<String, DocumentReference>> nestedDocumentsByWiki = new LinkedHashMap<>();
+
+        for (String nodeId : nodeIds) {
+            EntityReference entityReference = resolve(nodeId);
+            if (entityReference != null && entityReference.getType() == EntityType.DOCUMENT) {
+                DocumentReference documentReference = new DocumentReference(entityReference);
+                if (getDefaultDocumentName().equals(documentReference.getName())
+                    && !hasExclusions(documentReference)) {
+                    childCounts.put(nodeId, getPseudoChildCount(documentReference));
+                    nestedDocumentsByWiki
+                        .computeIfAbsent(documentReference.getWikiReference().getName(), key -> new LinkedHashMap<>())
+                        .put(nodeId, documentReference);
+                } else {
+                    // Count the children of this node separately.
+                    childCounts.put(nodeId, getChildCount(nodeId));
+                }
+            } else {
+                childCounts.put(nodeId, 0);
+            }
+        }
+
+        for (Map.Entry<String, Map<String, DocumentReference>> entry : nestedDocumentsByWiki.entrySet()) {
+            try {
+                addChildDocumentsCounts(entry.getKey(), entry.getValue(), childCounts);
+            } catch (QueryException e) {
+                this.logger.warn("Failed to count the children of [{}]. Root cause [{}].", entry.getValue().keySet(),
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return childCounts;
+    }
+
+    private boolean hasExclusions(DocumentReference documentReference)
+    {
+        return !getExcludedSpaces(documentReference.getParent()).isEmpty()
+            || (areTerminalDocumentsShown() && !getExcludedDocuments(documentReference.getParent()).isEmpty());
+    }
+
+    private void addChildDocumentsCounts(String wiki, Map<String, DocumentReference> nestedDocuments,
+        Map<String, Integer> childCounts) throws QueryException
+    {
+        // Index the nodes by the local reference of their space.
+        Map<String, String> nodeIdsBySpace = new LinkedHashMap<>();
+        for (Map.Entry<String, DocumentReference> entry : nestedDocuments.entrySet()) {
+            nodeIdsBySpace.put(this.localEntityReferenceSerializer.serialize(entry.getValue().getParent()),
+                entry.getKey());
+        }
+
+        List<String> spaces = new ArrayList<>(nodeIdsBySpace.keySet());
+        for (int start = 0; start < spaces.size(); start += CHILD_COUNT_BATCH_SIZE) {
+            List<String> batch = spaces.subList(start, Math.min(start + CHILD_COUNT_BATCH_SIZE, spaces.size()));
+
+            addChildDocumentsCounts(getChildSpacesCounts(wiki, batch), nodeIdsBySpace, childCounts);
+            if (areTerminalDocumentsShown()) {
+                addChildDocumentsCounts(getChildTerminalPagesCounts(wiki, batch), nodeIdsBySpace, childCounts);
+            }
+        }
+    }
+
+    private void addChildDocumentsCounts(List<Object[]> results, Map<String, String> nodeIdsBySpace,
+        Map<String, Integer> childCounts)
+    {
+        for (Object[] result : results) {
+            String nodeId = nodeIdsBySpace.get(result[0]);
+            if (nodeId != null) {
+                childCounts.merge(nodeId, ((Long) result[1]).intValue(), Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #getChildSpacesCount(EntityReference)} but for multiple parent spaces at once.
+     */
+    private List<Object[]> getChildSpacesCounts(String wiki, List<String> spaces) throws QueryException
+    {
+        List<String> constraints = new ArrayList<String>();
+        constraints.add("parent in (:parents)");
+        if (!areHiddenEntitiesShown()) {
+            constraints.add("hidden <> true");
+        }
+
+        Query query = this.queryManager.createQuery(
+            "select parent, count(*) from XWikiSpace " + whereClause(constraints) + " group by parent", Query.HQL);
+        query.setWiki(wiki);
+        query.bindValue(PARAMETER_PARENTS, spaces);
+
+        return query.execute();
+    }
+
+    /**
+     * Same as {@link #getChildTerminalPagesCount(DocumentReference)} but for multiple parent spaces at once.
+     */
+    private List<Object[]> getChildTerminalPagesCounts(String wiki, List<String> spaces) throws QueryException
+    {
+        List<String> constraints = new ArrayList<String>();
+        constraints.add(CONSTRAINT_NOT_TRANSLATION);
+        constraints.add("doc.space in (:parents)");
+        constraints.add(CONSTRAINT_TERMINAL_PAGE);
+
+        Query query = this.queryManager.createQuery("select doc.space, count(*) from XWikiDocument doc "
+            + whereClause(constraints) + " group by doc.space", Query.HQL);
+        query.setWiki(wiki);
+        query.bindValue(PARAMETER_PARENTS, spaces);
+        query.bindValue(PARAMETER_DEFAULT_DOC_NAME, getDefaultDocumentName());
+
+        if (Boolean.TRUE.equals(getProperties().get(PROPERTY_FILTER_HIDDEN_DOCUMENTS))) {
+            query.addFilter(this.hiddenDocumentQueryFilterProvider.get());
+        }
+
+        return query.execute();
+    }
+
     private int getPseudoChildCount(DocumentReference documentReference)
     {
         int count = 0;
@@ -269,15 +413,15 @@ private int getChildTerminalPagesCount(DocumentReference documentReference) thro
         Map<String, Object> parameters = new HashMap<String, Object>();
 
         // Exclude page translations.
-        constraints.add("doc.translation = 0");
+        constraints.add(CONSTRAINT_NOT_TRANSLATION);
 
         // Include only the child pages.
         constraints.add("doc.space = :space");
         parameters.put("space", this.localEntityReferenceSerializer.serialize(documentReference.getParent()));
 
         // Include only the terminal pages.
-        constraints.add("doc.name <> :defaultDocName");
-        parameters.put("defaultDocName", getDefaultDocumentName());
+        constraints.add(CONSTRAINT_TERMINAL_PAGE);
+        parameters.put(PARAMETER_DEFAULT_DOC_NAME, getDefaultDocumentName());
 
         // Check for page exclusions.
         Set<String> excludedDocuments = getExcludedDocuments(documentReference.getParent());
@@ -293,7 +437,7 @@ private int getChildTerminalPagesCount(DocumentReference documentReference) thro
         }
 
         query.addFilter(this.countQueryFilter);
-        if (Boolean.TRUE.equals(getProperties().get("filterHiddenDocuments"))) {
+        if (Boolean.TRUE.equals(getProperties().get(PROPERTY_FILTER_HIDDEN_DOCUMENTS))) {
             query.addFilter(this.hiddenDocumentQueryFilterProvider.get());
         }
 
@@ -19,10 +19,12 @@
  */
 package org.xwiki.index.tree.internal.nestedpages;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -358,6 +360,47 @@ public void getChildCount() throws Exception
         assertEquals(2L, this.documentTreeNode.getChildCount("document:wiki:Path.To.Page.WebHome"));
     }
 
+    @Test
+    void getChildCounts() throws Exception
+    {
+        DocumentReference otherReference = new DocumentReference("wiki", "Other", "WebHome");
+        when(this.entityTreeNodeIdConverter.convert(EntityReference.class, "document:wiki:Other.WebHome"))
+            .thenReturn(otherReference);
+        when(this.localEntityReferenceSerializer.serialize(otherReference.getParent())).thenReturn("Other");
+
+        Query childSpacesQuery = mock(Query.class, "childSpaces");
+        when(this.queryManager.createQuery(
+            "select parent, count(*) from XWikiSpace where parent in (:parents) group by parent", Query.HQL))
+                .thenReturn(childSpacesQuery);
+        when(childSpacesQuery.execute()).thenReturn(Collections.singletonList(new Object[] {"Path.To.Page", 2L}));
+
+        Query childTerminalPagesQuery = mock(Query.class, "childTerminalPages");
+        when(this.queryManager.createQuery("select doc.space, count(*) from XWikiDocument doc "
+            + "where doc.translation = 0 and doc.space in (:parents) and doc.name <> :defaultDocName "
+            + "group by doc.space", Query.HQL)).thenReturn(childTerminalPagesQuery);
+        when(childTerminalPagesQuery.execute())
+            .thenReturn(Arrays.asList(new Object[] {"Path.To.Page", 3L}, new Object[] {"Other", 1L}));
+
+        Map<String, Integer> childCounts = this.documentTreeNode.getChildCounts(Arrays
+            .asList("document:wiki:Path.To.Page.WebHome", "document:wiki:Some.Page", "document:wiki:Other.WebHome"));
+
+        assertEquals(
+            Arrays.asList("document:wiki:Path.To.Page.WebHome", "document:wiki:Some.Page",
+                "document:wiki:Other.WebHome"),
+            new ArrayList<>(childCounts.keySet()));
+        assertEquals(5, childCounts.get("document:wiki:Path.To.Page.WebHome"));
+        assertEquals(0, childCounts.get("document:wiki:Some.Page"));
+        assertEquals(1, childCounts.get("document:wiki:Other.WebHome"));
+
+        // The children of all the nested documents are counted with a single query per table.
+        verify(childSpacesQuery).setWiki("wiki");
+        verify(childSpacesQuery).bindValue("parents", new ArrayList<>(Arrays.asList("Path.To.Page", "Other")));
+        verify(childSpacesQuery).execute();
+        verify(childTerminalPagesQuery).setWiki("wiki");
+        verify(childTerminalPagesQuery).bindValue("defaultDocName", "WebHome");
+        verify(childTerminalPagesQuery).execute();
+    }
+
     @Test
     public void getPseudoChildCount()
     {
@@ -19,11 +19,14 @@
  */
 package org.xwiki.lesscss.internal;
 
+import java.io.File;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
 
 /**
  * Get the configuration options concerning the LESS compiler.
@@ -40,6 +43,9 @@
     @Inject
     private ConfigurationSource configurationSource;
 
+    @Inject
+    private Environment environment;
+
     /**
      * @return the number of maximum compilations that can be done simultaneously
      */
@@ -56,4 +62,47 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the compiled CSS should be stored on disk to be reused after a restart or by other cluster nodes
+     * @since 14.9RC1
+     */
+    public boolean isPersistentCacheEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache.enabled", true);
+    }
+
+    /**
+     * @return the directory where the compiled CSS is stored
+     * @since 14.9RC1
+     */
+    public File getPersistentCacheDirectory()
+    {
+        String directory = configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache.directory");
+
+        if (directory != null) {
+            return new File(directory);
+        }
+
+        return new File(environment.getPermanentDirectory(), "cache/lesscss");
+    }
+
+    /**
+     * @return the maximum number of compilation results stored on disk, the least recently used ones being removed
+     *         first
+     * @since 14.9RC1
+     */
+    public int getPersistentCacheMaxEntries()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache.maxEntries", 1000);
+    }
+
+    /**
+     * @return whether the main skin file should be compiled in the background for all color themes on startup
+     * @since 14.9RC1
+     */
+    public boolean isPrecompileColorThemes()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "precompileColorThemes", true);
+    }
 }
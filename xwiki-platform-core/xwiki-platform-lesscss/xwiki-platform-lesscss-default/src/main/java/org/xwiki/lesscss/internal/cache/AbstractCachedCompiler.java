@@ -101,7 +101,7 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
     {
         // If the cache is disabled, we just compile
         if (lessContext.isCacheDisabled()) {
-            return compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin);
+            return compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin, true);
         }
 
         T result = null;
@@ -134,7 +134,7 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
 
             // Either the result was in the cache or the force flag is set to true, we need to compile
             try {
-                result = compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin);
+                result = compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin, force);
             } catch (LESSCompilerException e) {
                 logger.error("Error during the compilation of the resource [{}].", lessResourceReference, e);
                 // We must cache the result, even if the compilation have failed, to prevent re-compiling again and
@@ -44,4 +44,23 @@
      */
     T compute(LESSResourceReference lessResourceReference, boolean includeSkinStyle, boolean useVelocity,
         boolean useLESS, String skin) throws LESSCompilerException;
+
+    /**
+     * Compute the compilation.
+     * @param lessResourceReference reference to the LESS resource to compile
+     * @param includeSkinStyle include the main LESS file of the skin in order to have variables and mix-ins
+     * @param useVelocity either or not the resource be parsed by Velocity before compiling it
+     * defined there
+     * @param useLESS either or not the resource be compiled by the LESS compiler
+     * @param skin skin in used for the compilation
+     * @param force true if any stored result of a previous compilation should be ignored
+     * @return the result of the compilation of the LESS Resource
+     * @throws LESSCompilerException if problem occurs
+     * @since 14.9RC1
+     */
+    default T compute(LESSResourceReference lessResourceReference, boolean includeSkinStyle, boolean useVelocity,
+        boolean useLESS, String skin, boolean force) throws LESSCompilerException
+    {
+        return compute(lessResourceReference, includeSkinStyle, useVelocity, useLESS, skin);
+    }
 }
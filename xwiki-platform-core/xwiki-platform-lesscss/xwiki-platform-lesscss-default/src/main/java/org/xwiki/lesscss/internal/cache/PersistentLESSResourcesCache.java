@@ -0,0 +1,243 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+
+/**
+ * Store the result of LESS compilations on disk, indexed by a hash of the compiled LESS code, so that it can be reused
+ * after a restart or by other cluster nodes sharing the same directory.
+ * <p>
+ * Since the LESS code can import other skin files, the hash of each imported file is stored along with the result and
+ * checked before reusing it.
+ * <p>
+ * The number of stored results is bounded (see {@link LESSConfiguration#getPersistentCacheMaxEntries()}): the least
+ * recently used results are removed when a new one is stored.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = PersistentLESSResourcesCache.class)
+@Singleton
+public class PersistentLESSResourcesCache
+{
+    /**
+     * Read the current content of an imported file.
+     */
+    @FunctionalInterface
+    public interface ImportedSourceReader
+    {
+        /**
+         * @param name the name of the imported file
+         * @return the current content of the imported file
+         * @throws Exception when failing to read the file
+         */
+        String read(String name) throws Exception;
+    }
+
+    /**
+     * Change this version when the format of the stored entries changes.
+     */
+    private static final String VERSION = "1";
+
+    private static final String CSS_EXTENSION = ".css";
+
+    private static final String IMPORTS_EXTENSION = ".imports";
+
+    private static final char SEPARATOR = '\0';
+
+    @Inject
+    private LESSConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param lessCode the LESS code to compile
+     * @param skin the skin used to resolve imports
+     * @param inlineSourceMap whether inline source maps are generated
+     * @return the key under which to store the result of the compilation
+     */
+    public String getKey(String lessCode, String skin, boolean inlineSourceMap)
+    {
+        return DigestUtils.sha256Hex(
+            VERSION + SEPARATOR + skin + SEPARATOR + inlineSourceMap + SEPARATOR + lessCode);
+    }
+
+    /**
+     * @param key the key of the entry
+     * @param reader used to read the current content of the files imported by the LESS code
+     * @return the stored CSS, or {@code null} if there is none or if one of the imported files changed
+     */
+    public String get(String key, ImportedSourceReader reader)
+    {
+        File directory = this.configuration.getPersistentCacheDirectory();
+        Path cssFile = new File(directory, key + CSS_EXTENSION).toPath();
+        Path importsFile = new File(directory, key + IMPORTS_EXTENSION).toPath();
+
+        if (!Files.exists(cssFile) || !Files.exists(importsFile)) {
+            return null;
+        }
+
+        try {
+            Properties imports = new Properties();
+            try (Reader importsReader = Files.newBufferedReader(importsFile, StandardCharsets.UTF_8)) {
+                imports.load(importsReader);
+            }
+
+            for (String name : imports.stringPropertyNames()) {
+                if (!imports.getProperty(name).equals(DigestUtils.sha256Hex(reader.read(name)))) {
+                    this.logger.debug("Imported file [{}] changed since the LESS entry [{}] was stored", name, key);
+
+                    return null;
+                }
+            }
+
+            String css = new String(Files.readAllBytes(cssFile), StandardCharsets.UTF_8);
+
+            // Remember the entry was used recently so that it's not the first one to be removed
+            touch(cssFile);
+
+            return css;
+        } catch (Exception e) {
+            this.logger.warn("Failed to read the stored LESS compilation result [{}]: {}", key,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key of the entry
+     * @param css the result of the compilation
+     * @param importedSources the content of the files imported by the LESS code, indexed by name
+     */
+    public void set(String key, String css, Map<String, String> importedSources)
+    {
+        File directory = this.configuration.getPersistentCacheDirectory();
+
+        try {
+            Files.createDirectories(directory.toPath());
+
+            Properties imports = new Properties();
+            for (Map.Entry<String, String> entry : importedSources.entrySet()) {
+                imports.setProperty(entry.getKey(), DigestUtils.sha256Hex(entry.getValue()));
+            }
+            StringWriter importsWriter = new StringWriter();
+            imports.store(importsWriter, null);
+
+            // The imports are written first since an entry without them is ignored
+            write(directory, key + IMPORTS_EXTENSION, importsWriter.toString());
+            write(directory, key + CSS_EXTENSION, css);
+        } catch (IOException e) {
+            this.logger.warn("Failed to store the LESS compilation result [{}]: {}", key,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        prune(directory);
+    }
+
+    private void touch(Path file)
+    {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            this.logger.debug("Failed to update the last modified time of [{}]", file, e);
+        }
+    }
+
+    /**
+     * Remove the least recently used entries when there are more than the configured maximum.
+     */
+    private void prune(File directory)
+    {
+        List<Path> cssFiles;
+        try (Stream<Path> files = Files.list(directory.toPath())) {
+            cssFiles = files.filter(file -> file.getFileName().toString().endsWith(CSS_EXTENSION))
+                .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            this.logger.warn("Failed to list the stored LESS compilation results: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        int toRemove = cssFiles.size() - this.configuration.getPersistentCacheMaxEntries();
+        if (toRemove > 0) {
+            cssFiles.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+
+            for (Path cssFile : cssFiles.subList(0, toRemove)) {
+                String fileName = cssFile.getFileName().toString();
+                String key = fileName.substring(0, fileName.length() - CSS_EXTENSION.length());
+
+                try {
+                    Files.deleteIfExists(cssFile);
+                    Files.deleteIfExists(new File(directory, key + IMPORTS_EXTENSION).toPath());
+                } catch (IOException e) {
+                    this.logger.warn("Failed to remove the stored LESS compilation result [{}]: {}", key,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+
+    private void write(File directory, String fileName, String content) throws IOException
+    {
+        // Write in a temporary file first so that other nodes sharing the directory never see a partial file
+        Path tmpFile = Files.createTempFile(directory.toPath(), fileName, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+
+            Files.move(tmpFile, new File(directory, fileName).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+}
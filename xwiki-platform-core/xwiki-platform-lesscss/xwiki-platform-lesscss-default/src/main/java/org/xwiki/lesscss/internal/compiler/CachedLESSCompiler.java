@@ -20,6 +20,8 @@
 package org.xwiki.lesscss.internal.compiler;
 
 import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
@@ -32,11 +34,14 @@
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
 import org.xwiki.lesscss.internal.cache.CachedCompilerInterface;
+import org.xwiki.lesscss.internal.cache.PersistentLESSResourcesCache;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
+import org.xwiki.lesscss.internal.compiler.less4j.TemplateLESSSource;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
 import org.xwiki.lesscss.resources.WikiLESSResourceReference;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skin.SkinManager;
 import org.xwiki.template.Template;
 import org.xwiki.template.TemplateManager;
 
@@ -74,6 +79,12 @@ public class CachedLESSCompiler implements CachedCompilerInterface<String>, Init
     @Inject
     private TemplateManager templateManager;
 
+    @Inject
+    private SkinManager skinManager;
+
+    @Inject
+    private PersistentLESSResourcesCache persistentCache;
+
     private Semaphore semaphore;
 
     @Override
@@ -85,6 +96,13 @@ public void initialize() throws InitializationException
     @Override
     public String compute(LESSResourceReference lessResourceReference, boolean includeSkinStyle, boolean useVelocity,
         boolean useLESS, String skin) throws LESSCompilerException
+    {
+        return compute(lessResourceReference, includeSkinStyle, useVelocity, useLESS, skin, false);
+    }
+
+    @Override
+    public String compute(LESSResourceReference lessResourceReference, boolean includeSkinStyle, boolean useVelocity,
+        boolean useLESS, String skin, boolean force) throws LESSCompilerException
     {
         StringWriter source = new StringWriter();
 
@@ -122,7 +140,7 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
 
             // Compile the LESS code
             if (useLESS) {
-                return less4JCompiler.compile(lessCode, skin, lessConfiguration.isGenerateInlineSourceMaps());
+                return compile(lessCode, skin, force);
             }
 
             // Otherwise return the raw LESS code
@@ -139,6 +157,33 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
         }
     }
 
+    private String compile(String lessCode, String skin, boolean force) throws Exception
+    {
+        boolean inlineSourceMaps = lessConfiguration.isGenerateInlineSourceMaps();
+
+        if (!lessConfiguration.isPersistentCacheEnabled()) {
+            return less4JCompiler.compile(lessCode, skin, inlineSourceMaps);
+        }
+
+        // The Velocity code has already been executed so the LESS code contains everything which depends on the
+        // context (color theme, etc.) and can be used to identify the result
+        String key = persistentCache.getKey(lessCode, skin, inlineSourceMaps);
+
+        if (!force) {
+            String css = persistentCache.get(key,
+                name -> new TemplateLESSSource(templateManager, skinManager.getSkin(skin), name).getContent());
+            if (css != null) {
+                return css;
+            }
+        }
+
+        Map<String, String> importedSources = new HashMap<>();
+        String css = less4JCompiler.compile(lessCode, skin, inlineSourceMaps, importedSources);
+        persistentCache.set(key, css, importedSources);
+
+        return css;
+    }
+
     private String evaluate(String source, String skin, DocumentReference authorReference,
         DocumentReference documentReference) throws Exception
     {
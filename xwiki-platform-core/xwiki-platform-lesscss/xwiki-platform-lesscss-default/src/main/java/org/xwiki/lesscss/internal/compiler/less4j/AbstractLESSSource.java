@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import org.xwiki.skin.Resource;
 import org.xwiki.skin.Skin;
 import org.xwiki.template.TemplateManager;
@@ -37,6 +39,13 @@ public abstract class AbstractLESSSource extends LessSource
 
     protected Skin skin;
     
+    /**
+     * The content of the imported templates, indexed by template name (can be null).
+     *
+     * @since 14.9RC1
+     */
+    protected Map<String, String> importedSources;
+
     private String folder;
 
     /**
@@ -51,6 +60,21 @@ public AbstractLESSSource(TemplateManager templateManager, Skin skin, String fol
         this.skin = skin;
         this.folder = folder;
     }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the templates
+     * @param folder the folder in which the template is located
+     * @param importedSources the map in which to store the content of the imported templates (can be null)
+     * @since 14.9RC1
+     */
+    public AbstractLESSSource(TemplateManager templateManager, Skin skin, String folder,
+        Map<String, String> importedSources)
+    {
+        this(templateManager, skin, folder);
+
+        this.importedSources = importedSources;
+    }
     
     @Override
     public LessSource relativeSource(String filename) throws FileNotFound
@@ -58,7 +82,7 @@ public LessSource relativeSource(String filename) throws FileNotFound
         String template = folder + "/" + filename;
         Resource resource = skin.getResource(template);
         if (resource != null) {
-            return new TemplateLESSSource(templateManager, skin, template);
+            return new TemplateLESSSource(templateManager, skin, template, importedSources);
         }
 
         // The file has not been found
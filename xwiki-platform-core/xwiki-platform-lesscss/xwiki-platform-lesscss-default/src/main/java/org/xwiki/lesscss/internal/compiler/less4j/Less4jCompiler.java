@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -56,6 +58,23 @@
      * @throws Less4jException if problems occur
      */
     public String compile(String lessCode, String skin, boolean inlineSourceMap) throws Less4jException
+    {
+        return compile(lessCode, skin, inlineSourceMap, null);
+    }
+
+    /**
+     * Compile the LESS code and get the included files from the skin templates.
+     *
+     * @param lessCode code to compile
+     * @param skin skin holding the templates
+     * @param inlineSourceMap whether to create inline sourcemaps in the generated css
+     * @param importedSources the map in which to store the content of the imported templates (can be null)
+     * @return the results of the LESS compilation
+     * @throws Less4jException if problems occur
+     * @since 14.9RC1
+     */
+    public String compile(String lessCode, String skin, boolean inlineSourceMap, Map<String, String> importedSources)
+        throws Less4jException
     {
         LessCompiler lessCompiler = new DefaultLessCompiler();
         LessCompiler.Configuration options = new LessCompiler.Configuration();
@@ -63,7 +82,7 @@ public String compile(String lessCode, String skin, boolean inlineSourceMap) thr
         options.getSourceMapConfiguration().setInline(inlineSourceMap);
         options.getSourceMapConfiguration().setIncludeSourcesContent(true);
         LessSource lessSource = 
-            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin));
+            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin), importedSources);
         LessCompiler.CompilationResult lessResult = lessCompiler.compile(lessSource, options);
         return lessResult.getCss();
     }
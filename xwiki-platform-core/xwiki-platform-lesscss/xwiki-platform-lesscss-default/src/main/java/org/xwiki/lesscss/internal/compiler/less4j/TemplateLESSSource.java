@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
 import org.xwiki.skin.Skin;
@@ -50,6 +52,20 @@ public TemplateLESSSource(TemplateManager templateManager, Skin skin, String tem
         this.templateName = templateName;
     }
 
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param templateName the name of the template
+     * @param importedSources the map in which to store the content of the imported templates (can be null)
+     * @since 14.9RC1
+     */
+    public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName,
+        Map<String, String> importedSources)
+    {
+        super(templateManager, skin, getParentFolder(templateName), importedSources);
+        this.templateName = templateName;
+    }
+
     /**
      * Get the parent folder of a path using "/" as file separator.
      * @param templateName name of the template
@@ -62,6 +78,18 @@ private static String getParentFolder(String templateName)
 
     @Override
     public String getContent() throws FileNotFound, CannotReadFile
+    {
+        String content = readContent();
+
+        // Remember what was imported so that the result of the compilation can be validated later
+        if (this.importedSources != null) {
+            this.importedSources.put(this.templateName, content);
+        }
+
+        return content;
+    }
+
+    private String readContent() throws CannotReadFile
     {
         try {
             // We execute velocity on the main skin file only (which is included by SSX objects using LESS).
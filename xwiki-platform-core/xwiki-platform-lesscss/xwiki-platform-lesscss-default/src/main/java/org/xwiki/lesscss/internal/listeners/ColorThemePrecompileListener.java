@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.listeners;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.lesscss.compiler.LESSCompiler;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiServletRequestStub;
+
+/**
+ * Compile the main skin style for all the color themes of the main wiki in the background when XWiki is ready, so that
+ * the first requests don't have to wait for the compilation (which takes a few seconds per color theme).
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named(ColorThemePrecompileListener.NAME)
+@Singleton
+public class ColorThemePrecompileListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.lesscss.internal.listeners.ColorThemePrecompileListener";
+
+    private static final String COLOR_THEME_FIELD = "colorTheme";
+
+    /**
+     * The classes of the color themes: the old color themes and the Flamingo themes.
+     */
+    private static final List<String> COLOR_THEME_CLASSES =
+        Arrays.asList("ColorThemes.ColorThemeClass", "FlamingoThemesCode.ThemeClass");
+
+    @Inject
+    private LESSConfiguration configuration;
+
+    @Inject
+    private LESSCompiler lessCompiler;
+
+    @Inject
+    private LESSResourceReferenceFactory lessResourceReferenceFactory;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    private class PrecompileRunnable extends AbstractXWikiRunnable
+    {
+        @Override
+        protected void runInternal() throws InterruptedException
+        {
+            precompile();
+        }
+    }
+
+    /**
+     * Default constructor.
+     */
+    public ColorThemePrecompileListener()
+    {
+        super(NAME, new ApplicationReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (this.configuration.isPrecompileColorThemes()) {
+            Thread thread = new Thread(new PrecompileRunnable(), "LESS color themes precompilation");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    private void precompile() throws InterruptedException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        Set<String> colorThemes = new LinkedHashSet<>();
+        try {
+            for (String colorThemeClass : COLOR_THEME_CLASSES) {
+                Query query = this.queryManager.createQuery(
+                    String.format("select distinct doc.fullName from Document doc, doc.object(%s) as theme",
+                        colorThemeClass),
+                    Query.XWQL);
+                colorThemes.addAll(query.setWiki(xcontext.getMainXWiki()).<String>execute());
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to get the list of color themes to precompile: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        String skin = xcontext.getWiki().getSkin(xcontext);
+        LESSResourceReference styleReference =
+            this.lessResourceReferenceFactory.createReferenceForSkinFile(CachedLESSCompiler.MAIN_SKIN_STYLE_FILENAME);
+
+        XWikiRequest request = xcontext.getRequest();
+        try {
+            for (String colorTheme : colorThemes) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+
+                // The current color theme is taken from the request
+                XWikiServletRequestStub themeRequest =
+                    request != null ? new XWikiServletRequestStub(request) : new XWikiServletRequestStub();
+                themeRequest.put(COLOR_THEME_FIELD, colorTheme);
+                xcontext.setRequest(themeRequest);
+
+                try {
+                    this.lessCompiler.compile(styleReference, false, true, skin, false);
+                } catch (Exception e) {
+                    this.logger.warn("Failed to precompile the skin [{}] with the color theme [{}]: {}", skin,
+                        colorTheme, ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        } finally {
+            xcontext.setRequest(request);
+        }
+
+        this.logger.debug("The skin [{}] has been precompiled for [{}] color themes", skin, colorThemes.size());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link PersistentLESSResourcesCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class PersistentLESSResourcesCacheTest
+{
+    @InjectMockComponents
+    private PersistentLESSResourcesCache cache;
+
+    @MockComponent
+    private LESSConfiguration configuration;
+
+    @XWikiTempDir
+    private File tmpDir;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.configuration.getPersistentCacheDirectory()).thenReturn(new File(this.tmpDir, "lesscss"));
+        when(this.configuration.getPersistentCacheMaxEntries()).thenReturn(2);
+    }
+
+    @Test
+    void getKey()
+    {
+        String key = this.cache.getKey("code", "skin", false);
+
+        assertEquals(key, this.cache.getKey("code", "skin", false));
+        assertNotEquals(key, this.cache.getKey("other code", "skin", false));
+        assertNotEquals(key, this.cache.getKey("code", "other skin", false));
+        assertNotEquals(key, this.cache.getKey("code", "skin", true));
+    }
+
+    @Test
+    void setAndGet()
+    {
+        String key = this.cache.getKey("code", "skin", false);
+
+        assertNull(this.cache.get(key, name -> "imported"));
+
+        this.cache.set(key, "css", Collections.singletonMap("less/variables.less", "imported"));
+
+        assertEquals("css", this.cache.get(key, name -> "imported"));
+    }
+
+    @Test
+    void getWhenImportModified()
+    {
+        String key = this.cache.getKey("code", "skin", false);
+
+        this.cache.set(key, "css", Collections.singletonMap("less/variables.less", "imported"));
+
+        assertNull(this.cache.get(key, name -> "modified"));
+        assertNull(this.cache.get(key, name -> {
+            throw new Exception("missing");
+        }));
+    }
+
+    @Test
+    void setWhenFull() throws Exception
+    {
+        String key1 = this.cache.getKey("code1", "skin", false);
+        String key2 = this.cache.getKey("code2", "skin", false);
+        String key3 = this.cache.getKey("code3", "skin", false);
+
+        this.cache.set(key1, "css1", Collections.emptyMap());
+        this.cache.set(key2, "css2", Collections.emptyMap());
+
+        File directory = new File(this.tmpDir, "lesscss");
+        long now = System.currentTimeMillis();
+        new File(directory, key1 + ".css").setLastModified(now - 20000);
+        new File(directory, key2 + ".css").setLastModified(now - 10000);
+
+        // Using the first entry makes the second one the least recently used
+        assertEquals("css1", this.cache.get(key1, name -> ""));
+
+        this.cache.set(key3, "css3", Collections.emptyMap());
+
+        assertEquals("css1", this.cache.get(key1, name -> ""));
+        assertNull(this.cache.get(key2, name -> ""));
+        assertEquals("css3", this.cache.get(key3, name -> ""));
+        assertFalse(new File(directory, key2 + ".imports").exists());
+        assertEquals(4, directory.list().length);
+    }
+}
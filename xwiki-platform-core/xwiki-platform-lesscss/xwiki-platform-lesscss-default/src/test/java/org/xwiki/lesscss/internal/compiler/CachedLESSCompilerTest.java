@@ -29,6 +29,7 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.cache.PersistentLESSResourcesCache;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
@@ -48,6 +49,7 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
@@ -81,6 +83,9 @@
     @MockComponent
     private TemplateManager templateManager;
 
+    @MockComponent
+    private PersistentLESSResourcesCache persistentCache;
+
     private XWikiContext xcontext;
 
     private XWiki xwiki;
@@ -215,4 +220,31 @@ void computeSkinFileWhenException() throws Exception
         assertEquals("Failed to compile the resource [" + resource.toString() + "] with LESS.",
             caughtException.getMessage());
     }
+
+    @Test
+    void computeSkinFileWithPersistentCache() throws Exception
+    {
+        // Mocks
+        when(lessConfiguration.isPersistentCacheEnabled()).thenReturn(true);
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent("skin")).thenReturn("Some LESS content");
+        when(this.persistentCache.getKey("Some LESS content", "skin", false)).thenReturn("key");
+        when(less4jCompiler.compile(eq("Some LESS content"), eq("skin"), eq(false), anyMap())).thenReturn("output");
+
+        // Tests
+        assertEquals("output", cachedCompiler.compute(resource, false, false, true, "skin"));
+
+        // Verify
+        verify(this.persistentCache).set(eq("key"), eq("output"), anyMap());
+
+        // Mocks
+        when(this.persistentCache.get(eq("key"), any())).thenReturn("stored output");
+
+        // Tests
+        assertEquals("stored output", cachedCompiler.compute(resource, false, false, true, "skin"));
+        assertEquals("output", cachedCompiler.compute(resource, false, false, true, "skin", true));
+
+        // Verify
+        verify(less4jCompiler, times(2)).compile(eq("Some LESS content"), eq("skin"), eq(false), anyMap());
+    }
 }
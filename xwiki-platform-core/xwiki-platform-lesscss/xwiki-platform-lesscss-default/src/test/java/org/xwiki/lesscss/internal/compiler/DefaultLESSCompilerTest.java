@@ -131,7 +131,8 @@ public void compileWhenInCache() throws Exception
     public void compileWhenNotInCache() throws Exception
     {
         // Mocks
-        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"))).
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"),
+                eq(false))).
                 thenReturn("compiled output");
 
         // Test
@@ -147,7 +148,8 @@ public void compileWhenNotInCache() throws Exception
     public void compileWhenInCacheButForced() throws Exception
     {
         // Mocks
-        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"))).
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"),
+                eq(true))).
                 thenReturn("compiled output");
 
         // Test
@@ -165,7 +167,8 @@ public void compileSkinFileWhenInCacheButCacheDisabled() throws Exception
     {
         // Mock
         when(lessContext.isCacheDisabled()).thenReturn(true);
-        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false),eq(true), eq("skin"))).
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"),
+                eq(true))).
                 thenReturn("compiled output");
 
         // Test
@@ -204,7 +207,7 @@ public void compileWhenError() throws Exception
         // Mocks
         LESSCompilerException expectedException = new LESSCompilerException("an exception");
         when(cachedLESSCompiler.compute(any(LESSResourceReference.class), anyBoolean(), anyBoolean(), anyBoolean(),
-                any())).thenThrow(expectedException);
+                any(), anyBoolean())).thenThrow(expectedException);
         
         // Test
         String result = mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false);
@@ -22,6 +22,7 @@
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.xwiki.localization.LocaleUtils;
 import org.xwiki.localization.Translation;
@@ -34,11 +35,56 @@
  */
 public abstract class AbstractCachedTranslationBundle extends AbstractTranslationBundle
 {
+    /**
+     * Incremented each time a cached localized bundle is removed or replaced in any instance of
+     * {@link AbstractCachedTranslationBundle}.
+     */
+    private static final AtomicLong MODIFICATIONS = new AtomicLong();
+
     /**
      * The bundle cache.
      */
-    protected Map<Locale, LocalizedTranslationBundle> bundleCache =
-        new ConcurrentHashMap<Locale, LocalizedTranslationBundle>();
+    protected Map<Locale, LocalizedTranslationBundle> bundleCache = new LocalizedBundleCache();
+
+    /**
+     * A {@link ConcurrentHashMap} keeping track of the removed or replaced localized bundles.
+     * 
+     * @version $Id$
+     */
+    private static final class LocalizedBundleCache extends ConcurrentHashMap<Locale, LocalizedTranslationBundle>
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public LocalizedTranslationBundle put(Locale key, LocalizedTranslationBundle value)
+        {
+            LocalizedTranslationBundle previous = super.put(key, value);
+            if (previous != null) {
+                MODIFICATIONS.incrementAndGet();
+            }
+
+            return previous;
+        }
+
+        @Override
+        public LocalizedTranslationBundle remove(Object key)
+        {
+            LocalizedTranslationBundle previous = super.remove(key);
+            if (previous != null) {
+                MODIFICATIONS.incrementAndGet();
+            }
+
+            return previous;
+        }
+
+        @Override
+        public void clear()
+        {
+            super.clear();
+
+            MODIFICATIONS.incrementAndGet();
+        }
+    }
 
     /**
      * Default constructor.
@@ -64,6 +110,18 @@ public AbstractCachedTranslationBundle(String id, int priority)
         super(id, priority);
     }
 
+    /**
+     * Indicate if any cached bundle changed: the translations returned by {@link #getTranslation(String, Locale)} for
+     * a given key and locale don't change as long as this number stays the same.
+     * 
+     * @return the number of modifications of the cached bundles
+     * @since 14.9RC1
+     */
+    public static long getModificationCount()
+    {
+        return MODIFICATIONS.get();
+    }
+
     /**
      * @param locale the Locale
      * @return the bundle containing translation for the passed Locale
@@ -19,7 +19,12 @@
  */
 package org.xwiki.localization.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,7 +35,6 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
-import org.xwiki.localization.LocaleUtils;
 import org.xwiki.localization.LocalizationManager;
 import org.xwiki.localization.Translation;
 import org.xwiki.localization.TranslationBundle;
@@ -52,6 +56,11 @@
 @Singleton
 public class DefaultLocalizationManager implements LocalizationManager
 {
+    /**
+     * The maximum number of sets of bundles for which to keep an index.
+     */
+    private static final int MAX_INDEXES = 100;
+
     /**
      * Provides access to different bundles based on their hint. Needed in {@link #use(String, String)}.
      */
@@ -78,27 +87,44 @@ public class DefaultLocalizationManager implements LocalizationManager
     @Inject
     private Logger logger;
 
+    /**
+     * The translation indexes associated to each set of bundles.
+     */
+    private final Map<List<TranslationBundle>, TranslationIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * The last used index, most of the time the next translation will be searched in the same bundles.
+     */
+    private volatile TranslationIndex lastIndex;
+
     @Override
     public Translation getTranslation(String key, Locale locale)
     {
-        for (TranslationBundle bundle : this.bundleContext.getBundles()) {
-            try {
-                Translation translation = bundle.getTranslation(key, locale);
-                if (translation != null && translation.getLocale().equals(locale)) {
-                    return translation;
+        return getIndex(this.bundleContext.getBundles()).getTranslation(key, locale);
+    }
+
+    private TranslationIndex getIndex(Collection<TranslationBundle> bundles)
+    {
+        TranslationIndex index = this.lastIndex;
+
+        if (index == null || !index.isValid(bundles)) {
+            List<TranslationBundle> indexKey = new ArrayList<>(bundles);
+
+            index = this.indexes.get(indexKey);
+            if (index == null || !index.isValid(bundles)) {
+                // Don't keep too many indexes around
+                if (this.indexes.size() >= MAX_INDEXES) {
+                    this.indexes.clear();
                 }
-            } catch (Exception e) {
-                this.logger.error("Failed to get translation", e);
+
+                index = new TranslationIndex(indexKey, this.logger);
+                this.indexes.put(indexKey, index);
             }
-        }
 
-        // Try parent locale
-        Locale parentLocale = LocaleUtils.getParentLocale(locale);
-        if (parentLocale != null) {
-            return getTranslation(key, parentLocale);
+            this.lastIndex = index;
         }
 
-        return null;
+        return index;
     }
 
     @Override
@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.TranslationBundle;
+
+/**
+ * Resolve translations in a fixed list of bundles, remembering the result for each key and locale.
+ * <p>
+ * Only the translations coming from {@link AbstractCachedTranslationBundle}s are remembered, the other bundles (which
+ * might depend on the context) are asked each time. The missing translations are not remembered either, so that the
+ * size of the index is bounded by the number of existing translations, whatever keys are requested. The index should
+ * not be used anymore when {@link #isValid(Collection)} returns {@code false}.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+public class TranslationIndex
+{
+    private static final Entry MISSING = new Entry(null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final List<TranslationBundle> bundles;
+
+    private final long modificationCount;
+
+    private final boolean live;
+
+    private final Logger logger;
+
+    private final Map<Locale, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * A translation found in the cached bundles.
+     * 
+     * @version $Id$
+     */
+    private static final class Entry
+    {
+        private final Translation translation;
+
+        /**
+         * The index of the locale where the translation was found in the fallback chain of the requested locale.
+         */
+        private final int level;
+
+        /**
+         * The index of the bundle which contains the translation.
+         */
+        private final int position;
+
+        Entry(Translation translation, int level, int position)
+        {
+            this.translation = translation;
+            this.level = level;
+            this.position = position;
+        }
+    }
+
+    /**
+     * @param bundles the bundles ordered by priority
+     * @param logger the logger used to report failing bundles
+     */
+    public TranslationIndex(Collection<TranslationBundle> bundles, Logger logger)
+    {
+        // Get the modification count before reading the bundles to never miss a modification
+        this.modificationCount = AbstractCachedTranslationBundle.getModificationCount();
+        this.bundles = new ArrayList<>(bundles);
+        this.live = this.bundles.stream().anyMatch(bundle -> !isCached(bundle));
+        this.logger = logger;
+    }
+
+    private static boolean isCached(TranslationBundle bundle)
+    {
+        return bundle instanceof AbstractCachedTranslationBundle;
+    }
+
+    /**
+     * @param currentBundles the current bundles ordered by priority
+     * @return true if the index can be used to search translations in the passed bundles
+     */
+    public boolean isValid(Collection<TranslationBundle> currentBundles)
+    {
+        if (this.modificationCount != AbstractCachedTranslationBundle.getModificationCount()
+            || this.bundles.size() != currentBundles.size()) {
+            return false;
+        }
+
+        int i = 0;
+        for (TranslationBundle bundle : currentBundles) {
+            if (this.bundles.get(i++) != bundle) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Search the translation associated to the passed key and locale, falling back on the parent locales.
+     * 
+     * @param key the key to translate
+     * @param locale the locale to translate into
+     * @return the {@link Translation} or null if none can be found
+     */
+    public Translation getTranslation(String key, Locale locale)
+    {
+        Map<String, Entry> localeEntries = this.entries.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+        Entry entry = localeEntries.get(key);
+        if (entry == null) {
+            entry = resolve(key, locale);
+
+            // Don't remember missing translations since any key can be requested (e.g. from user input)
+            if (entry != MISSING) {
+                localeEntries.put(key, entry);
+            }
+        }
+
+        if (!this.live) {
+            return entry.translation;
+        }
+
+        // Give a chance to the bundles which are not cached to override the indexed translation
+        Locale currentLocale = locale;
+        for (int level = 0; currentLocale != null && level <= entry.level; ++level) {
+            int end = level < entry.level ? this.bundles.size() : entry.position;
+            Translation translation = getLiveTranslation(key, currentLocale, end);
+            if (translation != null) {
+                return translation;
+            }
+
+            currentLocale = LocaleUtils.getParentLocale(currentLocale);
+        }
+
+        return entry.translation;
+    }
+
+    private Entry resolve(String key, Locale locale)
+    {
+        Locale currentLocale = locale;
+        for (int level = 0; currentLocale != null; ++level) {
+            for (int position = 0; position < this.bundles.size(); ++position) {
+                TranslationBundle bundle = this.bundles.get(position);
+                if (isCached(bundle)) {
+                    Translation translation = getTranslation(bundle, key, currentLocale);
+                    if (translation != null) {
+                        return new Entry(translation, level, position);
+                    }
+                }
+            }
+
+            currentLocale = LocaleUtils.getParentLocale(currentLocale);
+        }
+
+        return MISSING;
+    }
+
+    private Translation getLiveTranslation(String key, Locale locale, int end)
+    {
+        for (int position = 0; position < end; ++position) {
+            TranslationBundle bundle = this.bundles.get(position);
+            if (!isCached(bundle)) {
+                Translation translation = getTranslation(bundle, key, locale);
+                if (translation != null) {
+                    return translation;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Translation getTranslation(TranslationBundle bundle, String key, Locale locale)
+    {
+        try {
+            Translation translation = bundle.getTranslation(key, locale);
+            if (translation != null && translation.getLocale().equals(locale)) {
+                return translation;
+            }
+        } catch (Exception e) {
+            this.logger.error("Failed to get translation", e);
+        }
+
+        return null;
+    }
+}
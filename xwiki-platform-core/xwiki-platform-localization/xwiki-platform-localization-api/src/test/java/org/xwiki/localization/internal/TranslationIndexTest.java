@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.TranslationBundle;
+import org.xwiki.localization.message.TranslationMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link TranslationIndex}.
+ * 
+ * @version $Id$
+ */
+class TranslationIndexTest
+{
+    private final Logger logger = mock(Logger.class);
+
+    private static class TestTranslationBundle extends AbstractCachedTranslationBundle
+    {
+        private final Map<Locale, List<String>> keys = new HashMap<>();
+
+        TestTranslationBundle(String id, int priority)
+        {
+            super(id, priority);
+        }
+
+        TestTranslationBundle add(Locale locale, String key)
+        {
+            this.keys.computeIfAbsent(locale, l -> new ArrayList<>()).add(key);
+
+            return this;
+        }
+
+        void reset()
+        {
+            this.bundleCache.clear();
+        }
+
+        @Override
+        protected LocalizedTranslationBundle createBundle(Locale locale)
+        {
+            DefaultLocalizedTranslationBundle bundle = new DefaultLocalizedTranslationBundle(this, locale);
+            for (String key : this.keys.getOrDefault(locale, Collections.emptyList())) {
+                bundle.addTranslation(new DefaultTranslation(null, bundle, key, TranslationMessage.EMPTY));
+            }
+
+            return bundle;
+        }
+    }
+
+    private void assertTranslation(TranslationBundle expectedBundle, Locale expectedLocale, Translation translation)
+    {
+        assertSame(expectedBundle, translation.getBundle());
+        assertEquals(expectedLocale, translation.getLocale());
+    }
+
+    @Test
+    void getTranslationWithLocaleFallback()
+    {
+        TestTranslationBundle bundle1 = new TestTranslationBundle("bundle1", 1).add(Locale.ROOT, "key");
+        TestTranslationBundle bundle2 = new TestTranslationBundle("bundle2", 2).add(Locale.FRENCH, "key");
+
+        TranslationIndex index = new TranslationIndex(Arrays.asList(bundle1, bundle2), this.logger);
+
+        // The most specific locale wins over the bundle priority
+        assertTranslation(bundle2, Locale.FRENCH, index.getTranslation("key", Locale.FRANCE));
+        assertTranslation(bundle1, Locale.ROOT, index.getTranslation("key", Locale.GERMAN));
+        assertTranslation(bundle1, Locale.ROOT, index.getTranslation("key", Locale.GERMAN));
+        assertNull(index.getTranslation("missing", Locale.FRANCE));
+    }
+
+    @Test
+    void getTranslationWithNotCachedBundle()
+    {
+        Translation liveTranslation = mock(Translation.class);
+        when(liveTranslation.getLocale()).thenReturn(Locale.ROOT);
+        TranslationBundle liveBundle = mock(TranslationBundle.class);
+        when(liveBundle.getTranslation("key1", Locale.ROOT)).thenReturn(liveTranslation);
+        when(liveBundle.getTranslation("key2", Locale.ROOT)).thenReturn(liveTranslation);
+
+        TestTranslationBundle bundle =
+            new TestTranslationBundle("bundle", 2).add(Locale.ROOT, "key1").add(Locale.FRENCH, "key2");
+
+        TranslationIndex index = new TranslationIndex(Arrays.asList(liveBundle, bundle), this.logger);
+
+        assertSame(liveTranslation, index.getTranslation("key1", Locale.FRENCH));
+        assertTranslation(bundle, Locale.FRENCH, index.getTranslation("key2", Locale.FRENCH));
+
+        // The bundles which are not cached are asked each time
+        when(liveBundle.getTranslation("key1", Locale.ROOT)).thenReturn(null);
+        assertTranslation(bundle, Locale.ROOT, index.getTranslation("key1", Locale.FRENCH));
+    }
+
+    @Test
+    void getMissingTranslation()
+    {
+        TestTranslationBundle bundle = spy(new TestTranslationBundle("bundle", 1).add(Locale.ROOT, "key"));
+
+        TranslationIndex index = new TranslationIndex(Arrays.asList(bundle), this.logger);
+
+        assertTranslation(bundle, Locale.ROOT, index.getTranslation("key", Locale.ROOT));
+        assertTranslation(bundle, Locale.ROOT, index.getTranslation("key", Locale.ROOT));
+        verify(bundle).getTranslation("key", Locale.ROOT);
+
+        // The missing translations are not remembered
+        assertNull(index.getTranslation("missing", Locale.ROOT));
+        assertNull(index.getTranslation("missing", Locale.ROOT));
+        verify(bundle, times(2)).getTranslation("missing", Locale.ROOT);
+    }
+
+    @Test
+    void isValid()
+    {
+        TestTranslationBundle bundle1 = new TestTranslationBundle("bundle1", 1).add(Locale.ROOT, "key");
+        TestTranslationBundle bundle2 = new TestTranslationBundle("bundle2", 2);
+        List<TranslationBundle> bundles = Arrays.asList(bundle1, bundle2);
+
+        TranslationIndex index = new TranslationIndex(bundles, this.logger);
+        assertTranslation(bundle1, Locale.ROOT, index.getTranslation("key", Locale.ROOT));
+
+        assertTrue(index.isValid(bundles));
+        assertFalse(index.isValid(Arrays.asList(bundle2, bundle1)));
+        assertFalse(index.isValid(Arrays.asList(bundle1)));
+
+        // Modify a bundle
+        bundle2.add(Locale.ROOT, "key");
+        bundle2.reset();
+
+        assertFalse(index.isValid(bundles));
+        assertTranslation(bundle1, Locale.ROOT,
+            new TranslationIndex(bundles, this.logger).getTranslation("key", Locale.ROOT));
+    }
+}
@@ -25,6 +25,8 @@
 import java.util.List;
 import java.util.Locale;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xwiki.localization.TranslationBundle;
 import org.xwiki.localization.message.TranslationMessage;
 import org.xwiki.rendering.block.Block;
@@ -46,6 +48,8 @@ public class MessageFormatTranslationMessage implements TranslationMessage
      */
     private static final ParserUtils PARSERUTILS = new ParserUtils();
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageFormatTranslationMessage.class);
+
     /**
      * The message.
      */
@@ -61,6 +65,16 @@ public class MessageFormatTranslationMessage implements TranslationMessage
      */
     private Block noParamCache;
 
+    /**
+     * Keep a cache of the parsed {@link MessageFormat} pattern.
+     */
+    private MessageFormat format;
+
+    /**
+     * True when the message is not a valid {@link MessageFormat} pattern.
+     */
+    private boolean invalidFormat;
+
     /**
      * @param message the message
      * @param plainParser the plain text parser
@@ -82,10 +96,17 @@ public Block render(Locale locale, Collection<TranslationBundle> bundles, Object
         // Format the message
         String result;
         if (parameters.length > 0) {
-            try {
-                result = MessageFormat.format(this.message, parameters);
-            } catch (IllegalArgumentException e) {
-                // TODO: log the error ?
+            MessageFormat messageFormat = getFormat();
+            if (messageFormat != null) {
+                try {
+                    result = messageFormat.format(parameters);
+                } catch (IllegalArgumentException e) {
+                    // The parameters don't match the pattern (e.g. a string passed to a number format)
+                    LOGGER.debug("Failed to format the translation message [{}]: {}", this.message, e.getMessage());
+
+                    result = this.message;
+                }
+            } else {
                 result = this.message;
             }
         } else {
@@ -119,6 +140,27 @@ public Block render(Locale locale, Collection<TranslationBundle> bundles, Object
         return block;
     }
 
+    /**
+     * @return a new {@link MessageFormat} for the message or null if the message is not a valid pattern
+     */
+    private MessageFormat getFormat()
+    {
+        if (this.format == null && !this.invalidFormat) {
+            try {
+                this.format = new MessageFormat(this.message);
+            } catch (IllegalArgumentException e) {
+                // Only reported once since the result of the parsing is remembered
+                LOGGER.warn("Invalid translation message pattern [{}], it will be displayed as is: {}", this.message,
+                    e.getMessage());
+
+                this.invalidFormat = true;
+            }
+        }
+
+        // MessageFormat is not thread safe and cloning it is a lot cheaper than parsing the pattern again
+        return this.format != null ? (MessageFormat) this.format.clone() : null;
+    }
+
     @Override
     public String getRawSource()
     {
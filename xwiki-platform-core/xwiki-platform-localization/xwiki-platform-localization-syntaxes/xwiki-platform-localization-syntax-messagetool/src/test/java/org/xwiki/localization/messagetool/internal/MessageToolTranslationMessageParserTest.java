@@ -109,4 +109,15 @@ public void messageWithChoiceSyntax() throws ComponentLookupException
         Assert.assertEquals(new WordBlock("choice2"), translationMessage.render(null, null, 42));
     }
 
+    @Test
+    public void messageWithInvalidPattern() throws ComponentLookupException
+    {
+        TranslationMessage translationMessage = getMockedComponent().parse("{0");
+
+        Block expected =
+            new CompositeBlock(Arrays.<Block> asList(new SpecialSymbolBlock('{'), new WordBlock("0")));
+        Assert.assertEquals(expected, translationMessage.render(null, null, "word"));
+        Assert.assertEquals(expected, translationMessage.render(null, null, "other"));
+    }
+
 }
@@ -20,20 +20,30 @@
 package org.xwiki.netflux.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.netflux.EntityChannel;
 import org.xwiki.netflux.EntityChannelStore;
+import org.xwiki.netflux.internal.jmx.JMXEntityChannelStore;
 
 /**
  * Default {@link EntityChannelStore} implementation.
@@ -43,40 +53,75 @@
  */
 @Component
 @Singleton
-public class DefaultEntityChannelStore implements EntityChannelStore
+public class DefaultEntityChannelStore implements EntityChannelStore, Initializable, Disposable
 {
+    private static final String MBEAN_NAME = "name=netflux";
+
+    /**
+     * The minimum number of milliseconds between two sweeps of the expired channels.
+     */
+    private static final long PRUNE_INTERVAL = 1000;
+
     @Inject
     private ChannelStore channelStore;
 
-    private final Map<EntityReference, List<EntityChannel>> entityChannels = new ConcurrentHashMap<>();
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    /**
+     * The channels associated with each entity. The lists are immutable and they are replaced atomically, per entity,
+     * when a channel is added or removed, so that reading them doesn't require any lock.
+     */
+    private final ConcurrentMap<EntityReference, List<EntityChannel>> entityChannels = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastPrune = new AtomicLong();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        // Expose the number of channels and connected users for monitoring
+        this.jmxRegistration.registerMBean(new JMXEntityChannelStore(this::getChannelCount, this::getUserCount),
+            MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
 
     @Override
     public List<EntityChannel> getChannels(EntityReference entityReference)
     {
+        prune();
+
         List<EntityChannel> channels = this.entityChannels.get(entityReference);
-        if (channels != null) {
-            this.channelStore.prune();
-            List<EntityChannel> availableChannels = channels.stream().filter(channel -> {
-                Channel rawChannel = this.channelStore.get(channel.getKey());
-                if (rawChannel != null) {
-                    channel.setUserCount(rawChannel.getConnectedUsers().size());
-                    return true;
-                } else {
-                    return false;
-                }
-            }).collect(Collectors.toCollection(ArrayList::new));
-            if (availableChannels.isEmpty()) {
-                this.entityChannels.remove(entityReference);
-            } else {
-                this.entityChannels.put(entityReference, availableChannels);
-                return Collections.unmodifiableList(availableChannels);
-            }
+        if (channels == null) {
+            return Collections.emptyList();
         }
-        return Collections.emptyList();
+
+        List<EntityChannel> availableChannels = getAvailableChannels(channels);
+        if (availableChannels.size() < channels.size()) {
+            removeExpiredChannels(entityReference);
+        }
+        return availableChannels;
     }
 
     @Override
-    public synchronized EntityChannel createChannel(EntityReference entityReference, List<String> path)
+    public Optional<EntityChannel> getChannel(EntityReference entityReference, List<String> path)
+    {
+        prune();
+
+        Optional<EntityChannel> channel = findChannel(this.entityChannels.get(entityReference), path);
+        if (channel.isPresent() && !isAvailable(channel.get())) {
+            removeExpiredChannels(entityReference);
+            return Optional.empty();
+        }
+        return channel;
+    }
+
+    @Override
+    public EntityChannel createChannel(EntityReference entityReference, List<String> path)
     {
         Optional<EntityChannel> existingChannel = getChannel(entityReference, path);
         if (existingChannel.isPresent()) {
@@ -84,15 +129,90 @@ public synchronized EntityChannel createChannel(EntityReference entityReference,
             return existingChannel.get();
         }
 
-        // Create new channel.
-        EntityChannel channel = new EntityChannel(entityReference, path, this.channelStore.create().getKey());
-        List<EntityChannel> channels = this.entityChannels.get(entityReference);
+        // Create the new channel atomically for the given entity: concurrent requests for the same entity and path get
+        // the same channel while requests for different entities don't block each other.
+        AtomicReference<EntityChannel> channel = new AtomicReference<>();
+        this.entityChannels.compute(entityReference, (reference, channels) -> {
+            List<EntityChannel> availableChannels =
+                channels == null ? Collections.emptyList() : getAvailableChannels(channels);
+            Optional<EntityChannel> concurrentChannel = findChannel(availableChannels, path);
+            if (concurrentChannel.isPresent()) {
+                // The channel has been created in the mean time.
+                channel.set(concurrentChannel.get());
+                return availableChannels;
+            }
+
+            channel.set(new EntityChannel(reference, path, this.channelStore.create().getKey()));
+            List<EntityChannel> newChannels = new ArrayList<>(availableChannels);
+            newChannels.add(channel.get());
+            return Collections.unmodifiableList(newChannels);
+        });
+
+        return channel.get();
+    }
+
+    /**
+     * @return the number of channels currently associated with entities, exposed through JMX
+     * @since 14.9RC1
+     */
+    public int getChannelCount()
+    {
+        return this.entityChannels.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return the number of users currently connected to the channels associated with entities, exposed through JMX
+     * @since 14.9RC1
+     */
+    public int getUserCount()
+    {
+        return this.entityChannels.values().stream().flatMap(Collection::stream).filter(this::isAvailable)
+            .mapToInt(EntityChannel::getUserCount).sum();
+    }
+
+    private Optional<EntityChannel> findChannel(List<EntityChannel> channels, List<String> path)
+    {
         if (channels == null) {
-            channels = new ArrayList<>();
-            this.entityChannels.put(entityReference, channels);
+            return Optional.empty();
         }
-        channels.add(channel);
+        return channels.stream().filter(channel -> Objects.equals(channel.getPath(), path)).findFirst();
+    }
 
-        return channel;
+    private List<EntityChannel> getAvailableChannels(List<EntityChannel> channels)
+    {
+        return Collections
+            .unmodifiableList(channels.stream().filter(this::isAvailable).collect(Collectors.toList()));
+    }
+
+    private boolean isAvailable(EntityChannel channel)
+    {
+        Channel rawChannel = this.channelStore.get(channel.getKey());
+        if (rawChannel != null) {
+            channel.setUserCount(rawChannel.getConnectedUsers().size());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void removeExpiredChannels(EntityReference entityReference)
+    {
+        // Returning null removes the entity from the map.
+        this.entityChannels.computeIfPresent(entityReference, (reference, channels) -> {
+            List<EntityChannel> availableChannels = getAvailableChannels(channels);
+            return availableChannels.isEmpty() ? null : availableChannels;
+        });
+    }
+
+    private void prune()
+    {
+        // Prune the raw channels at most once per interval, whatever the number of concurrent requests.
+        long now = System.currentTimeMillis();
+        long last = this.lastPrune.get();
+        if (now - last >= PRUNE_INTERVAL && this.lastPrune.compareAndSet(last, now)) {
+            this.channelStore.prune();
+            // Forget the expired channels of all the entities, including those that are not accessed anymore.
+            this.entityChannels.keySet().forEach(this::removeExpiredChannels);
+        }
     }
 }
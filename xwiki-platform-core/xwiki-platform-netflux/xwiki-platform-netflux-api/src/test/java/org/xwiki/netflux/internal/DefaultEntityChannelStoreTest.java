@@ -19,15 +19,26 @@
  */
 package org.xwiki.netflux.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.websocket.Session;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.netflux.EntityChannel;
+import org.xwiki.netflux.internal.jmx.JMXEntityChannelStoreMBean;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
@@ -35,6 +46,10 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -51,6 +66,9 @@
     @MockComponent
     private ChannelStore channelStore;
 
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
     @Mock
     private Session session;
 
@@ -120,4 +138,69 @@ void getChannels()
         assertEquals(Arrays.asList(entityChannelOne, entityChannelThree),
             this.entityChannelStore.getChannels(entityReference, Arrays.asList("a", "b")));
     }
+
+    @Test
+    void createChannelConcurrently() throws Exception
+    {
+        Map<String, Channel> channels = new ConcurrentHashMap<>();
+        when(this.channelStore.create()).then(invocation -> {
+            Channel channel = new Channel();
+            channels.put(channel.getKey(), channel);
+            return channel;
+        });
+        when(this.channelStore.get(anyString())).then(invocation -> channels.get(invocation.getArgument(0)));
+
+        int entityCount = 10;
+        int pathCount = 5;
+        int joinCount = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<EntityChannel>> joins = new ArrayList<>();
+            for (int i = 0; i < joinCount; i++) {
+                WikiReference wikiReference = new WikiReference("wiki" + (i % entityCount));
+                List<String> path = Arrays.asList("path", String.valueOf(i / entityCount % pathCount));
+                joins.add(executor.submit(() -> {
+                    start.await();
+                    return this.entityChannelStore.createChannel(wikiReference, path);
+                }));
+            }
+            start.countDown();
+
+            Set<String> keys = ConcurrentHashMap.newKeySet();
+            for (Future<EntityChannel> join : joins) {
+                keys.add(join.get().getKey());
+            }
+
+            // Each (entity, path) pair must have a single channel, whatever the number of concurrent joins.
+            assertEquals(entityCount * pathCount, keys.size());
+            verify(this.channelStore, times(entityCount * pathCount)).create();
+            assertEquals(entityCount * pathCount, this.entityChannelStore.getChannelCount());
+            assertEquals(0, this.entityChannelStore.getUserCount());
+            for (int i = 0; i < entityCount; i++) {
+                assertEquals(pathCount, this.entityChannelStore.getChannels(new WikiReference("wiki" + i)).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void monitoring()
+    {
+        ArgumentCaptor<Object> mbeanCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(this.jmxRegistration).registerMBean(mbeanCaptor.capture(), eq("name=netflux"));
+        JMXEntityChannelStoreMBean mbean = (JMXEntityChannelStoreMBean) mbeanCaptor.getValue();
+
+        assertEquals(0, mbean.getChannelCount());
+
+        Channel channel = new Channel();
+        channel.getUsers().put("alice", new User(this.session, "alice"));
+        when(this.channelStore.create()).thenReturn(channel);
+        when(this.channelStore.get(channel.getKey())).thenReturn(channel);
+        this.entityChannelStore.createChannel(this.entityReference, Arrays.asList("one"));
+
+        assertEquals(1, mbean.getChannelCount());
+        assertEquals(1, mbean.getUserCount());
+    }
 }
@@ -85,4 +85,24 @@ default int getAsyncPoolSize()
     {
         return 2;
     }
+
+    /**
+     * @return the number of threads to use for dispatching the events to the users during the pre filtering
+     * @since 14.9RC1
+     */
+    default int getEventPrefilteringPoolSize()
+    {
+        return 1;
+    }
+
+    /**
+     * @return true if the number of unread notifications returned by the REST API should be served from per-user
+     *         counters instead of searching the notifications (the counted notifications are not grouped and only
+     *         the pre filters are applied to them)
+     * @since 14.9RC1
+     */
+    default boolean isRestUnreadCounterEnabled()
+    {
+        return false;
+    }
 }
@@ -84,4 +84,16 @@ public int getAsyncPoolSize()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "async.poolSize", 2);
     }
+
+    @Override
+    public int getEventPrefilteringPoolSize()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "eventPrefiltering.poolSize", 1);
+    }
+
+    @Override
+    public boolean isRestUnreadCounterEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "rest.unreadCounter", false);
+    }
 }
@@ -20,11 +20,17 @@
 package org.xwiki.notifications.notifiers.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -32,6 +38,7 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -41,8 +48,10 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.EntityEvent;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStatus;
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.RecordableEventDescriptor;
@@ -51,6 +60,7 @@
 import org.xwiki.eventstream.internal.DefaultEventStatus;
 import org.xwiki.eventstream.query.SimpleEventQuery;
 import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -79,6 +89,13 @@ public class UserEventDispatcher implements Disposable
 {
     private static final long BATCH_SIZE = 100;
 
+    /**
+     * Below this number of users it's not worth splitting the work between several workers.
+     */
+    private static final int MIN_USERS_PER_WORKER = 100;
+
+    private static final String JMX_NAME = "type=Notifications,name=UserEventDispatcher";
+
     @Inject
     private UsersCache userCache;
 
@@ -88,6 +105,9 @@ public class UserEventDispatcher implements Disposable
     @Inject
     private UserEventManager userEventManager;
 
+    @Inject
+    private UserEventWatchIndex watchIndex;
+
     @Inject
     private NotificationConfiguration notificationConfiguration;
 
@@ -125,22 +145,91 @@ public class UserEventDispatcher implements Disposable
     @Inject
     private Execution execution;
 
+    @Inject
+    private JMXBeanRegistration jmx;
+
     @Inject
     private Logger logger;
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
+    private ExecutorService workers;
+
+    private int workersCount;
+
     private volatile boolean running;
 
+    private volatile long backlog;
+
+    private volatile Date oldestWaitingEventDate;
+
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+
+    /**
+     * The result of the evaluation of an event for a set of users.
+     */
+    private static final class DispatchResult
+    {
+        private final List<EventStatus> statuses = new ArrayList<>();
+
+        private final List<EntityEvent> mailEntities = new ArrayList<>();
+
+        void add(DispatchResult other)
+        {
+            this.statuses.addAll(other.statuses);
+            this.mailEntities.addAll(other.mailEntities);
+        }
+    }
+
     /**
      * Start the scheduler.
      */
     public void initialize()
     {
+        int poolSize = this.notificationConfiguration.getEventPrefilteringPoolSize();
+        if (poolSize > 1) {
+            this.workersCount = poolSize;
+            this.workers = Executors.newFixedThreadPool(poolSize,
+                new BasicThreadFactory.Builder().namingPattern("User event dispatcher worker %d").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build());
+        }
+
+        this.jmx.registerMBean(new JMXUserEventDispatcher(this), JMX_NAME);
+
         // Schedule a job to regularly check if any event prefiltering was missed or a previous run failed
         this.scheduler.scheduleWithFixedDelay(this::run, 0, 1, TimeUnit.HOURS);
     }
 
+    /**
+     * @return the number of events waiting to be dispatched, as of the last dispatcher run
+     * @since 14.9RC1
+     */
+    public long getBacklog()
+    {
+        return this.backlog;
+    }
+
+    /**
+     * @return the number of milliseconds since the oldest event waiting to be dispatched was created, or 0 if no
+     *         event is waiting
+     * @since 14.9RC1
+     */
+    public long getLag()
+    {
+        Date date = this.oldestWaitingEventDate;
+
+        return date != null ? Math.max(0, System.currentTimeMillis() - date.getTime()) : 0;
+    }
+
+    /**
+     * @return the number of events dispatched since the instance started
+     * @since 14.9RC1
+     */
+    public long getDispatchedEvents()
+    {
+        return this.dispatchedEvents.get();
+    }
+
     /**
      * Indicate an event just been created.
      */
@@ -161,6 +250,12 @@ public void dispose() throws ComponentLifecycleException
     {
         // Stop the scheduling
         this.scheduler.shutdownNow();
+
+        if (this.workers != null) {
+            this.workers.shutdownNow();
+        }
+
+        this.jmx.unregisterMBean(JMX_NAME);
     }
 
     private void run()
@@ -237,12 +332,20 @@ private void flush() throws Exception
         do {
             try (EventSearchResult result = this.events.search(query)) {
                 if (result.getSize() == 0) {
+                    this.backlog = 0;
+                    this.oldestWaitingEventDate = null;
+
                     break;
                 }
 
+                // Update the metrics
+                this.backlog = result.getTotalHits();
+
                 // Pre-filter all the found events
                 Iterable<Event> it = () -> result.stream().iterator();
                 for (Event event : it) {
+                    this.oldestWaitingEventDate = event.getDate();
+
                     try {
                         prefilterEvent(event, types);
                     } catch (Exception e) {
@@ -292,25 +395,28 @@ private void dispatch(Event event) throws EventStreamException
         }
     }
 
-    private void dispatchInContext(Event event)
+    private void dispatchInContext(Event event) throws EventStreamException
     {
         WikiReference eventWiki = event.getWiki();
 
+        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+        DispatchResult dispatchResult = new DispatchResult();
+
         if (CollectionUtils.isNotEmpty(event.getTarget())) {
             // The event explicitly indicate with which entities the event is associated with
 
-            boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
             for (String entity : event.getTarget()) {
                 DocumentReference entityReference = this.resolver.resolve(entity, event.getWiki());
                 UserReference userReference = this.documentReferenceUserReferenceResolver.resolve(entityReference);
 
                 try {
                     if (this.userManager.exists(userReference)) {
-                        dispatch(event, entityReference, mailEnabled);
+                        dispatch(event, entityReference, mailEnabled, dispatchResult);
                     } else {
                         // Also recursively associate the members of the entity if it's a group
-                        this.groupManager.getMembers(entityReference, true)
-                            .forEach(userDocumentReference -> dispatch(event, userDocumentReference, mailEnabled));
+                        for (DocumentReference member : this.groupManager.getMembers(entityReference, true)) {
+                            dispatch(event, member, mailEnabled, dispatchResult);
+                        }
                     }
                 } catch (UserException e) {
                     this.logger.warn("Failed to verify if user [{}] exists. Cause: [{}]", userReference,
@@ -320,23 +426,28 @@ private void dispatchInContext(Event event)
                         ExceptionUtils.getRootCauseMessage(e));
                 }
             }
-
-            // Remember we are done pre filtering this event
-            this.events.prefilterEvent(event);
         } else {
             // Try to find users listening to this event
 
             // Associated event with event's wiki users
-            dispatch(event, this.userCache.getUsers(eventWiki, true));
+            dispatch(event, this.userCache.getUsers(eventWiki, true), mailEnabled, dispatchResult);
 
             // Also take into account global users (main wiki users) if the event is on a subwiki
             if (!this.wikiManager.isMainWiki(eventWiki.getName())) {
-                dispatch(event, this.userCache.getUsers(new WikiReference(this.wikiManager.getMainWikiId()), true));
+                dispatch(event, this.userCache.getUsers(new WikiReference(this.wikiManager.getMainWikiId()), true),
+                    mailEnabled, dispatchResult);
             }
         }
+
+        // Save all the associations at once
+        save(dispatchResult);
+
+        // Remember we are done pre filtering this event
+        this.events.prefilterEvent(event);
+        this.dispatchedEvents.incrementAndGet();
     }
 
-    private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
+    private void dispatch(Event event, DocumentReference user, boolean mailEnabled, DispatchResult result)
     {
         // Get the entity id
         String entityId = this.entityReferenceSerializer.serialize(user);
@@ -346,7 +457,7 @@ private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
         if (!isStatusPrefiltered(event, entityId)
             && this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
             // Associate the event with the user
-            saveEventStatus(event, entityId);
+            result.statuses.add(new DefaultEventStatus(event, entityId, false));
         }
 
         // Make sure the notification module is allowed to send mails
@@ -355,7 +466,7 @@ private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
         if (mailEnabled && !isMailPrefiltered(event, entityId)
             && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
             // Associate the event with the user
-            saveMailEntityEvent(event, entityId);
+            result.mailEntities.add(new DefaultEntityEvent(event, entityId));
         }
     }
 
@@ -390,25 +501,76 @@ private boolean isPrefiltered(Event event, String entityId, boolean mail)
         }
     }
 
-    private void dispatch(Event event, List<DocumentReference> users)
+    private void dispatch(Event event, List<DocumentReference> users, boolean mailEnabled, DispatchResult result)
+        throws EventStreamException
     {
-        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+        // Only evaluate the users which might be interested by the event
+        List<DocumentReference> candidates = new ArrayList<>(this.watchIndex.getCandidates(event, users));
 
-        for (DocumentReference user : users) {
-            dispatch(event, user, mailEnabled);
+        if (this.workers != null && candidates.size() >= MIN_USERS_PER_WORKER * 2) {
+            result.add(dispatchInParallel(event, candidates, mailEnabled));
+        } else {
+            for (DocumentReference user : candidates) {
+                dispatch(event, user, mailEnabled, result);
+            }
         }
+    }
 
-        // Remember we are done pre filtering this event
-        this.events.prefilterEvent(event);
+    private DispatchResult dispatchInParallel(Event event, List<DocumentReference> users, boolean mailEnabled)
+        throws EventStreamException
+    {
+        // Split the users between the workers
+        int partitionSize = Math.max(MIN_USERS_PER_WORKER, (users.size() + this.workersCount - 1) / this.workersCount);
+        List<Future<DispatchResult>> futures = new ArrayList<>();
+        for (int i = 0; i < users.size(); i += partitionSize) {
+            List<DocumentReference> partition = users.subList(i, Math.min(i + partitionSize, users.size()));
+            futures.add(this.workers.submit(() -> dispatchInWorker(event, partition, mailEnabled)));
+        }
+
+        // Wait for all the workers to be done, the event is marked as pre filtered only if all the users have been
+        // evaluated (and since the already existing associations are checked, it's safe to evaluate it again)
+        DispatchResult result = new DispatchResult();
+        try {
+            for (Future<DispatchResult> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+
+            throw new EventStreamException("Interrupted while dispatching the event", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+
+            throw new EventStreamException("Failed to dispatch the event", e.getCause());
+        }
+
+        return result;
     }
 
-    private void saveEventStatus(Event event, String entityId)
+    private DispatchResult dispatchInWorker(Event event, Collection<DocumentReference> users, boolean mailEnabled)
+        throws ExecutionContextException
     {
-        this.events.saveEventStatus(new DefaultEventStatus(event, entityId, false));
+        DispatchResult result = new DispatchResult();
+
+        // Each worker needs its own context
+        this.contextManager.initialize(new ExecutionContext());
+
+        try {
+            for (DocumentReference user : users) {
+                dispatch(event, user, mailEnabled, result);
+            }
+        } finally {
+            this.execution.removeContext();
+        }
+
+        return result;
     }
 
-    private void saveMailEntityEvent(Event event, String entityId)
+    private void save(DispatchResult result)
     {
-        this.events.saveMailEntityEvent(new DefaultEntityEvent(event, entityId));
+        // The store is queuing the writes and saving them by batch
+        result.statuses.forEach(this.events::saveEventStatus);
+        result.mailEntities.forEach(this.events::saveMailEntityEvent);
     }
 }
@@ -0,0 +1,345 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.NotificationFilterManager;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.SystemUserNotificationFilter;
+import org.xwiki.notifications.filters.internal.minor.MinorEventAlertNotificationFilter;
+import org.xwiki.notifications.filters.internal.minor.MinorEventEmailNotificationFilter;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilter;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilterPreferencesGetter;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.filters.internal.user.OwnEventFilter;
+
+/**
+ * Index of the locations and users watched by each user, used to find quickly which users might be interested by an
+ * event instead of evaluating the filters of all the users of the wiki.
+ * <p>
+ * The index is conservative: the returned candidates is always a superset of the users actually listening to the
+ * event, the complete evaluation being still done by {@link UserEventManager#isListening(Event, DocumentReference,
+ * NotificationFormat)}. A user is a candidate if:
+ * <ul>
+ * <li>it does not restrict the locations it wants to be notified about (no inclusive scope filter preference for
+ * all event types)</li>
+ * <li>or it has enabled filters which might keep events based on criteria not known by the index</li>
+ * <li>or it watches the location of the event or one of its parents</li>
+ * <li>or it follows the user who triggered the event</li>
+ * </ul>
+ * <p>
+ * The entry of each user is immutable and replaced as a whole, so a user being indexed again is never missed.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = UserEventWatchIndex.class)
+@Singleton
+public class UserEventWatchIndex
+{
+    private static final NotificationFormat[] FORMATS = {NotificationFormat.ALERT, NotificationFormat.EMAIL};
+
+    /**
+     * The filters which never keep an event (or only when it's triggered by a followed user), so that the index is
+     * enough to know if they can keep it. Some of them are located in modules this one does not depend on.
+     */
+    private static final Set<String> MODELED_FILTERS = new HashSet<>(Arrays.asList(ScopeNotificationFilter.FILTER_NAME,
+        EventUserFilter.FILTER_NAME, OwnEventFilter.FILTER_NAME, MinorEventAlertNotificationFilter.FILTER_NAME,
+        MinorEventEmailNotificationFilter.FILTER_NAME, SystemUserNotificationFilter.FILTER_NAME,
+        "Tag Notification Filter", "FollowedUserOnlyEventFilter", "PersonalMessageStreamNotificationFilter",
+        "DirectMessageStreamNotificationFilter", "GroupMessageStreamNotificationFilter"));
+
+    @Inject
+    private NotificationFilterPreferenceManager filterPreferenceManager;
+
+    @Inject
+    private NotificationFilterManager filterManager;
+
+    @Inject
+    private ScopeNotificationFilterPreferencesGetter scopePreferencesGetter;
+
+    @Inject
+    private EntityReferenceResolver<String> entityReferenceResolver;
+
+    @Inject
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The indexed users.
+     */
+    private final Map<DocumentReference, UserEntry> users = new ConcurrentHashMap<>();
+
+    /**
+     * The owner of each indexed filter preference.
+     */
+    private final Map<String, DocumentReference> preferenceOwners = new ConcurrentHashMap<>();
+
+    private static final class UserEntry
+    {
+        private final boolean unrestricted;
+
+        private final Set<String> locations;
+
+        private final Set<DocumentReference> followedUsers;
+
+        private final Set<String> preferences;
+
+        UserEntry(boolean unrestricted, Set<String> locations, Set<DocumentReference> followedUsers,
+            Set<String> preferences)
+        {
+            this.unrestricted = unrestricted;
+            this.locations = Collections.unmodifiableSet(locations);
+            this.followedUsers = Collections.unmodifiableSet(followedUsers);
+            this.preferences = Collections.unmodifiableSet(preferences);
+        }
+
+        boolean isInterested(List<String> eventLocations, DocumentReference eventUser)
+        {
+            return this.unrestricted || eventLocations.stream().anyMatch(this.locations::contains)
+                || (eventUser != null && this.followedUsers.contains(eventUser));
+        }
+    }
+
+    /**
+     * @param event the event to dispatch
+     * @param users the users to choose from
+     * @return the users which might be interested by the event, in the same order as the passed list
+     */
+    public Collection<DocumentReference> getCandidates(Event event, List<DocumentReference> users)
+    {
+        EntityReference location = getEventLocation(event);
+        if (location == null) {
+            // The scope filter does not apply to events without location so any user might be interested
+            return users;
+        }
+
+        List<String> eventLocations = new ArrayList<>();
+        for (EntityReference reference = location; reference != null; reference = reference.getParent()) {
+            eventLocations.add(getLocationKey(reference));
+        }
+
+        Set<DocumentReference> candidates = new LinkedHashSet<>();
+        for (DocumentReference user : users) {
+            // Make sure the user is indexed
+            UserEntry entry = this.users.get(user);
+            if (entry == null) {
+                entry = index(user);
+            }
+
+            // Failing to index a user should not prevent it from being notified
+            if (entry == null || entry.isInterested(eventLocations, event.getUser())) {
+                candidates.add(user);
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Remove a user from the index. It will be indexed again the next time it's needed.
+     * 
+     * @param user the reference of the user
+     */
+    public void invalidate(DocumentReference user)
+    {
+        // Avoid any synchronization when the user is not indexed (which is the most common case)
+        if (this.users.containsKey(user)) {
+            synchronized (this) {
+                UserEntry entry = this.users.remove(user);
+                if (entry != null) {
+                    entry.preferences.forEach(this.preferenceOwners::remove);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the owner of the passed filter preference from the index.
+     * 
+     * @param preferenceId the identifier of the filter preference
+     * @return {@code true} if the owner of the preference was found in the index
+     */
+    public boolean invalidatePreference(String preferenceId)
+    {
+        if (preferenceId == null) {
+            return false;
+        }
+
+        DocumentReference owner = this.preferenceOwners.get(preferenceId);
+        if (owner != null) {
+            invalidate(owner);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Remove all users from the index.
+     */
+    public synchronized void invalidateAll()
+    {
+        this.users.clear();
+        this.preferenceOwners.clear();
+    }
+
+    private synchronized UserEntry index(DocumentReference user)
+    {
+        UserEntry existingEntry = this.users.get(user);
+        if (existingEntry != null) {
+            return existingEntry;
+        }
+
+        Collection<NotificationFilterPreference> preferences;
+        try {
+            preferences = this.filterPreferenceManager.getFilterPreferences(user);
+        } catch (NotificationException e) {
+            this.logger.warn("Failed to get the notification filter preferences of user [{}]: {}", user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+
+        Set<String> userLocations = new HashSet<>();
+        Set<DocumentReference> followedUsers = new HashSet<>();
+        Set<String> preferenceIds = new HashSet<>();
+        for (NotificationFilterPreference preference : preferences) {
+            if (preference.getId() != null) {
+                preferenceIds.add(preference.getId());
+            }
+            if (preference.isEnabled() && preference.getFilterType() == NotificationFilterType.INCLUSIVE) {
+                if (ScopeNotificationFilter.FILTER_NAME.equals(preference.getFilterName())) {
+                    EntityReference scope =
+                        new ScopeNotificationFilterPreference(preference, this.entityReferenceResolver)
+                            .getScopeReference();
+                    if (scope != null) {
+                        userLocations.add(getLocationKey(scope));
+                    }
+                } else if (EventUserFilter.FILTER_NAME.equals(preference.getFilterName())
+                    && StringUtils.isNotEmpty(preference.getUser())) {
+                    followedUsers.add(this.documentReferenceResolver.resolve(preference.getUser()));
+                }
+            }
+        }
+
+        UserEntry entry = new UserEntry(isUnrestricted(user, preferences), userLocations, followedUsers,
+            preferenceIds);
+
+        preferenceIds.forEach(id -> this.preferenceOwners.put(id, user));
+        this.users.put(user, entry);
+
+        return entry;
+    }
+
+    private boolean isUnrestricted(DocumentReference user, Collection<NotificationFilterPreference> preferences)
+    {
+        // Exclusive scope filters specific to some event types can hide inclusive filters for those event types, don't
+        // try to be smart in this case
+        if (preferences.stream()
+            .anyMatch(preference -> preference.isEnabled()
+                && ScopeNotificationFilter.FILTER_NAME.equals(preference.getFilterName())
+                && preference.getFilterType() == NotificationFilterType.EXCLUSIVE
+                && !preference.getEventTypes().isEmpty())) {
+            return true;
+        }
+
+        // A filter executed before the scope filter could keep the event whatever its location
+        if (hasUnmodeledFilter(user)) {
+            return true;
+        }
+
+        // The user restricts the locations it's interested in only if it has top level inclusive scope filters for
+        // all event types and all formats
+        for (NotificationFormat format : FORMATS) {
+            if (!this.scopePreferencesGetter.getScopeFilterPreferences(preferences, null, format, true)
+                .getInclusiveFiltersThatHasNoParents().hasNext()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean hasUnmodeledFilter(DocumentReference user)
+    {
+        try {
+            return this.filterManager.getAllFilters(user, true, NotificationFilter.FilteringPhase.PRE_FILTERING)
+                .stream().anyMatch(filter -> !MODELED_FILTERS.contains(filter.getName()));
+        } catch (NotificationException e) {
+            this.logger.warn("Failed to get the notification filters of user [{}]: {}", user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return true;
+        }
+    }
+
+    private EntityReference getEventLocation(Event event)
+    {
+        if (event.getDocument() != null) {
+            return event.getDocument();
+        }
+        if (event.getSpace() != null) {
+            return event.getSpace();
+        }
+
+        return event.getWiki();
+    }
+
+    private String getLocationKey(EntityReference reference)
+    {
+        return reference.getType().name() + ':' + this.serializer.serialize(reference);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.DefaultNotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Keep the {@link UserEventWatchIndex} up to date when notification filter preferences are modified.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Singleton
+@Named(UserEventWatchIndexListener.NAME)
+public class UserEventWatchIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.notifications.notifiers.internal.UserEventWatchIndexListener";
+
+    @Inject
+    private UserEventWatchIndex index;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    /**
+     * Configure the listener.
+     */
+    public UserEventWatchIndexListener()
+    {
+        super(NAME, new NotificationFilterPreferenceAddOrUpdatedEvent(), new NotificationFilterPreferenceDeletedEvent(),
+            new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof NotificationFilterPreferenceAddOrUpdatedEvent) {
+            if (data instanceof DocumentReference) {
+                this.index.invalidate((DocumentReference) data);
+            } else if (data instanceof WikiReference) {
+                // Wiki preferences might be shared by all the users of the wiki
+                this.index.invalidateAll();
+            } else {
+                invalidatePreference(source);
+            }
+        } else if (event instanceof NotificationFilterPreferenceDeletedEvent) {
+            invalidatePreference(source);
+        } else {
+            // Some filter preferences are stored in the user profile (for example the watchlist ones)
+            this.index.invalidate(((XWikiDocument) source).getDocumentReference());
+        }
+    }
+
+    private void invalidatePreference(Object source)
+    {
+        String preferenceId = source instanceof NotificationFilterPreference
+            ? ((NotificationFilterPreference) source).getId() : null;
+        if (preferenceId != null) {
+            // If the preference is not associated with any indexed user it does not have any impact on the index
+            this.index.invalidatePreference(preferenceId);
+        } else {
+            // The preferences received from other cluster members only hold their owner.
+            String owner = source instanceof DefaultNotificationFilterPreference
+                ? ((DefaultNotificationFilterPreference) source).getOwner() : null;
+            if (StringUtils.contains(owner, ':')) {
+                this.index.invalidate(this.resolver.resolve(owner));
+            } else {
+                // Unknown owner or wiki preferences which might be shared by all the users of the wiki
+                this.index.invalidateAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.context.Execution;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventQuery;
+import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.RecordableEventDescriptor;
+import org.xwiki.eventstream.RecordableEventDescriptorManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.internal.group.UsersCache;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link UserEventDispatcher}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class UserEventDispatcherTest
+{
+    private static final String EVENT_TYPE = "type";
+
+    private static final WikiReference SUBWIKI = new WikiReference("subwiki");
+
+    private static final WikiReference MAINWIKI = new WikiReference("xwiki");
+
+    private static final DocumentReference SUBWIKI_USER = new DocumentReference("subwiki", "XWiki", "User");
+
+    private static final DocumentReference MAINWIKI_USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private UserEventDispatcher dispatcher;
+
+    @MockComponent
+    private EventStore events;
+
+    @MockComponent
+    private RecordableEventDescriptorManager recordableEventDescriptorManager;
+
+    @MockComponent
+    private UsersCache userCache;
+
+    @MockComponent
+    private WikiDescriptorManager wikiManager;
+
+    @MockComponent
+    private UserEventWatchIndex watchIndex;
+
+    @MockComponent
+    private UserEventManager userEventManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> entityReferenceSerializer;
+
+    @MockComponent
+    private Execution execution;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        RecordableEventDescriptor descriptor = mock(RecordableEventDescriptor.class);
+        when(descriptor.getEventType()).thenReturn(EVENT_TYPE);
+        when(this.recordableEventDescriptorManager.getRecordableEventDescriptors(true))
+            .thenReturn(Collections.singletonList(descriptor));
+
+        when(this.wikiManager.getMainWikiId()).thenReturn(MAINWIKI.getName());
+        when(this.wikiManager.isMainWiki(MAINWIKI.getName())).thenReturn(true);
+
+        when(this.entityReferenceSerializer.serialize(SUBWIKI_USER)).thenReturn("subwiki:XWiki.User");
+        when(this.entityReferenceSerializer.serialize(MAINWIKI_USER)).thenReturn("xwiki:XWiki.User");
+
+        // Filter nothing
+        when(this.watchIndex.getCandidates(any(), any())).then(invocation -> invocation.getArgument(1));
+    }
+
+    @AfterEach
+    void afterEach() throws ComponentLifecycleException
+    {
+        this.dispatcher.dispose();
+    }
+
+    private EventSearchResult mockSearchResult(Event... found)
+    {
+        EventSearchResult result = mock(EventSearchResult.class);
+        when(result.getSize()).thenReturn((long) found.length);
+        when(result.getTotalHits()).thenReturn((long) found.length);
+        when(result.stream()).then(invocation -> Stream.of(found));
+
+        return result;
+    }
+
+    @Test
+    void dispatchSubwikiEvent() throws Exception
+    {
+        Event event = mock(Event.class);
+        when(event.getId()).thenReturn("id");
+        when(event.getType()).thenReturn(EVENT_TYPE);
+        when(event.getWiki()).thenReturn(SUBWIKI);
+
+        when(this.userCache.getUsers(SUBWIKI, true)).thenReturn(Arrays.asList(SUBWIKI_USER));
+        when(this.userCache.getUsers(MAINWIKI, true)).thenReturn(Arrays.asList(MAINWIKI_USER));
+        when(this.userEventManager.isListening(event, SUBWIKI_USER, NotificationFormat.ALERT)).thenReturn(true);
+        when(this.userEventManager.isListening(event, MAINWIKI_USER, NotificationFormat.ALERT)).thenReturn(true);
+
+        // First the event waiting to be pre-filtered, then nothing (no status found and no event left)
+        EventSearchResult eventResult = mockSearchResult(event);
+        EventSearchResult emptyResult = mockSearchResult();
+        when(this.events.search(any(EventQuery.class))).thenReturn(eventResult, emptyResult);
+
+        this.dispatcher.initialize();
+
+        // Wait for the end of the dispatcher run
+        verify(this.execution, timeout(10000)).removeContext();
+
+        verify(this.events).prefilterEvent(event);
+        assertEquals(1, this.dispatcher.getDispatchedEvents());
+        // Both the subwiki and main wiki users are associated with the event
+        verify(this.events, times(2)).saveEventStatus(any(EventStatus.class));
+        verify(this.userEventManager).isListening(event, SUBWIKI_USER, NotificationFormat.ALERT);
+        verify(this.userEventManager).isListening(event, MAINWIKI_USER, NotificationFormat.ALERT);
+    }
+}
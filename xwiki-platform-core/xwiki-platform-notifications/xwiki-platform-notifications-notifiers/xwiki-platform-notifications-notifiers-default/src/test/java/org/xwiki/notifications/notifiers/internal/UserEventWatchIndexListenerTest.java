@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.notifications.filters.internal.DefaultNotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link UserEventWatchIndexListener}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class UserEventWatchIndexListenerTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private UserEventWatchIndexListener listener;
+
+    @MockComponent
+    private UserEventWatchIndex index;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @Test
+    void onPreferenceDeleted()
+    {
+        DefaultNotificationFilterPreference preference = new DefaultNotificationFilterPreference();
+        preference.setId("preference");
+        preference.setOwner("xwiki:XWiki.User");
+
+        this.listener.onEvent(new NotificationFilterPreferenceDeletedEvent(), preference, null);
+
+        verify(this.index).invalidatePreference("preference");
+        verify(this.index, never()).invalidate(any());
+        verify(this.index, never()).invalidateAll();
+    }
+
+    @Test
+    void onRemotePreferenceUpdated()
+    {
+        when(this.resolver.resolve("xwiki:XWiki.User")).thenReturn(USER);
+
+        // The preferences received from other cluster members don't have an identifier.
+        DefaultNotificationFilterPreference preference = new DefaultNotificationFilterPreference();
+        preference.setOwner("xwiki:XWiki.User");
+
+        this.listener.onEvent(new NotificationFilterPreferenceAddOrUpdatedEvent(), preference, null);
+
+        verify(this.index).invalidate(USER);
+        verify(this.index, never()).invalidatePreference(any());
+        verify(this.index, never()).invalidateAll();
+    }
+
+    @Test
+    void onRemoteWikiPreferenceDeleted()
+    {
+        DefaultNotificationFilterPreference preference = new DefaultNotificationFilterPreference();
+        preference.setOwner("xwiki");
+
+        this.listener.onEvent(new NotificationFilterPreferenceDeletedEvent(), preference, null);
+
+        verify(this.index).invalidateAll();
+        verify(this.index, never()).invalidatePreference(any());
+    }
+
+    @Test
+    void onRemotePreferenceDeletedWithoutOwner()
+    {
+        this.listener.onEvent(new NotificationFilterPreferenceDeletedEvent(), new DefaultNotificationFilterPreference(),
+            null);
+
+        verify(this.index).invalidateAll();
+        verify(this.index, never()).invalidatePreference(any());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.NotificationFilterManager;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilter;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilterPreferencesGetter;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilterPreferencesHierarchy;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link UserEventWatchIndex}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class UserEventWatchIndexTest
+{
+    private static final DocumentReference UNRESTRICTED_USER = new DocumentReference("xwiki", "XWiki", "Unrestricted");
+
+    private static final DocumentReference WATCHING_USER = new DocumentReference("xwiki", "XWiki", "Watching");
+
+    private static final DocumentReference FOLLOWING_USER = new DocumentReference("xwiki", "XWiki", "Following");
+
+    private static final DocumentReference FOLLOWED_USER = new DocumentReference("xwiki", "XWiki", "Followed");
+
+    private static final List<DocumentReference> USERS =
+        Arrays.asList(UNRESTRICTED_USER, WATCHING_USER, FOLLOWING_USER);
+
+    private static final SpaceReference WATCHED_SPACE = new SpaceReference("xwiki", "Watched");
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private UserEventWatchIndex index;
+
+    @MockComponent
+    private NotificationFilterPreferenceManager filterPreferenceManager;
+
+    @MockComponent
+    private NotificationFilterManager filterManager;
+
+    @MockComponent
+    private ScopeNotificationFilterPreferencesGetter scopePreferencesGetter;
+
+    @MockComponent
+    private EntityReferenceResolver<String> entityReferenceResolver;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.serializer.serialize(any())).then(invocation -> invocation.getArgument(0).toString());
+        when(this.scopePreferencesGetter.getScopeFilterPreferences(any(), any(), any(), anyBoolean()))
+            .thenReturn(new ScopeNotificationFilterPreferencesHierarchy(Collections.emptyList()));
+
+        // The watching user only watches a space
+        NotificationFilterPreference scopePreference = mockPreference("scope", ScopeNotificationFilter.FILTER_NAME);
+        when(scopePreference.getPage()).thenReturn("xwiki:Watched");
+        when(this.entityReferenceResolver.resolve("xwiki:Watched", EntityType.SPACE)).thenReturn(WATCHED_SPACE);
+        List<NotificationFilterPreference> watchingPreferences = Collections.singletonList(scopePreference);
+        when(this.filterPreferenceManager.getFilterPreferences(WATCHING_USER)).thenReturn(watchingPreferences);
+
+        // The following user only watches a space and follows a user
+        NotificationFilterPreference userPreference = mockPreference("user", EventUserFilter.FILTER_NAME);
+        when(userPreference.getUser()).thenReturn("xwiki:XWiki.Followed");
+        when(this.documentReferenceResolver.resolve("xwiki:XWiki.Followed")).thenReturn(FOLLOWED_USER);
+        List<NotificationFilterPreference> followingPreferences = Arrays.asList(scopePreference, userPreference);
+        when(this.filterPreferenceManager.getFilterPreferences(FOLLOWING_USER)).thenReturn(followingPreferences);
+
+        ScopeNotificationFilterPreferencesHierarchy hierarchy = new ScopeNotificationFilterPreferencesHierarchy(
+            Collections.singletonList(new ScopeNotificationFilterPreference(scopePreference,
+                this.entityReferenceResolver)));
+        when(this.scopePreferencesGetter.getScopeFilterPreferences(same(watchingPreferences), isNull(), any(),
+            eq(true))).thenReturn(hierarchy);
+        when(this.scopePreferencesGetter.getScopeFilterPreferences(same(followingPreferences), isNull(), any(),
+            eq(true))).thenReturn(hierarchy);
+    }
+
+    private NotificationFilterPreference mockPreference(String id, String filterName)
+    {
+        NotificationFilterPreference preference = mock(NotificationFilterPreference.class);
+        when(preference.getId()).thenReturn(id);
+        when(preference.getFilterName()).thenReturn(filterName);
+        when(preference.isEnabled()).thenReturn(true);
+        when(preference.getFilterType()).thenReturn(NotificationFilterType.INCLUSIVE);
+        when(preference.getEventTypes()).thenReturn(Collections.emptySet());
+
+        return preference;
+    }
+
+    private Event mockEvent(DocumentReference document, DocumentReference user)
+    {
+        Event event = mock(Event.class);
+        when(event.getDocument()).thenReturn(document);
+        when(event.getUser()).thenReturn(user);
+
+        return event;
+    }
+
+    private List<DocumentReference> getCandidates(Event event)
+    {
+        Collection<DocumentReference> candidates = this.index.getCandidates(event, USERS);
+
+        return Arrays.asList(candidates.toArray(new DocumentReference[0]));
+    }
+
+    @Test
+    void getCandidates()
+    {
+        assertEquals(Arrays.asList(UNRESTRICTED_USER, WATCHING_USER, FOLLOWING_USER),
+            getCandidates(mockEvent(new DocumentReference("Page", WATCHED_SPACE), null)));
+        assertEquals(Arrays.asList(UNRESTRICTED_USER, WATCHING_USER, FOLLOWING_USER), getCandidates(
+            mockEvent(new DocumentReference("Page", new SpaceReference("Child", WATCHED_SPACE)), null)));
+        assertEquals(Arrays.asList(UNRESTRICTED_USER),
+            getCandidates(mockEvent(new DocumentReference("xwiki", "Other", "Page"), null)));
+        assertEquals(Arrays.asList(UNRESTRICTED_USER, FOLLOWING_USER),
+            getCandidates(mockEvent(new DocumentReference("xwiki", "Other", "Page"), FOLLOWED_USER)));
+    }
+
+    @Test
+    void getCandidatesWithUnmodeledFilter() throws Exception
+    {
+        // A filter which might keep any event, whatever its location
+        NotificationFilter filter = mock(NotificationFilter.class);
+        when(filter.getName()).thenReturn("customFilter");
+        when(this.filterManager.getAllFilters(WATCHING_USER, true, NotificationFilter.FilteringPhase.PRE_FILTERING))
+            .thenReturn(Collections.singletonList(filter));
+        when(this.filterManager.getAllFilters(FOLLOWING_USER, true, NotificationFilter.FilteringPhase.PRE_FILTERING))
+            .thenThrow(new NotificationException("error"));
+
+        assertEquals(USERS, getCandidates(mockEvent(new DocumentReference("xwiki", "Other", "Page"), null)));
+
+        assertEquals("Failed to get the notification filters of user [xwiki:XWiki.Following]: "
+            + "NotificationException: error", this.logCapture.getMessage(0));
+    }
+
+    @Test
+    void getCandidatesWhenIndexingFails() throws Exception
+    {
+        when(this.filterPreferenceManager.getFilterPreferences(WATCHING_USER))
+            .thenThrow(new NotificationException("error"));
+
+        assertEquals(Arrays.asList(UNRESTRICTED_USER, WATCHING_USER),
+            getCandidates(mockEvent(new DocumentReference("xwiki", "Other", "Page"), null)));
+
+        assertEquals("Failed to get the notification filter preferences of user [xwiki:XWiki.Watching]: "
+            + "NotificationException: error", this.logCapture.getMessage(0));
+    }
+
+    @Test
+    void getCandidatesWithoutLocation()
+    {
+        assertEquals(USERS, this.index.getCandidates(mock(Event.class), USERS));
+    }
+
+    @Test
+    void invalidate() throws Exception
+    {
+        Event event = mockEvent(new DocumentReference("xwiki", "Other", "Page"), null);
+
+        assertEquals(Arrays.asList(UNRESTRICTED_USER), getCandidates(event));
+        assertEquals(Arrays.asList(UNRESTRICTED_USER), getCandidates(event));
+
+        // The index is only built once
+        verify(this.filterPreferenceManager, times(1)).getFilterPreferences(WATCHING_USER);
+
+        // The watching user does not watch anything anymore
+        when(this.filterPreferenceManager.getFilterPreferences(WATCHING_USER)).thenReturn(Collections.emptyList());
+        this.index.invalidate(WATCHING_USER);
+
+        assertEquals(Arrays.asList(UNRESTRICTED_USER, WATCHING_USER), getCandidates(event));
+
+        // Deleting a preference invalidates its owner
+        when(this.filterPreferenceManager.getFilterPreferences(FOLLOWING_USER)).thenReturn(Collections.emptyList());
+        this.index.invalidatePreference("user");
+
+        assertEquals(USERS, getCandidates(event));
+
+        // A preference without identifier is not indexed
+        assertFalse(this.index.invalidatePreference(null));
+    }
+}
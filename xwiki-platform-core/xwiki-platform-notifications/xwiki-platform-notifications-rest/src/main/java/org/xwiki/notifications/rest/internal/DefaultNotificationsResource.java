@@ -86,6 +86,9 @@ public class DefaultNotificationsResource extends XWikiResource implements Notif
     @Inject
     private RSSFeedRenderer rssFeedRenderer;
 
+    @Inject
+    private UnreadNotificationCounter unreadCounter;
+
     @Override
     public Response getNotifications(String useUserPreferences, String userId, String untilDate,
         boolean untilDateIncluded, String blackList, String pages, String spaces, String wikis, String users,
@@ -143,11 +146,18 @@ private Object getCompositeEvents(String useUserPreferences, String userId, Stri
         String displayReadEvents, String tags, String currentWiki, String async, String asyncId, boolean onlyUnread,
         boolean count) throws Exception
     {
-        Object result = null;
         NotificationParameters notificationParameters = getNotificationParameters(useUserPreferences, userId, untilDate,
             untilDateIncluded, blackList, pages, spaces, wikis, users, maxCount, displayOwnEvents, displayMinorEvents,
             displaySystemEvents, displayReadEvents, tags, currentWiki, onlyUnread);
 
+        return getCompositeEvents(notificationParameters, async, asyncId, count);
+    }
+
+    private Object getCompositeEvents(NotificationParameters notificationParameters, String async, String asyncId,
+        boolean count) throws Exception
+    {
+        Object result = null;
+
         // 1. Check current asynchronous execution
         if (asyncId != null) {
             result = this.executor.popAsync(asyncId);
@@ -189,9 +199,21 @@ public Response getNotificationsCount(String useUserPreferences, String userId,
         if (!StringUtils.isEmpty(userId) && xWikiUser == null) {
             response = Response.status(Status.UNAUTHORIZED);
         } else {
-            Object result = getCompositeEvents(useUserPreferences, userId, null, true, null, pages, spaces, wikis,
-                users, toMaxCount(maxCount, 21), displayOwnEvents, displayMinorEvents, displaySystemEvents,
-                displayReadEvents, tags, currentWiki, async, asyncId, true, true);
+            NotificationParameters notificationParameters = getNotificationParameters(useUserPreferences, userId,
+                null, true, null, pages, spaces, wikis, users, toMaxCount(maxCount, 21), displayOwnEvents,
+                displayMinorEvents, displaySystemEvents, displayReadEvents, tags, currentWiki, true);
+
+            // Try the unread counters first to avoid searching the notifications. The counters only take into account
+            // the rights of the user they count the notifications of, while the search also checks the rights of the
+            // current user, so they are used only when the current user asks for its own notifications.
+            Object result = null;
+            if (asyncId == null && notificationParameters.user != null
+                && notificationParameters.user.equals(getXWikiContext().getUserReference())) {
+                result = this.unreadCounter.getUnreadCount(notificationParameters);
+            }
+            if (result == null) {
+                result = getCompositeEvents(notificationParameters, async, asyncId, true);
+            }
 
             if (result instanceof String) {
                 response = Response.status(Status.ACCEPTED);
@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStreamException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.internal.status.EventReadAlertFilter;
+import org.xwiki.notifications.notifiers.internal.DefaultNotificationCacheManager;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.notifications.sources.internal.EventSearcher;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Maintain per-user counters of unread notifications so that the notifications menu does not have to search the
+ * notifications each time it displays the number of unread notifications.
+ * <p>
+ * The counters are computed from the unread statuses stored with the events and are kept until the statuses or the
+ * notification preferences of the user change (see {@link UnreadNotificationCounterListener}). They are only used
+ * when the pre filtering is enabled since it's the only case where all the notifications of a user have a status.
+ * <p>
+ * The counters are based on the events stored for the user, which are the events which passed the pre filters, and
+ * only count the events whose document can be viewed by the user. The post filters (see
+ * {@link NotificationFilter#filterEvent}) are not applied and the counted notifications are not grouped. So the counter
+ * can be higher than the number of notifications displayed in the menu, which is accepted in exchange of not searching
+ * the notifications each time the menu is displayed (the feature is opt-in). A counter is not invalidated when the
+ * rights of the user change, it expires after a day.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = UnreadNotificationCounter.class)
+@Singleton
+public class UnreadNotificationCounter implements Initializable, Disposable
+{
+    /**
+     * The number of events loaded at once to check their rights.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private DefaultNotificationCacheManager notificationCacheManager;
+
+    @Inject
+    private EventSearcher eventSearcher;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named(EventReadAlertFilter.FILTER_NAME)
+    private NotificationFilter eventReadAlertFilter;
+
+    @Inject
+    private AuthorizationManager authorizationManager;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The counters of each user, indexed by the key of the parameters used to count the notifications.
+     */
+    private Cache<Map<String, Integer>> counters;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (isEnabled()) {
+            try {
+                this.counters = this.cacheManager
+                    .createNewCache(new LRUCacheConfiguration("notification.rest.unreadCounters", 10000, 86400));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the unread notifications counters cache", e);
+            }
+        }
+    }
+
+    private boolean isEnabled()
+    {
+        return this.configuration.isRestUnreadCounterEnabled() && this.configuration.isEventPrefilteringEnabled();
+    }
+
+    /**
+     * @param parameters the parameters of the unread notifications to count, the user of the parameters is expected to
+     *            be the current user since the counter only checks the rights of that user
+     * @return the number of unread notifications (at most the expected count of the parameters) or {@code null} if
+     *         the passed parameters cannot be served from a counter or if the count failed
+     */
+    public Integer getUnreadCount(NotificationParameters parameters)
+    {
+        if (this.counters == null || parameters.user == null || parameters.format != NotificationFormat.ALERT
+            || !Boolean.TRUE.equals(parameters.onlyUnread)) {
+            return null;
+        }
+
+        String user = this.serializer.serialize(parameters.user);
+        Map<String, Integer> userCounters = this.counters.get(user);
+        if (userCounters == null) {
+            userCounters = new ConcurrentHashMap<>();
+            this.counters.set(user, userCounters);
+        }
+
+        String key = this.notificationCacheManager.createCacheKey(parameters);
+        Integer count = userCounters.get(key);
+        if (count == null) {
+            try {
+                // If the counters of the user are invalidated in the meantime, the result ends up in the discarded map
+                count = count(parameters);
+            } catch (EventStreamException e) {
+                this.logger.warn("Failed to count the unread notifications of user [{}], searching them instead."
+                    + " Root cause is [{}].", user, ExceptionUtils.getRootCauseMessage(e));
+
+                return null;
+            }
+
+            userCounters.put(key, count);
+        }
+
+        return count;
+    }
+
+    private int count(NotificationParameters parameters) throws EventStreamException
+    {
+        if (!parameters.filters.contains(this.eventReadAlertFilter)) {
+            parameters.filters.add(this.eventReadAlertFilter);
+        }
+
+        long total = this.eventSearcher.countStoreEvents(parameters);
+
+        // Same check as the notifications search: only count the events the user is allowed to see
+        Map<DocumentReference, Boolean> allowedDocuments = new HashMap<>();
+        int count = 0;
+        for (int offset = 0; offset < total && count < parameters.expectedCount; offset += BATCH_SIZE) {
+            List<Event> events = this.eventSearcher.searchStoreEvents(offset, BATCH_SIZE, parameters);
+            for (Event event : events) {
+                if (event.getDocument() == null || allowedDocuments.computeIfAbsent(event.getDocument(),
+                    document -> this.authorizationManager.hasAccess(Right.VIEW, parameters.user, document))) {
+                    count++;
+                }
+            }
+            if (events.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+
+        return Math.min(count, parameters.expectedCount);
+    }
+
+    /**
+     * Forget the counters of the passed user.
+     * 
+     * @param user the serialized reference of the user
+     */
+    public void invalidate(String user)
+    {
+        if (this.counters != null) {
+            this.counters.remove(user);
+        }
+    }
+
+    /**
+     * Forget the counters of all the users.
+     */
+    public void invalidateAll()
+    {
+        if (this.counters != null) {
+            this.counters.removeAll();
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.counters != null) {
+            this.counters.dispose();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.events.EventStreamDeletedEvent;
+import org.xwiki.eventstream.internal.events.EventStatusAddOrUpdatedEvent;
+import org.xwiki.eventstream.internal.events.EventStatusDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.filters.internal.DefaultNotificationFilterPreference;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Reconcile the {@link UnreadNotificationCounter} counters when the statuses or the notification preferences of the
+ * users change.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Singleton
+@Named(UnreadNotificationCounterListener.NAME)
+public class UnreadNotificationCounterListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "UnreadNotificationCounterListener";
+
+    @Inject
+    private UnreadNotificationCounter counter;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * The default constructor.
+     */
+    public UnreadNotificationCounterListener()
+    {
+        super(NAME, new WikiDeletedEvent(), new EventStreamDeletedEvent(), new EventStatusAddOrUpdatedEvent(),
+            new EventStatusDeletedEvent(), new NotificationPreferenceAddedEvent(),
+            new NotificationPreferenceUpdatedEvent(), new NotificationPreferenceDeletedEvent(),
+            new NotificationFilterPreferenceAddOrUpdatedEvent(), new NotificationFilterPreferenceDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof EventStatusAddOrUpdatedEvent || event instanceof EventStatusDeletedEvent) {
+            if (source instanceof EventStatus) {
+                this.counter.invalidate(((EventStatus) source).getEntityId());
+            } else {
+                // All the statuses of a user before a date were removed
+                this.counter.invalidateAll();
+            }
+        } else if (event instanceof NotificationPreferenceAddedEvent
+            || event instanceof NotificationPreferenceUpdatedEvent
+            || event instanceof NotificationPreferenceDeletedEvent) {
+            invalidate(source);
+        } else if (event instanceof NotificationFilterPreferenceAddOrUpdatedEvent
+            || event instanceof NotificationFilterPreferenceDeletedEvent) {
+            if (source instanceof DefaultNotificationFilterPreference
+                && ((DefaultNotificationFilterPreference) source).getOwner() != null) {
+                this.counter.invalidate(((DefaultNotificationFilterPreference) source).getOwner());
+            } else {
+                invalidate(data);
+            }
+        } else {
+            this.counter.invalidateAll();
+        }
+    }
+
+    private void invalidate(Object reference)
+    {
+        if (reference instanceof DocumentReference) {
+            this.counter.invalidate(this.serializer.serialize((DocumentReference) reference));
+        } else {
+            // Wiki preferences might be shared by all the users of the wiki
+            this.counter.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.rest.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStreamException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.internal.status.EventReadAlertFilter;
+import org.xwiki.notifications.notifiers.internal.DefaultNotificationCacheManager;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.notifications.sources.internal.EventSearcher;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UnreadNotificationCounter}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class UnreadNotificationCounterTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private UnreadNotificationCounter counter;
+
+    @MockComponent
+    private NotificationConfiguration configuration;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private DefaultNotificationCacheManager notificationCacheManager;
+
+    @MockComponent
+    private EventSearcher eventSearcher;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    @Named(EventReadAlertFilter.FILTER_NAME)
+    private NotificationFilter eventReadAlertFilter;
+
+    @MockComponent
+    private AuthorizationManager authorizationManager;
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        when(this.configuration.isRestUnreadCounterEnabled()).thenReturn(true);
+        when(this.configuration.isEventPrefilteringEnabled()).thenReturn(true);
+
+        Map<String, Object> entries = new HashMap<>();
+        Cache<Object> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> entries.remove(invocation.getArgument(0))).when(cache).remove(anyString());
+        when(this.cacheManager.createNewCache(any())).thenReturn(cache);
+    }
+
+    private NotificationParameters getParameters()
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = USER;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.expectedCount = 21;
+        parameters.onlyUnread = true;
+        parameters.filters = new HashSet<>();
+
+        return parameters;
+    }
+
+    private void mockEvents(int count, DocumentReference document) throws EventStreamException
+    {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Event event = mock(Event.class);
+            when(event.getDocument()).thenReturn(document);
+            events.add(event);
+        }
+
+        doReturn((long) count).when(this.eventSearcher).countStoreEvents(any());
+        when(this.eventSearcher.searchStoreEvents(anyInt(), anyInt(), any())).then(invocation -> {
+            int offset = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return offset < count ? events.subList(offset, Math.min(offset + limit, count)) : Collections.emptyList();
+        });
+    }
+
+    @Test
+    void getUnreadCount() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.User");
+        when(this.notificationCacheManager.createCacheKey(any())).thenReturn("key");
+        mockEvents(3, null);
+
+        NotificationParameters parameters = getParameters();
+        assertEquals(3, this.counter.getUnreadCount(parameters));
+        assertTrue(parameters.filters.contains(this.eventReadAlertFilter));
+
+        // The counter is reused until it's invalidated
+        assertEquals(3, this.counter.getUnreadCount(getParameters()));
+        verify(this.eventSearcher, times(1)).countStoreEvents(any());
+
+        mockEvents(142, null);
+        this.counter.invalidate("xwiki:XWiki.User");
+
+        // The count is limited to the expected count
+        assertEquals(21, this.counter.getUnreadCount(getParameters()));
+        verify(this.eventSearcher, times(2)).countStoreEvents(any());
+        verify(this.eventSearcher, times(2)).searchStoreEvents(eq(0), eq(100), any());
+        verify(this.eventSearcher, times(0)).searchStoreEvents(eq(100), eq(100), any());
+    }
+
+    @Test
+    void getUnreadCountWithoutViewRight() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.User");
+        when(this.notificationCacheManager.createCacheKey(any())).thenReturn("key");
+
+        DocumentReference allowedDocument = new DocumentReference("xwiki", "Space", "Allowed");
+        DocumentReference deniedDocument = new DocumentReference("xwiki", "Space", "Denied");
+        when(this.authorizationManager.hasAccess(Right.VIEW, USER, allowedDocument)).thenReturn(true);
+
+        Event allowedEvent = mock(Event.class, "allowed");
+        when(allowedEvent.getDocument()).thenReturn(allowedDocument);
+        Event deniedEvent = mock(Event.class, "denied");
+        when(deniedEvent.getDocument()).thenReturn(deniedDocument);
+        Event wikiEvent = mock(Event.class, "wiki");
+        when(this.eventSearcher.countStoreEvents(any())).thenReturn(4L);
+        when(this.eventSearcher.searchStoreEvents(eq(0), anyInt(), any()))
+            .thenReturn(Arrays.asList(allowedEvent, deniedEvent, deniedEvent, wikiEvent));
+
+        // Only the events of the documents the user can view are counted, like when searching the notifications
+        assertEquals(2, this.counter.getUnreadCount(getParameters()));
+        verify(this.authorizationManager).hasAccess(Right.VIEW, USER, deniedDocument);
+    }
+
+    @Test
+    void getUnreadCountWhenNotOnlyUnread() throws Exception
+    {
+        NotificationParameters parameters = getParameters();
+        parameters.onlyUnread = false;
+
+        assertNull(this.counter.getUnreadCount(parameters));
+    }
+
+    @Test
+    void getUnreadCountWhenCountFails() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.User");
+        when(this.notificationCacheManager.createCacheKey(any())).thenReturn("key");
+        when(this.eventSearcher.countStoreEvents(any())).thenThrow(new EventStreamException("error"));
+
+        // The caller falls back on searching the notifications
+        assertNull(this.counter.getUnreadCount(getParameters()));
+        assertEquals("Failed to count the unread notifications of user [xwiki:XWiki.User], searching them instead."
+            + " Root cause is [EventStreamException: error].", this.logCapture.getMessage(0));
+
+        // The failure is not kept
+        mockEvents(3, null);
+        assertEquals(3, this.counter.getUnreadCount(getParameters()));
+    }
+}
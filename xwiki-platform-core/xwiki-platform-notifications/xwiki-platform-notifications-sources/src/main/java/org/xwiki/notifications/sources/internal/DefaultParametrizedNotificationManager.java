@@ -20,21 +20,24 @@
 package org.xwiki.notifications.sources.internal;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.model.reference.DocumentReference;
-import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.filters.NotificationFilter;
@@ -46,8 +49,6 @@
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
-import org.xwiki.user.group.GroupException;
-import org.xwiki.user.group.GroupManager;
 
 /**
  * Default implementation of {@link ParametrizedNotificationManager}.
@@ -76,12 +77,6 @@ public class DefaultParametrizedNotificationManager implements ParametrizedNotif
     @Inject
     private SimilarityCalculator similarityCalculator;
 
-    @Inject
-    private EntityReferenceSerializer<String> serializer;
-
-    @Inject
-    private GroupManager groupManager;
-
     @Inject
     @Named(EventReadAlertFilter.FILTER_NAME)
     private NotificationFilter eventReadAlertFilter;
@@ -96,9 +91,6 @@ public class DefaultParametrizedNotificationManager implements ParametrizedNotif
     @Inject
     private PreferenceDateNotificationFilter preferenceDateNotificationFilter;
 
-    @Inject
-    private Logger logger;
-
     @Override
     public List<CompositeEvent> getEvents(NotificationParameters parameters) throws NotificationException
     {
@@ -119,13 +111,14 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         int batchSize = parameters.expectedCount * 2;
         int offset = 0;
         try {
+            SearchContext context = new SearchContext(parameters, results);
 
             boolean done = false;
             while (!done) {
                 // Get a batch of events
                 List<Event> batch = this.eventSearcher.searchEvents(offset, batchSize, parameters);
 
-                done = addMatchingEventsToResults(batch, parameters, results);
+                done = addMatchingEventsToResults(batch, context);
                 if (!done) {
                     if (batch.size() < batchSize) {
                         // there are no more results to expect. stop.
@@ -146,8 +139,8 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         }
     }
 
-    private boolean addMatchingEventsToResults(List<Event> batch, NotificationParameters parameters,
-        List<CompositeEvent> results) throws EventStreamException, NotificationException
+    private boolean addMatchingEventsToResults(List<Event> batch, SearchContext context)
+        throws EventStreamException, NotificationException
     {
         boolean done = false;
         // Add to the results the events the user has the right to see
@@ -156,18 +149,18 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
             // 1) Don't include events concerning a doc the passed user cannot see
             // 2) If the current user is not the passed user, also make sure that the current user has view permissions
             // on the document as otherwise any user could forget a REST request and see other user's notifications
-            if (document != null && !isAllowed(parameters.user, document)) {
+            if (document != null && !context.isAllowed(document)) {
                 continue;
             }
 
-            if (filterEvent(event, parameters)) {
+            if (filterEvent(event, context)) {
                 continue;
             }
 
             // Record this event
-            recordEvent(results, event);
+            recordEvent(context.grouping, event);
             // If the expected count is reached, stop now
-            if (results.size() >= parameters.expectedCount) {
+            if (context.grouping.results.size() >= context.parameters.expectedCount) {
                 done = true;
                 break;
             }
@@ -188,57 +181,43 @@ private boolean isAllowed(DocumentReference passedUser, DocumentReference docume
      * Determine if the given user reference is targeted by the event targets.
      * 
      * @param event the event that is tested
-     * @param userReference the user reference given by the parameters
+     * @param context the context of the current search
      * @return {@code true} iff the user is explicitely target, or through a group.
      */
-    private boolean eventTargetUser(Event event, DocumentReference userReference)
+    private boolean eventTargetUser(Event event, SearchContext context)
     {
         boolean result = false;
-        if (event.getTarget() != null && !event.getTarget().isEmpty() && userReference != null) {
-            String serializedUserReference = this.serializer.serialize(userReference);
-
-            // if the target explicitely contains the user reference we're good
-            if (event.getTarget().contains(serializedUserReference)) {
-                result = true;
-                // else we need to check that the targets does not contain any group the user belongs to
-                // note that we do the check by starting from the user groups for better scalability
-                // compared to loading each targets individually
-            } else {
-                try {
-                    Collection<DocumentReference> groups = this.groupManager.getGroups(userReference, null, true);
-                    for (DocumentReference group : groups) {
-                        if (event.getTarget().contains(this.serializer.serialize(group))) {
-                            result = true;
-                            break;
-                        }
-                    }
-                } catch (GroupException e) {
-                    logger.error("Error while checking groups for user [{}]", userReference, e);
+        if (event.getTarget() != null && !event.getTarget().isEmpty() && context.parameters.user != null) {
+            // The targets are generally very small compared to the user groups so we iterate over them
+            for (String target : event.getTarget()) {
+                if (context.getTargets().contains(target)) {
+                    result = true;
+                    break;
                 }
             }
         }
         return result;
     }
 
-    private boolean filterEvent(Event event, NotificationParameters parameters) throws EventStreamException
+    private boolean filterEvent(Event event, SearchContext context) throws EventStreamException
     {
-        // Don't record events that have a target that don't include the current user
-        if (!event.getTarget().isEmpty()
-            && (parameters.user == null || !this.eventTargetUser(event, parameters.user))) {
+        NotificationParameters parameters = context.parameters;
+
+        // Don't record events that have a target that don't include the current user (the query already exclude most
+        // of them, but not all stores support it)
+        if (!event.getTarget().isEmpty() && (parameters.user == null || !this.eventTargetUser(event, context))) {
             return true;
         }
 
         // Don't record events that concern an event type for which we don't have a descriptor and
         // don't record events that are before the starting date of the corresponding preference (the query do not
         // guarantee that)
-        if (!recordableEventDescriptorHelper.hasDescriptor(event.getType(), parameters.user)
+        if (!context.hasDescriptor(event.getType())
             || preferenceDateNotificationFilter.shouldFilter(event, parameters.preferences)) {
             return true;
         }
 
-        List<NotificationFilter> filters = new ArrayList<>(parameters.filters);
-        Collections.sort(filters);
-        for (NotificationFilter filter : filters) {
+        for (NotificationFilter filter : context.filters) {
             NotificationFilter.FilterPolicy policy =
                 filter.filterEvent(event, parameters.user, parameters.filterPreferences, parameters.format);
             switch (policy) {
@@ -259,6 +238,198 @@ private List<String> getEventsIds(List<Event> events)
         return events.stream().map(Event::getId).collect(Collectors.toList());
     }
 
+    /**
+     * The state shared by all the batches of a single search: the checks which only depend on the document or the
+     * type of the events are only done once.
+     */
+    private final class SearchContext
+    {
+        private final NotificationParameters parameters;
+
+        private final List<NotificationFilter> filters;
+
+        private final Map<DocumentReference, Boolean> allowedDocuments = new HashMap<>();
+
+        private final Map<String, Boolean> descriptors = new HashMap<>();
+
+        private final GroupingIndex grouping;
+
+        private Set<String> targets;
+
+        SearchContext(NotificationParameters parameters, List<CompositeEvent> results)
+        {
+            this.parameters = parameters;
+            this.filters = new ArrayList<>(parameters.filters);
+            Collections.sort(this.filters);
+            this.grouping = new GroupingIndex(results);
+        }
+
+        boolean isAllowed(DocumentReference document)
+        {
+            return this.allowedDocuments.computeIfAbsent(document,
+                key -> DefaultParametrizedNotificationManager.this.isAllowed(this.parameters.user, key));
+        }
+
+        boolean hasDescriptor(String eventType) throws EventStreamException
+        {
+            Boolean result = this.descriptors.get(eventType);
+            if (result == null) {
+                result = recordableEventDescriptorHelper.hasDescriptor(eventType, this.parameters.user);
+                this.descriptors.put(eventType, result);
+            }
+
+            return result;
+        }
+
+        Set<String> getTargets()
+        {
+            if (this.targets == null) {
+                // The same targets are used by the query to exclude the events targeting other users
+                this.targets = new HashSet<>(eventSearcher.getTargets(this.parameters.user));
+            }
+
+            return this.targets;
+        }
+    }
+
+    /**
+     * Index the recorded events by the properties used by {@link SimilarityCalculator} so that only the events which
+     * can be similar to a new event are compared to it.
+     */
+    private static final class GroupingIndex
+    {
+        private static final String KEY_DOCUMENT_TYPE = "document/type";
+
+        private static final String KEY_DOCUMENT_GROUP = "document/group";
+
+        private static final String KEY_TYPE = "type";
+
+        private final List<CompositeEvent> results;
+
+        private final Map<List<Object>, List<Event>> events = new HashMap<>();
+
+        private final Map<Event, CompositeEvent> eventComposites = new IdentityHashMap<>();
+
+        private final Set<Event> indexedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final Map<CompositeEvent, Integer> compositeOrder = new IdentityHashMap<>();
+
+        GroupingIndex(List<CompositeEvent> results)
+        {
+            this.results = results;
+
+            for (CompositeEvent compositeEvent : results) {
+                this.compositeOrder.put(compositeEvent, this.compositeOrder.size());
+                for (Event event : compositeEvent.getEvents()) {
+                    index(event, compositeEvent);
+                }
+            }
+        }
+
+        /**
+         * @param event the new event
+         * @return the recorded events which may have a similarity with the passed event
+         */
+        List<Event> getCandidates(Event event)
+        {
+            List<Event> candidates = new ArrayList<>();
+
+            if (event.getDocument() != null) {
+                if (event.getType() != null) {
+                    addCandidates(candidates, KEY_DOCUMENT_TYPE, event.getDocument(), event.getType());
+                }
+                if (event.getGroupId() != null) {
+                    addCandidates(candidates, KEY_DOCUMENT_GROUP, event.getDocument(), event.getGroupId());
+                }
+            } else if (event.getType() != null) {
+                addCandidates(candidates, KEY_TYPE, event.getType());
+            }
+
+            return candidates;
+        }
+
+        private void addCandidates(List<Event> candidates, Object... key)
+        {
+            List<Event> indexedEvents = this.events.get(Arrays.asList(key));
+            if (indexedEvents != null) {
+                candidates.addAll(indexedEvents);
+            }
+        }
+
+        /**
+         * @param event a recorded event
+         * @return the composite event currently containing the passed event
+         */
+        CompositeEvent getCompositeEvent(Event event)
+        {
+            return this.eventComposites.get(event);
+        }
+
+        /**
+         * @return {@code true} if the first event comes before the second one when iterating over the results
+         */
+        boolean isBefore(Event event1, CompositeEvent compositeEvent1, Event event2, CompositeEvent compositeEvent2)
+        {
+            int order = Integer.compare(this.compositeOrder.get(compositeEvent1),
+                this.compositeOrder.get(compositeEvent2));
+            if (order == 0) {
+                List<Event> compositeEvents = compositeEvent1.getEvents();
+                return compositeEvents.indexOf(event1) < compositeEvents.indexOf(event2);
+            }
+
+            return order < 0;
+        }
+
+        void newCompositeEvent(CompositeEvent compositeEvent)
+        {
+            this.compositeOrder.put(compositeEvent, this.compositeOrder.size());
+            this.results.add(compositeEvent);
+
+            for (Event event : compositeEvent.getEvents()) {
+                index(event, compositeEvent);
+            }
+        }
+
+        void add(CompositeEvent compositeEvent, Event event, int similarity) throws NotificationException
+        {
+            compositeEvent.add(event, similarity);
+
+            index(event, compositeEvent);
+        }
+
+        void remove(CompositeEvent compositeEvent, Event event)
+        {
+            compositeEvent.remove(event);
+
+            this.eventComposites.remove(event);
+        }
+
+        private void index(Event event, CompositeEvent compositeEvent)
+        {
+            this.eventComposites.put(event, compositeEvent);
+
+            // An event moved from a composite event to another is already indexed
+            if (this.indexedEvents.add(event)) {
+                if (event.getDocument() != null) {
+                    if (event.getType() != null) {
+                        index(event, KEY_DOCUMENT_TYPE, event.getDocument(), event.getType());
+                    }
+                    if (event.getGroupId() != null) {
+                        index(event, KEY_DOCUMENT_GROUP, event.getDocument(), event.getGroupId());
+                    }
+                }
+                if (event.getType() != null) {
+                    index(event, KEY_TYPE, event.getType());
+                }
+            }
+        }
+
+        private void index(Event event, Object... key)
+        {
+            this.events.computeIfAbsent(Arrays.asList(key), k -> new ArrayList<>()).add(event);
+        }
+    }
+
     private class BestSimilarity
     {
         public int value;
@@ -282,9 +453,9 @@ public boolean isCompositeEventCompatibleWith(Event event)
         }
     }
 
-    private void recordEvent(List<CompositeEvent> results, Event event) throws NotificationException
+    private void recordEvent(GroupingIndex grouping, Event event) throws NotificationException
     {
-        BestSimilarity bestSimilarity = getBestSimilarity(results, event);
+        BestSimilarity bestSimilarity = getBestSimilarity(grouping, event);
 
         if (bestSimilarity.compositeEvent != null) {
             if (bestSimilarity.value > bestSimilarity.compositeEvent.getSimilarityBetweenEvents()
@@ -294,11 +465,11 @@ private void recordEvent(List<CompositeEvent> results, Event event) throws Notif
                 //
                 // It means we must remove the existing event A from that composite event C1 and create a new composite
                 // event C2 made of A and E.
-                bestSimilarity.compositeEvent.remove(bestSimilarity.event);
+                grouping.remove(bestSimilarity.compositeEvent, bestSimilarity.event);
 
                 // Instead of creating a new composite event with A and E, we first look if an other composite event can
                 // match with A and E.
-                BestSimilarity bestSecondChoice = getBestSimilarity(results, event);
+                BestSimilarity bestSecondChoice = getBestSimilarity(grouping, event);
                 if (bestSecondChoice.compositeEvent != null && bestSecondChoice.isCompositeEventCompatibleWith(event)) {
                     // We have found a composite event C2 made of events (X, Y) which have a greater similarity between
                     // themselves than between X and the event E.
@@ -310,14 +481,14 @@ private void recordEvent(List<CompositeEvent> results, Event event) throws Notif
                     // (or vice versa)
                     // It means the "update" event X has been triggered for technical reason, but the interesting event
                     // is Y, which we can group with the event E.
-                    bestSecondChoice.compositeEvent.add(bestSimilarity.event,
+                    grouping.add(bestSecondChoice.compositeEvent, bestSimilarity.event,
                         bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
-                    bestSecondChoice.compositeEvent.add(event,
+                    grouping.add(bestSecondChoice.compositeEvent, event,
                         bestSecondChoice.compositeEvent.getSimilarityBetweenEvents());
                 } else {
                     CompositeEvent newCompositeEvent = new CompositeEvent(event);
                     newCompositeEvent.add(bestSimilarity.event, bestSimilarity.value);
-                    results.add(newCompositeEvent);
+                    grouping.newCompositeEvent(newCompositeEvent);
                 }
 
                 return;
@@ -325,7 +496,7 @@ private void recordEvent(List<CompositeEvent> results, Event event) throws Notif
                 // We have found a composite event C1 made of events (A, B, C) which have the same similarity between
                 // themselves than between A end E.
                 // All we need to do it to add E to C1.
-                bestSimilarity.compositeEvent.add(event, bestSimilarity.value);
+                grouping.add(bestSimilarity.compositeEvent, event, bestSimilarity.value);
                 return;
             } else if (bestSimilarity.isCompositeEventCompatibleWith(event)) {
                 // We have found a composite event C1 made of events (A, B) which have a greater similarity between
@@ -338,31 +509,40 @@ private void recordEvent(List<CompositeEvent> results, Event event) throws Notif
                 // (or vice versa)
                 // It means the "update" event A has been triggered for technical reason, but the interesting event is
                 // B, which we can group with the event E.
-                bestSimilarity.compositeEvent.add(event, bestSimilarity.compositeEvent.getSimilarityBetweenEvents());
+                grouping.add(bestSimilarity.compositeEvent, event,
+                    bestSimilarity.compositeEvent.getSimilarityBetweenEvents());
                 return;
             }
         }
         // We haven't found an event that is similar to the current one, so we create a new composite event
-        results.add(new CompositeEvent(event));
+        grouping.newCompositeEvent(new CompositeEvent(event));
     }
 
-    private BestSimilarity getBestSimilarity(List<CompositeEvent> results, Event event)
+    private BestSimilarity getBestSimilarity(GroupingIndex grouping, Event event)
     {
         BestSimilarity bestSimilarity = new BestSimilarity();
 
-        // Looking for the most similar event inside the existing composite events
-        for (CompositeEvent existingCompositeEvent : results) {
-            for (Event existingEvent : existingCompositeEvent.getEvents()) {
-                int similarity = similarityCalculator.computeSimilarity(event, existingEvent);
-                if (similarity < existingCompositeEvent.getSimilarityBetweenEvents()) {
-                    // Penality
-                    similarity -= 5;
-                }
-                if (similarity > bestSimilarity.value) {
-                    bestSimilarity.value = similarity;
-                    bestSimilarity.event = existingEvent;
-                    bestSimilarity.compositeEvent = existingCompositeEvent;
-                }
+        // Looking for the most similar event among the existing events which can be similar to the current one (the
+        // other ones would have no similarity at all). When several events have the same similarity, the first one in
+        // the results is kept.
+        for (Event existingEvent : grouping.getCandidates(event)) {
+            CompositeEvent existingCompositeEvent = grouping.getCompositeEvent(existingEvent);
+            if (existingCompositeEvent == null) {
+                // The event is being moved to another composite event
+                continue;
+            }
+
+            int similarity = similarityCalculator.computeSimilarity(event, existingEvent);
+            if (similarity < existingCompositeEvent.getSimilarityBetweenEvents()) {
+                // Penality
+                similarity -= 5;
+            }
+            if (similarity > bestSimilarity.value || (similarity == bestSimilarity.value
+                && bestSimilarity.compositeEvent != null && grouping.isBefore(existingEvent, existingCompositeEvent,
+                    bestSimilarity.event, bestSimilarity.compositeEvent))) {
+                bestSimilarity.value = similarity;
+                bestSimilarity.event = existingEvent;
+                bestSimilarity.compositeEvent = existingCompositeEvent;
             }
         }
 
@@ -19,6 +19,8 @@
  */
 package org.xwiki.notifications.sources.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -34,8 +36,12 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.query.QueryException;
+import org.xwiki.user.group.GroupException;
+import org.xwiki.user.group.GroupManager;
 
 /**
  * Search {@link Event}.
@@ -59,6 +65,12 @@
     @Inject
     protected Logger logger;
 
+    @Inject
+    private GroupManager groupManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
     /**
      * @param offset the index where to start returning events
      * @param limit the maximum number of events to return
@@ -91,6 +103,9 @@ public List<Event> searchStoreEvents(int offset, int limit, NotificationParamete
         // Create the query
         SimpleEventQuery query = this.eventQueryGenerator.generateQuery(parameters);
 
+        // Let the store exclude the events targeting other users instead of filtering them one by one afterwards
+        addTargetCondition(query, parameters.user);
+
         query.setLimit(limit).setOffset(offset);
 
         // Get a batch of events
@@ -100,4 +115,78 @@ public List<Event> searchStoreEvents(int offset, int limit, NotificationParamete
             throw new EventStreamException("Failed to close the event search result", e);
         }
     }
+
+    /**
+     * @param parameters parameters to use
+     * @return the number of events matching the parameters in the store, without taking into account the post
+     *         filtering and the grouping of the events
+     * @throws EventStreamException when failing to count the events
+     * @since 14.9RC1
+     */
+    public long countStoreEvents(NotificationParameters parameters) throws EventStreamException
+    {
+        // Create the query
+        SimpleEventQuery query = this.eventQueryGenerator.generateQuery(parameters);
+
+        addTargetCondition(query, parameters.user);
+
+        // Only the total number of hits is needed
+        query.setLimit(0);
+
+        try (EventSearchResult result = this.eventStore.search(query)) {
+            return result.getTotalHits();
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to count the events", e);
+        }
+    }
+
+    /**
+     * Restrict the query to the events without any target or targeting the passed user, directly or through one of
+     * its groups.
+     * 
+     * @param query the query to complete
+     * @param user the user for which to search the events
+     * @since 14.9RC1
+     */
+    protected void addTargetCondition(SimpleEventQuery query, DocumentReference user)
+    {
+        List<String> targets = getTargets(user);
+
+        query.open();
+        query.eq(Event.FIELD_TARGET, null);
+        if (!targets.isEmpty()) {
+            query.or();
+            query.in(Event.FIELD_TARGET, targets);
+        }
+        query.close();
+    }
+
+    /**
+     * @param user the user for which to search the events
+     * @return the serialized references of the user and of all its groups, which are the targets an event can have to
+     *         be visible by the user, or an empty list if no user is provided
+     * @since 14.9RC1
+     */
+    public List<String> getTargets(DocumentReference user)
+    {
+        if (user == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> targets = new ArrayList<>();
+        targets.add(this.serializer.serialize(user));
+
+        // Note that we do the check by starting from the user groups for better scalability compared to loading each
+        // targets individually
+        try {
+            Collection<DocumentReference> groups = this.groupManager.getGroups(user, null, true);
+            for (DocumentReference group : groups) {
+                targets.add(this.serializer.serialize(group));
+            }
+        } catch (GroupException e) {
+            this.logger.error("Error while checking groups for user [{}]", user, e);
+        }
+
+        return targets;
+    }
 }
@@ -21,27 +21,39 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventSearchResult;
 import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.query.SimpleEventQuery;
 import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
 import org.xwiki.notifications.internal.SimilarityCalculator;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
 import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.group.GroupManager;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -68,6 +80,18 @@
     @MockComponent
     private RecordableEventDescriptorHelper recordableEventDescriptorHelper;
 
+    @MockComponent
+    private AuthorizationManager authorizationManager;
+
+    @MockComponent
+    private ContextualAuthorizationManager contextualAuthorizationManager;
+
+    @MockComponent
+    private GroupManager groupManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
     @BeforeEach
     public void setUp() throws Exception
     {
@@ -97,4 +121,51 @@ void getEventsWhenNoPreferences() throws Exception
         // Verify
         assertEquals(0, results.size());
     }
+
+    private Event mockEvent(String type, DocumentReference document, long date)
+    {
+        Event event = mock(Event.class);
+        when(event.getType()).thenReturn(type);
+        when(event.getDocument()).thenReturn(document);
+        when(event.getDate()).thenReturn(new Date(date));
+
+        return event;
+    }
+
+    @Test
+    void getEventsGroupsSimilarEvents() throws Exception
+    {
+        DocumentReference user = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference documentA = new DocumentReference("xwiki", "Space", "DocumentA");
+        DocumentReference documentB = new DocumentReference("xwiki", "Space", "DocumentB");
+
+        Event event1 = mockEvent("update", documentA, 5L);
+        Event event2 = mockEvent("update", documentB, 4L);
+        Event event3 = mockEvent("update", documentA, 3L);
+        Event event4 = mockEvent("create", null, 2L);
+        Event event5 = mockEvent("create", null, 1L);
+
+        when(this.configuration.isEventStoreEnabled()).thenReturn(true);
+        when(this.eventQueryGenerator.generateQuery(any())).thenReturn(new SimpleEventQuery());
+        EventSearchResult searchResult = mock(EventSearchResult.class);
+        when(searchResult.stream()).thenReturn(Stream.of(event1, event2, event3, event4, event5));
+        when(this.eventStore.search(any())).thenReturn(searchResult);
+        when(this.authorizationManager.hasAccess(Right.VIEW, user, documentA)).thenReturn(true);
+        when(this.authorizationManager.hasAccess(Right.VIEW, user, documentB)).thenReturn(true);
+        when(this.contextualAuthorizationManager.hasAccess(any(), any())).thenReturn(true);
+
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = user;
+        parameters.expectedCount = 10;
+        List<CompositeEvent> results = this.defaultParametrizedNotificationManager.getEvents(parameters);
+
+        assertEquals(3, results.size());
+        assertEquals(Arrays.asList(event1, event3), results.get(0).getEvents());
+        assertEquals(Arrays.asList(event2), results.get(1).getEvents());
+        assertEquals(Arrays.asList(event4, event5), results.get(2).getEvents());
+
+        // The rights are only checked once per document
+        verify(this.authorizationManager, times(1)).hasAccess(Right.VIEW, user, documentA);
+        verify(this.authorizationManager, times(1)).hasAccess(Right.VIEW, user, documentB);
+    }
 }
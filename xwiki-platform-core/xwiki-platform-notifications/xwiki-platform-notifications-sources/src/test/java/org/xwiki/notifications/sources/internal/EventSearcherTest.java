@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.group.GroupException;
+import org.xwiki.user.group.GroupManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link EventSearcher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class EventSearcherTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    private static final DocumentReference GROUP = new DocumentReference("xwiki", "XWiki", "Group");
+
+    @InjectMockComponents
+    private EventSearcher searcher;
+
+    @MockComponent
+    private GroupManager groupManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @Test
+    void addTargetCondition() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.User");
+        when(this.serializer.serialize(GROUP)).thenReturn("xwiki:XWiki.Group");
+        when(this.groupManager.getGroups(USER, null, true)).thenReturn(Arrays.asList(GROUP));
+
+        SimpleEventQuery query = new SimpleEventQuery();
+        this.searcher.addTargetCondition(query, USER);
+
+        // Events without target or targeting the user or one of its groups
+        SimpleEventQuery expected = new SimpleEventQuery();
+        expected.open();
+        expected.eq(Event.FIELD_TARGET, null);
+        expected.or();
+        expected.in(Event.FIELD_TARGET, Arrays.asList("xwiki:XWiki.User", "xwiki:XWiki.Group"));
+        expected.close();
+
+        assertEquals(expected, query);
+    }
+
+    @Test
+    void addTargetConditionWithoutUser()
+    {
+        SimpleEventQuery query = new SimpleEventQuery();
+        this.searcher.addTargetCondition(query, null);
+
+        // Only the events without target
+        SimpleEventQuery expected = new SimpleEventQuery();
+        expected.open();
+        expected.eq(Event.FIELD_TARGET, null);
+        expected.close();
+
+        assertEquals(expected, query);
+    }
+
+    @Test
+    void getTargetsWhenGroupsFail() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.User");
+        when(this.groupManager.getGroups(USER, null, true)).thenThrow(new GroupException("error"));
+
+        assertEquals(Arrays.asList("xwiki:XWiki.User"), this.searcher.getTargets(USER));
+
+        assertEquals("Error while checking groups for user [xwiki:XWiki.User]", this.logCapture.getMessage(0));
+    }
+}
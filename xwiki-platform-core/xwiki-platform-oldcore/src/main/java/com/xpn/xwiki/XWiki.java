@@ -41,6 +41,7 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -244,6 +245,7 @@
 import com.xpn.xwiki.store.AttachmentRecycleBinStore;
 import com.xpn.xwiki.store.AttachmentVersioningStore;
 import com.xpn.xwiki.store.XWikiAttachmentStoreInterface;
+import com.xpn.xwiki.store.XWikiCacheStore;
 import com.xpn.xwiki.store.XWikiCacheStoreInterface;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.store.XWikiRecycleBinStoreInterface;
@@ -2069,56 +2071,184 @@ public void saveDocument(XWikiDocument document, String comment, boolean isMinor
             // an XWikiDocument as source and an XWikiContext as data.
             beforeSave(document, context);
 
-            // Delete existing document if we replace with a new one
-            if (document.isNew()) {
-                if (!originalDocument.isNew()) {
-                    // We don't want to notify about this delete since from outside world point of view it's an update
-                    // and not a delete+create
-                    deleteDocument(originalDocument, true, false, context);
+            // Actually save the document.
+            storeDocument(document, originalDocument, context);
+
+            // Notify listeners about the document having been created or updated
+            notifySaved(document, originalDocument, context);
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    /**
+     * Save the passed documents in the store.
+     * <p>
+     * The documents are saved in a single database transaction per wiki: either all the documents of a wiki are saved
+     * or none of them. The listeners are notified about the saved documents once the transaction is committed. The
+     * comment and minor edit flag set on each document are used for the new versions.
+     * <p>
+     * Saving many documents this way is much cheaper than calling {@link #saveDocument(XWikiDocument, XWikiContext)}
+     * for each of them, which is useful for jobs manipulating a lot of documents. The number of documents passed in a
+     * single call should still be kept reasonable since they are all kept in the same database session.
+     *
+     * @param documents the documents to save
+     * @param context see {@link XWikiContext}
+     * @throws XWikiException when failing to save the documents or when a listener cancels the save of one of them
+     * @since 14.9RC1
+     */
+    public void saveDocuments(Collection<XWikiDocument> documents, XWikiContext context) throws XWikiException
+    {
+        // A database transaction cannot target several wikis
+        Map<String, List<XWikiDocument>> documentsByWiki = new LinkedHashMap<>();
+        for (XWikiDocument document : documents) {
+            documentsByWiki
+                .computeIfAbsent(document.getDocumentReference().getWikiReference().getName(), k -> new ArrayList<>())
+                .add(document);
+        }
+
+        String currentWiki = context.getWikiId();
+
+        try {
+            for (Map.Entry<String, List<XWikiDocument>> entry : documentsByWiki.entrySet()) {
+                // Switch to documents wiki
+                context.setWikiId(entry.getKey());
+
+                saveWikiDocuments(entry.getValue(), context);
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    /**
+     * Save the passed documents in the store, using the same comment for all of them.
+     *
+     * @param documents the documents to save
+     * @param comment the comment to associated to the new version of the saved documents
+     * @param isMinorEdit true if the new versions are minor versions
+     * @param context see {@link XWikiContext}
+     * @throws XWikiException when failing to save the documents or when a listener cancels the save of one of them
+     * @see #saveDocuments(Collection, XWikiContext)
+     * @since 14.9RC1
+     */
+    public void saveDocuments(Collection<XWikiDocument> documents, String comment, boolean isMinorEdit,
+        XWikiContext context) throws XWikiException
+    {
+        for (XWikiDocument document : documents) {
+            document.setComment(StringUtils.defaultString(comment));
+            document.setMinorEdit(isMinorEdit);
+        }
+
+        saveDocuments(documents, context);
+    }
+
+    private void saveWikiDocuments(List<XWikiDocument> documents, XWikiContext context) throws XWikiException
+    {
+        List<XWikiDocument> originalDocuments = new ArrayList<>(documents.size());
+        try {
+            // Make sure the documents are ready to be saved and notify listeners about the documents about to be
+            // created or updated
+            for (XWikiDocument document : documents) {
+                originalDocuments
+                    .add(prepareDocumentForSave(document, document.getComment(), document.isMinorEdit(), context));
+                beforeSave(document, context);
+            }
+
+            // Save all the documents in the same transaction (the store reuses the current transaction)
+            XWikiHibernateStore hibernateStore = getHibernateStore();
+            boolean transaction = hibernateStore != null && hibernateStore.beginTransaction(context);
+            boolean commit = false;
+            try {
+                for (int i = 0; i < documents.size(); ++i) {
+                    storeDocument(documents.get(i), originalDocuments.get(i), context);
                 }
-            } else {
-                // Put attachments to remove in recycle bin
-                if (hasAttachmentRecycleBin(context)) {
-                    for (XWikiAttachmentToRemove attachment : document.getAttachmentsToRemove()) {
-                        if (attachment.isToRecycleBin()
-                            // Only store the attachment to the trash bin if it's not broken
-                            && attachment.getAttachment().contentExists(context)) {
-                            // Make sure the attachment will be stored with its history
-                            attachment.getAttachment().loadArchive(context);
-                            getAttachmentRecycleBinStore().saveToRecycleBin(attachment.getAttachment(),
-                                context.getUser(), new Date(), context, true);
-                        }
+
+                commit = true;
+            } finally {
+                if (transaction) {
+                    hibernateStore.endTransaction(context, commit);
+                }
+            }
+        } finally {
+            // The cache entries were removed before the transaction ended so make sure the previous version of the
+            // documents was not put back in the cache in the meantime, and, when the save failed, that the next
+            // access to the documents loads what's really in the store
+            evictDocuments(documents, context);
+        }
+
+        // Notify listeners about the documents having been created or updated
+        for (int i = 0; i < documents.size(); ++i) {
+            notifySaved(documents.get(i), originalDocuments.get(i), context);
+        }
+    }
+
+    private void evictDocuments(List<XWikiDocument> documents, XWikiContext context)
+    {
+        XWikiStoreInterface store = getStore();
+        if (store instanceof XWikiCacheStore) {
+            XWikiCacheStore cacheStore = (XWikiCacheStore) store;
+            for (XWikiDocument document : documents) {
+                String key = cacheStore.getKey(document, context);
+                cacheStore.getCache().remove(key);
+                cacheStore.getPageExistCache().remove(key);
+            }
+        }
+    }
+
+    private void storeDocument(XWikiDocument document, XWikiDocument originalDocument, XWikiContext context)
+        throws XWikiException
+    {
+        // Delete existing document if we replace with a new one
+        if (document.isNew()) {
+            if (!originalDocument.isNew()) {
+                // We don't want to notify about this delete since from outside world point of view it's an update
+                // and not a delete+create
+                deleteDocument(originalDocument, true, false, context);
+            }
+        } else {
+            // Put attachments to remove in recycle bin
+            if (hasAttachmentRecycleBin(context)) {
+                for (XWikiAttachmentToRemove attachment : document.getAttachmentsToRemove()) {
+                    if (attachment.isToRecycleBin()
+                        // Only store the attachment to the trash bin if it's not broken
+                        && attachment.getAttachment().contentExists(context)) {
+                        // Make sure the attachment will be stored with its history
+                        attachment.getAttachment().loadArchive(context);
+                        getAttachmentRecycleBinStore().saveToRecycleBin(attachment.getAttachment(),
+                            context.getUser(), new Date(), context, true);
                     }
                 }
             }
+        }
 
-            // Actually save the document.
-            getStore().saveXWikiDoc(document, context);
+        // Actually save the document.
+        getStore().saveXWikiDoc(document, context);
+    }
 
-            // Since the store#saveXWikiDoc resets originalDocument, we need to temporarily put it
-            // back to send notifications.
-            XWikiDocument newOriginal = document.getOriginalDocument();
+    private void notifySaved(XWikiDocument document, XWikiDocument originalDocument, XWikiContext context)
+    {
+        // Since the store#saveXWikiDoc resets originalDocument, we need to temporarily put it
+        // back to send notifications.
+        XWikiDocument newOriginal = document.getOriginalDocument();
 
-            try {
-                document.setOriginalDocument(originalDocument);
+        try {
+            document.setOriginalDocument(originalDocument);
 
-                // Notify listeners about the document having been created or updated
+            // Notify listeners about the document having been created or updated
 
-                // First the legacy notification mechanism
+            // First the legacy notification mechanism
 
-                // Then the new observation module
-                // Note that for the moment the event being send is a bridge event, as we are still passing around
-                // an XWikiDocument as source and an XWikiContext as data.
-                // The old version is made available using doc.getOriginalDocument()
-                afterSave(document, context);
-            } catch (Exception ex) {
-                LOGGER.error("Failed to send document save notification for document ["
-                    + getDefaultEntityReferenceSerializer().serialize(document.getDocumentReference()) + "]", ex);
-            } finally {
-                document.setOriginalDocument(newOriginal);
-            }
+            // Then the new observation module
+            // Note that for the moment the event being send is a bridge event, as we are still passing around
+            // an XWikiDocument as source and an XWikiContext as data.
+            // The old version is made available using doc.getOriginalDocument()
+            afterSave(document, context);
+        } catch (Exception ex) {
+            LOGGER.error("Failed to send document save notification for document ["
+                + getDefaultEntityReferenceSerializer().serialize(document.getDocumentReference()) + "]", ex);
         } finally {
-            context.setWikiId(currentWiki);
+            document.setOriginalDocument(newOriginal);
         }
     }
 
@@ -1329,32 +1329,28 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
             getProgress().startStep(getDocumentReference(), "document.progress.render.cache",
                 "Try to get content from the cache");
 
-            String renderedContent = getRenderingCache().getRenderedContent(tdoc.getDocumentReferenceWithLocale(),
-                translatedContent, xcontext);
-
-            if (renderedContent == null) {
-                getProgress().startStep(getDocumentReference(), "document.progress.render.execute", "Execute content");
-
-                // Configure display
-                DocumentDisplayerParameters parameters = new DocumentDisplayerParameters();
-                parameters.setExecutionContextIsolated(executionContextIsolated);
-                parameters.setTransformationContextIsolated(transformationContextIsolated);
-                parameters.setTransformationContextRestricted(transformationContextRestricted);
-                // Render the translated content (matching the current language) using this document's syntax.
-                parameters.setContentTranslated(tdoc != this);
-                parameters.setTargetSyntax(targetSyntax);
-
-                // Execute display
-                XDOM contentXDOM = getDocumentDisplayer().display(this, parameters);
-
-                // Render the result
-                renderedContent = renderXDOM(contentXDOM, targetSyntax);
-
-                getRenderingCache().setRenderedContent(getDocumentReference(), translatedContent, renderedContent,
-                    xcontext);
-            }
-
-            return renderedContent;
+            // The rendering cache keeps track of the entities manipulated during the execution to invalidate the
+            // result when any of them is modified
+            return getRenderingCache().getRenderedContent(tdoc.getDocumentReferenceWithLocale(), translatedContent,
+                xcontext, () -> {
+                    getProgress().startStep(getDocumentReference(), "document.progress.render.execute",
+                        "Execute content");
+
+                    // Configure display
+                    DocumentDisplayerParameters parameters = new DocumentDisplayerParameters();
+                    parameters.setExecutionContextIsolated(executionContextIsolated);
+                    parameters.setTransformationContextIsolated(transformationContextIsolated);
+                    parameters.setTransformationContextRestricted(transformationContextRestricted);
+                    // Render the translated content (matching the current language) using this document's syntax.
+                    parameters.setContentTranslated(tdoc != this);
+                    parameters.setTargetSyntax(targetSyntax);
+
+                    // Execute display
+                    XDOM contentXDOM = getDocumentDisplayer().display(this, parameters);
+
+                    // Render the result
+                    return renderXDOM(contentXDOM, targetSyntax);
+                });
         } finally {
             getProgress().popLevelProgress(getDocumentReference());
             getProgress().endStep(this);
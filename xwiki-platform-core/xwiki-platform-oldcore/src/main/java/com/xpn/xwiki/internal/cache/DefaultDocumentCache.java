@@ -21,8 +21,10 @@
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -33,6 +35,8 @@
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -45,9 +49,8 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
- * Specialized cache component related to documents. It automatically clean the cache when the document is related.
- * <p>
- * TODO: add support for dependencies
+ * Specialized cache component related to documents. It automatically clean the cache when the document, or one of
+ * the documents the entry declared as dependency, is modified.
  *
  * @param <C> the type of the data stored in the cache
  * @version $Id$
@@ -95,6 +98,43 @@ public void onEvent(Event event, Object source, Object data)
      */
     protected Listener listener = new Listener();
 
+    /**
+     * Forget the documents associated with the cache entries removed from the cache (including the evicted ones).
+     *
+     * @version $Id$
+     * @since 14.9RC1
+     */
+    protected class EntryListener extends AbstractCacheEntryListener<C>
+    {
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<C> event)
+        {
+            removeMappings(event.getEntry().getKey());
+        }
+    }
+
+    /**
+     * Remove the cache entries associated with a document when its mapping is evicted, since they could not be
+     * invalidated anymore when the document is modified.
+     *
+     * @version $Id$
+     * @since 14.9RC1
+     */
+    protected class MappingListener extends AbstractCacheEntryListener<Collection<String>>
+    {
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<Collection<String>> event)
+        {
+            Collection<String> keys = event.getEntry().getValue();
+
+            if (keys != null) {
+                for (String key : keys) {
+                    DefaultDocumentCache.this.cache.remove(key);
+                }
+            }
+        }
+    }
+
     /**
      * Used to initialize the actual cache component.
      */
@@ -123,6 +163,11 @@ public void onEvent(Event event, Object source, Object data)
      */
     private Cache<Collection<String>> mappingCache;
 
+    /**
+     * The documents (serialized references) associated with each cache entry.
+     */
+    private final Map<String, Collection<String>> entryMappings = new ConcurrentHashMap<>();
+
     /**
      * The identifier of the cache and event listener.
      */
@@ -140,6 +185,9 @@ public void create(CacheConfiguration cacheConfiguration) throws CacheException
 
         this.mappingCache = this.cacheManager.createNewCache(mappingCacheConfiguration);
 
+        this.cache.addCacheEntryListener(new EntryListener());
+        this.mappingCache.addCacheEntryListener(new MappingListener());
+
         this.observationManager.addListener(this.listener);
     }
 
@@ -153,20 +201,69 @@ public C get(DocumentReference documentReference, Object... extensions)
 
     @Override
     public void set(C data, DocumentReference documentReference, Object... extensions)
+    {
+        set(data, Collections.<DocumentReference>emptyList(), documentReference, extensions);
+    }
+
+    @Override
+    public void set(C data, Collection<DocumentReference> dependencies, DocumentReference documentReference,
+        Object... extensions)
     {
         String key = getKey(documentReference, extensions);
+
+        // The dependencies of the previous value don't matter anymore
+        removeMappings(key);
+
         this.cache.set(key, data);
 
+        addMapping(documentReference, key);
+
+        for (DocumentReference dependency : dependencies) {
+            addMapping(dependency, key);
+        }
+    }
+
+    /**
+     * Remember that the provided cache entry need to be removed when the provided document is modified.
+     *
+     * @param documentReference the reference of the document
+     * @param key the key of the cache entry
+     */
+    private void addMapping(DocumentReference documentReference, String key)
+    {
         String documentReferenceString = this.serializer.serialize(documentReference);
 
         Collection<String> keys = this.mappingCache.get(documentReferenceString);
 
         if (keys == null) {
-            keys = new HashSet<String>();
+            // The entries can be removed by the cache listeners while iterating on the keys
+            keys = ConcurrentHashMap.newKeySet();
             this.mappingCache.set(documentReferenceString, keys);
         }
 
         keys.add(key);
+
+        this.entryMappings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(documentReferenceString);
+    }
+
+    /**
+     * Forget about the documents associated with the provided cache entry.
+     *
+     * @param key the key of the cache entry
+     */
+    private void removeMappings(String key)
+    {
+        Collection<String> documentReferenceStrings = this.entryMappings.remove(key);
+
+        if (documentReferenceStrings != null) {
+            for (String documentReferenceString : documentReferenceStrings) {
+                Collection<String> keys = this.mappingCache.get(documentReferenceString);
+
+                if (keys != null) {
+                    keys.remove(key);
+                }
+            }
+        }
     }
 
     /**
@@ -210,13 +307,8 @@ public void remove(C data, DocumentReference documentReference, Object... extens
         String key = getKey(documentReference, extensions);
         this.cache.remove(key);
 
-        String documentReferenceString = this.serializer.serialize(documentReference);
-
-        Collection<String> keys = this.mappingCache.get(documentReferenceString);
-
-        if (keys != null) {
-            keys.remove(key);
-        }
+        // Make sure the mappings are removed even if the cache did not notify the removal
+        removeMappings(key);
     }
 
     @Override
@@ -228,6 +320,7 @@ public void removeAll()
         if (this.mappingCache != null) {
             this.mappingCache.removeAll();
         }
+        this.entryMappings.clear();
     }
 
     @Override
@@ -19,10 +19,15 @@
  */
 package com.xpn.xwiki.internal.cache.rendering;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+
 /**
  * Cached item including any extensions.
  *
@@ -42,6 +47,27 @@
     public Map<RenderingCacheAware, UsedExtension> extensions = new HashMap<RenderingCacheAware,
         CachedItem.UsedExtension>();
 
+    /**
+     * The rights checked during the rendering, with their result.
+     *
+     * @since 14.9RC1
+     */
+    public Set<RightEntry> rights = Collections.emptySet();
+
+    /**
+     * The entities manipulated during the rendering.
+     *
+     * @since 14.9RC1
+     */
+    public Set<EntityReference> references = Collections.emptySet();
+
+    /**
+     * The user for which the content was rendered.
+     *
+     * @since 14.9RC1
+     */
+    public DocumentReference user;
+
     /**
      * Extension used in cached item.
      *
@@ -21,9 +21,14 @@
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -37,7 +42,14 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.security.authorization.AuthorizationManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.internal.cache.DocumentCache;
@@ -93,6 +105,18 @@ public class DefaultRenderingCache implements RenderingCache, Initializable
     @Inject
     private DocumentCache<CachedItem> cache;
 
+    /**
+     * Used to gather the entities and rights manipulated during the rendering.
+     */
+    @Inject
+    private AsyncContext asyncContext;
+
+    /**
+     * Used to check if the rights evaluated during the rendering are the same for the current user.
+     */
+    @Inject
+    private Provider<AuthorizationManager> authorizationProvider;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -126,8 +150,11 @@ public String getRenderedContent(DocumentReference documentReference, String sou
                 CachedItem cachedItem =
                     this.cache.get(documentReference, source, getAction(context), context.getLanguage(),
                         getRequestParameters(context));
-                if (cachedItem != null) {
+                if (cachedItem != null && isValid(cachedItem, context)) {
                     renderedContent = restoreCachedItem(context, cachedItem);
+
+                    // The enclosing cached content (if any) depends on what was manipulated by the cached rendering
+                    replayContextUse(documentReference, cachedItem, context);
                 }
             }
         }
@@ -145,6 +172,123 @@ public void setRenderedContent(DocumentReference documentReference, String sourc
         }
     }
 
+    @Override
+    public <E extends Exception> String getRenderedContent(DocumentReference documentReference, String source,
+        XWikiContext context, ContentRenderer<E> renderer) throws E
+    {
+        String renderedContent = getRenderedContent(documentReference, source, context);
+
+        if (renderedContent == null) {
+            if (this.configuration.isCached(documentReference) && this.asyncContext instanceof DefaultAsyncContext) {
+                DefaultAsyncContext defaultAsyncContext = (DefaultAsyncContext) this.asyncContext;
+
+                // Gather the entities and rights manipulated during the rendering
+                ContextUse contextUse;
+                defaultAsyncContext.pushContextUse();
+                try {
+                    renderedContent = renderer.render();
+                } finally {
+                    // The enclosing cached content (if any) also depends on what was manipulated here
+                    contextUse = defaultAsyncContext.popContextUse(true);
+                }
+
+                if (renderedContent != null) {
+                    CachedItem cachedItem = buildCachedItem(context, renderedContent);
+
+                    Collection<DocumentReference> dependencies = Collections.emptyList();
+                    if (contextUse != null) {
+                        dependencies = getDependencies(contextUse);
+                        cachedItem.rights = contextUse.getRights();
+                        cachedItem.references = contextUse.getReferences();
+                    }
+
+                    this.cache.set(cachedItem, dependencies, documentReference, source, getAction(context),
+                        context.getLanguage(), getRequestParameters(context));
+                }
+            } else {
+                renderedContent = renderer.render();
+
+                if (renderedContent != null) {
+                    setRenderedContent(documentReference, source, renderedContent, context);
+                }
+            }
+        }
+
+        return renderedContent;
+    }
+
+    /**
+     * @param contextUse the entities manipulated during the rendering
+     * @return the references of the documents which should invalidate the cached item when modified
+     */
+    private Collection<DocumentReference> getDependencies(ContextUse contextUse)
+    {
+        Set<DocumentReference> dependencies = new HashSet<>();
+
+        for (EntityReference reference : contextUse.getReferences()) {
+            // Objects, properties and attachments are modified through their document
+            EntityReference documentReference = reference.extractReference(EntityType.DOCUMENT);
+
+            if (documentReference != null) {
+                dependencies.add(new DocumentReference(documentReference));
+            }
+        }
+
+        return dependencies;
+    }
+
+    /**
+     * Indicate to the current context that the entities and rights manipulated during the rendering of the cached item
+     * are manipulated again.
+     *
+     * @param documentReference the reference of the document associated with the cached item
+     * @param cachedItem the cached item
+     * @param context the XWiki context
+     */
+    private void replayContextUse(DocumentReference documentReference, CachedItem cachedItem, XWikiContext context)
+    {
+        this.asyncContext.useEntity(documentReference);
+        cachedItem.references.forEach(this.asyncContext::useEntity);
+
+        DocumentReference currentUser = context.getUserReference();
+        for (RightEntry right : cachedItem.rights) {
+            // The rights evaluated for the user who triggered the rendering were checked for the current user
+            DocumentReference userReference =
+                Objects.equals(right.getUserReference(), cachedItem.user) ? currentUser : right.getUserReference();
+
+            this.asyncContext.useRight(right.getRight(), userReference, right.getEntityReference(),
+                right.isAllowed());
+        }
+    }
+
+    /**
+     * Make sure the rights evaluated during the rendering of the cached item are the same for the current user.
+     *
+     * @param cachedItem the cached item
+     * @param context the XWiki context
+     * @return true if the cached item can be used for the current user
+     */
+    private boolean isValid(CachedItem cachedItem, XWikiContext context)
+    {
+        if (!cachedItem.rights.isEmpty()) {
+            AuthorizationManager authorization = this.authorizationProvider.get();
+            DocumentReference currentUser = context.getUserReference();
+
+            for (RightEntry right : cachedItem.rights) {
+                // Rights evaluated for the user who triggered the rendering have to be evaluated for the current user
+                DocumentReference userReference =
+                    Objects.equals(right.getUserReference(), cachedItem.user) ? currentUser : right.getUserReference();
+
+                if (authorization.hasAccess(right.getRight(), userReference,
+                    right.getEntityReference()) != right.isAllowed()) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Create cached item with all dependencies.
      *
@@ -155,6 +299,7 @@ public void setRenderedContent(DocumentReference documentReference, String sourc
     private CachedItem buildCachedItem(XWikiContext context, String renderedContent)
     {
         CachedItem cachedItem = new CachedItem();
+        cachedItem.user = context.getUserReference();
 
         for (RenderingCacheAware component : this.renderingCacheAwareProvider.get()) {
             cachedItem.extensions.put(component, component.getCacheResources(context));
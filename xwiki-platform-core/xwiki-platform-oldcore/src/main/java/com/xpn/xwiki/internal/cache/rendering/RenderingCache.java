@@ -33,6 +33,23 @@
 @Role
 public interface RenderingCache
 {
+    /**
+     * Produce the rendering result to cache.
+     *
+     * @param <E> the type of exception thrown by the rendering
+     * @version $Id$
+     * @since 14.9RC1
+     */
+    @FunctionalInterface
+    interface ContentRenderer<E extends Exception>
+    {
+        /**
+         * @return the rendering result
+         * @throws E when failing to render the content
+         */
+        String render() throws E;
+    }
+
     /**
      * The stored result of the rendering of the provided source.
      *
@@ -54,6 +71,36 @@
     void setRenderedContent(DocumentReference documentReference, String source, String renderedContent,
         XWikiContext context);
 
+    /**
+     * Return the stored result of the rendering of the provided source, or execute the provided renderer and store its
+     * result if the cache is enabled for the provided document. The stored result is invalidated when any of the
+     * entities manipulated by the renderer is modified.
+     *
+     * @param <E> the type of exception thrown by the renderer
+     * @param documentReference the reference of the document being rendered
+     * @param source the source to render
+     * @param context the XWiki context
+     * @param renderer the renderer to execute when the result is not already cached
+     * @return the rendering result
+     * @throws E when failing to render the content
+     * @since 14.9RC1
+     */
+    default <E extends Exception> String getRenderedContent(DocumentReference documentReference, String source,
+        XWikiContext context, ContentRenderer<E> renderer) throws E
+    {
+        String renderedContent = getRenderedContent(documentReference, source, context);
+
+        if (renderedContent == null) {
+            renderedContent = renderer.render();
+
+            if (renderedContent != null) {
+                setRenderedContent(documentReference, source, renderedContent, context);
+            }
+        }
+
+        return renderedContent;
+    }
+
     /**
      * Flushes rendering cache (all cached variants) for specified document.
      *
@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.query;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.query.internal.QueryResultCache;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Forget the cached query results which depend on the modified documents (wherever the modification happened since
+ * the document events are also received from the other cluster members).
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named(QueryResultCacheListener.NAME)
+@Singleton
+public class QueryResultCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.query.QueryResultCacheListener";
+
+    @Inject
+    private Provider<QueryResultCache> cacheProvider;
+
+    /**
+     * Default constructor.
+     */
+    public QueryResultCacheListener()
+    {
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.cacheProvider.get().invalidate(((WikiDeletedEvent) event).getWikiId());
+        } else {
+            XWikiDocument document = (XWikiDocument) source;
+
+            // The result of a query can depend on the objects the document is holding or was holding
+            Set<DocumentReference> classes = new HashSet<>();
+            addClasses(document, classes);
+            addClasses(document.getOriginalDocument(), classes);
+
+            this.cacheProvider.get().invalidate(document.getDocumentReference(), classes);
+        }
+    }
+
+    private void addClasses(XWikiDocument document, Set<DocumentReference> classes)
+    {
+        if (document != null) {
+            for (Map.Entry<DocumentReference, List<BaseObject>> entry : document.getXObjects().entrySet()) {
+                if (entry.getValue().stream().anyMatch(Objects::nonNull)) {
+                    classes.add(entry.getKey());
+                }
+            }
+        }
+    }
+}
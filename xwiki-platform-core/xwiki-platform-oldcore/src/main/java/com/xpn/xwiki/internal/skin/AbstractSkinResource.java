@@ -130,4 +130,16 @@ private URLConfiguration getURLConfiguration()
      * @return the resolved input stream
      */
     public abstract InputStream getResourceAsStream(String path);
+
+    /**
+     * Resolve the {@link URL} of a resource path.
+     *
+     * @param path the resource path
+     * @return the resolved URL or {@code null} if it cannot be resolved
+     * @since 14.9RC1
+     */
+    public URL getResourceURL(String path)
+    {
+        return null;
+    }
 }
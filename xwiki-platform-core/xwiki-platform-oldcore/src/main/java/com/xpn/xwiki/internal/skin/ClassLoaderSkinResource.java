@@ -20,6 +20,7 @@
 package com.xpn.xwiki.internal.skin;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import javax.inject.Provider;
 
@@ -61,4 +62,10 @@ public InputStream getResourceAsStream(String path)
     {
         return this.classLoader.getResourceAsStream(path);
     }
+
+    @Override
+    public URL getResourceURL(String path)
+    {
+        return this.classLoader.getResource(path);
+    }
 }
@@ -20,6 +20,7 @@
 package com.xpn.xwiki.internal.skin;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import javax.inject.Provider;
 
@@ -62,4 +63,10 @@ public InputStream getResourceAsStream(String path)
     {
         return this.environment.getResourceAsStream(path);
     }
+
+    @Override
+    public URL getResourceURL(String path)
+    {
+        return this.environment.getResource(path);
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import org.xwiki.component.annotation.Role;
+
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Copy the content of a wiki to another wiki directly at the store level, without going through the
+ * {@link com.xpn.xwiki.doc.XWikiDocument} load and save pipeline.
+ * <p>
+ * No event is sent by the implementations: it's the responsibility of the caller to notify about the copied content.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Role
+public interface WikiStoreCopier
+{
+    /**
+     * @param sourceWikiId the identifier of the wiki to copy
+     * @param targetWikiId the identifier of the wiki where to copy the content
+     * @return true if this store is able to copy the content of the source wiki to the target wiki
+     */
+    boolean isSupported(String sourceWikiId, String targetWikiId);
+
+    /**
+     * Copy the content of the source wiki to the target wiki, replacing the content already stored in the target wiki.
+     * 
+     * @param sourceWikiId the identifier of the wiki to copy
+     * @param targetWikiId the identifier of the wiki where to copy the content
+     * @param withHistory true if the history of the documents should be copied too, false to copy only the current
+     *            version of the documents, as is
+     * @throws XWikiException when failing to copy the content
+     */
+    void copy(String sourceWikiId, String targetWikiId, boolean withHistory) throws XWikiException;
+
+    /**
+     * Remove the content stored for a wiki, for example what was copied before another store failed to copy its part.
+     * 
+     * @param wikiId the identifier of the wiki to clean
+     * @throws XWikiException when failing to remove the content
+     */
+    void delete(String wikiId) throws XWikiException;
+}
@@ -129,6 +129,11 @@ public class HibernateStore implements Disposable, Integrator, Initializable
      */
     private static final String PROPERTY_TIMEZONE_VARIABLE = "${timezone}";
 
+    /**
+     * The default number of statements sent to the database in a single JDBC batch.
+     */
+    private static final String DEFAULT_BATCH_SIZE = "20";
+
     @Inject
     private Logger logger;
 
@@ -239,6 +244,9 @@ public void initialize() throws InitializationException
 
             // Resolve some variables
             replaceVariables(this.configuration);
+
+            // Enable JDBC batching unless explicitly configured
+            setDefaultProperties(this.configuration);
         }
     }
 
@@ -303,6 +311,34 @@ private void replaceVariables(Configuration hibernateConfiguration)
         }
     }
 
+    /**
+     * Group the statements generated when flushing a session (typically when saving a document with many objects)
+     * into JDBC batches, unless the configuration explicitly says otherwise.
+     *
+     * @param hibernateConfiguration the Hibernate Configuration object that we're completing
+     */
+    private void setDefaultProperties(Configuration hibernateConfiguration)
+    {
+        // Oracle needs batching to be disabled to support CLOBs larger than 32K
+        String url = hibernateConfiguration.getProperty(org.hibernate.cfg.Environment.URL);
+        if (url == null || !url.startsWith("jdbc:oracle:")) {
+            setDefaultProperty(hibernateConfiguration, org.hibernate.cfg.Environment.STATEMENT_BATCH_SIZE,
+                DEFAULT_BATCH_SIZE);
+        }
+
+        // Make sure statements targeting the same table follow each other so that they can be batched
+        setDefaultProperty(hibernateConfiguration, org.hibernate.cfg.Environment.ORDER_INSERTS, "true");
+        setDefaultProperty(hibernateConfiguration, org.hibernate.cfg.Environment.ORDER_UPDATES, "true");
+        setDefaultProperty(hibernateConfiguration, org.hibernate.cfg.Environment.BATCH_VERSIONED_DATA, "true");
+    }
+
+    private void setDefaultProperty(Configuration hibernateConfiguration, String key, String value)
+    {
+        if (hibernateConfiguration.getProperty(key) == null) {
+            hibernateConfiguration.setProperty(key, value);
+        }
+    }
+
     /**
      * Reload the Hibernate setup.
      * <p>
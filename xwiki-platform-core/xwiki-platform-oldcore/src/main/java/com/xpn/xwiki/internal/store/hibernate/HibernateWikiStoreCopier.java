@@ -0,0 +1,336 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.boot.Metadata;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Subclass;
+import org.hibernate.mapping.Table;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiLink;
+import com.xpn.xwiki.doc.XWikiSpace;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.internal.store.WikiStoreCopier;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.user.api.XWikiRightService;
+import com.xpn.xwiki.store.DatabaseProduct;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+
+/**
+ * Copy the tables of a wiki to another wiki with bulk {@code INSERT ... SELECT} statements.
+ * <p>
+ * The identifiers of the documents, objects and attachments don't depend on the wiki so the rows can be copied as is.
+ * When the history is not copied, the version, the authors and the dates of the copied documents and attachments are
+ * reset like when each document is copied without history.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named(XWikiHibernateBaseStore.HINT)
+@Singleton
+public class HibernateWikiStoreCopier implements WikiStoreCopier
+{
+    /**
+     * The databases on which a table located in a wiki database/schema can be accessed from another one.
+     */
+    private static final Set<DatabaseProduct> SUPPORTED_PRODUCTS = new LinkedHashSet<>(Arrays.asList(
+        DatabaseProduct.MYSQL, DatabaseProduct.POSTGRESQL, DatabaseProduct.ORACLE, DatabaseProduct.HSQLDB,
+        DatabaseProduct.H2));
+
+    /**
+     * The entities holding the content of a wiki. The other entities (deleted documents, locks, statistics, etc.) are
+     * specific to each wiki.
+     */
+    private static final List<String> CONTENT_ENTITIES = Arrays.asList(XWikiDocument.class.getName(),
+        XWikiSpace.class.getName(), XWikiLink.class.getName(), BaseObject.class.getName(),
+        BaseProperty.class.getName(), XWikiAttachment.class.getName(), XWikiAttachmentContent.class.getName());
+
+    /**
+     * The entities holding the history of the content of a wiki.
+     */
+    private static final List<String> HISTORY_ENTITIES =
+        Arrays.asList(XWikiRCSNodeInfo.class.getName(), XWikiAttachmentArchive.class.getName());
+
+    /**
+     * The version of a document or attachment without history.
+     */
+    private static final String RESET_VERSION = "'1.1'";
+
+    private static final String CURRENT_TIMESTAMP = "CURRENT_TIMESTAMP";
+
+    private static final String VERSION = "version";
+
+    private static final String AUTHOR = "author";
+
+    private static final String DATE = "date";
+
+    @Inject
+    private HibernateStore hibernateStore;
+
+    @Inject
+    private HibernateConfiguration hibernateConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    @Named("compactwiki")
+    private EntityReferenceSerializer<String> compactWikiSerializer;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public boolean isSupported(String sourceWikiId, String targetWikiId)
+    {
+        DatabaseProduct product = this.hibernateStore.getDatabaseProductName();
+
+        // In database mode the wikis of a PostgreSQL server are not accessible from the same connection
+        if (product == DatabaseProduct.POSTGRESQL && !this.hibernateStore.isConfiguredInSchemaMode()) {
+            return false;
+        }
+
+        // The tables of the dynamic custom mappings are not known in advance
+        return SUPPORTED_PRODUCTS.contains(product) && !this.hibernateConfiguration.hasDynamicCustomMappings();
+    }
+
+    @Override
+    public void copy(String sourceWikiId, String targetWikiId, boolean withHistory) throws XWikiException
+    {
+        List<String> statements = getStatements(sourceWikiId, targetWikiId, withHistory);
+
+        execute(statements, targetWikiId,
+            String.format("Failed to copy the tables of wiki [%s] to wiki [%s]", sourceWikiId, targetWikiId));
+    }
+
+    @Override
+    public void delete(String wikiId) throws XWikiException
+    {
+        List<Table> tables = getTables(true);
+        List<String> statements = new ArrayList<>(tables.size());
+        addDeleteStatements(tables, getDatabase(wikiId), statements);
+
+        execute(statements, wikiId, String.format("Failed to clean the tables of wiki [%s]", wikiId));
+    }
+
+    private void execute(List<String> statements, String targetWikiId, String errorMessage) throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String currentWiki = xcontext.getWikiId();
+
+        try {
+            xcontext.setWikiId(targetWikiId);
+
+            boolean transaction = this.hibernateStore.beginTransaction();
+            boolean commit = false;
+            try {
+                Session session = this.hibernateStore.getCurrentSession();
+                session.doWork(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        for (String sql : statements) {
+                            this.logger.debug("Executing [{}]", sql);
+                            statement.executeUpdate(sql);
+                        }
+                    }
+                });
+
+                commit = true;
+            } catch (Exception e) {
+                throw new XWikiException(errorMessage, e);
+            } finally {
+                if (transaction) {
+                    this.hibernateStore.endTransaction(commit);
+                }
+            }
+        } finally {
+            xcontext.setWikiId(currentWiki);
+        }
+    }
+
+    private List<String> getStatements(String sourceWikiId, String targetWikiId, boolean withHistory)
+    {
+        List<Table> tables = getTables(withHistory);
+        Dialect dialect = this.hibernateStore.getDialect();
+        String source = getDatabase(sourceWikiId);
+        String target = getDatabase(targetWikiId);
+
+        List<String> statements = new ArrayList<>(tables.size() * 2);
+
+        // Remove what was already initialized in the target wiki
+        addDeleteStatements(tables, target, statements);
+
+        // Copy the rows, starting with the tables referenced by other tables
+        for (Table table : tables) {
+            List<String> columns = new ArrayList<>();
+            for (Iterator<Column> it = table.getColumnIterator(); it.hasNext();) {
+                columns.add(it.next().getQuotedName(dialect));
+            }
+            String columnList = String.join(", ", columns);
+            String tableName = table.getQuotedName(dialect);
+
+            statements.add(String.format("INSERT INTO %s.%s (%s) SELECT %s FROM %s.%s", target, tableName, columnList,
+                columnList, source, tableName));
+        }
+
+        // Without history the copied documents and attachments start a new history
+        if (!withHistory) {
+            addResetStatements(targetWikiId, target, statements);
+        }
+
+        return statements;
+    }
+
+    private void addResetStatements(String targetWikiId, String target, List<String> statements)
+    {
+        Metadata metadata = this.hibernateStore.getConfigurationMetadata();
+
+        // Stored like the authors of a document of the target wiki
+        DocumentReference userReference = this.xcontextProvider.get().getUserReference();
+        String user;
+        String originalUser;
+        if (userReference != null) {
+            user = toLiteral(this.compactWikiSerializer.serialize(userReference, new WikiReference(targetWikiId)));
+            originalUser = user;
+        } else {
+            user = toLiteral(XWikiRightService.GUEST_USER_FULLNAME);
+            originalUser = toLiteral("");
+        }
+
+        PersistentClass documentClass = metadata.getEntityBinding(XWikiDocument.class.getName());
+        if (documentClass != null) {
+            statements.add(getUpdateStatement(documentClass, target, VERSION, RESET_VERSION, "creator", user, AUTHOR,
+                user, "contentAuthor", user, "originalMetadataAuthorReference", originalUser, "creationDate",
+                CURRENT_TIMESTAMP, DATE, CURRENT_TIMESTAMP, "contentUpdateDate", CURRENT_TIMESTAMP));
+        }
+
+        PersistentClass attachmentClass = metadata.getEntityBinding(XWikiAttachment.class.getName());
+        if (attachmentClass != null) {
+            statements.add(getUpdateStatement(attachmentClass, target, VERSION, RESET_VERSION, AUTHOR, user, DATE,
+                CURRENT_TIMESTAMP));
+        }
+    }
+
+    private String getUpdateStatement(PersistentClass persistentClass, String database, String... propertyValues)
+    {
+        Dialect dialect = this.hibernateStore.getDialect();
+
+        List<String> assignments = new ArrayList<>(propertyValues.length / 2);
+        for (int i = 0; i < propertyValues.length; i += 2) {
+            Column column = (Column) persistentClass.getProperty(propertyValues[i]).getColumnIterator().next();
+            assignments.add(column.getQuotedName(dialect) + " = " + propertyValues[i + 1]);
+        }
+
+        return String.format("UPDATE %s.%s SET %s", database, persistentClass.getTable().getQuotedName(dialect),
+            String.join(", ", assignments));
+    }
+
+    private String toLiteral(String value)
+    {
+        return '\'' + StringUtils.replace(value, "'", "''") + '\'';
+    }
+
+    private void addDeleteStatements(List<Table> tables, String database, List<String> statements)
+    {
+        Dialect dialect = this.hibernateStore.getDialect();
+
+        // Start with the tables referencing other tables
+        for (int i = tables.size() - 1; i >= 0; --i) {
+            statements.add(String.format("DELETE FROM %s.%s", database, tables.get(i).getQuotedName(dialect)));
+        }
+    }
+
+    private String getDatabase(String wikiId)
+    {
+        return this.hibernateStore.escapeDatabaseName(this.hibernateStore.getDatabaseFromWikiName(wikiId));
+    }
+
+    private List<Table> getTables(boolean withHistory)
+    {
+        Metadata metadata = this.hibernateStore.getConfigurationMetadata();
+
+        Set<Table> tables = new LinkedHashSet<>();
+        for (String entity : CONTENT_ENTITIES) {
+            addTables(metadata.getEntityBinding(entity), tables);
+        }
+        if (withHistory) {
+            for (String entity : HISTORY_ENTITIES) {
+                addTables(metadata.getEntityBinding(entity), tables);
+            }
+        }
+
+        // The entities without Java class are the custom mappings of some standard XClasses
+        for (PersistentClass persistentClass : metadata.getEntityBindings()) {
+            if (!persistentClass.hasPojoRepresentation()) {
+                addTables(persistentClass, tables);
+            }
+        }
+
+        // The collections (like the values of database lists) are stored in their own table
+        for (Collection collection : metadata.getCollectionBindings()) {
+            if (tables.contains(collection.getOwner().getTable())) {
+                tables.add(collection.getCollectionTable());
+            }
+        }
+
+        return new ArrayList<>(tables);
+    }
+
+    private void addTables(PersistentClass persistentClass, Set<Table> tables)
+    {
+        if (persistentClass != null) {
+            tables.add(persistentClass.getTable());
+
+            for (Iterator<Subclass> it = persistentClass.getDirectSubclasses(); it.hasNext();) {
+                addTables(it.next(), tables);
+            }
+        }
+    }
+}
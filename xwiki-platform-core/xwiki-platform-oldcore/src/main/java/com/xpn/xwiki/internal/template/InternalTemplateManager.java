@@ -24,18 +24,23 @@
 import java.lang.reflect.Type;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -44,6 +49,7 @@
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -171,6 +177,30 @@ public class InternalTemplateManager implements Initializable
 
     private String templateRootURL;
 
+    /**
+     * Filesystem and classloader templates content, indexed by URL, to avoid reading and parsing the properties header
+     * of the same file again and again.
+     */
+    private final Map<String, CachedTemplateContent> filesystemContentCache = new ConcurrentHashMap<>();
+
+    /**
+     * The number of times each template was resolved, used to know which templates to warm up on startup.
+     */
+    private final Map<String, LongAdder> templateUsage = new ConcurrentHashMap<>();
+
+    private static final class CachedTemplateContent
+    {
+        private final long version;
+
+        private final FilesystemTemplateContent content;
+
+        CachedTemplateContent(long version, FilesystemTemplateContent content)
+        {
+            this.version = version;
+            this.content = content;
+        }
+    }
+
     private static abstract class AbtractTemplate<T extends TemplateContent, R extends Resource<?>> implements Template
     {
         protected R resource;
@@ -231,13 +261,37 @@ public String toString()
         }
     }
 
-    private class EnvironmentTemplate extends AbtractTemplate<FilesystemTemplateContent, AbstractSkinResource>
+    private abstract class AbstractFilesystemTemplate<R extends Resource<?>>
+        extends AbtractTemplate<FilesystemTemplateContent, R>
     {
-        EnvironmentTemplate(AbstractSkinResource resource)
+        AbstractFilesystemTemplate(R resource)
         {
             super(resource);
         }
 
+        protected abstract URL getURL();
+
+        @Override
+        public TemplateContent getContent() throws Exception
+        {
+            if (this.content == null) {
+                URL url = getURL();
+                if (url != null) {
+                    String key = url.toString();
+                    long version = getVersion(url);
+
+                    CachedTemplateContent cachedContent = filesystemContentCache.get(key);
+                    if (cachedContent != null && cachedContent.version == version) {
+                        this.content = cachedContent.content;
+                    } else if (super.getContent() != null) {
+                        filesystemContentCache.put(key, new CachedTemplateContent(version, this.content));
+                    }
+                }
+            }
+
+            return super.getContent();
+        }
+
         @Override
         protected FilesystemTemplateContent getContentInternal(String content)
         {
@@ -245,7 +299,21 @@ protected FilesystemTemplateContent getContentInternal(String content)
         }
     }
 
-    private class ClassloaderTemplate extends AbtractTemplate<FilesystemTemplateContent, ClassloaderResource>
+    private class EnvironmentTemplate extends AbstractFilesystemTemplate<AbstractSkinResource>
+    {
+        EnvironmentTemplate(AbstractSkinResource resource)
+        {
+            super(resource);
+        }
+
+        @Override
+        protected URL getURL()
+        {
+            return this.resource.getResourceURL(this.resource.getPath());
+        }
+    }
+
+    private class ClassloaderTemplate extends AbstractFilesystemTemplate<ClassloaderResource>
     {
         ClassloaderTemplate(ClassloaderResource resource)
         {
@@ -253,9 +321,9 @@ private class ClassloaderTemplate extends AbtractTemplate<FilesystemTemplateCont
         }
 
         @Override
-        protected FilesystemTemplateContent getContentInternal(String content)
+        protected URL getURL()
         {
-            return new FilesystemTemplateContent(content);
+            return this.resource.getResourceURL();
         }
     }
 
@@ -533,6 +601,38 @@ public void initialize() throws InitializationException
         getTemplateRootPath();
     }
 
+    private long getVersion(URL url)
+    {
+        // Files located on the filesystem can be modified at runtime (for example during development) so we check
+        // their last modification date, other kind of resources (mostly entries in a JAR) are considered immutable
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+            } catch (Exception e) {
+                this.logger.debug("Failed to get the last modification date of template [{}]: {}", url,
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                // Make sure the content is reloaded
+                return System.nanoTime();
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param count the maximum number of templates to return
+     * @return the names of the most used templates since the beginning of the instance, from the most used to the
+     *         least used
+     * @since 14.9RC1
+     */
+    public List<String> getMostUsedTemplates(int count)
+    {
+        return this.templateUsage.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+            .limit(count).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
     private String getTemplateRootPath()
     {
         if (this.templateRootURL == null) {
@@ -955,6 +1055,33 @@ public Template getTemplate(String templateName, ResourceRepository repository)
     }
 
     public Template getTemplate(String templateName)
+    {
+        Template template = resolveTemplate(templateName);
+
+        if (template != null) {
+            this.templateUsage.computeIfAbsent(templateName, k -> new LongAdder()).increment();
+        }
+
+        return template;
+    }
+
+    /**
+     * Load the content of the passed template, without counting it as a use of the template.
+     *
+     * @param templateName the name of the template to load
+     * @throws Exception when failing to load the template content
+     * @since 14.9RC1
+     */
+    public void warmupTemplate(String templateName) throws Exception
+    {
+        Template template = resolveTemplate(templateName);
+
+        if (template != null) {
+            template.getContent();
+        }
+    }
+
+    private Template resolveTemplate(String templateName)
     {
         Template template = null;
 
@@ -20,6 +20,7 @@
 package com.xpn.xwiki.internal.template;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import org.apache.commons.lang3.NotImplementedException;
 import org.xwiki.environment.Environment;
@@ -59,4 +60,10 @@ public InputStream getResourceAsStream(String path)
     {
         return this.environment.getResourceAsStream(path);
     }
+
+    @Override
+    public URL getResourceURL(String path)
+    {
+        return this.environment.getResource(path);
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.template;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Remember the most used templates when the instance is stopped and load them in the background when the instance is
+ * ready, so that the first requests don't have to pay the cost of reading them. Only the template content is loaded in
+ * advance, the Velocity code of the templates is still parsed each time they are executed.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named(TemplateWarmupListener.NAME)
+@Singleton
+public class TemplateWarmupListener extends AbstractEventListener implements Disposable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.template.TemplateWarmupListener";
+
+    /**
+     * The name of the configuration property indicating how many templates should be warmed up.
+     */
+    public static final String PROPERTY_SIZE = "template.warmup.size";
+
+    private static final int DEFAULT_SIZE = 100;
+
+    private static final String WARMUP_FILE = "templates/warmup.txt";
+
+    @Inject
+    private InternalTemplateManager templateManager;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private class WarmupRunnable extends AbstractXWikiRunnable
+    {
+        private final List<String> templates;
+
+        WarmupRunnable(List<String> templates)
+        {
+            this.templates = templates;
+        }
+
+        @Override
+        protected void runInternal() throws InterruptedException
+        {
+            for (String templateName : this.templates) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+
+                try {
+                    // Don't count the warmup as a use, the next warmup should reflect the real usage of this run
+                    templateManager.warmupTemplate(templateName);
+                } catch (Exception e) {
+                    logger.debug("Failed to warm up template [{}]: {}", templateName,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+
+            logger.debug("[{}] templates have been warmed up", this.templates.size());
+        }
+    }
+
+    /**
+     * Default constructor.
+     */
+    public TemplateWarmupListener()
+    {
+        super(NAME, new ApplicationReadyEvent());
+    }
+
+    private int getSize()
+    {
+        return this.configuration.getProperty(PROPERTY_SIZE, DEFAULT_SIZE);
+    }
+
+    private File getWarmupFile()
+    {
+        return new File(this.environment.getPermanentDirectory(), WARMUP_FILE);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        int size = getSize();
+        if (size <= 0) {
+            return;
+        }
+
+        File file = getWarmupFile();
+        if (!file.exists()) {
+            return;
+        }
+
+        List<String> templates;
+        try {
+            templates = FileUtils.readLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            this.logger.warn("Failed to read the list of templates to warm up from [{}]: {}", file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        templates.removeIf(StringUtils::isBlank);
+        if (templates.size() > size) {
+            templates = templates.subList(0, size);
+        }
+
+        if (!templates.isEmpty()) {
+            Thread thread = new Thread(new WarmupRunnable(templates), "Template warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        int size = getSize();
+        if (size <= 0) {
+            return;
+        }
+
+        List<String> templates = this.templateManager.getMostUsedTemplates(size);
+
+        // Keep the previous list if the instance did not really have time to be used
+        if (!templates.isEmpty()) {
+            File file = getWarmupFile();
+            try {
+                FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), templates);
+            } catch (IOException e) {
+                this.logger.warn("Failed to save the list of templates to warm up in [{}]: {}", file,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+}
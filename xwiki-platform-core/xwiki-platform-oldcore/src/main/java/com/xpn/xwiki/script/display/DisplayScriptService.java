@@ -183,9 +183,7 @@ public String content(Document document, Map<String, Object> parameters)
                 e);
             return null;
         }
-        String renderedContent =
-            this.renderingCache.getRenderedContent(document.getDocumentReference(), content, context);
-        if (renderedContent == null) {
+        return this.renderingCache.getRenderedContent(document.getDocumentReference(), content, context, () -> {
             Map<String, Object> actualParameters = new HashMap<String, Object>(parameters);
             DocumentDisplayerParameters displayerParameters =
                 (DocumentDisplayerParameters) parameters.get(DISPLAYER_PARAMETERS_KEY);
@@ -203,13 +201,8 @@ public String content(Document document, Map<String, Object> parameters)
             Syntax outputSyntax = getOutputSyntax(parameters);
             displayerParameters.setTargetSyntax(outputSyntax);
             actualParameters.put(DISPLAYER_PARAMETERS_KEY, displayerParameters);
-            renderedContent = document(document, actualParameters, outputSyntax);
-            if (renderedContent != null) {
-                this.renderingCache.setRenderedContent(document.getDocumentReference(), content, renderedContent,
-                    context);
-            }
-        }
-        return renderedContent;
+            return document(document, actualParameters, outputSyntax);
+        });
     }
 
     /**
@@ -660,6 +660,9 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                         doc.setNew(true);
                     }
 
+                    // The objects which are the same as in the database don't need to be saved again
+                    XWikiDocument originalDocument = null;
+
                     // Note: we don't use session.saveOrUpdate(doc) because it used to be slower in Hibernate than
                     // calling
                     // session.save() and session.update() separately.
@@ -671,13 +674,17 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                         }
                         session.save(doc);
                     } else {
+                        originalDocument = getStoredOriginalDocument(doc, session);
                         session.update(doc);
                     }
 
+                    Set<Long> removedObjects = new HashSet<>();
+
                     // Remove objects planned for removal
                     if (!doc.getXObjectsToRemove().isEmpty()) {
                         for (BaseObject removedObject : doc.getXObjectsToRemove()) {
                             deleteXWikiCollection(removedObject, context, false, false);
+                            removedObjects.add(removedObject.getId());
                         }
                         doc.setXObjectsToRemove(new ArrayList<BaseObject>());
                     }
@@ -699,7 +706,9 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                                     if (StringUtils.isEmpty(obj.getGuid())) {
                                         obj.setGuid(null);
                                     }
-                                    saveXWikiCollection(obj, context, false);
+                                    BaseObject originalObject = removedObjects.contains(obj.getId()) ? null
+                                        : getOriginalObject(originalDocument, obj);
+                                    saveXWikiCollectionInternal(obj, originalObject, context, false);
                                 }
                             }
                         }
@@ -1321,12 +1330,68 @@ private void checkObjectClassIsLocal(BaseCollection object, XWikiContext context
         }
     }
 
+    /**
+     * The original document is only a snapshot taken when the document was loaded: it can be outdated if the document
+     * was saved since then, by another thread or another cluster member. Make sure it matches the database with an
+     * optimistic version check, which updates the document row only if it still has the version of the original
+     * document. This also locks the document row until the end of the transaction so that nobody else can save the
+     * document in the mean time.
+     *
+     * @param doc the document being saved
+     * @param session the current session
+     * @return the original document if it matches what is stored in the database, {@code null} otherwise
+     */
+    private XWikiDocument getStoredOriginalDocument(XWikiDocument doc, Session session)
+    {
+        XWikiDocument originalDocument = doc.getOriginalDocument();
+        if (originalDocument == null || originalDocument.isNew() || originalDocument.getId() != doc.getId()) {
+            return null;
+        }
+
+        Query<?> query = session.createQuery("update XWikiDocument as xwikidoc set xwikidoc.version = :version"
+            + " where xwikidoc.id = :id and xwikidoc.version = :originalVersion");
+        query.setParameter("version", doc.getVersion());
+        query.setParameter("id", doc.getId());
+        query.setParameter("originalVersion", originalDocument.getVersion());
+
+        return query.executeUpdate() == 1 ? originalDocument : null;
+    }
+
+    /**
+     * @return the object as it is stored in the database, or {@code null} if it's unknown
+     */
+    private BaseObject getOriginalObject(XWikiDocument originalDocument, BaseObject object)
+    {
+        if (originalDocument != null) {
+            BaseObject originalObject = originalDocument.getXObject(object.getXClassReference(), object.getNumber());
+            if (originalObject != null && originalObject.getId() == object.getId()) {
+                return originalObject;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
      */
     @Deprecated
     public void saveXWikiCollection(BaseCollection object, XWikiContext inputxcontext, boolean bTransaction)
         throws XWikiException
+    {
+        saveXWikiCollectionInternal(object, null, inputxcontext, bTransaction);
+    }
+
+    /**
+     * @param object the object to save
+     * @param originalObject the object as it's currently stored in the database, {@code null} if unknown
+     * @param inputxcontext the XWiki context
+     * @param bTransaction true if the save should be done in its own transaction
+     * @throws XWikiException when failing to save the object
+     * @since 14.9RC1
+     */
+    void saveXWikiCollectionInternal(BaseCollection object, BaseCollection originalObject,
+        XWikiContext inputxcontext, boolean bTransaction) throws XWikiException
     {
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
@@ -1347,26 +1412,35 @@ public void saveXWikiCollection(BaseCollection object, XWikiContext inputxcontex
             try {
                 Session session = getSession(context);
 
-                // Verify if the property already exists
-                Query<Long> query;
-                if (stats) {
-                    query = session.createQuery(
-                        "select obj.id from " + object.getClass().getName() + " as obj where obj.id = :id", Long.class);
+                if (originalObject != null) {
+                    // The object is known to exist in the database, only update it if needed
+                    if (!isSameObjectRow(object, originalObject)) {
+                        session.update("com.xpn.xwiki.objects.BaseObject", object);
+                    }
                 } else {
-                    query = session.createQuery("select obj.id from BaseObject as obj where obj.id = :id", Long.class);
-                }
-                query.setParameter("id", object.getId());
-                if (query.uniqueResult() == null) {
+                    // Verify if the object already exists
+                    Query<Long> query;
                     if (stats) {
-                        session.save(object);
+                        query = session.createQuery(
+                            "select obj.id from " + object.getClass().getName() + " as obj where obj.id = :id",
+                            Long.class);
                     } else {
-                        session.save("com.xpn.xwiki.objects.BaseObject", object);
+                        query =
+                            session.createQuery("select obj.id from BaseObject as obj where obj.id = :id", Long.class);
                     }
-                } else {
-                    if (stats) {
-                        session.update(object);
+                    query.setParameter("id", object.getId());
+                    if (query.uniqueResult() == null) {
+                        if (stats) {
+                            session.save(object);
+                        } else {
+                            session.save("com.xpn.xwiki.objects.BaseObject", object);
+                        }
                     } else {
-                        session.update("com.xpn.xwiki.objects.BaseObject", object);
+                        if (stats) {
+                            session.update(object);
+                        } else {
+                            session.update("com.xpn.xwiki.objects.BaseObject", object);
+                        }
                     }
                 }
                 /*
@@ -1379,8 +1453,8 @@ public void saveXWikiCollection(BaseCollection object, XWikiContext inputxcontex
                     // save object using the custom mapping
                     Map<String, Object> objmap = object.getCustomMappingMap();
                     handledProps = bclass.getCustomMappingPropertyList(context);
-                    query = session.createQuery("select obj.id from " + bclass.getName() + " as obj where obj.id = :id",
-                        Long.class);
+                    Query<Long> query = session.createQuery(
+                        "select obj.id from " + bclass.getName() + " as obj where obj.id = :id", Long.class);
                     query.setParameter("id", object.getId());
                     if (query.uniqueResult() == null) {
                         session.save(bclass.getName(), objmap);
@@ -1431,7 +1505,9 @@ public void saveXWikiCollection(BaseCollection object, XWikiContext inputxcontex
 
                         String pname = prop.getName();
                         if (pname != null && !pname.trim().equals("") && !handledProps.contains(pname)) {
-                            saveXWikiPropertyInternal(prop, context, false);
+                            BaseProperty originalProperty =
+                                originalObject != null ? (BaseProperty) originalObject.getField(key) : null;
+                            saveXWikiPropertyInternal(prop, originalProperty, context, false);
                         }
                     }
                 }
@@ -1758,8 +1834,20 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
         });
     }
 
-    private void saveXWikiPropertyInternal(final PropertyInterface property, final XWikiContext context,
-        final boolean runInOwnTransaction) throws XWikiException
+    /**
+     * @return true if the columns of the BaseObject table are the same for both objects
+     */
+    private boolean isSameObjectRow(BaseCollection object, BaseCollection originalObject)
+    {
+        return Objects.equals(object.getName(), originalObject.getName())
+            && Objects.equals(object.getClassName(), originalObject.getClassName())
+            && object.getNumber() == originalObject.getNumber()
+            && (!(object instanceof BaseObject) || !(originalObject instanceof BaseObject)
+                || Objects.equals(((BaseObject) object).getGuid(), ((BaseObject) originalObject).getGuid()));
+    }
+
+    private void saveXWikiPropertyInternal(final PropertyInterface property, final BaseProperty originalProperty,
+        final XWikiContext context, final boolean runInOwnTransaction) throws XWikiException
     {
         // Clone runInOwnTransaction so the value passed is not altered.
         boolean bTransaction = runInOwnTransaction;
@@ -1771,18 +1859,27 @@ private void saveXWikiPropertyInternal(final PropertyInterface property, final X
             try {
                 final Session session = this.getSession(context);
 
-                Query<String> query = session.createQuery(
-                    "select prop.classType from BaseProperty as prop where prop.id.id = :id and prop.id.name= :name",
-                    String.class);
-                query.setParameter("id", property.getId());
-                query.setParameter("name", property.getName());
-
-                String oldClassType = query.uniqueResult();
                 String newClassType = ((BaseProperty) property).getClassType();
+                String oldClassType;
+                if (originalProperty != null && originalProperty.getId() == property.getId()) {
+                    // The property is known to exist in the database
+                    oldClassType = originalProperty.getClassType();
+                } else {
+                    Query<String> query = session.createQuery("select prop.classType from BaseProperty as prop"
+                        + " where prop.id.id = :id and prop.id.name= :name", String.class);
+                    query.setParameter("id", property.getId());
+                    query.setParameter("name", property.getName());
+
+                    oldClassType = query.uniqueResult();
+                }
+
                 if (oldClassType == null) {
                     session.save(property);
                 } else if (oldClassType.equals(newClassType)) {
-                    session.update(property);
+                    // Don't update a property which did not change
+                    if (!property.equals(originalProperty)) {
+                        session.update(property);
+                    }
                 } else {
                     // The property type has changed. We cannot simply update its value because the new value and the
                     // old
@@ -19,12 +19,19 @@
  */
 package com.xpn.xwiki.store.hibernate.query;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -32,17 +39,23 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.spi.NamedQueryDefinition;
 import org.hibernate.engine.spi.NamedSQLQueryDefinition;
 import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.context.Execution;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryExecutor;
@@ -50,6 +63,7 @@
 import org.xwiki.query.QueryParameter;
 import org.xwiki.query.SecureQuery;
 import org.xwiki.query.WrappingQuery;
+import org.xwiki.query.internal.QueryStatementCache;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
 
@@ -57,6 +71,7 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
 import com.xpn.xwiki.internal.store.hibernate.query.HqlQueryUtils;
+import com.xpn.xwiki.store.DatabaseProduct;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.util.Util;
 
@@ -69,7 +84,7 @@
 @Component
 @Named("hql")
 @Singleton
-public class HqlQueryExecutor implements QueryExecutor, Initializable
+public class HqlQueryExecutor implements QueryExecutor, Initializable, Disposable
 {
     /**
      * Path to Hibernate mapping with named queries. Configured via component manager.
@@ -78,6 +93,16 @@ public class HqlQueryExecutor implements QueryExecutor, Initializable
 
     private static final String ESCAPE_LIKE_PARAMETERS_FILTER = "escapeLikeParameters";
 
+    private static final String SAFE_STATEMENTS_MBEAN_NAME = "type=Query,name=HqlSafeStatements";
+
+    private static final int SAFE_STATEMENTS_CACHE_SIZE = 1000;
+
+    /**
+     * The number of rows fetched at once by the database cursor of a streamed query, and the number of results passed
+     * at once to the query filters.
+     */
+    private static final int STREAM_FETCH_SIZE = 100;
+
     @Inject
     private HibernateStore hibernate;
 
@@ -94,14 +119,34 @@ public class HqlQueryExecutor implements QueryExecutor, Initializable
     @Named("context")
     private Provider<ComponentManager> componentManagerProvider;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    @Inject
+    private Logger logger;
+
     private volatile Set<String> allowedNamedQueries;
 
+    /**
+     * The result of the validation of the statements executed without programming right (the same statements are
+     * generally executed a lot, for example by the live tables).
+     */
+    private final QueryStatementCache<Boolean> safeStatements = new QueryStatementCache<>(SAFE_STATEMENTS_CACHE_SIZE);
+
     @Override
     public void initialize() throws InitializationException
     {
         Configuration configuration = this.hibernate.getConfiguration();
 
         configuration.addInputStream(Util.getResourceAsStream(MAPPING_PATH));
+
+        this.jmxRegistration.registerMBean(this.safeStatements, SAFE_STATEMENTS_MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(SAFE_STATEMENTS_MBEAN_NAME);
     }
 
     private Set<String> getAllowedNamedQueries()
@@ -135,6 +180,19 @@ protected static boolean isSafeSelect(String statementString)
         return HqlQueryUtils.isShortFormStatement(statementString) || HqlQueryUtils.isSafe(statementString);
     }
 
+    private boolean isSafeSelectCached(String statementString)
+    {
+        Boolean safe = this.safeStatements.get(statementString);
+
+        if (safe == null) {
+            safe = isSafeSelect(statementString);
+
+            this.safeStatements.put(statementString, safe);
+        }
+
+        return safe;
+    }
+
     protected void checkAllowed(final Query query) throws QueryException
     {
         if (query instanceof SecureQuery && ((SecureQuery) query).isCurrentAuthorChecked()) {
@@ -143,7 +201,7 @@ protected void checkAllowed(final Query query) throws QueryException
                     throw new QueryException("Named queries requires programming right", query, null);
                 }
 
-                if (!isSafeSelect(query.getStatement())) {
+                if (!isSafeSelectCached(query.getStatement())) {
                     throw new QueryException("The query requires programming right", query, null);
                 }
             }
@@ -187,6 +245,144 @@ public <T> List<T> execute(final Query query) throws QueryException
         }
     }
 
+    @Override
+    public <T> Stream<T> stream(Query query) throws QueryException
+    {
+        // Make sure the query is allowed in the current context
+        checkAllowed(query);
+
+        String oldDatabase = getContext().getWikiId();
+        try {
+            if (query.getWiki() != null) {
+                getContext().setWikiId(query.getWiki());
+            }
+
+            // Filter the query
+            Query filteredQuery = filterQuery(query);
+
+            // Open a cursor on the query results
+            Stream<T> results = scroll(filteredQuery);
+
+            // Filter the query result
+            if (query.getFilters() != null && !query.getFilters().isEmpty()) {
+                results = filterResults(results, query.getFilters());
+            }
+
+            return results;
+        } catch (XWikiException e) {
+            throw new QueryException("Exception while executing query", query, e);
+        } finally {
+            getContext().setWikiId(oldDatabase);
+        }
+    }
+
+    /**
+     * Execute the query in a dedicated session which stays open until the returned stream is closed. The current
+     * session (if any) is not used, so that the cursor does not depend on the transactions committed or rolled back by
+     * the code consuming the stream. The returned stream holds a database connection and a transaction so it must be
+     * closed by the caller.
+     */
+    private <T> Stream<T> scroll(Query query) throws XWikiException
+    {
+        getStore().checkHibernate(getContext());
+
+        Session currentSession = this.hibernate.getCurrentSession();
+        Transaction currentTransaction = this.hibernate.getCurrentTransaction();
+        this.hibernate.setCurrentSession(null);
+        this.hibernate.setCurrentTransaction(null);
+
+        try {
+            this.hibernate.beginTransaction();
+
+            Session session = this.hibernate.getCurrentSession();
+            Transaction transaction = this.hibernate.getCurrentTransaction();
+
+            org.hibernate.query.Query<T> hquery = createQuery(session, query);
+            hquery.setReadOnly(true);
+            hquery.setFetchSize(getStreamFetchSize());
+
+            return hquery.stream().onClose(() -> close(session, transaction));
+        } catch (XWikiException | RuntimeException e) {
+            // Release the dedicated session, even when it was opened but starting the transaction failed
+            close(this.hibernate.getCurrentSession(), this.hibernate.getCurrentTransaction());
+
+            throw e;
+        } finally {
+            this.hibernate.setCurrentSession(currentSession);
+            this.hibernate.setCurrentTransaction(currentTransaction);
+        }
+    }
+
+    private int getStreamFetchSize()
+    {
+        // The MySQL driver ignores positive fetch sizes and loads the whole result in memory unless useCursorFetch=true
+        // is set in the connection URL. Integer.MIN_VALUE asks it to stream the rows one by one instead, which is fine
+        // here since the connection is dedicated to the streamed query.
+        if (this.hibernate.getDatabaseProductName() == DatabaseProduct.MYSQL) {
+            return Integer.MIN_VALUE;
+        }
+
+        return STREAM_FETCH_SIZE;
+    }
+
+    private void close(Session session, Transaction transaction)
+    {
+        if (session == null) {
+            return;
+        }
+
+        try {
+            // Nothing to commit since the session was only used to read
+            if (transaction != null) {
+                transaction.rollback();
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to rollback the transaction of a streamed query: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Apply the filters to the results by batches, as they are fetched.
+     */
+    private <T> Stream<T> filterResults(Stream<T> results, List<QueryFilter> filters)
+    {
+        Iterator<T> iterator = results.iterator();
+
+        Iterator<List<T>> batches = new Iterator<List<T>>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<T> next()
+            {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                List<T> batch = new ArrayList<>(STREAM_FETCH_SIZE);
+                while (iterator.hasNext() && batch.size() < STREAM_FETCH_SIZE) {
+                    batch.add(iterator.next());
+                }
+
+                for (QueryFilter filter : filters) {
+                    batch = filter.filterResults(batch);
+                }
+
+                return batch;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+            .flatMap(List::stream).onClose(results::close);
+    }
+
     protected Query filterQuery(Query query)
     {
         Query filteredQuery = query;
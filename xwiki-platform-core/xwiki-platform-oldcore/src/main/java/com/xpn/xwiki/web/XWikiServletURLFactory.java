@@ -29,9 +29,14 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -58,6 +63,13 @@ public class XWikiServletURLFactory extends XWikiDefaultURLFactory
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiServletURLFactory.class);
 
+    /**
+     * The maximum number of entries of each of the caches used to speed up the creation of URLs.
+     */
+    private static final int CACHE_SIZE = 10000;
+
+    private static final Pattern JSESSIONID = Pattern.compile(";jsessionid=.*?(?=\\?|$)");
+
     private EntityReferenceResolver<String> relativeEntityReferenceResolver;
 
     private EntityReferenceResolver<String> currentEntityReferenceResolver;
@@ -83,6 +95,34 @@ public class XWikiServletURLFactory extends XWikiDefaultURLFactory
 
     protected String contextPath;
 
+    /**
+     * The encoded path segments. They don't depend on the context so they are cached for the whole life of the factory.
+     */
+    private final Map<String, String> encodedSegments = new ConcurrentHashMap<>();
+
+    /**
+     * The encoded paths of the spaces, indexed by the string serialization of the spaces.
+     */
+    private final Map<String, SpacePath> spacePaths = new ConcurrentHashMap<>();
+
+    /**
+     * The servlet path of each wiki. Like the following caches, it depends on the configuration and on the wiki
+     * descriptors so it's used only by the factories created for a request, see {@link #getContextCached}.
+     */
+    private final Map<String, String> servletPaths = new ConcurrentHashMap<>();
+
+    /**
+     * The server URL of the wikis that don't have a default URL.
+     */
+    private final Map<String, URL> serverURLs = new ConcurrentHashMap<>();
+
+    /**
+     * The wiki preferences that impact the URLs, indexed by the wiki where they are defined.
+     */
+    private final Map<String, WikiURLPreferences> wikiPreferences = new ConcurrentHashMap<>();
+
+    private volatile Set<String> actionNames;
+
     public XWikiServletURLFactory()
     {
     }
@@ -111,6 +151,7 @@ public void init(XWikiContext context)
     {
         this.defaultURLs = null;
         this.originalURL = null;
+        clearContextCaches();
 
         this.contextPath = context.getWiki().getWebAppPath(context);
 
@@ -183,6 +224,7 @@ public void setDefaultURL(String wikiId, URL baseURL)
         }
 
         this.defaultURLs.put(wikiId, baseURL);
+        this.serverURLs.clear();
     }
 
     protected URL getDefaultURL(String wikiId, XWikiContext xcontext)
@@ -277,7 +319,13 @@ public URL getServerURL(String wikiId, XWikiContext context) throws MalformedURL
         }
 
         // Try to get the URL from the descriptor
-        URL url = context.getWiki().getServerURL(wikiId, context);
+        URL url = this.daemon || wikiId == null ? null : this.serverURLs.get(wikiId);
+        if (url == null) {
+            url = context.getWiki().getServerURL(wikiId, context);
+            if (url != null && !this.daemon && wikiId != null && this.serverURLs.size() < CACHE_SIZE) {
+                this.serverURLs.put(wikiId, url);
+            }
+        }
         if (url != null) {
             return url;
         }
@@ -311,12 +359,12 @@ public URL createURL(String spaces, String name, String action, String querystri
         StringBuilder path = new StringBuilder(this.contextPath);
         addServletPath(path, xwikidb, context);
 
-        // Parse the spaces list into Space References
-        EntityReference spaceReference = getRelativeEntityReferenceResolver().resolve(spaces, EntityType.SPACE);
+        // Get the encoded path of the spaces
+        SpacePath spacePath = getSpacePath(spaces);
 
         // For how to encode the various parts of the URL, see http://stackoverflow.com/a/29948396/153102
-        addAction(path, spaceReference, action, context);
-        addSpaces(path, spaceReference);
+        addAction(path, spacePath.firstSpaceName, action, context);
+        path.append(spacePath.encodedPath);
         addName(path, name, action, context);
 
         if (!StringUtils.isEmpty(querystring)) {
@@ -346,36 +394,52 @@ private void addServletPath(StringBuilder path, String xwikidb, XWikiContext con
             xwikidb = context.getWikiId();
         }
 
-        path.append(context.getWiki().getServletPath(xwikidb, context));
+        path.append(
+            getContextCached(this.servletPaths, xwikidb, wiki -> context.getWiki().getServletPath(wiki, context)));
     }
 
-    private void addAction(StringBuilder path, EntityReference spaceReference, String action, XWikiContext context)
+    private void addAction(StringBuilder path, String firstSpaceName, String action, XWikiContext context)
     {
-        boolean showViewAction = context.getWiki().showViewAction(context);
+        boolean showViewAction = getWikiURLPreferences(context).showViewAction;
 
         // - Always output the action if it's not "view" or if showViewAction is true
         // - Output "view/<first space name>" when the first space name is an action name and the action is View
         // (and showViewAction = false)
         if ((!"view".equals(action) || showViewAction)
-            || (spaceReference != null && "view".equals(action) && getActionLister().listActions()
-                .contains(spaceReference.extractFirstReference(EntityType.SPACE).getName()))) {
+            || (firstSpaceName != null && "view".equals(action) && isActionName(firstSpaceName))) {
             path.append(action).append("/");
         }
     }
 
-    /**
-     * Add the spaces to the path.
-     */
-    private void addSpaces(StringBuilder path, EntityReference spaceReference)
+    private boolean isActionName(String name)
     {
-        for (EntityReference reference : spaceReference.getReversedReferenceChain()) {
-            appendSpacePathSegment(path, reference);
+        if (this.daemon) {
+            return getActionLister().listActions().contains(name);
+        }
+
+        if (this.actionNames == null) {
+            this.actionNames = new HashSet<>(getActionLister().listActions());
         }
+        return this.actionNames.contains(name);
     }
 
-    private void appendSpacePathSegment(StringBuilder path, EntityReference spaceReference)
+    /**
+     * @param spaces the serialized spaces
+     * @return the encoded path of the spaces, each followed by a slash, and the name of the first space
+     */
+    private SpacePath getSpacePath(String spaces)
     {
-        path.append(encodeWithinPath(spaceReference.getName())).append('/');
+        return getCached(this.spacePaths, spaces, key -> {
+            // Parse the spaces list into Space References
+            EntityReference spaceReference = getRelativeEntityReferenceResolver().resolve(key, EntityType.SPACE);
+
+            StringBuilder path = new StringBuilder();
+            for (EntityReference reference : spaceReference.getReversedReferenceChain()) {
+                path.append(encodeWithinPath(reference.getName())).append('/');
+            }
+
+            return new SpacePath(spaceReference.extractFirstReference(EntityType.SPACE).getName(), path.toString());
+        });
     }
 
     /**
@@ -383,13 +447,46 @@ private void appendSpacePathSegment(StringBuilder path, EntityReference spaceRef
      */
     private void addName(StringBuilder path, String name, String action, XWikiContext context)
     {
-        XWiki xwiki = context.getWiki();
-        if ((xwiki.useDefaultAction(context))
-            || (!name.equals(xwiki.getDefaultPage(context)) || (!"view".equals(action)))) {
+        WikiURLPreferences preferences = getWikiURLPreferences(context);
+        if ((preferences.useDefaultAction) || (!name.equals(preferences.defaultPage) || (!"view".equals(action)))) {
             path.append(encodeWithinPath(name));
         }
     }
 
+    private WikiURLPreferences getWikiURLPreferences(XWikiContext context)
+    {
+        return getContextCached(this.wikiPreferences, context.getWikiId(), wiki -> new WikiURLPreferences(context));
+    }
+
+    private <T> T getCached(Map<String, T> cache, String key, Function<String, T> loader)
+    {
+        T value = key != null ? cache.get(key) : null;
+        if (value == null) {
+            value = loader.apply(key);
+            if (key != null && value != null && cache.size() < CACHE_SIZE) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Values depending on the configuration, the wiki preferences or the wiki descriptors are cached only when this
+     * factory is used for a request. Factories used by daemon threads can live for a long time.
+     */
+    private <T> T getContextCached(Map<String, T> cache, String key, Function<String, T> loader)
+    {
+        return this.daemon ? loader.apply(key) : getCached(cache, key, loader);
+    }
+
+    private void clearContextCaches()
+    {
+        this.servletPaths.clear();
+        this.serverURLs.clear();
+        this.wikiPreferences.clear();
+        this.actionNames = null;
+    }
+
     protected void addFileName(StringBuilder path, String fileName, XWikiContext context)
     {
         addFileName(path, fileName, true, context);
@@ -432,6 +529,11 @@ protected void addFileName(StringBuilder path, String fileName, boolean encode,
      * @return the URL-encoded path segment
      */
     private String encodeWithinPath(String name)
+    {
+        return getCached(this.encodedSegments, name, this::encode);
+    }
+
+    private String encode(String name)
     {
         // Note: Ideally the following would have been the correct way of writing this method but it causes the issues
         // mentioned in the javadoc of this method
@@ -452,7 +554,7 @@ private String encodeWithinPath(String name)
         }
 
         // The previous call will convert " " into "+" (and "+" into "%2B") so we need to convert "+" into "%20"
-        encodedName = encodedName.replaceAll("\\+", "%20");
+        encodedName = StringUtils.replace(encodedName, "+", "%20");
 
         return encodedName;
     }
@@ -581,12 +683,8 @@ public URL createSkinURL(String filename, String spaces, String name, String xwi
     {
         StringBuilder path = new StringBuilder(this.contextPath);
         addServletPath(path, xwikidb, context);
-
-        // Parse the spaces list into Space References
-        EntityReference spaceReference = getRelativeEntityReferenceResolver().resolve(spaces, EntityType.SPACE);
-
         addAction(path, null, "skin", context);
-        addSpaces(path, spaceReference);
+        path.append(getSpacePath(spaces).encodedPath);
         addName(path, name, "skin", context);
         addFileName(path, filename, false, context);
         try {
@@ -718,11 +816,11 @@ private URL internalCreateAttachmentURL(String filename, String spaces, String n
         StringBuilder path = new StringBuilder(this.contextPath);
         addServletPath(path, xwikidb, context);
 
-        // Parse the spaces list into Space References
-        EntityReference spaceReference = getRelativeEntityReferenceResolver().resolve(spaces, EntityType.SPACE);
+        // Get the encoded path of the spaces
+        SpacePath spacePath = getSpacePath(spaces);
 
-        addAction(path, spaceReference, action, context);
-        addSpaces(path, spaceReference);
+        addAction(path, spacePath.firstSpaceName, action, context);
+        path.append(spacePath.encodedPath);
         addName(path, name, action, context);
         addFileName(path, filename, context);
 
@@ -957,7 +1055,9 @@ protected static URL normalizeURL(String url, XWikiContext context) throws Malfo
         String encodedURLAsString = context.getResponse().encodeURL(url);
 
         // Remove a potential jsessionid in the URL
-        encodedURLAsString = encodedURLAsString.replaceAll(";jsessionid=.*?(?=\\?|$)", "");
+        if (encodedURLAsString.indexOf(';') >= 0) {
+            encodedURLAsString = JSESSIONID.matcher(encodedURLAsString).replaceAll("");
+        }
 
         return new URL(encodedURLAsString);
     }
@@ -985,4 +1085,40 @@ private EntityResourceActionLister getActionLister()
         }
         return this.actionLister;
     }
+
+    /**
+     * The encoded URL path corresponding to a list of spaces.
+     */
+    private static final class SpacePath
+    {
+        private final String firstSpaceName;
+
+        private final String encodedPath;
+
+        SpacePath(String firstSpaceName, String encodedPath)
+        {
+            this.firstSpaceName = firstSpaceName;
+            this.encodedPath = encodedPath;
+        }
+    }
+
+    /**
+     * The wiki preferences that impact the URLs.
+     */
+    private static final class WikiURLPreferences
+    {
+        private final boolean showViewAction;
+
+        private final boolean useDefaultAction;
+
+        private final String defaultPage;
+
+        WikiURLPreferences(XWikiContext context)
+        {
+            XWiki xwiki = context.getWiki();
+            this.showViewAction = xwiki.showViewAction(context);
+            this.useDefaultAction = xwiki.useDefaultAction(context);
+            this.defaultPage = xwiki.getDefaultPage(context);
+        }
+    }
 }
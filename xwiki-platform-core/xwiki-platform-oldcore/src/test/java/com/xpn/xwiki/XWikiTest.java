@@ -373,6 +373,42 @@ public void testSaveDocumentSendsObservationEvents() throws Exception
             same(this.oldcore.getXWikiContext()));
     }
 
+    @Test
+    void saveDocuments() throws Exception
+    {
+        EventListener mockListener = mock(EventListener.class);
+        when(mockListener.getName()).thenReturn("testlistener");
+        DocumentReference reference1 = new DocumentReference("xwikitest", "Some", "Document1");
+        DocumentReference reference2 = new DocumentReference("xwikitest", "Some", "Document2");
+        when(mockListener.getEvents()).thenReturn(Arrays.asList(new DocumentCreatedEvent()));
+
+        ObservationManager om = this.oldcore.getMocker().getInstance(ObservationManager.class);
+        om.addListener(mockListener);
+
+        XWikiDocument document1 = new XWikiDocument(reference1);
+        document1.setContent("content 1");
+        XWikiDocument document2 = new XWikiDocument(reference2);
+        document2.setContent("content 2");
+        // Make sure the notification is sent after both documents are saved
+        doAnswer(invocation -> {
+            assertFalse(this.xwiki.getDocument(reference1, this.oldcore.getXWikiContext()).isNew());
+            assertFalse(this.xwiki.getDocument(reference2, this.oldcore.getXWikiContext()).isNew());
+            return null;
+        }).when(mockListener).onEvent(any(DocumentCreatedEvent.class), any(XWikiDocument.class),
+            same(this.oldcore.getXWikiContext()));
+
+        this.xwiki.saveDocuments(Arrays.asList(document1, document2), "comment", true,
+            this.oldcore.getXWikiContext());
+
+        verify(mockListener).onEvent(new DocumentCreatedEvent(reference1), document1, this.oldcore.getXWikiContext());
+        verify(mockListener).onEvent(new DocumentCreatedEvent(reference2), document2, this.oldcore.getXWikiContext());
+
+        XWikiDocument savedDocument = this.xwiki.getDocument(reference2, this.oldcore.getXWikiContext());
+        assertEquals("content 2", savedDocument.getContent());
+        assertEquals("comment", savedDocument.getComment());
+        assertTrue(savedDocument.isMinorEdit());
+    }
+
     /**
      * We only verify here that the renameDocument API calls the Observation component.
      */
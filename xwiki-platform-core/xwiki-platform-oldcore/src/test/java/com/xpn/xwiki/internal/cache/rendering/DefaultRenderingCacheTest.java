@@ -31,6 +31,11 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.ObservationManager;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.security.authorization.Right;
 import org.xwiki.test.internal.MockConfigurationSource;
 
 import com.xpn.xwiki.XWiki;
@@ -137,6 +142,101 @@ public void testGetSetRenderedContent() throws Exception
             getContext()));
     }
 
+    @Test
+    public void testGetRenderedContentWhenDependencyIsModified() throws Exception
+    {
+        getConfigurationSource().setProperty("core.renderingcache.documents",
+            Collections.singletonList(this.document.getPrefixedFullName()));
+
+        XWikiDocument dependency = new XWikiDocument(new DocumentReference("wiki", "space", "dependency"));
+        AsyncContext asyncContext = getComponentManager().getInstance(AsyncContext.class);
+
+        Assert.assertEquals("content1",
+            this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> {
+                asyncContext.useEntity(dependency.getDocumentReference());
+                return "content1";
+            }));
+        Assert.assertEquals("content1", this.renderingCache
+            .getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> "content2"));
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(dependency.getDocumentReference()), dependency,
+            getContext());
+
+        Assert.assertEquals("content2", this.renderingCache
+            .getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> "content2"));
+    }
+
+    @Test
+    public void testGetRenderedContentWhenRightChanges() throws Exception
+    {
+        getConfigurationSource().setProperty("core.renderingcache.documents",
+            Collections.singletonList(this.document.getPrefixedFullName()));
+
+        DocumentReference user = new DocumentReference("wiki", "XWiki", "user");
+        getContext().setUserReference(user);
+        DocumentReference protectedDocument = new DocumentReference("wiki", "space", "protected");
+        AsyncContext asyncContext = getComponentManager().getInstance(AsyncContext.class);
+
+        // @formatter:off
+        getMockery().checking(new Expectations() {{
+            oneOf(getAuthorizationManager()).hasAccess(Right.VIEW, user, protectedDocument);
+                will(returnValue(true));
+            oneOf(getAuthorizationManager()).hasAccess(Right.VIEW, user, protectedDocument);
+                will(returnValue(false));
+        }});
+        //@formatter:on
+
+        Assert.assertEquals("content1",
+            this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> {
+                asyncContext.useRight(Right.VIEW, user, protectedDocument, true);
+                return "content1";
+            }));
+        // Same right evaluation
+        Assert.assertEquals("content1", this.renderingCache
+            .getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> "content2"));
+        // The right changed
+        Assert.assertEquals("content2", this.renderingCache
+            .getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> "content2"));
+    }
+
+    @Test
+    public void testGetRenderedContentReplaysContextUse() throws Exception
+    {
+        getConfigurationSource().setProperty("core.renderingcache.documents",
+            Collections.singletonList(this.document.getPrefixedFullName()));
+
+        DocumentReference user = new DocumentReference("wiki", "XWiki", "user");
+        getContext().setUserReference(user);
+        DocumentReference dependency = new DocumentReference("wiki", "space", "dependency");
+        DocumentReference protectedDocument = new DocumentReference("wiki", "space", "protected");
+        DefaultAsyncContext asyncContext = getComponentManager().getInstance(AsyncContext.class);
+
+        // @formatter:off
+        getMockery().checking(new Expectations() {{
+            oneOf(getAuthorizationManager()).hasAccess(Right.VIEW, user, protectedDocument);
+                will(returnValue(true));
+        }});
+        //@formatter:on
+
+        this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> {
+            asyncContext.useEntity(dependency);
+            asyncContext.useRight(Right.VIEW, user, protectedDocument, true);
+            return "content1";
+        });
+
+        // The content is taken from the cache by an enclosing rendering
+        asyncContext.pushContextUse();
+        Assert.assertEquals("content1", this.renderingCache
+            .getRenderedContent(this.document.getDocumentReference(), "source", getContext(), () -> "content2"));
+        ContextUse contextUse = asyncContext.popContextUse();
+
+        // The enclosing rendering depends on what was manipulated by the cached one
+        Assert.assertTrue(contextUse.getReferences().contains(this.document.getDocumentReference()));
+        Assert.assertTrue(contextUse.getReferences().contains(dependency));
+        Assert.assertEquals(Collections.singleton(new RightEntry(Right.VIEW, user, protectedDocument, true)),
+            contextUse.getRights());
+    }
 
     private static class TestRenderingCacheAware extends XWikiDefaultPlugin implements RenderingCacheAware {
         public TestRenderingCacheAware(String name, String className, XWikiContext context) {
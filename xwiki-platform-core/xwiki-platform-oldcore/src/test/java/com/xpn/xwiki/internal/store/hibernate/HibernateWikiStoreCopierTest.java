@@ -0,0 +1,228 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.hibernate.Session;
+import org.hibernate.boot.Metadata;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.jdbc.Work;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link HibernateWikiStoreCopier}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class HibernateWikiStoreCopierTest
+{
+    @InjectMockComponents
+    private HibernateWikiStoreCopier copier;
+
+    @MockComponent
+    private HibernateStore hibernateStore;
+
+    @MockComponent
+    private HibernateConfiguration hibernateConfiguration;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    @Named("compactwiki")
+    private EntityReferenceSerializer<String> compactWikiSerializer;
+
+    private XWikiContext xcontext;
+
+    private Statement statement;
+
+    private final List<String> statements = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.xcontext = new XWikiContext();
+        this.xcontext.setWikiId("xwiki");
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+
+        Metadata metadata = mock(Metadata.class);
+        when(this.hibernateStore.getConfigurationMetadata()).thenReturn(metadata);
+        when(this.hibernateStore.getDialect()).thenReturn(mock(Dialect.class));
+        when(this.hibernateStore.getDatabaseFromWikiName(any())).then(invocation -> invocation.getArgument(0));
+        when(this.hibernateStore.escapeDatabaseName(any())).then(invocation -> "`" + invocation.getArgument(0) + "`");
+
+        PersistentClass documentClass = mockPersistentClass("xwikidoc", "XWD_ID", "XWD_VERSION");
+        when(metadata.getEntityBinding(XWikiDocument.class.getName())).thenReturn(documentClass);
+        PersistentClass attachmentClass = mockPersistentClass("xwikiattachment", "XWA_ID");
+        when(metadata.getEntityBinding(XWikiAttachment.class.getName())).thenReturn(attachmentClass);
+        PersistentClass rcsClass = mockPersistentClass("xwikircs", "XWR_DOCID");
+        when(metadata.getEntityBinding(XWikiRCSNodeInfo.class.getName())).thenReturn(rcsClass);
+        when(metadata.getEntityBindings()).thenReturn(Collections.emptyList());
+        when(metadata.getCollectionBindings()).thenReturn(Collections.emptyList());
+
+        when(this.hibernateStore.beginTransaction()).thenReturn(true);
+        Session session = mock(Session.class);
+        when(this.hibernateStore.getCurrentSession()).thenReturn(session);
+        Connection connection = mock(Connection.class);
+        this.statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(this.statement);
+        when(this.statement.executeUpdate(any())).then(invocation -> {
+            this.statements.add(invocation.getArgument(0));
+
+            return 0;
+        });
+        doAnswer(invocation -> {
+            invocation.<Work>getArgument(0).execute(connection);
+
+            return null;
+        }).when(session).doWork(any());
+    }
+
+    private PersistentClass mockPersistentClass(String tableName, String... columnNames)
+    {
+        Table table = new Table(tableName);
+        for (String columnName : columnNames) {
+            table.addColumn(new Column(columnName));
+        }
+
+        PersistentClass persistentClass = mock(PersistentClass.class);
+        when(persistentClass.getTable()).thenReturn(table);
+        when(persistentClass.getDirectSubclasses()).thenReturn(Collections.emptyIterator());
+        when(persistentClass.getProperty(any())).then(invocation -> {
+            Property property = mock(Property.class);
+            Column column = new Column(tableName + '.' + invocation.getArgument(0));
+            when(property.getColumnIterator()).then(columnInvocation -> Collections.singleton(column).iterator());
+
+            return property;
+        });
+
+        return persistentClass;
+    }
+
+    @Test
+    void copyWithHistory() throws XWikiException
+    {
+        this.copier.copy("wikia", "wikib", true);
+
+        assertEquals(Arrays.asList(
+            "DELETE FROM `wikib`.xwikircs",
+            "DELETE FROM `wikib`.xwikiattachment",
+            "DELETE FROM `wikib`.xwikidoc",
+            "INSERT INTO `wikib`.xwikidoc (XWD_ID, XWD_VERSION) SELECT XWD_ID, XWD_VERSION FROM `wikia`.xwikidoc",
+            "INSERT INTO `wikib`.xwikiattachment (XWA_ID) SELECT XWA_ID FROM `wikia`.xwikiattachment",
+            "INSERT INTO `wikib`.xwikircs (XWR_DOCID) SELECT XWR_DOCID FROM `wikia`.xwikircs"), this.statements);
+
+        verify(this.hibernateStore).endTransaction(true);
+        assertEquals("xwiki", this.xcontext.getWikiId());
+    }
+
+    @Test
+    void copyWithoutHistory() throws XWikiException
+    {
+        DocumentReference userReference = new DocumentReference("xwiki", "XWiki", "O'Neil");
+        this.xcontext.setUserReference(userReference);
+        when(this.compactWikiSerializer.serialize(userReference, new WikiReference("wikib")))
+            .thenReturn("xwiki:XWiki.O'Neil");
+
+        this.copier.copy("wikia", "wikib", false);
+
+        assertEquals(Arrays.asList(
+            "DELETE FROM `wikib`.xwikiattachment",
+            "DELETE FROM `wikib`.xwikidoc",
+            "INSERT INTO `wikib`.xwikidoc (XWD_ID, XWD_VERSION) SELECT XWD_ID, XWD_VERSION FROM `wikia`.xwikidoc",
+            "INSERT INTO `wikib`.xwikiattachment (XWA_ID) SELECT XWA_ID FROM `wikia`.xwikiattachment",
+            "UPDATE `wikib`.xwikidoc SET xwikidoc.version = '1.1', xwikidoc.creator = 'xwiki:XWiki.O''Neil',"
+                + " xwikidoc.author = 'xwiki:XWiki.O''Neil', xwikidoc.contentAuthor = 'xwiki:XWiki.O''Neil',"
+                + " xwikidoc.originalMetadataAuthorReference = 'xwiki:XWiki.O''Neil',"
+                + " xwikidoc.creationDate = CURRENT_TIMESTAMP, xwikidoc.date = CURRENT_TIMESTAMP,"
+                + " xwikidoc.contentUpdateDate = CURRENT_TIMESTAMP",
+            "UPDATE `wikib`.xwikiattachment SET xwikiattachment.version = '1.1',"
+                + " xwikiattachment.author = 'xwiki:XWiki.O''Neil', xwikiattachment.date = CURRENT_TIMESTAMP"),
+            this.statements);
+    }
+
+    @Test
+    void copyWithoutHistoryAsGuest() throws XWikiException
+    {
+        this.copier.copy("wikia", "wikib", false);
+
+        assertEquals("UPDATE `wikib`.xwikiattachment SET xwikiattachment.version = '1.1',"
+            + " xwikiattachment.author = 'XWiki.XWikiGuest', xwikiattachment.date = CURRENT_TIMESTAMP",
+            this.statements.get(this.statements.size() - 1));
+    }
+
+    @Test
+    void copyWhenStatementFails() throws Exception
+    {
+        when(this.statement.executeUpdate(any())).thenThrow(new SQLException("error"));
+
+        assertThrows(XWikiException.class, () -> this.copier.copy("wikia", "wikib", true));
+
+        verify(this.hibernateStore).endTransaction(false);
+        assertEquals("xwiki", this.xcontext.getWikiId());
+    }
+
+    @Test
+    void delete() throws XWikiException
+    {
+        this.copier.delete("wikib");
+
+        assertEquals(Arrays.asList("DELETE FROM `wikib`.xwikircs", "DELETE FROM `wikib`.xwikiattachment",
+            "DELETE FROM `wikib`.xwikidoc"), this.statements);
+
+        verify(this.hibernateStore).endTransaction(true);
+    }
+}
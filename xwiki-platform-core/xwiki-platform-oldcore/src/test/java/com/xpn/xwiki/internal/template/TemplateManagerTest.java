@@ -20,11 +20,18 @@
 package com.xpn.xwiki.internal.template;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
 
 import org.apache.velocity.VelocityContext;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +53,7 @@
 import org.xwiki.test.annotation.AfterComponent;
 import org.xwiki.test.annotation.AllComponents;
 import org.xwiki.test.internal.MockConfigurationSource;
+import org.xwiki.test.junit5.XWikiTempDir;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
@@ -90,6 +98,9 @@
     @MockComponent
     private URLConfiguration urlConfiguration;
 
+    @XWikiTempDir
+    private File tmpDir;
+
     @AfterComponent
     void afterComponent() throws Exception
     {
@@ -189,4 +200,63 @@ void renderClassloaderTemplate() throws Exception
 
         assertEquals("OK", this.templateManager.render("classloader_template.vm"));
     }
+
+    @Test
+    void filesystemTemplateContentCache() throws Exception
+    {
+        File templatesDir = new File(this.tmpDir, "templates");
+        File templateFile = new File(templatesDir, "template");
+        FileUtils.write(templateFile, "first", StandardCharsets.UTF_8);
+        long lastModified = templateFile.lastModified();
+
+        when(this.environmentMock.getResource("/templates/")).thenReturn(templatesDir.toURI().toURL());
+        when(this.environmentMock.getResource("/templates/template")).thenReturn(templateFile.toURI().toURL());
+        when(this.environmentMock.getResourceAsStream("/templates/template"))
+            .then(invocation -> new FileInputStream(templateFile));
+
+        assertEquals("first", this.templateManager.getTemplate("template").getContent().getContent());
+
+        // Same modification date: the cached content is used
+        FileUtils.write(templateFile, "second", StandardCharsets.UTF_8);
+        templateFile.setLastModified(lastModified);
+
+        assertEquals("first", this.templateManager.getTemplate("template").getContent().getContent());
+
+        // Modified file: the content is reloaded
+        templateFile.setLastModified(lastModified + 10000);
+
+        assertEquals("second", this.templateManager.getTemplate("template").getContent().getContent());
+    }
+
+    @Test
+    void getMostUsedTemplates() throws Exception
+    {
+        mockVelocity("classloader template content", "OK");
+        setTemplateContent("source");
+
+        this.templateManager.render("template");
+        this.templateManager.render("classloader_template.vm");
+        this.templateManager.render("classloader_template.vm");
+        this.templateManager.render("missing");
+
+        InternalTemplateManager internalTemplateManager =
+            this.componentManager.getInstance(InternalTemplateManager.class);
+
+        assertEquals(Arrays.asList("classloader_template.vm", "template"),
+            internalTemplateManager.getMostUsedTemplates(10));
+        assertEquals(Arrays.asList("classloader_template.vm"), internalTemplateManager.getMostUsedTemplates(1));
+    }
+
+    @Test
+    void warmupTemplate() throws Exception
+    {
+        InternalTemplateManager internalTemplateManager =
+            this.componentManager.getInstance(InternalTemplateManager.class);
+
+        internalTemplateManager.warmupTemplate("classloader_template.vm");
+        internalTemplateManager.warmupTemplate("missing");
+
+        // The warmup is not counted as a use
+        assertEquals(Collections.emptyList(), internalTemplateManager.getMostUsedTemplates(10));
+    }
 }
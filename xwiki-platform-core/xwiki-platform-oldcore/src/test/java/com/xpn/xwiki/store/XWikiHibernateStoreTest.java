@@ -349,6 +349,71 @@ void saveObjectWithPropertyTypeChange() throws Exception
         verify(session).save(property);
     }
 
+    @Test
+    void saveUnchangedObject() throws Exception
+    {
+        DocumentReference classReference = new DocumentReference("myWiki", "mySpace", "myClass");
+        when(xcontext.getWikiId()).thenReturn(classReference.getWikiReference().getName());
+        when(xcontext.get("hibsession")).thenReturn(session);
+
+        String propertyName = "title";
+        BaseProperty property = mock(BaseProperty.class);
+        when(property.getId()).thenReturn(1234567890L);
+        when(property.getName()).thenReturn(propertyName);
+        when(property.getClassType()).thenReturn(StringProperty.class.getName());
+
+        BaseObject object = mock(BaseObject.class);
+        when(object.getXClassReference()).thenReturn(classReference);
+        when(object.getPropertyList()).thenReturn(Collections.singleton(propertyName));
+        when(object.getField(propertyName)).thenReturn(property);
+
+        BaseObject originalObject = mock(BaseObject.class);
+        when(originalObject.getField(propertyName)).thenReturn(property);
+
+        this.store.saveXWikiCollectionInternal(object, originalObject, xcontext, false);
+
+        // Nothing should be sent to the database
+        verify(session, never()).createQuery(anyString(), any());
+        verify(session, never()).update(anyString(), any());
+        verify(session, never()).update(any());
+        verify(session, never()).save(any());
+        verify(property).setValueDirty(false);
+    }
+
+    @Test
+    void saveObjectWithChangedProperty() throws Exception
+    {
+        DocumentReference classReference = new DocumentReference("myWiki", "mySpace", "myClass");
+        when(xcontext.getWikiId()).thenReturn(classReference.getWikiReference().getName());
+        when(xcontext.get("hibsession")).thenReturn(session);
+
+        String propertyName = "title";
+        long propertyId = 1234567890L;
+        BaseProperty property = mock(BaseProperty.class);
+        when(property.getId()).thenReturn(propertyId);
+        when(property.getName()).thenReturn(propertyName);
+        when(property.getClassType()).thenReturn(StringProperty.class.getName());
+        BaseProperty originalProperty = mock(BaseProperty.class);
+        when(originalProperty.getId()).thenReturn(propertyId);
+        when(originalProperty.getClassType()).thenReturn(StringProperty.class.getName());
+
+        BaseObject object = mock(BaseObject.class);
+        when(object.getXClassReference()).thenReturn(classReference);
+        when(object.getPropertyList()).thenReturn(Collections.singleton(propertyName));
+        when(object.getField(propertyName)).thenReturn(property);
+
+        BaseObject originalObject = mock(BaseObject.class);
+        when(originalObject.getField(propertyName)).thenReturn(originalProperty);
+
+        this.store.saveXWikiCollectionInternal(object, originalObject, xcontext, false);
+
+        // Only the modified property should be updated, without checking first if it exists
+        verify(session, never()).createQuery(anyString(), any());
+        verify(session, never()).update(anyString(), any());
+        verify(session).update(property);
+        verify(session, never()).save(any());
+    }
+
     @Test
     void existsWithRootLocale() throws Exception
     {
@@ -25,8 +25,11 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.boot.Metadata;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.spi.NamedSQLQueryDefinition;
@@ -52,6 +55,7 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.DatabaseProduct;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 
 import static org.junit.Assert.assertEquals;
@@ -61,6 +65,7 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -271,6 +276,94 @@ public void executeWhenStoreException() throws Exception
         }
     }
 
+    @Test
+    public void streamWithFilter() throws Exception
+    {
+        HibernateStore hibernateStore = this.mocker.getInstance(HibernateStore.class);
+        Session currentSession = mock(Session.class, "current");
+        Session session = mock(Session.class);
+        Transaction transaction = mock(Transaction.class);
+        when(hibernateStore.getCurrentSession()).thenReturn(currentSession, session);
+        when(hibernateStore.getCurrentTransaction()).thenReturn(null, transaction);
+
+        org.hibernate.query.Query<String> hquery = mock(org.hibernate.query.Query.class);
+        when(session.createQuery("select doc.fullName from XWikiDocument doc where doc.space='Main'"))
+            .thenReturn(hquery);
+        when(hquery.stream()).thenReturn(Stream.of("Main.Page1", "Main.Page2", "Main.Page3"));
+
+        DefaultQuery query = new DefaultQuery("where doc.space='Main'", Query.HQL, this.executor);
+        QueryFilter filter = mock(QueryFilter.class);
+        query.addFilter(filter);
+        when(filter.filterStatement(anyString(), anyString())).then(returnsFirstArg());
+        when(filter.filterQuery(any(Query.class))).then(returnsFirstArg());
+        when(filter.filterResults(any(List.class))).then(invocation -> ((List<String>) invocation.getArgument(0))
+            .stream().filter(result -> !result.endsWith("2")).collect(Collectors.toList()));
+
+        try (Stream<String> results = this.executor.stream(query)) {
+            assertEquals(Arrays.asList("Main.Page1", "Main.Page3"), results.collect(Collectors.toList()));
+
+            // The current session should not be used and should be restored
+            verify(currentSession, never()).createQuery(anyString());
+            verify(hibernateStore).setCurrentSession(currentSession);
+            verify(hquery).setReadOnly(true);
+            verify(session, never()).close();
+        }
+
+        verify(transaction).rollback();
+        verify(session).close();
+    }
+
+    @Test
+    public void streamOnMySQL() throws Exception
+    {
+        HibernateStore hibernateStore = this.mocker.getInstance(HibernateStore.class);
+        Session session = mock(Session.class);
+        Transaction transaction = mock(Transaction.class);
+        when(hibernateStore.getCurrentSession()).thenReturn(null, session);
+        when(hibernateStore.getCurrentTransaction()).thenReturn(null, transaction);
+        when(hibernateStore.getDatabaseProductName()).thenReturn(DatabaseProduct.MYSQL);
+
+        org.hibernate.query.Query<String> hquery = mock(org.hibernate.query.Query.class);
+        when(session.createQuery("select doc.fullName from XWikiDocument doc where doc.space='Main'"))
+            .thenReturn(hquery);
+        when(hquery.stream()).thenReturn(Stream.of("Main.Page1"));
+
+        DefaultQuery query = new DefaultQuery("where doc.space='Main'", Query.HQL, this.executor);
+
+        try (Stream<String> results = this.executor.stream(query)) {
+            assertEquals(Arrays.asList("Main.Page1"), results.collect(Collectors.toList()));
+
+            // The MySQL driver streams the rows only with this fetch size
+            verify(hquery).setFetchSize(Integer.MIN_VALUE);
+        }
+
+        verify(session).close();
+    }
+
+    @Test
+    public void streamWhenBeginTransactionFails() throws Exception
+    {
+        HibernateStore hibernateStore = this.mocker.getInstance(HibernateStore.class);
+        Session currentSession = mock(Session.class, "current");
+        Session session = mock(Session.class);
+        when(hibernateStore.getCurrentSession()).thenReturn(currentSession, session);
+        when(hibernateStore.beginTransaction()).thenThrow(new RuntimeException("transaction"));
+
+        DefaultQuery query = new DefaultQuery("where doc.space='Main'", Query.HQL, this.executor);
+
+        try {
+            this.executor.stream(query);
+            fail("Should have thrown an exception here");
+        } catch (RuntimeException expected) {
+            assertEquals("transaction", expected.getMessage());
+        }
+
+        // The session opened for the stream is released and the current session is restored
+        verify(session).close();
+        verify(currentSession, never()).close();
+        verify(hibernateStore).setCurrentSession(currentSession);
+    }
+
     @Test
     public void createNamedNativeHibernateQuery() throws Exception
     {
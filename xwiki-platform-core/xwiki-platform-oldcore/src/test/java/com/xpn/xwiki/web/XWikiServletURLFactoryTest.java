@@ -738,6 +738,40 @@ public void createURLWhenShowViewActionFalseAndSpaceIsNamedAfterAnAction()
         assertEquals("http://127.0.0.1/xwiki/bin/view/view/space2/page", url.toString());
     }
 
+    @Test
+    public void createURLReusesWikiConfiguration()
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        assertEquals("http://127.0.0.1/xwiki/bin/view/Space/Page", this.urlFactory.createURL("Space", "Page", "view",
+            null, null, "xwiki", xcontext).toString());
+        assertEquals("http://127.0.0.1/xwiki/bin/edit/Space/Other%20Page", this.urlFactory.createURL("Space",
+            "Other Page", "edit", null, null, "xwiki", xcontext).toString());
+
+        // The servlet path and the wiki preferences are computed only once per request.
+        verify(this.oldcore.getSpyXWiki()).getServletPath("xwiki", xcontext);
+        verify(this.oldcore.getSpyXWiki()).showViewAction(xcontext);
+
+        // Reinitializing the URL factory resets the cache.
+        this.urlFactory.init(xcontext);
+        this.urlFactory.createURL("Space", "Page", "view", null, null, "xwiki", xcontext);
+        verify(this.oldcore.getSpyXWiki(), times(2)).getServletPath("xwiki", xcontext);
+        verify(this.oldcore.getSpyXWiki(), times(2)).showViewAction(xcontext);
+    }
+
+    @Test
+    public void createURLInDaemonThreadDoesNotCacheWikiConfiguration()
+    {
+        initDaemonRequest("request", 42);
+
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        this.urlFactory.createURL("Space", "Page", "view", null, null, "xwiki", xcontext);
+        this.urlFactory.createURL("Space", "Page", "view", null, null, "xwiki", xcontext);
+
+        verify(this.oldcore.getSpyXWiki(), times(2)).getServletPath("xwiki", xcontext);
+        verify(this.oldcore.getSpyXWiki(), times(2)).showViewAction(xcontext);
+    }
+
     @Test
     public void createResourceURL()
     {
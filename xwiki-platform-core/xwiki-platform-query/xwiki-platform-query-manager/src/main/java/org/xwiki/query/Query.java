@@ -19,8 +19,13 @@
  */
 package org.xwiki.query;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import org.xwiki.model.reference.EntityReference;
 
 /**
  * This is a Query interface, representing all queries in various languages for various stores.
@@ -186,10 +191,87 @@ default QueryParameter bindValue(String var)
      */
     int getOffset();
 
+    /**
+     * Indicate if the result of the query can be kept in memory and reused by the next executions of the same query
+     * (same statement, parameters, wiki, filters, etc.) until the data it depends on is modified.
+     * <p>
+     * By default a cached result is forgotten as soon as a document is modified in the wiki of the query. Use
+     * {@link #addCacheDependency(EntityReference)} to indicate more precisely what the result depends on. Note that
+     * only the results made of values (strings, numbers, dates, etc.) and not entities are cached, and only when the
+     * query uses standard filters.
+     *
+     * @param cacheable true if the result of the query can be cached
+     * @return this query
+     * @since 14.9RC1
+     */
+    default Query setCacheable(boolean cacheable)
+    {
+        return this;
+    }
+
+    /**
+     * @return true if the result of the query can be cached
+     * @see #setCacheable(boolean)
+     * @since 14.9RC1
+     */
+    default boolean isCacheable()
+    {
+        return false;
+    }
+
+    /**
+     * Indicate that the result of a cacheable query only depends on the passed entity:
+     * <ul>
+     * <li>a wiki: any document of the wiki</li>
+     * <li>a space: any document located in the space (or one of its children)</li>
+     * <li>a document: the document itself and, if it's a class, the documents holding (or which were holding) an
+     * object of that class</li>
+     * </ul>
+     * The reference is expected to be absolute.
+     *
+     * @param reference the reference of an entity the result of the query depends on
+     * @return this query
+     * @see #setCacheable(boolean)
+     * @since 14.9RC1
+     */
+    default Query addCacheDependency(EntityReference reference)
+    {
+        return this;
+    }
+
+    /**
+     * @return the entities the result of the query depends on, empty if it depends on any document of the wiki
+     * @see #addCacheDependency(EntityReference)
+     * @since 14.9RC1
+     */
+    default Collection<EntityReference> getCacheDependencies()
+    {
+        return Collections.emptyList();
+    }
+
     /**
      * @param <T> expected type of elements in the result list.
      * @return result list of the query. If several fields are selected then T=Object[].
      * @throws QueryException if something goes wrong.
      */
     <T> List<T> execute() throws QueryException;
+
+    /**
+     * Execute the query and return its results progressively fetched from the store instead of loading them all in
+     * memory, which is what should be used to walk very large result sets. The {@link QueryFilter}s of the query are
+     * applied to the results as they are fetched.
+     * <p>
+     * The returned stream generally holds store resources (like a database connection, a cursor and an open read-only
+     * transaction) until it is closed, so it must always be closed, typically using a try-with-resources statement, and
+     * should not be kept open longer than needed.
+     *
+     * @param <T> expected type of elements in the result stream. If several fields are selected then T=Object[].
+     * @return the results of the query
+     * @throws QueryException if something goes wrong
+     * @since 14.9RC1
+     */
+    default <T> Stream<T> stream() throws QueryException
+    {
+        return this.<T>execute().stream();
+    }
 }
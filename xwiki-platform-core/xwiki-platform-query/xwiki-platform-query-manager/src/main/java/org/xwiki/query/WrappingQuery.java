@@ -19,8 +19,12 @@
  */
 package org.xwiki.query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import org.xwiki.model.reference.EntityReference;
 
 /**
  * Make it simple to change the behavior of a {@link Query} by extending this class and overriding only the behavior
@@ -158,9 +162,39 @@ public int getOffset()
         return getWrappedQuery().getOffset();
     }
 
+    @Override
+    public Query setCacheable(boolean cacheable)
+    {
+        return getWrappedQuery().setCacheable(cacheable);
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return getWrappedQuery().isCacheable();
+    }
+
+    @Override
+    public Query addCacheDependency(EntityReference reference)
+    {
+        return getWrappedQuery().addCacheDependency(reference);
+    }
+
+    @Override
+    public Collection<EntityReference> getCacheDependencies()
+    {
+        return getWrappedQuery().getCacheDependencies();
+    }
+
     @Override
     public <T> List<T> execute() throws QueryException
     {
         return getWrappedQuery().execute();
     }
+
+    @Override
+    public <T> Stream<T> stream() throws QueryException
+    {
+        return getWrappedQuery().stream();
+    }
 }
@@ -20,13 +20,16 @@
 package org.xwiki.query.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryExecutor;
@@ -104,6 +107,16 @@ public class DefaultQuery implements SecureQuery
      */
     private List<QueryFilter> filters = new ArrayList<QueryFilter>();
 
+    /**
+     * field for {@link #isCacheable()}.
+     */
+    private boolean cacheable;
+
+    /**
+     * field for {@link #getCacheDependencies()}.
+     */
+    private List<EntityReference> cacheDependencies = new ArrayList<>();
+
     /**
      * field for {@link #getExecuter()}.
      */
@@ -300,12 +313,44 @@ public Query addFilter(QueryFilter filter)
         return this;
     }
 
+    @Override
+    public Query setCacheable(boolean cacheable)
+    {
+        this.cacheable = cacheable;
+        return this;
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return this.cacheable;
+    }
+
+    @Override
+    public Query addCacheDependency(EntityReference reference)
+    {
+        this.cacheDependencies.add(reference);
+        return this;
+    }
+
+    @Override
+    public Collection<EntityReference> getCacheDependencies()
+    {
+        return this.cacheDependencies;
+    }
+
     @Override
     public <T> List<T> execute() throws QueryException
     {
         return getExecuter().execute(this);
     }
 
+    @Override
+    public <T> Stream<T> stream() throws QueryException
+    {
+        return getExecuter().stream(this);
+    }
+
     /**
      * @return QueryExecutor interface for execute the query.
      */
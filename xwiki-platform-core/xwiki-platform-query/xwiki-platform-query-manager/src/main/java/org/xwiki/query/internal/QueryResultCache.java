@@ -0,0 +1,440 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.internal;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryExecutor;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.SecureQuery;
+
+/**
+ * Keep the results of the queries marked as cacheable (see {@link Query#setCacheable(boolean)}) until the data they
+ * depend on is modified.
+ * <p>
+ * The results of the queries which are filtered according to the current user (for example with the "viewable"
+ * filter) are associated with that user and also forgotten when rights or groups are modified. The same goes for the
+ * queries which are allowed or not depending on the rights of the current author: the cached result is associated
+ * with that author and forgotten when rights or groups are modified, since a cache hit does not check again if the
+ * author is allowed to execute the query.
+ * <p>
+ * Only the queries using filters known to be stateless are cached, and only when their result is made of values
+ * (strings, numbers, dates, etc.) which are copied each time the result is returned.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = QueryResultCache.class)
+@Singleton
+public class QueryResultCache implements Initializable, Disposable
+{
+    private static final String MBEAN_NAME = "type=Query,name=QueryResults";
+
+    private static final int CACHE_SIZE = 1000;
+
+    private static final String XWIKI_SPACE = "XWiki";
+
+    /**
+     * The classes of the objects which impact the rights of the users.
+     */
+    private static final Set<LocalDocumentReference> RIGHTS_CLASSES =
+        Set.of(new LocalDocumentReference(XWIKI_SPACE, "XWikiRights"),
+            new LocalDocumentReference(XWIKI_SPACE, "XWikiGlobalRights"),
+            new LocalDocumentReference(XWIKI_SPACE, "XWikiGroups"));
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * The stateless filters which don't depend on the current user.
+     */
+    private static final Set<Class<?>> USER_INDEPENDENT_FILTERS = Set.of(AttachmentQueryFilter.class,
+        CountDocumentFilter.class, DocumentQueryFilter.class, EscapeLikeParametersFilter.class,
+        LanguageQueryFilter.class, NoOpQueryFilter.class, TextQueryFilter.class, UniqueDocumentFilter.class);
+
+    /**
+     * The stateless filters which depend on the rights of the current user. The hidden filters are not part of it
+     * since they also depend on the preferences of the user, which are not tracked.
+     */
+    private static final Set<Class<?>> USER_DEPENDENT_FILTERS = Set.of(ViewableQueryFilter.class);
+
+    /**
+     * Returned when a value can't be copied.
+     */
+    private static final Object NOT_COPYABLE = new Object();
+
+    private static final class CachedResult
+    {
+        private final List<?> result;
+
+        private final String wiki;
+
+        private final List<EntityReference> dependencies;
+
+        private final boolean rightsDependent;
+
+        CachedResult(List<?> result, String wiki, Collection<EntityReference> dependencies, boolean rightsDependent)
+        {
+            this.result = result;
+            this.wiki = wiki;
+            this.dependencies = new ArrayList<>(dependencies);
+            this.rightsDependent = rightsDependent;
+        }
+
+        boolean dependsOn(DocumentReference document, Collection<DocumentReference> classes)
+        {
+            if (!this.wiki.equals(document.getWikiReference().getName())) {
+                return false;
+            }
+
+            if (this.dependencies.isEmpty()) {
+                return true;
+            }
+
+            for (EntityReference dependency : this.dependencies) {
+                if (dependency.getType() == EntityType.DOCUMENT) {
+                    if (dependency.equals(document) || classes.contains(dependency)) {
+                        return true;
+                    }
+                } else if (document.hasParent(dependency)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    private DocumentAccessBridge bridge;
+
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    private final QueryStatementCache<CachedResult> results = new QueryStatementCache<>(CACHE_SIZE);
+
+    /**
+     * Incremented each time cached results are invalidated, to avoid caching a result computed before an invalidation.
+     */
+    private long generation;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.jmxRegistration.registerMBean(this.results, MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
+
+    /**
+     * Return the cached result of the query or execute it and cache its result.
+     *
+     * @param <T> expected type of elements in the result list
+     * @param query the cacheable query to execute
+     * @param executor the executor to use when the result of the query is not cached yet
+     * @return the result list of the query
+     * @throws QueryException if something goes wrong
+     */
+    public <T> List<T> execute(Query query, QueryExecutor executor) throws QueryException
+    {
+        // The result of a query using an unknown filter might depend on the state of the filter
+        if (!hasStatelessFilters(query)) {
+            return executor.execute(query);
+        }
+
+        String wiki = getWiki(query);
+        boolean userDependent = isUserDependent(query);
+        boolean authorDependent = isAuthorDependent(query);
+        String key = getKey(query, wiki, userDependent, authorDependent);
+
+        // Some parameters can't be part of the key
+        if (key == null) {
+            return executor.execute(query);
+        }
+
+        CachedResult cachedResult = this.results.get(key);
+        if (cachedResult != null) {
+            return (List<T>) copy(cachedResult.result);
+        }
+
+        long currentGeneration = getGeneration();
+
+        List<T> result = executor.execute(query);
+
+        // Entities (or any mutable object we don't know how to copy) can't be shared between executions
+        List<?> resultCopy = copy(result);
+        if (resultCopy != null) {
+            synchronized (this) {
+                // Make sure the data did not change while the query was executed
+                if (this.generation == currentGeneration) {
+                    this.results.put(key, new CachedResult(resultCopy, wiki, query.getCacheDependencies(),
+                        userDependent || authorDependent));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static List<Object> copy(List<?> result)
+    {
+        List<Object> copy = new ArrayList<>(result.size());
+        for (Object row : result) {
+            Object rowCopy = copyValue(row);
+            if (rowCopy == NOT_COPYABLE) {
+                return null;
+            }
+            copy.add(rowCopy);
+        }
+
+        return copy;
+    }
+
+    private static Object copyValue(Object value)
+    {
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            Object[] arrayCopy = new Object[array.length];
+            for (int i = 0; i < array.length; ++i) {
+                arrayCopy[i] = copyValue(array[i]);
+                if (arrayCopy[i] == NOT_COPYABLE) {
+                    return NOT_COPYABLE;
+                }
+            }
+
+            return arrayCopy;
+        } else if (value instanceof Date) {
+            return ((Date) value).clone();
+        } else if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+            || value instanceof Character || value instanceof Enum || value instanceof Locale
+            || value instanceof EntityReference) {
+            // Immutable
+            return value;
+        }
+
+        return NOT_COPYABLE;
+    }
+
+    private synchronized long getGeneration()
+    {
+        return this.generation;
+    }
+
+    /**
+     * Forget the results which depend on the passed document.
+     *
+     * @param document the reference of the modified document
+     * @param classes the classes of the objects the document holds or was holding before the modification
+     */
+    public void invalidate(DocumentReference document, Collection<DocumentReference> classes)
+    {
+        DocumentReference documentReference =
+            document.getLocale() != null ? new DocumentReference(document, (Locale) null) : document;
+        boolean rights =
+            classes.stream().anyMatch(xclass -> RIGHTS_CLASSES.contains(xclass.getLocalDocumentReference()));
+
+        synchronized (this) {
+            this.generation++;
+
+            this.results.removeIf(cachedResult -> (rights && cachedResult.rightsDependent)
+                || cachedResult.dependsOn(documentReference, classes));
+        }
+    }
+
+    /**
+     * Forget the results of the queries executed on the passed wiki.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void invalidate(String wiki)
+    {
+        synchronized (this) {
+            this.generation++;
+
+            this.results.removeIf(cachedResult -> cachedResult.wiki.equals(wiki));
+        }
+    }
+
+    private String getWiki(Query query)
+    {
+        if (query.getWiki() != null) {
+            return query.getWiki();
+        }
+
+        EntityReference currentReference = this.modelContext.getCurrentEntityReference();
+        EntityReference wikiReference =
+            currentReference != null ? currentReference.extractReference(EntityType.WIKI) : null;
+
+        return wikiReference != null ? wikiReference.getName() : "";
+    }
+
+    private boolean hasStatelessFilters(Query query)
+    {
+        if (query.getFilters() != null) {
+            for (QueryFilter filter : query.getFilters()) {
+                if (!USER_INDEPENDENT_FILTERS.contains(filter.getClass())
+                    && !USER_DEPENDENT_FILTERS.contains(filter.getClass())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isUserDependent(Query query)
+    {
+        if (query instanceof SecureQuery && ((SecureQuery) query).isCurrentUserChecked()) {
+            return true;
+        }
+
+        if (query.getFilters() != null) {
+            for (QueryFilter filter : query.getFilters()) {
+                if (USER_DEPENDENT_FILTERS.contains(filter.getClass())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isAuthorDependent(Query query)
+    {
+        return query instanceof SecureQuery && ((SecureQuery) query).isCurrentAuthorChecked();
+    }
+
+    private String getKey(Query query, String wiki, boolean userDependent, boolean authorDependent)
+    {
+        StringBuilder key = new StringBuilder();
+
+        append(key, wiki);
+        append(key, query.getLanguage());
+        append(key, query.isNamed());
+        append(key, query.getStatement());
+        append(key, query.getLimit());
+        append(key, query.getOffset());
+
+        if (query.getFilters() != null) {
+            for (QueryFilter filter : query.getFilters()) {
+                append(key, filter.getClass().getName());
+            }
+        }
+
+        if (authorDependent) {
+            // The query is allowed or not depending on the rights of the current author
+            append(key, this.bridge.getCurrentAuthorReference());
+        }
+        if (userDependent) {
+            append(key, this.bridge.getCurrentUserReference());
+        }
+
+        for (Map.Entry<String, Object> parameter : new TreeMap<>(query.getNamedParameters()).entrySet()) {
+            append(key, parameter.getKey());
+            if (!appendValue(key, parameter.getValue())) {
+                return null;
+            }
+        }
+        for (Map.Entry<Integer, Object> parameter : new TreeMap<>(query.getPositionalParameters()).entrySet()) {
+            append(key, parameter.getKey());
+            if (!appendValue(key, parameter.getValue())) {
+                return null;
+            }
+        }
+
+        return key.toString();
+    }
+
+    private boolean appendValue(StringBuilder key, Object value)
+    {
+        if (value instanceof Collection) {
+            append(key, ((Collection<?>) value).size());
+            for (Object item : (Collection<?>) value) {
+                if (!appendValue(key, item)) {
+                    return false;
+                }
+            }
+        } else if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            append(key, length);
+            for (int i = 0; i < length; ++i) {
+                if (!appendValue(key, Array.get(value, i))) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Date) {
+            append(key, value.getClass().getName());
+            append(key, ((Date) value).getTime());
+        } else if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+            || value instanceof Character || value instanceof Enum || value instanceof Locale
+            || value instanceof EntityReference) {
+            append(key, value != null ? value.getClass().getName() : null);
+            append(key, value);
+            if (value instanceof DocumentReference) {
+                append(key, ((DocumentReference) value).getLocale());
+            }
+        } else {
+            // We don't know how to serialize this value in a reliable way
+            return false;
+        }
+
+        return true;
+    }
+
+    private void append(StringBuilder key, Object value)
+    {
+        String stringValue = String.valueOf(value);
+
+        key.append(stringValue.length());
+        key.append(SEPARATOR);
+        key.append(stringValue);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of values computed from query statements (for example the translation of a statement in another
+ * language or the result of its validation), keeping track of its hits and misses.
+ * <p>
+ * The least recently used entries are removed first when the maximum size is reached.
+ *
+ * @param <V> the type of the cached values
+ * @version $Id$
+ * @since 14.9RC1
+ */
+public class QueryStatementCache<V> implements QueryStatementCacheMBean
+{
+    private final Map<String, V> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize the maximum number of statements to keep
+     */
+    public QueryStatementCache(int maxSize)
+    {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * @param key the key of the statement
+     * @return the value associated with the statement or {@code null} if none could be found
+     */
+    public V get(String key)
+    {
+        V value = this.entries.get(key);
+
+        if (value != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+
+        return value;
+    }
+
+    /**
+     * @param key the key of the statement
+     * @param value the value to associate with the statement
+     */
+    public void put(String key, V value)
+    {
+        this.entries.put(key, value);
+    }
+
+    /**
+     * @param filter the condition the values to remove should match
+     */
+    public void removeIf(Predicate<V> filter)
+    {
+        synchronized (this.entries) {
+            this.entries.values().removeIf(filter);
+        }
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public int getSize()
+    {
+        return this.entries.size();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    @Override
+    public void clear()
+    {
+        this.entries.clear();
+    }
+}
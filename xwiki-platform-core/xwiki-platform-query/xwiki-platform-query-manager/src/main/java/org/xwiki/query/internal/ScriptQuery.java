@@ -25,6 +25,7 @@
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryFilter;
@@ -32,6 +33,7 @@
 import org.xwiki.query.QueryParameter;
 import org.xwiki.query.SecureQuery;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -248,6 +250,32 @@ public int getOffset()
         return this.query.getOffset();
     }
 
+    @Override
+    public Query setCacheable(boolean cacheable)
+    {
+        this.query.setCacheable(cacheable);
+        return this;
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return this.query.isCacheable();
+    }
+
+    @Override
+    public Query addCacheDependency(EntityReference reference)
+    {
+        this.query.addCacheDependency(reference);
+        return this;
+    }
+
+    @Override
+    public Collection<EntityReference> getCacheDependencies()
+    {
+        return this.query.getCacheDependencies();
+    }
+
     @Override
     public <T> List<T> execute() throws QueryException
     {
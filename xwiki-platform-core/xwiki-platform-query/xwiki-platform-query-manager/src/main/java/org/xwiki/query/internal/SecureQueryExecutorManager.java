@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -55,6 +56,21 @@ public class SecureQueryExecutorManager implements QueryExecutorManager
 
     @Override
     public <T> List<T> execute(Query query) throws QueryException
+    {
+        checkAccess(query);
+
+        return this.defaultQueryExecutorManager.execute(query);
+    }
+
+    @Override
+    public <T> Stream<T> stream(Query query) throws QueryException
+    {
+        checkAccess(query);
+
+        return this.defaultQueryExecutorManager.stream(query);
+    }
+
+    private void checkAccess(Query query) throws QueryException
     {
         if (query instanceof SecureQuery) {
             SecureQuery secureQuery = (SecureQuery) query;
@@ -63,8 +79,6 @@ public <T> List<T> execute(Query query) throws QueryException
         } else if (!this.authorization.hasAccess(Right.PROGRAM)) {
             throw new QueryException("Unsecure query require programming right", query, null);
         }
-
-        return this.defaultQueryExecutorManager.execute(query);
     }
 
     @Override
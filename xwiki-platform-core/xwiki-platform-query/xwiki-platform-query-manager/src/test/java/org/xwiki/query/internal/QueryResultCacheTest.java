@@ -0,0 +1,249 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryExecutor;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link QueryResultCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class QueryResultCacheTest
+{
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "Space", "MyClass");
+
+    private static final DocumentReference USER_REFERENCE = new DocumentReference("wiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private QueryResultCache cache;
+
+    @MockComponent
+    private ModelContext modelContext;
+
+    @MockComponent
+    private DocumentAccessBridge bridge;
+
+    private QueryExecutor executor;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        this.executor = mock(QueryExecutor.class);
+        when(this.executor.execute(any())).thenReturn(Arrays.asList("result"));
+    }
+
+    private DefaultQuery createQuery(String statement)
+    {
+        DefaultQuery query = new DefaultQuery(statement, Query.XWQL, this.executor);
+        query.setCacheable(true);
+
+        return query;
+    }
+
+    @Test
+    void executeWithoutDependency() throws Exception
+    {
+        DefaultQuery query = createQuery("where doc.space = :space");
+        query.bindValue("space", "Space");
+
+        assertEquals(Arrays.asList("result"), this.cache.execute(query, this.executor));
+        assertEquals(Arrays.asList("result"), this.cache.execute(query, this.executor));
+        verify(this.executor).execute(query);
+
+        // Different parameters
+        DefaultQuery otherQuery = createQuery("where doc.space = :space");
+        otherQuery.bindValue("space", "Other");
+        this.cache.execute(otherQuery, this.executor);
+        verify(this.executor).execute(otherQuery);
+
+        // A document is modified in another wiki
+        this.cache.invalidate(new DocumentReference("otherwiki", "Space", "Page"), Collections.emptyList());
+        this.cache.execute(query, this.executor);
+        verify(this.executor).execute(query);
+
+        // A document is modified in the wiki of the query
+        this.cache.invalidate(new DocumentReference("wiki", "Other", "Page"), Collections.emptyList());
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(2)).execute(query);
+    }
+
+    @Test
+    void executeWithDependencies() throws Exception
+    {
+        DefaultQuery query = createQuery("from doc.object(Space.MyClass) as obj");
+        query.addCacheDependency(CLASS_REFERENCE);
+        query.addCacheDependency(new SpaceReference("wiki", "Panels"));
+
+        this.cache.execute(query, this.executor);
+
+        this.cache.invalidate(new DocumentReference("wiki", "Other", "Page"), Collections.emptyList());
+        this.cache.execute(query, this.executor);
+        verify(this.executor).execute(query);
+
+        // A document holding an object of the class
+        this.cache.invalidate(new DocumentReference("wiki", "Other", "Page"), Arrays.asList(CLASS_REFERENCE));
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(2)).execute(query);
+
+        // The class itself
+        this.cache.invalidate(CLASS_REFERENCE, Collections.emptyList());
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(3)).execute(query);
+
+        // A document in a nested space
+        this.cache.invalidate(new DocumentReference("wiki", Arrays.asList("Panels", "Sub"), "Page"),
+            Collections.emptyList());
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(4)).execute(query);
+    }
+
+    @Test
+    void executeViewableQuery() throws Exception
+    {
+        DefaultQuery query = createQuery("from doc.object(Space.MyClass) as obj");
+        query.addCacheDependency(CLASS_REFERENCE);
+        query.addFilter(new ViewableQueryFilter());
+
+        when(this.bridge.getCurrentUserReference()).thenReturn(USER_REFERENCE);
+        this.cache.execute(query, this.executor);
+        this.cache.execute(query, this.executor);
+        verify(this.executor).execute(query);
+
+        // The result is different for another user
+        when(this.bridge.getCurrentUserReference()).thenReturn(new DocumentReference("wiki", "XWiki", "Other"));
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(2)).execute(query);
+
+        // Rights are modified
+        when(this.bridge.getCurrentUserReference()).thenReturn(USER_REFERENCE);
+        this.cache.invalidate(new DocumentReference("wiki", "Other", "WebPreferences"),
+            Arrays.asList(new DocumentReference("wiki", "XWiki", "XWikiGlobalRights")));
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(3)).execute(query);
+    }
+
+    @Test
+    void executeAuthorCheckedQuery() throws Exception
+    {
+        DefaultQuery query = createQuery("select doc.fullName from XWikiDocument doc");
+        query.checkCurrentAuthor(true);
+
+        when(this.bridge.getCurrentAuthorReference()).thenReturn(USER_REFERENCE);
+        this.cache.execute(query, this.executor);
+        this.cache.execute(query, this.executor);
+        verify(this.executor).execute(query);
+
+        // The query might not be allowed for another author
+        when(this.bridge.getCurrentAuthorReference()).thenReturn(new DocumentReference("wiki", "XWiki", "Other"));
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(2)).execute(query);
+
+        // The author might not be allowed anymore to execute the query after a rights or groups modification
+        when(this.bridge.getCurrentAuthorReference()).thenReturn(USER_REFERENCE);
+        this.cache.invalidate(new DocumentReference("otherwiki", "XWiki", "XWikiAdminGroup"),
+            Arrays.asList(new DocumentReference("otherwiki", "XWiki", "XWikiGroups")));
+        this.cache.execute(query, this.executor);
+        verify(this.executor, times(3)).execute(query);
+    }
+
+    @Test
+    void executeWithUnsupportedParameter() throws Exception
+    {
+        DefaultQuery query = createQuery("where doc.name = :name");
+        query.bindValue("name", new Object());
+
+        List<String> result = this.cache.execute(query, this.executor);
+        this.cache.execute(query, this.executor);
+
+        assertEquals(Arrays.asList("result"), result);
+        verify(this.executor, times(2)).execute(query);
+    }
+
+    @Test
+    void executeWithStatefulFilter() throws Exception
+    {
+        DefaultQuery query = createQuery("select doc.fullName from XWikiDocument doc");
+        query.addFilter(new HiddenDocumentFilter());
+
+        this.cache.execute(query, this.executor);
+        this.cache.execute(query, this.executor);
+
+        // The hidden filter depends on the preferences of the current user
+        verify(this.executor, times(2)).execute(query);
+    }
+
+    @Test
+    void executeWithEntities() throws Exception
+    {
+        DefaultQuery query = createQuery("select doc from XWikiDocument doc");
+        when(this.executor.execute(query)).thenReturn(Arrays.asList(new Object()));
+
+        this.cache.execute(query, this.executor);
+        this.cache.execute(query, this.executor);
+
+        // Entities can't be shared between executions
+        verify(this.executor, times(2)).execute(query);
+    }
+
+    @Test
+    void executeReturnsCopies() throws Exception
+    {
+        DefaultQuery query = createQuery("select doc.fullName, doc.date from XWikiDocument doc");
+        Date date = new Date(42);
+        when(this.executor.execute(query)).thenReturn(Arrays.<Object>asList(new Object[] {"Space.Page", date}));
+
+        List<Object[]> result = this.cache.execute(query, this.executor);
+        result.get(0)[0] = "Other.Page";
+        ((Date) result.get(0)[1]).setTime(0);
+        date.setTime(1);
+
+        List<Object[]> cachedResult = this.cache.execute(query, this.executor);
+        assertArrayEquals(new Object[] {"Space.Page", new Date(42)}, cachedResult.get(0));
+        verify(this.executor).execute(query);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link QueryStatementCache}.
+ *
+ * @version $Id$
+ */
+class QueryStatementCacheTest
+{
+    @Test
+    void getAndPut()
+    {
+        QueryStatementCache<String> cache = new QueryStatementCache<>(10);
+
+        assertNull(cache.get("statement"));
+        cache.put("statement", "value");
+        assertEquals("value", cache.get("statement"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+
+        cache.resetStatistics();
+
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreRemoved()
+    {
+        QueryStatementCache<String> cache = new QueryStatementCache<>(2);
+
+        cache.put("statement1", "value1");
+        cache.put("statement2", "value2");
+        cache.get("statement1");
+        cache.put("statement3", "value3");
+
+        assertEquals(2, cache.getSize());
+        assertEquals("value1", cache.get("statement1"));
+        assertNull(cache.get("statement2"));
+        assertEquals("value3", cache.get("statement3"));
+    }
+
+    @Test
+    void removeIf()
+    {
+        QueryStatementCache<String> cache = new QueryStatementCache<>(10);
+
+        cache.put("statement1", "value1");
+        cache.put("statement2", "value2");
+        cache.removeIf("value1"::equals);
+
+        assertNull(cache.get("statement1"));
+        assertEquals("value2", cache.get("statement2"));
+    }
+}
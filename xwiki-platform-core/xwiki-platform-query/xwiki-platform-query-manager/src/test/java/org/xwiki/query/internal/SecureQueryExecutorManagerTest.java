@@ -106,4 +106,25 @@ public void executeSecureQueryWithoutCheckCurrentAuthor() throws QueryException
 
         assertTrue(query.isCurrentAuthorChecked());
     }
+
+    @Test
+    void streamNotSecureQueryWithoutProgrammingRight()
+    {
+        this.hasProgrammingRight = false;
+
+        Query query = mock(Query.class);
+
+        Throwable exception = assertThrows(QueryException.class, () -> this.executor.stream(query));
+        assertEquals("Unsecure query require programming right. Query statement = [null]", exception.getMessage());
+    }
+
+    @Test
+    void streamSecureQuery() throws QueryException
+    {
+        DefaultQuery query = new DefaultQuery("statement", "language", this.executor);
+
+        this.executor.stream(query);
+
+        assertTrue(query.isCurrentAuthorChecked());
+    }
 }
@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,6 +47,12 @@
 @Singleton
 public class XWQLQueryExecutor implements QueryExecutor
 {
+    @FunctionalInterface
+    private interface NativeQueryExecution<R>
+    {
+        R execute(Query nativeQuery) throws QueryException;
+    }
+
     @Inject
     @Named("hql")
     private QueryTranslator translator;
@@ -73,6 +80,17 @@ public static boolean isShortFormStatement(String statement)
 
     @Override
     public <T> List<T> execute(Query query) throws QueryException
+    {
+        return execute(query, nativeQuery -> nativeQuery.<T>execute());
+    }
+
+    @Override
+    public <T> Stream<T> stream(Query query) throws QueryException
+    {
+        return execute(query, nativeQuery -> nativeQuery.<T>stream());
+    }
+
+    private <R> R execute(Query query, NativeQueryExecution<R> execution) throws QueryException
     {
         EntityReference currentEntityReference = this.context.getCurrentEntityReference();
 
@@ -114,7 +132,7 @@ public <T> List<T> execute(Query query) throws QueryException
                 ((SecureQuery) nativeQuery).checkCurrentUser(((SecureQuery) query).isCurrentUserChecked());
             }
 
-            return nativeQuery.execute();
+            return execution.execute(nativeQuery);
         } catch (QueryException qe) {
             throw qe;
         } catch (Exception e) {
@@ -0,0 +1,154 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.xwql.internal;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.internal.QueryStatementCache;
+
+/**
+ * Keep the result of the translation of the XWQL statements, since the same statements are generally executed a lot
+ * (for example by the live tables).
+ * <p>
+ * The translation of a statement depends on the definition of the classes it manipulates, so the translations are
+ * associated with the current wiki and forgotten when one of those classes is modified (see
+ * {@link XWQLTranslationCacheListener}).
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = XWQLTranslationCache.class)
+@Singleton
+public class XWQLTranslationCache implements Initializable, Disposable
+{
+    private static final String MBEAN_NAME = "type=Query,name=XWQLTranslations";
+
+    private static final int CACHE_SIZE = 1000;
+
+    private static final class Translation
+    {
+        private final String statement;
+
+        private final Set<DocumentReference> classes;
+
+        Translation(String statement, Set<DocumentReference> classes)
+        {
+            this.statement = statement;
+            this.classes = classes;
+        }
+    }
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    private final QueryStatementCache<Translation> translations = new QueryStatementCache<>(CACHE_SIZE);
+
+    /**
+     * The classes used by at least one of the cached translations (it might contain classes of translations which have
+     * been removed from the cache since then).
+     */
+    private final Set<DocumentReference> classes = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.jmxRegistration.registerMBean(this.translations, MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
+
+    private String getKey(String statement)
+    {
+        EntityReference currentReference = this.modelContext.getCurrentEntityReference();
+        EntityReference wikiReference =
+            currentReference != null ? currentReference.extractReference(EntityType.WIKI) : null;
+        String wiki = wikiReference != null ? wikiReference.getName() : "";
+
+        return wiki.length() + ":" + wiki + statement;
+    }
+
+    /**
+     * @param statement the XWQL statement
+     * @return the translated statement or {@code null} if the statement was not translated yet in the current wiki
+     */
+    public String get(String statement)
+    {
+        Translation translation = this.translations.get(getKey(statement));
+
+        return translation != null ? translation.statement : null;
+    }
+
+    /**
+     * @param statement the XWQL statement
+     * @param translatedStatement the translated statement
+     * @param classNames the names of the classes manipulated by the statement, relative to the current wiki
+     */
+    public void put(String statement, String translatedStatement, Collection<String> classNames)
+    {
+        Set<DocumentReference> statementClasses = new HashSet<>(classNames.size());
+        for (String className : classNames) {
+            statementClasses.add(this.resolver.resolve(className));
+        }
+
+        this.classes.addAll(statementClasses);
+        this.translations.put(getKey(statement), new Translation(translatedStatement, statementClasses));
+    }
+
+    /**
+     * Forget the translations which depend on the passed class.
+     *
+     * @param classReference the reference of the modified class
+     */
+    public void invalidate(DocumentReference classReference)
+    {
+        if (this.classes.remove(classReference)) {
+            this.translations.removeIf(translation -> translation.classes.contains(classReference));
+        }
+    }
+}
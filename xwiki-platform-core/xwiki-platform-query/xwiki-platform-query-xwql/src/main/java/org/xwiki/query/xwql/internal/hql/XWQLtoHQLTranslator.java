@@ -19,6 +19,9 @@
  */
 package org.xwiki.query.xwql.internal.hql;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -27,7 +30,9 @@
 import org.xwiki.query.jpql.internal.JPQLParser;
 import org.xwiki.query.xwql.internal.QueryAnalyzer;
 import org.xwiki.query.xwql.internal.QueryContext;
+import org.xwiki.query.xwql.internal.QueryContext.ObjectInfo;
 import org.xwiki.query.xwql.internal.QueryTranslator;
+import org.xwiki.query.xwql.internal.XWQLTranslationCache;
 import org.xwiki.query.Query;
 import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.component.annotation.Component;
@@ -40,9 +45,20 @@ public class XWQLtoHQLTranslator implements QueryTranslator
     @Inject
     protected DocumentAccessBridge documentAccessBridge;
 
+    @Inject
+    private XWQLTranslationCache cache;
+
     @Override
     public String translate(String input) throws Exception
     {
+        if (this.cache != null) {
+            String cached = this.cache.get(input);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String statement = input;
         input = input.trim();
         String lcInput = input.toLowerCase();
         String addition = "select doc.fullName from Document as doc ";
@@ -58,7 +74,17 @@ public String translate(String input) throws Exception
         tree.apply(new QueryAnalyzer(context));
 
         Printer printer = getPrinter(context);
-        return printer.print();
+        String output = printer.print();
+
+        if (this.cache != null) {
+            List<String> classNames = new ArrayList<>();
+            for (ObjectInfo object : context.getObjects()) {
+                classNames.add(object.className);
+            }
+            this.cache.put(statement, output, classNames);
+        }
+
+        return output;
     }
 
     @Override
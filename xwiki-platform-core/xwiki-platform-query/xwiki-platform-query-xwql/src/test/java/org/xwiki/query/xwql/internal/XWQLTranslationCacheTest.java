@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.xwql.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWQLTranslationCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class XWQLTranslationCacheTest
+{
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "XWiki", "MyClass");
+
+    private static final String STATEMENT = "from doc.object(XWiki.MyClass) as obj";
+
+    @InjectMockComponents
+    private XWQLTranslationCache cache;
+
+    @MockComponent
+    private ModelContext modelContext;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @Test
+    void getPutAndInvalidate()
+    {
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+        when(this.resolver.resolve("XWiki.MyClass")).thenReturn(CLASS_REFERENCE);
+
+        assertNull(this.cache.get(STATEMENT));
+
+        this.cache.put(STATEMENT, "translated", Arrays.asList("XWiki.MyClass"));
+        this.cache.put("where doc.name = 'Page'", "translated2", Collections.emptyList());
+
+        assertEquals("translated", this.cache.get(STATEMENT));
+
+        // The translations are specific to the current wiki
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("otherwiki"));
+        assertNull(this.cache.get(STATEMENT));
+
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+        this.cache.invalidate(new DocumentReference("wiki", "XWiki", "OtherClass"));
+        assertEquals("translated", this.cache.get(STATEMENT));
+
+        this.cache.invalidate(CLASS_REFERENCE);
+        assertNull(this.cache.get(STATEMENT));
+        assertEquals("translated2", this.cache.get("where doc.name = 'Page'"));
+    }
+}
@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,6 +31,7 @@
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.refactoring.job.RefactoringJobs;
 
 import com.xpn.xwiki.XWikiContext;
@@ -46,9 +48,26 @@
 @Named(RefactoringJobs.REPLACE_USER)
 public class ReplaceUserJob extends AbstractReplaceUserJob
 {
+    /**
+     * The maximum number of documents saved in the same transaction.
+     */
+    private static final int SAVE_BATCH_SIZE = 100;
+
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    private final List<XWikiDocument> documentsToSave = new ArrayList<>();
+
+    @Override
+    protected void process(EntityReference entityReference)
+    {
+        try {
+            super.process(entityReference);
+        } finally {
+            saveDocuments();
+        }
+    }
+
     @Override
     protected void update(DocumentReference documentReference)
     {
@@ -63,27 +82,92 @@ protected void update(DocumentReference documentReference)
 
     private void update(XWikiDocument document) throws XWikiException
     {
+        XWikiDocument updatedDocument = replaceUser(document);
+        if (updatedDocument != null) {
+            // Save the documents by batch to avoid paying a transaction per document
+            this.documentsToSave.add(updatedDocument);
+            if (this.documentsToSave.size() >= SAVE_BATCH_SIZE) {
+                saveDocuments();
+            }
+        }
+    }
+
+    /**
+     * @param document the document as returned by the document cache, it's not modified
+     * @return a modified copy of the document, or {@code null} if the document does not reference the user to replace
+     */
+    private XWikiDocument replaceUser(XWikiDocument document)
+    {
+        boolean author = getRequest().isReplaceDocumentAuthor()
+            && Objects.equals(document.getAuthorReference(), getRequest().getOldUserReference());
+        boolean contentAuthor = getRequest().isReplaceDocumentContentAuthor()
+            && Objects.equals(document.getContentAuthorReference(), getRequest().getOldUserReference());
+        boolean creator = getRequest().isReplaceDocumentCreator()
+            && Objects.equals(document.getCreatorReference(), getRequest().getOldUserReference());
+
+        if (!author && !contentAuthor && !creator) {
+            return null;
+        }
+
+        // Work on a copy so that the cached document stays consistent with the store if the save fails
+        XWikiDocument updatedDocument = document.clone();
+
         List<String> updatedFields = new ArrayList<>();
-        if (getRequest().isReplaceDocumentAuthor()
-            && Objects.equals(document.getAuthorReference(), getRequest().getOldUserReference())) {
-            document.setAuthorReference(getRequest().getNewUserReference());
+        if (author) {
+            updatedDocument.setAuthorReference(getRequest().getNewUserReference());
             updatedFields.add("author");
         }
-        if (getRequest().isReplaceDocumentContentAuthor()
-            && Objects.equals(document.getContentAuthorReference(), getRequest().getOldUserReference())) {
-            document.setContentAuthorReference(getRequest().getNewUserReference());
+        if (contentAuthor) {
+            updatedDocument.setContentAuthorReference(getRequest().getNewUserReference());
             updatedFields.add("contentAuthor");
         }
-        if (getRequest().isReplaceDocumentCreator()
-            && Objects.equals(document.getCreatorReference(), getRequest().getOldUserReference())) {
-            document.setCreatorReference(getRequest().getNewUserReference());
+        if (creator) {
+            updatedDocument.setCreatorReference(getRequest().getNewUserReference());
             updatedFields.add("creator");
         }
-        if (updatedFields.size() > 0) {
+
+        String comment = String.format("Replaced user [%s] in fields %s to user [%s]",
+            getRequest().getOldUserReference(), updatedFields, getRequest().getNewUserReference());
+        updatedDocument.setComment(comment);
+        updatedDocument.setMinorEdit(false);
+
+        return updatedDocument;
+    }
+
+    void saveDocuments()
+    {
+        if (!this.documentsToSave.isEmpty()) {
+            List<XWikiDocument> documents = new ArrayList<>(this.documentsToSave);
+            this.documentsToSave.clear();
+
             XWikiContext xcontext = this.xcontextProvider.get();
-            String comment = String.format("Replaced user [%s] in fields %s to user [%s]",
-                getRequest().getOldUserReference(), updatedFields, getRequest().getNewUserReference());
-            xcontext.getWiki().saveDocument(document, comment, xcontext);
+            try {
+                xcontext.getWiki().saveDocuments(documents, xcontext);
+            } catch (XWikiException e) {
+                this.logger.warn("Failed to save documents [{}] at once, saving them one by one. Root cause is [{}].",
+                    documents.stream().map(XWikiDocument::getDocumentReferenceWithLocale).collect(Collectors.toList()),
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                // A single document can make the whole batch fail so save each document in its own transaction to
+                // find out which ones really can't be saved
+                for (XWikiDocument document : documents) {
+                    saveDocument(document.getDocumentReferenceWithLocale(), xcontext);
+                }
+            }
+        }
+    }
+
+    private void saveDocument(DocumentReference documentReference, XWikiContext xcontext)
+    {
+        try {
+            // The failed save might have modified the copy (e.g. its version) so start again from the stored document
+            XWikiDocument document = replaceUser(xcontext.getWiki().getDocument(documentReference, xcontext));
+            if (document != null) {
+                xcontext.getWiki().saveDocument(document, document.getComment(), document.isMinorEdit(), xcontext);
+            }
+        } catch (XWikiException e) {
+            this.logger.error("Failed to save document [{}]. Root cause is [{}].", documentReference,
+                ExceptionUtils.getRootCauseMessage(e));
         }
     }
 }
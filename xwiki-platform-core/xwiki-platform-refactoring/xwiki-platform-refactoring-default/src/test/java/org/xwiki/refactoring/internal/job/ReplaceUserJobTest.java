@@ -19,23 +19,36 @@
  */
 package org.xwiki.refactoring.internal.job;
 
-import javax.inject.Provider;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mock;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.refactoring.job.ReplaceUserRequest;
-import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
-import org.xwiki.test.junit5.mockito.MockComponent;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
-
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for {@link ReplaceUserJob}.
@@ -43,78 +56,152 @@
  * @version $Id$
  * @since 11.8RC1
  */
-@ComponentTest
+@OldcoreTest
 public class ReplaceUserJobTest
 {
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
     @InjectMockComponents
     private ReplaceUserJob replaceUserJob;
 
-    @MockComponent
-    private Provider<XWikiContext> xcontextProvider;
-
-    @Mock
-    private XWikiContext xcontext;
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
 
-    @Mock
     private XWiki xwiki;
 
-    @Mock
-    private XWikiDocument document;
+    private XWikiContext xcontext;
 
     private DocumentReference alice = new DocumentReference("test", "Users", "Alice");
 
     private DocumentReference bob = new DocumentReference("test", "Users", "Bob");
 
+    private DocumentReference carol = new DocumentReference("test", "Users", "Carol");
+
+    private DocumentReference documentReference = new DocumentReference("test", "Some", "Page");
+
     private ReplaceUserRequest request = new ReplaceUserRequest();
 
     @BeforeEach
     public void configure() throws Exception
     {
-        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
-        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
-
-        DocumentReference documentReference = new DocumentReference("test", "Some", "Page");
-        when(this.document.getDocumentReference()).thenReturn(documentReference);
-        when(this.xwiki.getDocument(documentReference, this.xcontext)).thenReturn(this.document);
+        this.xwiki = this.oldcore.getSpyXWiki();
+        this.xcontext = this.oldcore.getXWikiContext();
 
         this.request.setOldUserReference(this.alice);
         this.request.setNewUserReference(this.bob);
         this.replaceUserJob.initialize(this.request);
     }
 
+    private void createDocument(DocumentReference reference, DocumentReference creator, DocumentReference author)
+        throws XWikiException
+    {
+        XWikiDocument document = new XWikiDocument(reference);
+        document.setCreatorReference(creator);
+        document.setAuthorReference(author);
+        this.xwiki.saveDocument(document, this.xcontext);
+    }
+
+    /**
+     * @return the document as returned by the document cache (the same instance is returned until it's saved again)
+     */
+    private XWikiDocument getDocument(DocumentReference reference) throws XWikiException
+    {
+        return this.xwiki.getDocument(reference, this.xcontext);
+    }
+
+    private List<XWikiDocument> captureSavedDocuments() throws XWikiException
+    {
+        ArgumentCaptor<List<XWikiDocument>> captor = ArgumentCaptor.forClass(List.class);
+        verify(this.xwiki).saveDocuments(captor.capture(), any(XWikiContext.class));
+
+        return captor.getValue();
+    }
+
     @Test
     public void updateCreator() throws Exception
     {
+        createDocument(this.documentReference, this.alice, this.carol);
+        doNothing().when(this.xwiki).saveDocuments(any(), any(XWikiContext.class));
+
         this.request.setReplaceDocumentCreator(true);
         // Verify this doesn't have any effect if the document author doesn't match the request author.
         this.request.setReplaceDocumentAuthor(true);
 
-        // Make sure the document creator matches the request creator.
-        when(this.document.getCreatorReference()).thenReturn(this.alice);
+        this.replaceUserJob.update(this.documentReference);
+
+        verify(this.xwiki, never()).saveDocuments(any(), any(XWikiContext.class));
+
+        this.replaceUserJob.saveDocuments();
 
-        this.replaceUserJob.update(this.document.getDocumentReference());
+        List<XWikiDocument> savedDocuments = captureSavedDocuments();
+        assertEquals(1, savedDocuments.size());
+        XWikiDocument savedDocument = savedDocuments.get(0);
+        assertEquals(this.bob, savedDocument.getCreatorReference());
+        assertEquals(this.carol, savedDocument.getAuthorReference());
+        assertEquals("Replaced user [test:Users.Alice] in fields [creator] to user [test:Users.Bob]",
+            savedDocument.getComment());
 
-        verify(this.document).setCreatorReference(this.bob);
-        verify(this.xwiki).saveDocument(this.document,
-            "Replaced user [test:Users.Alice] in fields [creator] to user [test:Users.Bob]", this.xcontext);
+        // The cached document is not modified before being saved
+        assertEquals(this.alice, getDocument(this.documentReference).getCreatorReference());
     }
 
     @Test
     public void updateAuthor() throws Exception
     {
+        createDocument(this.documentReference, this.carol, this.alice);
+        doNothing().when(this.xwiki).saveDocuments(any(), any(XWikiContext.class));
+
         this.request.setReplaceDocumentAuthor(true);
         this.request.setReplaceDocumentContentAuthor(true);
 
-        // Make sure the document author matches the request creator.
-        when(this.document.getAuthorReference()).thenReturn(alice);
-        when(this.document.getContentAuthorReference()).thenReturn(alice);
+        this.replaceUserJob.update(this.documentReference);
+        this.replaceUserJob.saveDocuments();
+
+        XWikiDocument savedDocument = captureSavedDocuments().get(0);
+        assertEquals(this.bob, savedDocument.getAuthorReference());
+        assertEquals(this.bob, savedDocument.getContentAuthorReference());
+        assertEquals(this.carol, savedDocument.getCreatorReference());
+        assertEquals("Replaced user [test:Users.Alice] in fields [author, contentAuthor] to user [test:Users.Bob]",
+            savedDocument.getComment());
+    }
 
-        this.replaceUserJob.update(this.document.getDocumentReference());
+    @Test
+    public void saveDocumentsWhenBatchFails() throws Exception
+    {
+        DocumentReference otherDocumentReference = new DocumentReference("test", "Some", "Other");
+        createDocument(this.documentReference, this.alice, this.carol);
+        createDocument(otherDocumentReference, this.alice, this.carol);
+
+        this.request.setReplaceDocumentCreator(true);
 
-        verify(this.document).setAuthorReference(bob);
-        verify(this.document).setContentAuthorReference(bob);
-        verify(this.xwiki).saveDocument(this.document,
-            "Replaced user [test:Users.Alice] in fields [author, contentAuthor] to user [test:Users.Bob]",
-            this.xcontext);
+        // One of the documents makes the whole batch fail
+        doThrow(new XWikiException("Failed", new Exception("Batch failure")))
+            .when(this.xwiki).saveDocuments(any(), any(XWikiContext.class));
+        doThrow(new XWikiException("Failed", new Exception("Document failure"))).when(this.xwiki).saveDocument(
+            argThat(document -> otherDocumentReference.equals(document.getDocumentReference())), any(), anyBoolean(),
+            any(XWikiContext.class));
+
+        this.replaceUserJob.update(this.documentReference);
+        this.replaceUserJob.update(otherDocumentReference);
+        this.replaceUserJob.saveDocuments();
+
+        assertEquals(Arrays.asList(this.documentReference, otherDocumentReference),
+            captureSavedDocuments().stream().map(XWikiDocument::getDocumentReference).collect(Collectors.toList()));
+
+        // The document which can be saved on its own is updated
+        XWikiDocument document = getDocument(this.documentReference);
+        assertEquals(this.bob, document.getCreatorReference());
+        assertEquals("Replaced user [test:Users.Alice] in fields [creator] to user [test:Users.Bob]",
+            document.getComment());
+
+        // The document which can't be saved is left untouched
+        assertEquals(this.alice, getDocument(otherDocumentReference).getCreatorReference());
+
+        // Only the document which really can't be saved is reported as failed
+        assertEquals("Failed to save documents [[test:Some.Page, test:Some.Other]] at once, saving them one by one."
+            + " Root cause is [Exception: Batch failure].", this.logCapture.getMessage(0));
+        assertEquals("Failed to save document [test:Some.Other]. Root cause is [Exception: Document failure].",
+            this.logCapture.getMessage(1));
     }
 }
@@ -42,6 +42,8 @@
 
     protected boolean placeHolderForced;
 
+    protected boolean userIndependent;
+
     /**
      * @return the list of context entries to take remember for the execution
      */
@@ -116,4 +118,31 @@ public void setPlaceHolderForced(boolean placeHolderForced)
     {
         this.placeHolderForced = placeHolderForced;
     }
+
+    /**
+     * @return {@code true} if the result of the execution does not depend on the current user (other than through
+     *         right checks) and can be shared with other users
+     * @see #setUserIndependent(boolean)
+     * @since 14.9RC1
+     */
+    public boolean isUserIndependent()
+    {
+        return this.userIndependent;
+    }
+
+    /**
+     * Set to {@code true} to indicate that the content does not display anything specific to the current user other
+     * than what is controlled by right checks. When the user is part of the context entries, the cached result is then
+     * shared with all the users as long as no right was checked for the user during the execution.
+     * <p>
+     * This is never detected automatically: the right checks are recorded during the execution, but reading the current
+     * user (e.g. {@code $xcontext.userReference} in a script) is not, so only the renderer can tell.
+     *
+     * @param userIndependent {@code true} if the result of the execution can be shared with other users
+     * @since 14.9RC1
+     */
+    public void setUserIndependent(boolean userIndependent)
+    {
+        this.userIndependent = userIndependent;
+    }
 }
@@ -19,9 +19,12 @@
  */
 package org.xwiki.rendering.async.internal;
 
+import java.util.List;
+
 import org.xwiki.job.AbstractRequest;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
 
 /**
  * The request of the asynchronous renderer job.
@@ -35,6 +38,10 @@ public class AsyncRendererJobRequest extends AbstractRequest
 
     private JobGroupPath jobGroupPath;
 
+    private List<String> sharedId;
+
+    private DocumentReference userReference;
+
     /**
      * The default constructor.
      */
@@ -87,4 +94,35 @@ public JobGroupPath getJobGroupPath()
     {
         return jobGroupPath;
     }
+
+    /**
+     * @return the identifier under which the result is shared with all the users if it does not depend on the user,
+     *         {@code null} if it should never be shared
+     * @since 14.9RC1
+     */
+    public List<String> getSharedId()
+    {
+        return this.sharedId;
+    }
+
+    /**
+     * @param sharedId the identifier under which the result is shared with all the users if it does not depend on the
+     *            user, {@code null} if it should never be shared
+     * @param userReference the user for which the result is computed
+     * @since 14.9RC1
+     */
+    public void setSharedId(List<String> sharedId, DocumentReference userReference)
+    {
+        this.sharedId = sharedId;
+        this.userReference = userReference;
+    }
+
+    /**
+     * @return the user for which the result is computed
+     * @since 14.9RC1
+     */
+    public DocumentReference getUserReference()
+    {
+        return this.userReference;
+    }
 }
@@ -222,6 +222,24 @@ public Map<String, Collection<Object>> getUses()
         {
             return this.uses;
         }
+
+        /**
+         * Add to this {@link ContextUse} all the elements manipulated by the passed one.
+         * 
+         * @param contextUse the elements manipulated by a child execution
+         * @since 14.9RC1
+         */
+        public void add(ContextUse contextUse)
+        {
+            this.references.addAll(contextUse.references);
+            this.roleTypes.addAll(contextUse.roleTypes);
+            this.roles.addAll(contextUse.roles);
+            this.rights.addAll(contextUse.rights);
+
+            for (Map.Entry<String, Collection<Object>> entry : contextUse.uses.entrySet()) {
+                this.uses.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+            }
+        }
     }
 
     private static final String KEY_ENABLED = "rendering.async.enabled";
@@ -283,9 +301,24 @@ public void pushContextUse()
     }
 
     /**
+     * Remove the current {@link ContextUse} from the context.
+     * 
      * @return the current {@link ContextUse}
      */
     public ContextUse popContextUse()
+    {
+        return popContextUse(false);
+    }
+
+    /**
+     * Remove the current {@link ContextUse} from the context.
+     * 
+     * @param merge true if the elements gathered by the current {@link ContextUse} should also be added to the parent
+     *            {@link ContextUse} (if any), for callers whose result is part of the parent result
+     * @return the current {@link ContextUse}
+     * @since 14.9RC1
+     */
+    public ContextUse popContextUse(boolean merge)
     {
         ExecutionContext econtext = this.execution.getContext();
 
@@ -293,7 +326,14 @@ public ContextUse popContextUse()
             Deque<ContextUse> deque = (Deque<ContextUse>) econtext.getProperty(KEY_CONTEXTUSE);
 
             if (deque != null && !deque.isEmpty()) {
-                return deque.pop();
+                ContextUse contextUse = deque.pop();
+
+                ContextUse parent = deque.peek();
+                if (merge && parent != null) {
+                    parent.add(contextUse);
+                }
+
+                return contextUse;
             }
         }
 
@@ -22,6 +22,7 @@
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -39,10 +40,15 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.descriptor.ComponentRole;
 import org.xwiki.component.descriptor.DefaultComponentRole;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.rendering.async.internal.jmx.JMXAsyncRendererCache;
 import org.xwiki.security.authorization.AuthorizationManager;
 
 /**
@@ -53,11 +59,16 @@
  */
 @Component(roles = AsyncRendererCache.class)
 @Singleton
-public class AsyncRendererCache implements Initializable, CacheEntryListener<AsyncRendererJobStatus>
+public class AsyncRendererCache implements Initializable, Disposable, CacheEntryListener<AsyncRendererJobStatus>
 {
+    private static final String MBEAN_NAME = "name=asyncrenderer";
+
     @Inject
     private AuthorizationManager authorization;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
     @Inject
     private CacheManager cacheManager;
 
@@ -75,6 +86,8 @@ public class AsyncRendererCache implements Initializable, CacheEntryListener<Asy
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    private final AsyncRendererCacheStatistics statistics = new AsyncRendererCacheStatistics();
+
     /**
      * @return the lock the lock
      * @since 10.11.5
@@ -117,6 +130,23 @@ public void initialize() throws InitializationException
         }
 
         this.longCache.addCacheEntryListener(this);
+
+        this.jmxRegistration.registerMBean(new JMXAsyncRendererCache(this), MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
+
+    /**
+     * @return the cache hits and misses counters
+     * @since 14.9RC1
+     */
+    public AsyncRendererCacheStatistics getStatistics()
+    {
+        return this.statistics;
     }
 
     /**
@@ -168,6 +198,12 @@ public void put(AsyncRendererJobStatus status)
             // If cache is enabled, store the status in the long cache
             if (longCacheAllowed) {
                 this.longCache.set(cacheKey, status);
+
+                // Share the result with all the users if it does not depend on the user
+                List<String> sharedId = status.getRequest().getSharedId();
+                if (sharedId != null && isUserIndependent(status)) {
+                    this.longCache.set(toCacheKey(sharedId), status);
+                }
             }
 
             // Asynchronous statuses are stored in a short lived cache to avoid race condition (result invalidated
@@ -181,6 +217,24 @@ public void put(AsyncRendererJobStatus status)
         }
     }
 
+    private boolean isUserIndependent(AsyncRendererJobStatus status)
+    {
+        if (status.getResult() == null) {
+            return false;
+        }
+
+        DocumentReference userReference = status.getRequest().getUserReference();
+
+        // The result depends on the user if any right was checked for the user during the execution
+        for (RightEntry right : status.getRights()) {
+            if (Objects.equals(right.getUserReference(), userReference)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Remove all the entries the cache contains.
      */
@@ -224,6 +278,7 @@ public void cacheEntryRemoved(CacheEntryEvent<AsyncRendererJobStatus> event)
         remove(key, status.getReferences(), this.referenceMapping);
         remove(key, status.getRoleTypes(), this.roleTypeMapping);
         remove(key, status.getRoles(), this.roleMapping);
+        remove(key, status.getRights(), this.rightMapping);
     }
 
     private <T> void remove(String key, Set<T> values, Map<T, Set<String>> mapping)
@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Count the cache hits and misses of the {@link AsyncRenderer}s, grouped by renderer identifier.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+public class AsyncRendererCacheStatistics
+{
+    private final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> sharedHits = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> misses = new ConcurrentHashMap<>();
+
+    private static String toKey(List<String> rendererId)
+    {
+        return String.join("/", rendererId);
+    }
+
+    private static void increment(Map<String, LongAdder> counters, List<String> rendererId)
+    {
+        counters.computeIfAbsent(toKey(rendererId), k -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> toMap(Map<String, LongAdder> counters)
+    {
+        return counters.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum()));
+    }
+
+    /**
+     * @param rendererId the identifier of the renderer for which a cached result was found
+     * @param shared true if the result was computed for another user
+     */
+    public void hit(List<String> rendererId, boolean shared)
+    {
+        increment(this.hits, rendererId);
+
+        if (shared) {
+            increment(this.sharedHits, rendererId);
+        }
+    }
+
+    /**
+     * @param rendererId the identifier of the renderer which had to be executed
+     */
+    public void miss(List<String> rendererId)
+    {
+        increment(this.misses, rendererId);
+    }
+
+    /**
+     * @return the number of cache hits per renderer identifier
+     */
+    public Map<String, Long> getHits()
+    {
+        return toMap(this.hits);
+    }
+
+    /**
+     * @return the number of cache hits of results computed for another user, per renderer identifier
+     */
+    public Map<String, Long> getSharedHits()
+    {
+        return toMap(this.sharedHits);
+    }
+
+    /**
+     * @return the number of cache misses per renderer identifier
+     */
+    public Map<String, Long> getMisses()
+    {
+        return toMap(this.misses);
+    }
+
+    /**
+     * Reset all the counters.
+     */
+    public void reset()
+    {
+        this.hits.clear();
+        this.sharedHits.clear();
+        this.misses.clear();
+    }
+}
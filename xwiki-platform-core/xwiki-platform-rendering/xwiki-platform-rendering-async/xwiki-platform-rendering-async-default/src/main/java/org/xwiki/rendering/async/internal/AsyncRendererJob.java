@@ -108,6 +108,7 @@ protected void runInternal() throws Exception
             getStatus().setReferences(contextUse.getReferences());
             getStatus().setRoles(contextUse.getRoles());
             getStatus().setRoleTypes(contextUse.getRoleTypes());
+            getStatus().setRights(contextUse.getRights());
             getStatus().setUses(contextUse.getUses());
         }
     }
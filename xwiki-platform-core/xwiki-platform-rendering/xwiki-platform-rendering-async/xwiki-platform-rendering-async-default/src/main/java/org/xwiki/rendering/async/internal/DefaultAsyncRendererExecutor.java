@@ -66,6 +66,8 @@
 @Singleton
 public class DefaultAsyncRendererExecutor implements AsyncRendererExecutor
 {
+    private static final String SHARED_ID_SUFFIX = "user.shared";
+
     @Inject
     @Named(AsyncRendererJobStatus.JOBTYPE)
     private Provider<Job> jobProvider;
@@ -166,11 +168,14 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
         // Generate job id
         List<String> jobId = getJobId(renderer, context);
 
+        // Generate the id under which the result is shared with all the users (if allowed)
+        List<String> sharedJobId = cacheAllowed ? getSharedJobId(renderer, context, configuration) : null;
+
         if (cacheAllowed) {
             this.cache.getLock().readLock().lock();
 
             try {
-                AsyncRendererJobStatus status = getCurrent(jobId);
+                AsyncRendererJobStatus status = getCurrent(jobId, sharedJobId);
 
                 if (status != null
                     && (status.getEndDate() == null || this.cacheControl.isCacheReadAllowed(status.getEndDate()))) {
@@ -179,6 +184,8 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
 
                         injectUses(status);
 
+                        this.cache.getStatistics().hit(renderer.getId(), !jobId.equals(status.getRequest().getId()));
+
                         return new AsyncRendererExecutorResponse(status);
                     } else if (asyncAllowed) {
                         // Already running job, associate it with another client
@@ -195,9 +202,16 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
 
         AsyncRendererExecutorResponse response;
 
+        if (cacheAllowed) {
+            this.cache.getStatistics().miss(renderer.getId());
+        }
+
         AsyncRendererJobRequest request = new AsyncRendererJobRequest();
         request.setRenderer(renderer);
         request.setJobGroupPath(renderer.getJobGroupPath());
+        if (sharedJobId != null) {
+            request.setSharedId(sharedJobId, (DocumentReference) context.get(XWikiContextContextStore.PROP_USER));
+        }
 
         if (asyncAllowed) {
             this.cache.getLock().writeLock().lock();
@@ -343,6 +357,18 @@ private Map<String, Serializable> getContext(boolean asyncAllowed, boolean cache
         return savedContext;
     }
 
+    private AsyncRendererJobStatus getCurrent(List<String> jobId, List<String> sharedJobId)
+    {
+        AsyncRendererJobStatus status = getCurrent(jobId);
+
+        // Try to find a result shared by all the users
+        if (status == null && sharedJobId != null) {
+            status = this.cache.getSync(sharedJobId);
+        }
+
+        return status;
+    }
+
     private AsyncRendererJobStatus getCurrent(List<String> jobId)
     {
         // Try to find the job status in a running job
@@ -387,6 +413,24 @@ private List<String> getJobId(AsyncRenderer renderer, Map<String, Serializable>
         return id;
     }
 
+    private List<String> getSharedJobId(AsyncRenderer renderer, Map<String, Serializable> context,
+        AsyncRendererConfiguration configuration)
+    {
+        if (configuration.isUserIndependent() && context != null
+            && context.containsKey(XWikiContextContextStore.PROP_USER)) {
+            Map<String, Serializable> sharedContext = new HashMap<>(context);
+            sharedContext.remove(XWikiContextContextStore.PROP_USER);
+
+            List<String> id = new ArrayList<>(getJobId(renderer, sharedContext));
+            // Make sure the shared result cannot be mixed with the result of a renderer which does not need the user
+            id.add(SHARED_ID_SUFFIX);
+
+            return id;
+        }
+
+        return null;
+    }
+
     private String encodeId(String value)
     {
         StringBuilder builder = new StringBuilder(value.length() * 3);
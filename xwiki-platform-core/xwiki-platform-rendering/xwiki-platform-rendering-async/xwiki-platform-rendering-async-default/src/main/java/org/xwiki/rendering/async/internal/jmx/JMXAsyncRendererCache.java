@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal.jmx;
+
+import java.util.Map;
+
+import org.xwiki.rendering.async.internal.AsyncRendererCache;
+
+/**
+ * Implementation of the JMXAsyncRendererCache MBean.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+public class JMXAsyncRendererCache implements JMXAsyncRendererCacheMBean
+{
+    private final AsyncRendererCache cache;
+
+    /**
+     * @param cache the cache to expose
+     */
+    public JMXAsyncRendererCache(AsyncRendererCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @Override
+    public Map<String, Long> getHits()
+    {
+        return this.cache.getStatistics().getHits();
+    }
+
+    @Override
+    public Map<String, Long> getSharedHits()
+    {
+        return this.cache.getStatistics().getSharedHits();
+    }
+
+    @Override
+    public Map<String, Long> getMisses()
+    {
+        return this.cache.getStatistics().getMisses();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.cache.getStatistics().reset();
+    }
+
+    @Override
+    public void flush()
+    {
+        this.cache.flush();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal.jmx;
+
+import java.util.Map;
+
+/**
+ * Interface of the {@link JMXAsyncRendererCache} MBean.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+public interface JMXAsyncRendererCacheMBean
+{
+    /**
+     * @return the number of cache hits per asynchronous renderer identifier
+     */
+    Map<String, Long> getHits();
+
+    /**
+     * @return the number of cache hits of results computed for another user, per asynchronous renderer identifier
+     */
+    Map<String, Long> getSharedHits();
+
+    /**
+     * @return the number of cache misses per asynchronous renderer identifier
+     */
+    Map<String, Long> getMisses();
+
+    /**
+     * Reset all the counters.
+     */
+    void resetStatistics();
+
+    /**
+     * Remove all entries from the asynchronous renderers cache.
+     */
+    void flush();
+}
@@ -21,6 +21,7 @@
 
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
@@ -34,11 +35,14 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.security.authorization.Right;
 import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
@@ -225,4 +229,54 @@ public void getAsyncSeveralClients()
 
         assertNull(this.asyncCache.getAsync("2"));
     }
+
+    @Test
+    public void putSharedWhenNoUserRight()
+    {
+        DocumentReference user = new DocumentReference("wiki", "XWiki", "user");
+        List<String> sharedId = Arrays.asList("entry", "shared");
+        this.status.getRequest().setSharedId(sharedId, user);
+        setReferences(new DocumentReference("wiki", "Space", "Document"));
+
+        this.asyncCache.put(this.status);
+
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+        assertSame(this.status, this.asyncCache.getSync(sharedId));
+
+        this.asyncCache.cleanCache(new DocumentReference("wiki", "Space", "Document"));
+
+        assertNull(this.asyncCache.getSync(getId()));
+        assertNull(this.asyncCache.getSync(sharedId));
+    }
+
+    @Test
+    public void putNotSharedWhenUserRight()
+    {
+        DocumentReference user = new DocumentReference("wiki", "XWiki", "user");
+        List<String> sharedId = Arrays.asList("entry", "shared");
+        this.status.getRequest().setSharedId(sharedId, user);
+        this.status.setRights(Collections.singleton(
+            new RightEntry(Right.VIEW, user, new DocumentReference("wiki", "Space", "Document"), true)));
+
+        this.asyncCache.put(this.status);
+
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+        assertNull(this.asyncCache.getSync(sharedId));
+    }
+
+    @Test
+    public void statistics()
+    {
+        this.asyncCache.getStatistics().hit(Arrays.asList("entry", "id"), true);
+        this.asyncCache.getStatistics().hit(Arrays.asList("entry", "id"), false);
+        this.asyncCache.getStatistics().miss(Arrays.asList("entry", "id"));
+
+        assertEquals(Collections.singletonMap("entry/id", 2L), this.asyncCache.getStatistics().getHits());
+        assertEquals(Collections.singletonMap("entry/id", 1L), this.asyncCache.getStatistics().getSharedHits());
+        assertEquals(Collections.singletonMap("entry/id", 1L), this.asyncCache.getStatistics().getMisses());
+
+        this.asyncCache.getStatistics().reset();
+
+        assertEquals(Collections.emptyMap(), this.asyncCache.getStatistics().getHits());
+    }
 }
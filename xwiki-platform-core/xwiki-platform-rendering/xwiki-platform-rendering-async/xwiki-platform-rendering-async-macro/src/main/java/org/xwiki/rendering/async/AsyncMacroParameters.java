@@ -38,6 +38,8 @@
 
     private List<String> id;
 
+    private boolean userIndependent;
+
     /**
      * @return true if the content should be executed asynchronously
      */
@@ -101,4 +103,23 @@ public void setId(List<String> id)
     {
         this.id = id;
     }
+
+    /**
+     * @return true if the result of the execution can be shared with all the users
+     * @since 14.9RC1
+     */
+    public boolean isUserIndependent()
+    {
+        return this.userIndependent;
+    }
+
+    /**
+     * @param userIndependent true if the content does not display anything specific to the current user other than
+     *            what is controlled by rights, so that the cached result can be shared with all the users
+     * @since 14.9RC1
+     */
+    public void setUserIndependent(boolean userIndependent)
+    {
+        this.userIndependent = userIndependent;
+    }
 }
@@ -110,6 +110,8 @@ public List<Block> execute(AsyncMacroParameters parameters, String content, Macr
         configuration.setCacheAllowed(parameters.isCached());
         // Indicate context entries
         configuration.setContextEntries(parameters.getContext());
+        // Indicate if the cached result can be shared between users
+        configuration.setUserIndependent(parameters.isUserIndependent());
 
         try {
             Block result = this.executor.execute(configuration);
@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.resources;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.model.jaxb.Changes;
+
+/**
+ * The feed of the page changes (creations, updates and deletions) of a wiki, sorted by date.
+ * <p>
+ * Unlike {@link ModificationsResource}, the feed is read with a cursor: each response contains the cursor to pass in
+ * order to get the changes that follow, so that a client can resume from where it stopped, whatever the number of
+ * changes it already read. The cursor is based on the date of the changes, which is set before the change is saved:
+ * a change saved at the same time as a response is computed (or on a cluster member with a late clock) can end up
+ * before the returned cursor and be missed. Clients which can't miss any change should start slightly before the date
+ * of the last change they got and ignore the changes they already know.
+ * <p>
+ * The creations and updates come from the history of the pages so they are not listed when the versioning of the
+ * documents is disabled ({@code xwiki.store.versioning=0}). In the same way, the deletions come from the recycle bin
+ * and are not listed when it's disabled.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Path("/wikis/{wikiName}/changes")
+public interface ChangesResource
+{
+    /**
+     * @param wikiName the wiki name
+     * @param cursor the cursor returned by the previous call, empty to start from the given date
+     * @param number the maximum number of changes to return, at most 1000
+     * @param ts the date (in milliseconds) after which to start, when no cursor is given
+     * @return the changes following the cursor
+     * @throws XWikiRestException if the changes cannot be retrieved
+     */
+    @GET Changes getChanges(
+            @PathParam("wikiName") String wikiName,
+            @QueryParam("cursor") @DefaultValue("") String cursor,
+            @QueryParam("number") @DefaultValue("100") Integer number,
+            @QueryParam("date") @DefaultValue("0") Long ts
+    ) throws XWikiRestException;
+}
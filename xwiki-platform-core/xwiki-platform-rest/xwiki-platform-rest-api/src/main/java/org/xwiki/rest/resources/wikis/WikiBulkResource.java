@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.resources.wikis;
+
+import java.io.InputStream;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.xwiki.rest.XWikiRestException;
+
+/**
+ * Reads and updates several pages and objects of a wiki with a single request.
+ * <p>
+ * The request body is a stream of operations in the <a href="http://ndjson.org/">NDJSON</a> format (one JSON object
+ * per line), for instance:
+ *
+ * <pre>
+ * {"id": "1", "action": "get", "page": "Space.Page", "objects": true}
+ * {"id": "2", "action": "put", "page": "Space.Page", "data": {"title": "New title", "content": "..."}}
+ * {"id": "3", "action": "get", "page": "Space.Page", "className": "XWiki.TagClass", "number": 0}
+ * {"id": "4", "action": "put", "page": "Space.Page", "className": "XWiki.TagClass", "data": {"properties": [...]}}
+ * </pre>
+ *
+ * The operations on objects are the ones having a {@code className}. The {@code data} of a {@code put} operation has
+ * the same format as the JSON representation of a page or an object. The response is a stream with the result of each
+ * operation, in the same order, written as soon as the operation is executed:
+ *
+ * <pre>
+ * {"id": "1", "status": 200, "entity": {...}}
+ * {"id": "2", "status": 202, "version": "2.1"}
+ * </pre>
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Path("/wikis/{wikiName}/bulk")
+public interface WikiBulkResource
+{
+    /**
+     * The media type of the request and response bodies.
+     */
+    String NDJSON = "application/x-ndjson";
+
+    /**
+     * Execute a stream of operations.
+     *
+     * @param wikiName the wiki name
+     * @param minorRevision whether the saved pages get a minor revision or not
+     * @param operations the operations to execute, one JSON object per line
+     * @return the stream of results, one JSON object per line
+     * @throws XWikiRestException if the operations cannot be read
+     */
+    @POST
+    @Consumes(NDJSON)
+    @Produces(NDJSON)
+    StreamingOutput execute(
+            @PathParam("wikiName") String wikiName,
+            @QueryParam("minorRevision") Boolean minorRevision,
+            InputStream operations
+    ) throws XWikiRestException;
+}
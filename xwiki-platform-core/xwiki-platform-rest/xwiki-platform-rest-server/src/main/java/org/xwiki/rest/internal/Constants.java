@@ -35,6 +35,14 @@ public class Constants extends org.xwiki.rest.Constants
      */
     public static final String RELEASABLE_COMPONENT_REFERENCES = "rest.releasableComponentReferences";
 
+    /**
+     * The key used to store, in the attributes of the current Restlet response, the entity tag of the returned
+     * representation.
+     *
+     * @since 14.9RC1
+     */
+    public static final String ENTITY_TAG = "rest.entityTag";
+
     /**
      * The key used to store allowed values for an object property in an XWiki object representation.
      *
@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rest.model.jaxb.PageSummary;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.api.Document;
+
+/**
+ * Caches the REST representations of the pages and computes the entity tags used to validate them.
+ * <p>
+ * The cached representations of a page are invalidated when the page or one of its translations is modified, see
+ * {@link PageRepresentationCacheInvalidator}, and the entity tags are computed from the version and the date of the
+ * page. The parts of a representation that come from other pages (e.g. the author pretty name, taken from the user
+ * profile) are thus refreshed only when the page itself is modified or evicted from the cache.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = PageRepresentationCache.class)
+@Singleton
+public class PageRepresentationCache implements Initializable, Disposable
+{
+    /**
+     * The maximum number of pages whose representations are cached.
+     */
+    private static final int CACHE_CAPACITY = 10000;
+
+    /**
+     * The maximum number of representations (for different versions, users, locales, etc.) cached for a page.
+     */
+    private static final int MAX_VARIANTS = 100;
+
+    private static final char KEY_SEPARATOR = '|';
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ModelFactory modelFactory;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * The page summaries, indexed by the page reference (without locale) and then by variant.
+     */
+    private Cache<Map<String, PageSummary>> pageSummaries;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.pageSummaries =
+                this.cacheManager.createNewCache(new LRUCacheConfiguration("rest.pageSummaries", CACHE_CAPACITY));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the REST page summary cache.", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.pageSummaries.dispose();
+    }
+
+    /**
+     * @param baseUri the base URI of the REST resources
+     * @param doc the document to describe
+     * @param withPrettyNames whether to include the pretty names (e.g. of the author) in the summary
+     * @return the summary of the given page, taken from the cache when the page didn't change since it was computed;
+     *         the returned object is shared and must not be modified
+     * @throws XWikiException if computing the summary fails
+     */
+    public PageSummary getPageSummary(URI baseUri, Document doc, Boolean withPrettyNames) throws XWikiException
+    {
+        String documentKey = getDocumentKey(doc.getDocumentReference());
+        Map<String, PageSummary> variants = this.pageSummaries.get(documentKey);
+        if (variants == null) {
+            variants = new ConcurrentHashMap<>();
+            this.pageSummaries.set(documentKey, variants);
+        }
+
+        String key = getKey(doc, baseUri, withPrettyNames);
+        PageSummary pageSummary = variants.get(key);
+        if (pageSummary == null) {
+            pageSummary = this.modelFactory.toRestPageSummary(baseUri, doc, withPrettyNames);
+            if (variants.size() >= MAX_VARIANTS) {
+                // Drop the representations of the previous versions and of the other users.
+                variants.clear();
+            }
+            variants.put(key, pageSummary);
+        }
+
+        return pageSummary;
+    }
+
+    /**
+     * Computes a strong entity tag for a representation of the given document. The tag changes whenever the document
+     * is modified, so it can be used to answer conditional requests with {@code 304 Not Modified}.
+     *
+     * @param doc the document described by the representation
+     * @param variant the parameters that affect the representation (e.g. the query parameters and the accepted media
+     *            types)
+     * @return the entity tag value, without quotes
+     */
+    public String getEntityTag(Document doc, Object... variant)
+    {
+        return DigestUtils.sha256Hex(getKey(doc, variant));
+    }
+
+    /**
+     * Invalidates the cached representations of the given page and of its translations.
+     *
+     * @param documentReference the reference of the modified page
+     */
+    public void invalidate(DocumentReference documentReference)
+    {
+        this.pageSummaries.remove(getDocumentKey(documentReference));
+    }
+
+    /**
+     * Invalidates all the cached representations.
+     */
+    public void invalidate()
+    {
+        this.pageSummaries.removeAll();
+    }
+
+    private String getDocumentKey(DocumentReference documentReference)
+    {
+        // Ignore the locale so that all the translations of a page are invalidated together.
+        return this.serializer.serialize(documentReference.withoutLocale());
+    }
+
+    private String getKey(Document doc, Object... variant)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        // The display title is rendered with the current user and locale.
+        StringBuilder key = new StringBuilder();
+        key.append(getDocumentKey(doc.getDocumentReference())).append(KEY_SEPARATOR);
+        key.append(doc.getLocale()).append(KEY_SEPARATOR);
+        key.append(doc.getVersion()).append(KEY_SEPARATOR);
+        // The version alone is not enough since it starts over when a page is deleted and created again.
+        key.append(doc.getDate() != null ? doc.getDate().getTime() : 0).append(KEY_SEPARATOR);
+        key.append(xcontext.getUserReference()).append(KEY_SEPARATOR);
+        key.append(xcontext.getLocale());
+        for (Object value : variant) {
+            key.append(KEY_SEPARATOR).append(value);
+        }
+
+        return key.toString();
+    }
+}
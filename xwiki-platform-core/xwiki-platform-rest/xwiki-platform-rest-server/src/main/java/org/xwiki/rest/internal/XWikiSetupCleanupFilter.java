@@ -28,6 +28,7 @@
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
 import org.restlet.ext.servlet.ServletUtils;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
@@ -92,6 +93,12 @@ protected void afterHandle(Request request, Response response)
                 response.setEntity(null);
             }
         }
+
+        // Send the entity tag computed by the resource along with the representation.
+        String entityTag = (String) response.getAttributes().get(Constants.ENTITY_TAG);
+        if (entityTag != null && response.getEntity() != null) {
+            response.getEntity().setTag(new Tag(entityTag, false));
+        }
     }
 
     /**
@@ -0,0 +1,336 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.XWikiResource;
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.model.jaxb.Change;
+import org.xwiki.rest.model.jaxb.Changes;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.resources.ChangesResource;
+import org.xwiki.rest.resources.pages.PageResource;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+
+import static org.xwiki.security.authorization.Right.VIEW;
+
+/**
+ * Lists the page changes of a wiki using keyset pagination.
+ * <p>
+ * The creations and updates are read from the document history and the deletions from the recycle bin. Both are
+ * sorted by date and then by their primary key, which gives a total order: a cursor is the sort key of the last
+ * returned change and the next page starts right after it, whatever the number of changes read before.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named("org.xwiki.rest.internal.resources.ChangesResourceImpl")
+public class ChangesResourceImpl extends XWikiResource implements ChangesResource
+{
+    private static final String TYPE_CREATE = "create";
+
+    private static final String TYPE_UPDATE = "update";
+
+    private static final String TYPE_DELETE = "delete";
+
+    private static final String FIRST_VERSION = "1.1";
+
+    private static final char VERSION_SEPARATOR = '.';
+
+    private static final String PARAMETER_DATE = "date";
+
+    private static final String ORDER_BY = " order by ";
+
+    /**
+     * The maximum number of changes returned by a single request.
+     */
+    private static final int MAX_NUMBER = 1000;
+
+    @Inject
+    private ContextualAuthorizationManager authorizationManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    /**
+     * The sort key of a change, used as cursor.
+     */
+    private static final class ChangeCursor implements Comparable<ChangeCursor>
+    {
+        private static final String SEPARATOR = ".";
+
+        private static final String REVISION = "r";
+
+        private static final String DELETION = "d";
+
+        /**
+         * Either {@link #REVISION} or {@link #DELETION}. At the same date, revisions come before deletions.
+         */
+        private final String kind;
+
+        private final long date;
+
+        /**
+         * The primary key of the revision (document id and version numbers) or of the deleted document.
+         */
+        private final long[] key;
+
+        ChangeCursor(String kind, long date, long... key)
+        {
+            this.kind = kind;
+            this.date = date;
+            this.key = key;
+        }
+
+        static ChangeCursor parse(String cursor)
+        {
+            try {
+                String[] parts = StringUtils.split(cursor, SEPARATOR);
+                int keySize = REVISION.equals(parts[0]) ? 3 : 1;
+                if ((!REVISION.equals(parts[0]) && !DELETION.equals(parts[0])) || parts.length != keySize + 2) {
+                    throw new IllegalArgumentException();
+                }
+
+                long[] key = new long[keySize];
+                for (int i = 0; i < keySize; i++) {
+                    key[i] = Long.parseLong(parts[i + 2]);
+                }
+
+                return new ChangeCursor(parts[0], Long.parseLong(parts[1]), key);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new WebApplicationException(Status.BAD_REQUEST);
+            }
+        }
+
+        boolean isRevision()
+        {
+            return REVISION.equals(this.kind);
+        }
+
+        @Override
+        public int compareTo(ChangeCursor other)
+        {
+            int result = Long.compare(this.date, other.date);
+            if (result == 0) {
+                result = Boolean.compare(!isRevision(), !other.isRevision());
+            }
+            for (int i = 0; result == 0 && i < this.key.length; i++) {
+                result = Long.compare(this.key[i], other.key[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder(this.kind).append(SEPARATOR).append(this.date);
+            for (long value : this.key) {
+                builder.append(SEPARATOR).append(value);
+            }
+            return builder.toString();
+        }
+    }
+
+    @Override
+    public Changes getChanges(String wikiName, String cursor, Integer number, Long ts) throws XWikiRestException
+    {
+        if (number < 1) {
+            throw new WebApplicationException(Status.BAD_REQUEST);
+        }
+        int limit = Math.min(number, MAX_NUMBER);
+
+        // Without cursor, start after all the changes made at the given date (no deletion has the maximum id).
+        ChangeCursor start = StringUtils.isEmpty(cursor) ? new ChangeCursor(ChangeCursor.DELETION, ts, Long.MAX_VALUE)
+            : ChangeCursor.parse(cursor);
+
+        try {
+            List<Object[]> revisions = getRevisions(wikiName, start, limit);
+            List<Object[]> deletions = getDeletions(wikiName, start, limit);
+
+            Changes changes = this.objectFactory.createChanges();
+            ChangeCursor last = start;
+
+            // Merge the two sorted lists.
+            int revisionIndex = 0;
+            int deletionIndex = 0;
+            while (revisionIndex + deletionIndex < limit
+                && (revisionIndex < revisions.size() || deletionIndex < deletions.size())) {
+                ChangeCursor revisionCursor =
+                    revisionIndex < revisions.size() ? getRevisionCursor(revisions.get(revisionIndex)) : null;
+                ChangeCursor deletionCursor =
+                    deletionIndex < deletions.size() ? getDeletionCursor(deletions.get(deletionIndex)) : null;
+
+                Change change;
+                if (deletionCursor == null
+                    || (revisionCursor != null && revisionCursor.compareTo(deletionCursor) < 0)) {
+                    change = toRevisionChange(wikiName, revisions.get(revisionIndex++));
+                    last = revisionCursor;
+                } else {
+                    change = toDeletionChange(wikiName, deletions.get(deletionIndex++));
+                    last = deletionCursor;
+                }
+
+                // The cursor moves past the changes the current user is not allowed to see.
+                if (change != null) {
+                    changes.getChanges().add(change);
+                }
+            }
+
+            changes.setCursor(last.toString());
+
+            return changes;
+        } catch (QueryException e) {
+            throw new XWikiRestException(e);
+        }
+    }
+
+    private List<Object[]> getRevisions(String wikiName, ChangeCursor cursor, int number) throws QueryException
+    {
+        StringBuilder statement = new StringBuilder("select doc.fullName, doc.language, rcs.id.docId, "
+            + "rcs.id.version1, rcs.id.version2, rcs.date, rcs.author, rcs.comment "
+            + "from XWikiRCSNodeInfo as rcs, XWikiDocument as doc where rcs.id.docId = doc.id and ");
+        if (cursor.isRevision()) {
+            statement.append("(rcs.date > :date or (rcs.date = :date and (rcs.id.docId > :docId "
+                + "or (rcs.id.docId = :docId and (rcs.id.version1 > :version1 "
+                + "or (rcs.id.version1 = :version1 and rcs.id.version2 > :version2))))))");
+        } else {
+            statement.append("rcs.date > :date");
+        }
+        statement.append(ORDER_BY).append("rcs.date, rcs.id.docId, rcs.id.version1, rcs.id.version2");
+
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL)
+            .bindValue(PARAMETER_DATE, new Date(cursor.date)).setLimit(number).setWiki(wikiName);
+        if (cursor.isRevision()) {
+            query.bindValue("docId", cursor.key[0]).bindValue("version1", (int) cursor.key[1])
+                .bindValue("version2", (int) cursor.key[2]);
+        }
+
+        return query.execute();
+    }
+
+    private List<Object[]> getDeletions(String wikiName, ChangeCursor cursor, int number) throws QueryException
+    {
+        StringBuilder statement = new StringBuilder(
+            "select ddoc.fullName, ddoc.language, ddoc.id, ddoc.date, ddoc.deleter from XWikiDeletedDocument as ddoc "
+                + "where ");
+        if (cursor.isRevision()) {
+            statement.append("ddoc.date >= :date");
+        } else {
+            statement.append("(ddoc.date > :date or (ddoc.date = :date and ddoc.id > :id))");
+        }
+        statement.append(ORDER_BY).append("ddoc.date, ddoc.id");
+
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL)
+            .bindValue(PARAMETER_DATE, new Date(cursor.date)).setLimit(number).setWiki(wikiName);
+        if (!cursor.isRevision()) {
+            query.bindValue("id", cursor.key[0]);
+        }
+
+        return query.execute();
+    }
+
+    private ChangeCursor getRevisionCursor(Object[] revision)
+    {
+        return new ChangeCursor(ChangeCursor.REVISION, ((Date) revision[5]).getTime(), (Long) revision[2],
+            (Integer) revision[3], (Integer) revision[4]);
+    }
+
+    private ChangeCursor getDeletionCursor(Object[] deletion)
+    {
+        return new ChangeCursor(ChangeCursor.DELETION, ((Date) deletion[3]).getTime(), (Long) deletion[2]);
+    }
+
+    private Change toRevisionChange(String wikiName, Object[] revision)
+    {
+        String version = String.valueOf(revision[3]) + VERSION_SEPARATOR + revision[4];
+        Change change = toChange(wikiName, (String) revision[0], (String) revision[1],
+            FIRST_VERSION.equals(version) ? TYPE_CREATE : TYPE_UPDATE, (Date) revision[5], (String) revision[6]);
+        if (change != null) {
+            change.setVersion(version);
+            change.setComment((String) revision[7]);
+        }
+
+        return change;
+    }
+
+    private Change toDeletionChange(String wikiName, Object[] deletion)
+    {
+        return toChange(wikiName, (String) deletion[0], (String) deletion[1], TYPE_DELETE, (Date) deletion[3],
+            (String) deletion[4]);
+    }
+
+    private Change toChange(String wikiName, String fullName, String language, String type, Date date,
+        String author)
+    {
+        DocumentReference documentReference = this.resolver.resolve(fullName, new WikiReference(wikiName));
+        if (!this.authorizationManager.hasAccess(VIEW, documentReference)) {
+            return null;
+        }
+
+        Change change = this.objectFactory.createChange();
+        change.setType(type);
+        change.setPageId(this.serializer.serialize(documentReference));
+        change.setWiki(wikiName);
+        change.setSpace(this.localSerializer.serialize(documentReference.getLastSpaceReference()));
+        change.setName(documentReference.getName());
+        change.setLanguage(StringUtils.defaultString(language));
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        change.setDate(calendar);
+        change.setAuthor(author);
+
+        if (!TYPE_DELETE.equals(type)) {
+            Link pageLink = this.objectFactory.createLink();
+            pageLink.setHref(Utils.createURI(this.uriInfo.getBaseUri(), PageResource.class, wikiName,
+                Utils.getSpacesHierarchy(documentReference.getLastSpaceReference()), documentReference.getName())
+                .toString());
+            pageLink.setRel(Relations.PAGE);
+            change.getLinks().add(pageLink);
+        }
+
+        return change;
+    }
+}
@@ -20,11 +20,20 @@
 package org.xwiki.rest.internal.resources.pages;
 
 import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.xwiki.rest.XWikiResource;
+import org.xwiki.rest.internal.Constants;
 import org.xwiki.rest.internal.ModelFactory;
+import org.xwiki.rest.internal.PageRepresentationCache;
 import org.xwiki.rest.model.jaxb.Page;
 
 import com.xpn.xwiki.XWikiException;
@@ -38,6 +47,40 @@ public class ModifiablePageResource extends XWikiResource
     @Inject
     protected ModelFactory factory;
 
+    @Inject
+    protected PageRepresentationCache representationCache;
+
+    @Context
+    protected Request request;
+
+    @Context
+    protected HttpHeaders headers;
+
+    /**
+     * Answers with {@code 304 Not Modified} if the client already has the requested representation of the given page.
+     * Otherwise the entity tag of the representation is sent along with it.
+     *
+     * @param doc the requested page
+     * @param variant the request parameters that affect the representation
+     * @since 14.9RC1
+     */
+    protected void evaluatePreconditions(Document doc, Object... variant)
+    {
+        // The links of the representation are built from the base URI, which depends on the host used in the request
+        EntityTag entityTag = new EntityTag(this.representationCache.getEntityTag(doc,
+            ArrayUtils.addAll(variant, this.uriInfo.getBaseUri(), this.headers.getAcceptableMediaTypes())));
+
+        ResponseBuilder notModified = this.request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            throw new WebApplicationException(notModified.tag(entityTag).build());
+        }
+
+        org.restlet.Response response = org.restlet.Response.getCurrent();
+        if (response != null) {
+            response.getAttributes().put(Constants.ENTITY_TAG, entityTag.getValue());
+        }
+    }
+
     /**
      * Creates or updates the specified page.
      * 
@@ -21,13 +21,14 @@
 
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.query.Query;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
-import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.PageRepresentationCache;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.pages.PageChildrenResource;
@@ -41,6 +42,9 @@
 @Named("org.xwiki.rest.internal.resources.pages.PageChildrenResourceImpl")
 public class PageChildrenResourceImpl extends XWikiResource implements PageChildrenResource
 {
+    @Inject
+    private PageRepresentationCache pageRepresentationCache;
+
     @Override
     public Pages getPageChildren(String wikiName, String spaceName, String pageName, Integer start, Integer number,
         Boolean withPrettyNames) throws XWikiRestException
@@ -68,8 +72,8 @@ public Pages getPageChildren(String wikiName, String spaceName, String pageName,
 
                     /* We only add pages we have the right to access */
                     if (childDoc != null) {
-                        pages.getPageSummaries().add(DomainObjectFactory.createPageSummary(objectFactory,
-                            uriInfo.getBaseUri(), childDoc, Utils.getXWikiApi(componentManager), withPrettyNames));
+                        pages.getPageSummaries().add(this.pageRepresentationCache
+                            .getPageSummary(uriInfo.getBaseUri(), childDoc, withPrettyNames));
                     }
                 }
             }
@@ -48,6 +48,8 @@ public Page getPage(String wikiName, String spaceName, String pageName, Boolean
 
             Document doc = documentInfo.getDocument();
 
+            evaluatePreconditions(doc, withPrettyNames, withObjects, withXClass, withAttachments);
+
             URI baseUri = uriInfo.getBaseUri();
 
             Page page =
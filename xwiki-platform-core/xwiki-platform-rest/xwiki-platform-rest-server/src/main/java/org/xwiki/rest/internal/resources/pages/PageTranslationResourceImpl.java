@@ -46,6 +46,8 @@ public Page getPageTranslation(String wikiName, String spaceName, String pageNam
 
             Document doc = documentInfo.getDocument();
 
+            evaluatePreconditions(doc, withPrettyNames);
+
             return this.factory.toRestPage(this.uriInfo.getBaseUri(), this.uriInfo.getAbsolutePath(), doc, false,
                 withPrettyNames, false, false, false);
         } catch (XWikiException e) {
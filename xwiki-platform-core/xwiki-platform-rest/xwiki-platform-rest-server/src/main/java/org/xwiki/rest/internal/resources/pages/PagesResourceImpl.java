@@ -22,6 +22,7 @@
 import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
@@ -29,7 +30,7 @@
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
-import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.PageRepresentationCache;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.pages.PagesResource;
@@ -43,6 +44,9 @@
 @Named("org.xwiki.rest.internal.resources.pages.PagesResourceImpl")
 public class PagesResourceImpl extends XWikiResource implements PagesResource
 {
+    @Inject
+    private PageRepresentationCache pageRepresentationCache;
+
     @Override
     public Pages getPages(String wikiName, String spaceName, Integer start, Integer number,
             String parentFilterExpression, String order, Boolean withPrettyNames)
@@ -99,8 +103,8 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                         }
 
                         if (add) {
-                            pages.getPageSummaries().add(DomainObjectFactory.createPageSummary(objectFactory,
-                                    uriInfo.getBaseUri(), doc, Utils.getXWikiApi(componentManager), withPrettyNames));
+                            pages.getPageSummaries().add(this.pageRepresentationCache
+                                .getPageSummary(uriInfo.getBaseUri(), doc, withPrettyNames));
                         }
                     }
                 }
@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
@@ -29,7 +30,7 @@
 import org.xwiki.query.QueryException;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
-import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.PageRepresentationCache;
 import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
@@ -44,6 +45,9 @@
 @Named("org.xwiki.rest.internal.resources.tags.PagesForTagsResourceImpl")
 public class PagesForTagsResourceImpl extends XWikiResource implements PagesForTagsResource
 {
+    @Inject
+    private PageRepresentationCache pageRepresentationCache;
+
     @Override
     public Pages getTags(String wikiName, String tagNames, Integer start, Integer number, Boolean withPrettyNames)
             throws XWikiRestException
@@ -74,9 +78,8 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
             for (String documentName : ri) {
                 Document doc = Utils.getXWikiApi(componentManager).getDocument(documentName);
                 if (doc != null) {
-                    pages.getPageSummaries().add(DomainObjectFactory
-                            .createPageSummary(objectFactory, uriInfo.getBaseUri(), doc, Utils.getXWikiApi(
-                                    componentManager), withPrettyNames));
+                    pages.getPageSummaries().add(this.pageRepresentationCache
+                            .getPageSummary(uriInfo.getBaseUri(), doc, withPrettyNames));
                 }
             }
 
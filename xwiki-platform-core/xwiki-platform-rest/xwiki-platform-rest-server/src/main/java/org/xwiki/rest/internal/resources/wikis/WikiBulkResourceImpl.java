@@ -0,0 +1,289 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.wikis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.resources.pages.ModifiablePageResource;
+import org.xwiki.rest.model.jaxb.Page;
+import org.xwiki.rest.resources.pages.PageResource;
+import org.xwiki.rest.resources.wikis.WikiBulkResource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Executes a stream of page and object operations in a single request.
+ * <p>
+ * The operations are read, executed and answered one at a time so that neither the request nor the response has to be
+ * held in memory. They are executed in the request thread because the XWiki context is not thread safe. Each saved
+ * page is saved with its own transaction so that the result reported for an operation is never rolled back by a
+ * following one.
+ *
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named("org.xwiki.rest.internal.resources.wikis.WikiBulkResourceImpl")
+public class WikiBulkResourceImpl extends ModifiablePageResource implements WikiBulkResource
+{
+    private static final String ACTION_GET = "get";
+
+    private static final String ACTION_PUT = "put";
+
+    private static final String FIELD_ID = "id";
+
+    private static final String FIELD_ACTION = "action";
+
+    private static final String FIELD_PAGE = "page";
+
+    private static final String FIELD_LANGUAGE = "language";
+
+    private static final String FIELD_CLASS_NAME = "className";
+
+    private static final String FIELD_NUMBER = "number";
+
+    private static final String FIELD_DATA = "data";
+
+    private static final String FIELD_STATUS = "status";
+
+    private static final String FIELD_ENTITY = "entity";
+
+    private static final String FIELD_VERSION = "version";
+
+    private static final String FIELD_ERROR = "error";
+
+    private final ObjectMapper objectMapper =
+        new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Override
+    public StreamingOutput execute(String wikiName, Boolean minorRevision, InputStream operations)
+        throws XWikiRestException
+    {
+        URI baseUri = this.uriInfo.getBaseUri();
+        boolean minor = Boolean.TRUE.equals(minorRevision);
+
+        return output -> execute(wikiName, minor, baseUri, operations, output);
+    }
+
+    private void execute(String wikiName, boolean minorRevision, URI baseUri, InputStream operations,
+        OutputStream output) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(operations, StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String currentWiki = xcontext.getWikiId();
+        try {
+            xcontext.setWikiId(wikiName);
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (StringUtils.isNotBlank(line)) {
+                    ObjectNode result = execute(line, new WikiReference(wikiName), minorRevision, baseUri);
+                    writer.write(this.objectMapper.writeValueAsString(result));
+                    writer.write('\n');
+                    // Send the result right away so that the client can follow the progress.
+                    writer.flush();
+                }
+            }
+        } finally {
+            xcontext.setWikiId(currentWiki);
+        }
+    }
+
+    private ObjectNode execute(String line, WikiReference wikiReference, boolean minorRevision, URI baseUri)
+    {
+        ObjectNode result = this.objectMapper.createObjectNode();
+
+        try {
+            JsonNode operation = this.objectMapper.readTree(line);
+            result.set(FIELD_ID, operation.get(FIELD_ID));
+
+            String action = operation.path(FIELD_ACTION).asText(ACTION_GET);
+            String className = operation.path(FIELD_CLASS_NAME).asText(null);
+            if (ACTION_GET.equals(action)) {
+                Document doc = getDocument(operation, wikiReference, true);
+                if (className == null) {
+                    getPage(doc, operation, baseUri, result);
+                } else {
+                    getObject(doc, className, operation, baseUri, result);
+                }
+            } else if (ACTION_PUT.equals(action)) {
+                Document doc = getDocument(operation, wikiReference, false);
+                if (className == null) {
+                    putPage(doc, operation, minorRevision, result);
+                } else {
+                    putObject(doc, className, operation, minorRevision, baseUri, result);
+                }
+            } else {
+                setError(result, Status.BAD_REQUEST, String.format("Unknown action [%s].", action));
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            setError(result, Status.BAD_REQUEST, ExceptionUtils.getRootCauseMessage(e));
+        } catch (WebApplicationException e) {
+            result.put(FIELD_STATUS, e.getResponse().getStatus());
+        } catch (XWikiException e) {
+            setError(result, e.getCode() == XWikiException.ERROR_XWIKI_ACCESS_DENIED ? Status.FORBIDDEN
+                : Status.INTERNAL_SERVER_ERROR, ExceptionUtils.getRootCauseMessage(e));
+        } catch (Exception e) {
+            // An unexpected failure of one operation should not prevent the execution of the following ones
+            getLogger().error("Failed to execute the bulk operation [{}]", line, e);
+
+            setError(result, Status.INTERNAL_SERVER_ERROR, ExceptionUtils.getRootCauseMessage(e));
+        }
+
+        return result;
+    }
+
+    private Document getDocument(JsonNode operation, WikiReference wikiReference, boolean failIfDoesntExist)
+        throws XWikiException
+    {
+        String page = operation.path(FIELD_PAGE).asText(null);
+        if (page == null) {
+            throw new IllegalArgumentException("The operation has no page.");
+        }
+
+        DocumentReference reference = this.documentReferenceResolver.resolve(page, wikiReference);
+
+        return getDocumentInfo(reference.getWikiReference().getName(),
+            Utils.getSpacesHierarchy(reference.getLastSpaceReference()), reference.getName(),
+            operation.path(FIELD_LANGUAGE).asText(null), null, failIfDoesntExist, !failIfDoesntExist).getDocument();
+    }
+
+    private void getPage(Document doc, JsonNode operation, URI baseUri, ObjectNode result) throws XWikiException
+    {
+        DocumentReference reference = doc.getDocumentReference();
+        URI self = Utils.createURI(baseUri, PageResource.class, reference.getWikiReference().getName(),
+            Utils.getSpacesHierarchy(reference.getLastSpaceReference()), reference.getName());
+        Page page = this.factory.toRestPage(baseUri, self, doc, false, false,
+            operation.path("objects").asBoolean(), false, operation.path("attachments").asBoolean());
+
+        result.put(FIELD_STATUS, Status.OK.getStatusCode());
+        result.set(FIELD_ENTITY, this.objectMapper.valueToTree(page));
+    }
+
+    private void getObject(Document doc, String className, JsonNode operation, URI baseUri, ObjectNode result)
+        throws XWikiException
+    {
+        BaseObject baseObject =
+            Utils.getBaseObject(doc, className, operation.path(FIELD_NUMBER).asInt(), this.componentManager);
+        if (baseObject == null) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+
+        result.put(FIELD_STATUS, Status.OK.getStatusCode());
+        result.set(FIELD_ENTITY,
+            this.objectMapper.valueToTree(this.factory.toRestObject(baseUri, doc, baseObject, false, false)));
+    }
+
+    private void putPage(Document doc, JsonNode operation, boolean minorRevision, ObjectNode result)
+        throws XWikiException, JsonProcessingException
+    {
+        Page page = this.objectMapper.treeToValue(getData(operation), Page.class);
+
+        Response response = putPage(new DocumentInfo(doc, doc.isNew()), page, minorRevision);
+
+        result.put(FIELD_STATUS, response.getStatus());
+        result.put(FIELD_VERSION, doc.getVersion());
+    }
+
+    private void putObject(Document doc, String className, JsonNode operation, boolean minorRevision, URI baseUri,
+        ObjectNode result) throws XWikiException, JsonProcessingException
+    {
+        if (doc.isNew()) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+
+        org.xwiki.rest.model.jaxb.Object restObject =
+            this.objectMapper.treeToValue(getData(operation), org.xwiki.rest.model.jaxb.Object.class);
+
+        com.xpn.xwiki.api.Object xwikiObject = null;
+        if (operation.has(FIELD_NUMBER)) {
+            xwikiObject = doc.getObject(className, operation.get(FIELD_NUMBER).asInt());
+            if (xwikiObject == null) {
+                throw new WebApplicationException(Status.NOT_FOUND);
+            }
+        }
+
+        boolean created = xwikiObject == null;
+        if (created) {
+            xwikiObject = doc.newObject(className);
+        }
+        this.factory.toObject(xwikiObject, restObject);
+
+        doc.save("", minorRevision);
+
+        BaseObject baseObject = Utils.getBaseObject(doc, className, xwikiObject.getNumber(), this.componentManager);
+        result.put(FIELD_STATUS, (created ? Status.CREATED : Status.ACCEPTED).getStatusCode());
+        result.put(FIELD_VERSION, doc.getVersion());
+        result.set(FIELD_ENTITY,
+            this.objectMapper.valueToTree(this.factory.toRestObject(baseUri, doc, baseObject, false, false)));
+    }
+
+    private JsonNode getData(JsonNode operation)
+    {
+        JsonNode data = operation.get(FIELD_DATA);
+        if (data == null || !data.isObject()) {
+            throw new IllegalArgumentException("The operation has no data.");
+        }
+
+        return data;
+    }
+
+    private void setError(ObjectNode result, Status status, String message)
+    {
+        result.put(FIELD_STATUS, status.getStatusCode());
+        result.put(FIELD_ERROR, message);
+    }
+}
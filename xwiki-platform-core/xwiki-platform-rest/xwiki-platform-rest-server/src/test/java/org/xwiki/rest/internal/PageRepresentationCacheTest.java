@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rest.model.jaxb.PageSummary;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.api.Document;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link PageRepresentationCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class PageRepresentationCacheTest
+{
+    @InjectMockComponents
+    private PageRepresentationCache pageRepresentationCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private ModelFactory modelFactory;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @Mock
+    private Cache<Map<String, PageSummary>> cache;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private Document document;
+
+    private URI baseUri;
+
+    @BeforeComponent
+    void configure() throws Exception
+    {
+        when(this.cacheManager.<Map<String, PageSummary>>createNewCache(any())).thenReturn(this.cache);
+    }
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        this.baseUri = new URI("https://localhost/rest/");
+
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getUserReference()).thenReturn(new DocumentReference("wiki", "XWiki", "Alice"));
+        when(this.xcontext.getLocale()).thenReturn(Locale.ENGLISH);
+
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        when(this.serializer.serialize(documentReference)).thenReturn("wiki:Space.Page");
+        when(this.document.getDocumentReference()).thenReturn(documentReference);
+        when(this.document.getLocale()).thenReturn(Locale.ROOT);
+        when(this.document.getVersion()).thenReturn("1.1");
+        when(this.document.getDate()).thenReturn(new Date(42));
+    }
+
+    @Test
+    void getPageSummary() throws Exception
+    {
+        PageSummary pageSummary = new PageSummary();
+        when(this.modelFactory.toRestPageSummary(this.baseUri, this.document, true)).thenReturn(pageSummary);
+
+        assertSame(pageSummary, this.pageRepresentationCache.getPageSummary(this.baseUri, this.document, true));
+
+        ArgumentCaptor<Map<String, PageSummary>> variantsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(this.cache).set(eq("wiki:Space.Page"), variantsCaptor.capture());
+        when(this.cache.get("wiki:Space.Page")).thenReturn(variantsCaptor.getValue());
+
+        assertSame(pageSummary, this.pageRepresentationCache.getPageSummary(this.baseUri, this.document, true));
+        verify(this.modelFactory).toRestPageSummary(this.baseUri, this.document, true);
+
+        // Another version of the page is computed again.
+        when(this.document.getVersion()).thenReturn("1.2");
+        PageSummary newPageSummary = new PageSummary();
+        when(this.modelFactory.toRestPageSummary(this.baseUri, this.document, true)).thenReturn(newPageSummary);
+        assertSame(newPageSummary, this.pageRepresentationCache.getPageSummary(this.baseUri, this.document, true));
+    }
+
+    @Test
+    void getEntityTag()
+    {
+        String entityTag = this.pageRepresentationCache.getEntityTag(this.document, true, "application/json");
+        assertEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, true, "application/json"));
+
+        // The tag depends on the representation variant.
+        assertNotEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, false, "application/json"));
+        assertNotEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, true, "application/xml"));
+
+        // The tag depends on the document version.
+        when(this.document.getVersion()).thenReturn("1.2");
+        assertNotEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, true, "application/json"));
+        when(this.document.getVersion()).thenReturn("1.1");
+
+        // The tag depends on the document date.
+        when(this.document.getDate()).thenReturn(new Date(43));
+        assertNotEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, true, "application/json"));
+        when(this.document.getDate()).thenReturn(new Date(42));
+
+        // The tag depends on the current user.
+        when(this.xcontext.getUserReference()).thenReturn(new DocumentReference("wiki", "XWiki", "Bob"));
+        assertNotEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document, true, "application/json"));
+    }
+
+    @Test
+    void invalidate()
+    {
+        String entityTag = this.pageRepresentationCache.getEntityTag(this.document);
+
+        // All the translations of the page are invalidated.
+        this.pageRepresentationCache.invalidate(new DocumentReference("wiki", "Space", "Page", Locale.FRENCH));
+        verify(this.cache).remove("wiki:Space.Page");
+
+        this.pageRepresentationCache.invalidate();
+        verify(this.cache).removeAll();
+
+        // The tag depends only on the document.
+        assertEquals(entityTag, this.pageRepresentationCache.getEntityTag(this.document));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.model.jaxb.Change;
+import org.xwiki.rest.model.jaxb.Changes;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.xwiki.security.authorization.Right.VIEW;
+
+/**
+ * Unit tests for {@link ChangesResourceImpl}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class ChangesResourceImplTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    @InjectMockComponents
+    private ChangesResourceImpl changesResource;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorizationManager;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Mock
+    private Query revisionsQuery;
+
+    @Mock
+    private Query deletionsQuery;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.xcontextProvider.get()).thenReturn(mock(XWikiContext.class));
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("/xwiki/rest"));
+        ReflectionUtils.setFieldValue(this.changesResource, "uriInfo", uriInfo);
+
+        for (Query query : Arrays.asList(this.revisionsQuery, this.deletionsQuery)) {
+            when(query.bindValue(anyString(), any())).thenReturn(query);
+            when(query.setLimit(anyInt())).thenReturn(query);
+            when(query.setWiki(anyString())).thenReturn(query);
+        }
+    }
+
+    @Test
+    void getChanges() throws Exception
+    {
+        when(this.queryManager.createQuery("select doc.fullName, doc.language, rcs.id.docId, rcs.id.version1, "
+            + "rcs.id.version2, rcs.date, rcs.author, rcs.comment from XWikiRCSNodeInfo as rcs, XWikiDocument as doc "
+            + "where rcs.id.docId = doc.id and rcs.date > :date "
+            + "order by rcs.date, rcs.id.docId, rcs.id.version1, rcs.id.version2", Query.HQL))
+                .thenReturn(this.revisionsQuery);
+        when(this.revisionsQuery.execute()).thenReturn(Arrays.asList(
+            new Object[] {"Space.A", "", 10L, 1, 1, new Timestamp(1000), "XWiki.Alice", "Created"},
+            new Object[] {"Space.B", "fr", 20L, 2, 1, new Timestamp(3000), "XWiki.Bob", ""}));
+
+        when(this.queryManager.createQuery("select ddoc.fullName, ddoc.language, ddoc.id, ddoc.date, ddoc.deleter "
+            + "from XWikiDeletedDocument as ddoc where (ddoc.date > :date or (ddoc.date = :date and ddoc.id > :id)) "
+            + "order by ddoc.date, ddoc.id", Query.HQL)).thenReturn(this.deletionsQuery);
+        when(this.deletionsQuery.execute()).thenReturn(
+            Collections.singletonList(new Object[] {"Space.C", "", 5L, new Timestamp(2000), "XWiki.Carol"}));
+
+        DocumentReference pageA = new DocumentReference("wiki", "Space", "A");
+        when(this.resolver.resolve("Space.A", WIKI)).thenReturn(pageA);
+        when(this.authorizationManager.hasAccess(VIEW, pageA)).thenReturn(true);
+        when(this.serializer.serialize(pageA)).thenReturn("wiki:Space.A");
+        when(this.localSerializer.serialize(pageA.getLastSpaceReference())).thenReturn("Space");
+        DocumentReference pageC = new DocumentReference("wiki", "Space", "C");
+        when(this.resolver.resolve("Space.C", WIKI)).thenReturn(pageC);
+
+        Changes changes = this.changesResource.getChanges("wiki", "", 2, 0L);
+
+        // The deletion of C is not visible but the cursor still moves past it.
+        assertEquals(1, changes.getChanges().size());
+        assertEquals("d.2000.5", changes.getCursor());
+
+        Change change = changes.getChanges().get(0);
+        assertEquals("create", change.getType());
+        assertEquals("wiki:Space.A", change.getPageId());
+        assertEquals("Space", change.getSpace());
+        assertEquals("A", change.getName());
+        assertEquals("1.1", change.getVersion());
+        assertEquals("XWiki.Alice", change.getAuthor());
+        assertEquals("Created", change.getComment());
+        assertEquals(1000, change.getDate().getTimeInMillis());
+        assertEquals("/xwiki/rest/wikis/wiki/spaces/Space/pages/A", change.getLinks().get(0).getHref());
+
+        verify(this.revisionsQuery).bindValue("date", new Date(0));
+        verify(this.revisionsQuery).setLimit(2);
+        verify(this.revisionsQuery).setWiki("wiki");
+        verify(this.deletionsQuery).bindValue("id", Long.MAX_VALUE);
+    }
+
+    @Test
+    void getChangesFromRevisionCursor() throws Exception
+    {
+        when(this.queryManager.createQuery("select doc.fullName, doc.language, rcs.id.docId, rcs.id.version1, "
+            + "rcs.id.version2, rcs.date, rcs.author, rcs.comment from XWikiRCSNodeInfo as rcs, XWikiDocument as doc "
+            + "where rcs.id.docId = doc.id and (rcs.date > :date or (rcs.date = :date and (rcs.id.docId > :docId "
+            + "or (rcs.id.docId = :docId and (rcs.id.version1 > :version1 "
+            + "or (rcs.id.version1 = :version1 and rcs.id.version2 > :version2)))))) "
+            + "order by rcs.date, rcs.id.docId, rcs.id.version1, rcs.id.version2", Query.HQL))
+                .thenReturn(this.revisionsQuery);
+        when(this.queryManager.createQuery("select ddoc.fullName, ddoc.language, ddoc.id, ddoc.date, ddoc.deleter "
+            + "from XWikiDeletedDocument as ddoc where ddoc.date >= :date order by ddoc.date, ddoc.id", Query.HQL))
+                .thenReturn(this.deletionsQuery);
+
+        Changes changes = this.changesResource.getChanges("wiki", "r.1000.-10.1.2", 10, 0L);
+
+        // Nothing new: the client keeps the same cursor.
+        assertEquals(0, changes.getChanges().size());
+        assertEquals("r.1000.-10.1.2", changes.getCursor());
+
+        verify(this.revisionsQuery).bindValue("date", new Date(1000));
+        verify(this.revisionsQuery).bindValue("docId", -10L);
+        verify(this.revisionsQuery).bindValue("version1", 1);
+        verify(this.revisionsQuery).bindValue("version2", 2);
+    }
+
+    @Test
+    void getChangesWithTooManyChangesRequested() throws Exception
+    {
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(this.revisionsQuery);
+
+        this.changesResource.getChanges("wiki", "", 5000, 0L);
+
+        verify(this.revisionsQuery, times(2)).setLimit(1000);
+    }
+
+    @Test
+    void getChangesWithInvalidCursor()
+    {
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+            () -> this.changesResource.getChanges("wiki", "x.1000", 10, 0L));
+        assertEquals(400, exception.getResponse().getStatus());
+    }
+}
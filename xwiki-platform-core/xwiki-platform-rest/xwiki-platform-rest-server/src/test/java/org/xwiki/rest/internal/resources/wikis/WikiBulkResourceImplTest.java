@@ -0,0 +1,153 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.wikis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link WikiBulkResourceImpl}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class WikiBulkResourceImplTest
+{
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private WikiBulkResourceImpl bulkResource;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    private XWikiContext xcontext;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        this.xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWikiId()).thenReturn("xwiki");
+    }
+
+    private String[] execute(String operations) throws Exception
+    {
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("/xwiki/rest"));
+        ReflectionUtils.setFieldValue(this.bulkResource, "uriInfo", uriInfo);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.bulkResource.execute("wiki", false,
+            new ByteArrayInputStream(operations.getBytes(StandardCharsets.UTF_8))).write(output);
+
+        return output.toString(StandardCharsets.UTF_8.name()).split("\n");
+    }
+
+    @Test
+    void executeInvalidOperations() throws Exception
+    {
+        String operations = "not json\n"
+            + "{\"id\": \"2\", \"action\": \"delete\", \"page\": \"Space.Page\"}\n"
+            + "\n"
+            + "{\"id\": 3, \"action\": \"put\"}\n";
+
+        // One result per non blank line, in the same order.
+        String[] results = execute(operations);
+        assertEquals(3, results.length);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode result = objectMapper.readTree(results[0]);
+        assertEquals(400, result.get("status").asInt());
+
+        result = objectMapper.readTree(results[1]);
+        assertEquals("2", result.get("id").asText());
+        assertEquals(400, result.get("status").asInt());
+        assertEquals("Unknown action [delete].", result.get("error").asText());
+
+        result = objectMapper.readTree(results[2]);
+        assertEquals(3, result.get("id").asInt());
+        assertEquals(400, result.get("status").asInt());
+        assertEquals("IllegalArgumentException: The operation has no page.", result.get("error").asText());
+
+        // The operations are executed in the target wiki.
+        verify(this.xcontext).setWikiId("wiki");
+        verify(this.xcontext).setWikiId("xwiki");
+    }
+
+    @Test
+    void executeWhenOperationFailsUnexpectedly() throws Exception
+    {
+        when(this.documentReferenceResolver.resolve("Space.Page", new WikiReference("wiki")))
+            .thenThrow(new IllegalStateException("unexpected"));
+
+        String operations = "{\"id\": 1, \"page\": \"Space.Page\"}\n"
+            + "{\"id\": 2, \"action\": \"delete\", \"page\": \"Space.Page\"}\n";
+
+        String[] results = execute(operations);
+        assertEquals(2, results.length);
+
+        // The failure is reported for the operation and the following operations are still executed
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode result = objectMapper.readTree(results[0]);
+        assertEquals(1, result.get("id").asInt());
+        assertEquals(500, result.get("status").asInt());
+        assertEquals("IllegalStateException: unexpected", result.get("error").asText());
+
+        result = objectMapper.readTree(results[1]);
+        assertEquals(2, result.get("id").asInt());
+        assertEquals(400, result.get("status").asInt());
+
+        assertEquals("Failed to execute the bulk operation [{\"id\": 1, \"page\": \"Space.Page\"}]",
+            this.logCapture.getMessage(0));
+    }
+}
@@ -98,6 +98,11 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The callback to run.
+         */
+        public Runnable callback;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -118,6 +123,15 @@ public IndexQueueEntry(String deleteQuery, IndexOperation operation)
             this.operation = operation;
         }
 
+        /**
+         * @param callback the callback to run once the previous operations are committed
+         */
+        public IndexQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+            this.operation = IndexOperation.CALLBACK;
+        }
+
         @Override
         public String toString()
         {
@@ -130,6 +144,9 @@ public String toString()
                 case DELETE:
                     str = "DELETE " + this.deleteQuery;
                     break;
+                case CALLBACK:
+                    str = "CALLBACK";
+                    break;
                 case STOP:
                     str = "STOP";
                     break;
@@ -164,6 +181,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The callback to run.
+         */
+        public Runnable callback;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -175,6 +197,15 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param callback the callback to run once the previous operations are committed
+         */
+        public ResolveQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+            this.operation = IndexOperation.CALLBACK;
+        }
     }
 
     /**
@@ -217,6 +248,8 @@ public void runInternal()
                         for (EntityReference reference : references) {
                             indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
                         }
+                    } else if (queueEntry.operation == IndexOperation.CALLBACK) {
+                        indexQueue.put(new IndexQueueEntry(queueEntry.callback));
                     } else {
                         if (queueEntry.recurse) {
                             indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
@@ -408,6 +441,18 @@ private boolean processBatch(IndexQueueEntry queueEntry)
 
             IndexOperation operation = batchEntry.operation;
 
+            if (IndexOperation.CALLBACK.equals(operation)) {
+                // Make sure the operations queued before the callback are visible to queries before running it.
+                if (this.batchSize > 0) {
+                    commit();
+                    length = 0;
+                }
+
+                runCallback(batchEntry);
+
+                continue;
+            }
+
             // For the current contiguous operations queue, group the changes
             try {
                 ExecutionContext executionContext = new ExecutionContext();
@@ -453,6 +498,15 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    private void runCallback(IndexQueueEntry queueEntry)
+    {
+        try {
+            queueEntry.callback.run();
+        } catch (Throwable e) {
+            this.logger.error("Failed to run callback [{}]", queueEntry.callback, e);
+        }
+    }
+
     /**
      * Commit.
      */
@@ -541,6 +595,19 @@ public void delete(EntityReference reference, boolean recurse)
         addToQueue(reference, recurse, IndexOperation.DELETE);
     }
 
+    @Override
+    public void afterCommit(Runnable callback)
+    {
+        if (!this.disposed) {
+            // Go through the resolve queue to keep the order with the operations added before.
+            try {
+                this.resolveQueue.put(new ResolveQueueEntry(callback));
+            } catch (InterruptedException e) {
+                this.logger.error("Failed to add callback [{}] to Solr indexing queue", callback, e);
+            }
+        }
+    }
+
     /**
      * Add a list of references to the index queue, all having the same operation.
      * 
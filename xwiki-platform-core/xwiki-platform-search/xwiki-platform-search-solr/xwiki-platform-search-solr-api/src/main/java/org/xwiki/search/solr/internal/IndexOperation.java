@@ -37,6 +37,13 @@
      */
     DELETE,
 
+    /**
+     * Run a callback once the operations queued before it have been committed.
+     * 
+     * @since 14.9RC1
+     */
+    CALLBACK,
+
     // General operations
 
     /**
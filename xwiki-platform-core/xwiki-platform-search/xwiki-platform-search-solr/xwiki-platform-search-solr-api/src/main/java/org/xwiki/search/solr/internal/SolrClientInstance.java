@@ -19,13 +19,19 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.search.solr.Solr;
 import org.xwiki.search.solr.SolrException;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 
 /**
  * A wrapper around the new {@link Solr} API for the search core.
@@ -42,6 +48,8 @@ public class SolrClientInstance extends AbstractSolrInstance
      */
     public static final String CORE_NAME = "search";
 
+    private static final String SOLR_FIELD_NAME = "name";
+
     @Inject
     private Solr solr;
 
@@ -53,5 +61,34 @@ public void initialize() throws InitializationException
         } catch (SolrException e) {
             throw new InitializationException("Failed to create the solr client for core [search]", e);
         }
+
+        migrateSchema();
+    }
+
+    /**
+     * The search core is only recreated when the version of Lucene changes, so an existing core keeps the schema it
+     * was created with. Add the fields introduced since then, which would otherwise be silently ignored.
+     */
+    private void migrateSchema()
+    {
+        try {
+            boolean found = new SchemaRequest.Fields().process(this.server).getFields().stream()
+                .anyMatch(field -> FieldUtils.SECURITY_SCOPE.equals(field.get(SOLR_FIELD_NAME)));
+            if (!found) {
+                this.logger.info("Adding the field [{}] to the schema of the Solr search core",
+                    FieldUtils.SECURITY_SCOPE);
+
+                Map<String, Object> field = new HashMap<>();
+                field.put(SOLR_FIELD_NAME, FieldUtils.SECURITY_SCOPE);
+                field.put("type", DefaultSolrUtils.SOLR_TYPE_STRING);
+                field.put("indexed", true);
+                field.put("stored", true);
+                new SchemaRequest.AddField(field).process(this.server);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to add the field [{}] to the schema of the Solr search core. Search results will"
+                + " be checked one by one. Root cause is [{}].", FieldUtils.SECURITY_SCOPE,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
     }
 }
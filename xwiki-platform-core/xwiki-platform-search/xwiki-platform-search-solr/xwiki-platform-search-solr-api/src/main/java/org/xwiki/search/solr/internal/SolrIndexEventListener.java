@@ -36,9 +36,15 @@
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.SpaceReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 
 import com.xpn.xwiki.XWikiContext;
@@ -91,6 +97,19 @@ public class SolrIndexEventListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
+    @Inject
+    private SolrSecurityScopeUtils securityScopeUtils;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private SpaceReferenceResolver<String> spaceResolver;
+
     @Override
     public List<Event> getEvents()
     {
@@ -113,6 +132,10 @@ public void onEvent(Event event, Object source, Object data)
                     // Index all the translations of a document when its default translation has been updated because
                     // the default translation holds meta data shared by all translations (attachments, objects).
                     indexTranslations(document, (XWikiContext) data);
+
+                    XWikiDocument previousDocument = document.getOriginalDocument();
+                    indexDocumentSecurityScope(document, previousDocument);
+                    indexSpaceSecurityScope(document, previousDocument);
                 } else {
                     // Index only the updated translation.
                     this.solrIndexer.get().index(document.getDocumentReferenceWithLocale(), false);
@@ -127,6 +150,8 @@ public void onEvent(Event event, Object source, Object data)
                     indexTranslations(document, (XWikiContext) data);
                 } else {
                     this.solrIndexer.get().index(document.getDocumentReferenceWithLocale(), false);
+
+                    indexSpaceSecurityScope(document, null);
                 }
             } else if (event instanceof DocumentDeletedEvent) {
                 XWikiDocument document = ((XWikiDocument) source).getOriginalDocument();
@@ -142,6 +167,10 @@ public void onEvent(Event event, Object source, Object data)
                 // See XWIKI-10003: Cache problem with Solr facet filter results count
                 this.solrIndexer.get().delete(
                     new DocumentReference(document.getDocumentReference(), document.getRealLocale()), false);
+
+                if (Locale.ROOT.equals(document.getLocale())) {
+                    indexSpaceSecurityScope((XWikiDocument) source, document);
+                }
             } else if (event instanceof AttachmentUpdatedEvent || event instanceof AttachmentAddedEvent) {
                 XWikiDocument document = (XWikiDocument) source;
                 String fileName = ((AbstractAttachmentEvent) event).getName();
@@ -181,6 +210,70 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    private boolean hasRules(XWikiDocument document)
+    {
+        return document != null && this.securityScopeUtils.hasRules(document);
+    }
+
+    private boolean hasGlobalRules(XWikiDocument document)
+    {
+        return document != null && this.securityScopeUtils.hasGlobalRules(document);
+    }
+
+    /**
+     * The security scope of the entities of a document changes when the document gets its first rights object or
+     * loses its last one. Only the document rows are updated when a document is saved so we need to also update its
+     * objects and attachments rows in that case. The indexed scopes are not trusted until the reindex is committed.
+     * 
+     * @param document the new version of the document
+     * @param previousDocument the previous version of the document
+     */
+    private void indexDocumentSecurityScope(XWikiDocument document, XWikiDocument previousDocument)
+    {
+        if (hasRules(document) != hasRules(previousDocument)) {
+            SolrIndexer indexer = this.solrIndexer.get();
+            this.securityScopeUtils.startScopeChange();
+            try {
+                indexer.index(document.getDocumentReference(), true);
+            } finally {
+                indexer.afterCommit(this.securityScopeUtils::endScopeChange);
+            }
+        }
+    }
+
+    /**
+     * The security scope of all the entities located in a space and its children changes when the preferences of the
+     * space get their first global rights object or lose their last one.
+     * 
+     * @param document the new version of the document
+     * @param previousDocument the previous version of the document
+     * @throws QueryException when failing to search the nested spaces
+     */
+    private void indexSpaceSecurityScope(XWikiDocument document, XWikiDocument previousDocument)
+        throws QueryException
+    {
+        if (hasGlobalRules(document) != hasGlobalRules(previousDocument)) {
+            SpaceReference spaceReference = document.getDocumentReference().getLastSpaceReference();
+            String localSpaceReference = this.localSerializer.serialize(spaceReference);
+
+            Query query = this.queryManager.createQuery("select space.reference from XWikiSpace space"
+                + " where space.reference = :space or space.reference like :prefix", Query.HQL);
+            query.setWiki(spaceReference.getWikiReference().getName());
+            query.bindValue("space", localSpaceReference);
+            query.bindValue("prefix").literal(localSpaceReference + '.').anyChars();
+
+            SolrIndexer indexer = this.solrIndexer.get();
+            this.securityScopeUtils.startScopeChange();
+            try {
+                for (String space : query.<String>execute()) {
+                    indexer.index(this.spaceResolver.resolve(space, spaceReference.getWikiReference()), true);
+                }
+            } finally {
+                indexer.afterCommit(this.securityScopeUtils::endScopeChange);
+            }
+        }
+    }
+
     /**
      * Helper method to index all the translations of a document. We don't rely on the {@code recurse} parameter of the
      * {@link SolrIndexer#index(org.xwiki.model.reference.EntityReference, boolean)} because we want to update only the
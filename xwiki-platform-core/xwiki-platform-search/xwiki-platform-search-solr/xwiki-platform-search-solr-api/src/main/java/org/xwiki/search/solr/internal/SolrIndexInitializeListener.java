@@ -28,17 +28,22 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.slf4j.Logger;
 import org.xwiki.bridge.event.ApplicationReadyEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
+import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.IndexerRequest;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 import org.xwiki.wiki.manager.WikiManagerException;
@@ -61,6 +66,9 @@ public class SolrIndexInitializeListener implements EventListener
 
     private static final List<String> REQUEST_DEFAULT_ID = Arrays.asList("solr", "indexer");
 
+    private static final List<String> REQUEST_SECURITY_SCOPE_ID =
+        Arrays.asList("solr", "indexer", FieldUtils.SECURITY_SCOPE);
+
     /**
      * Logging framework.
      */
@@ -75,6 +83,9 @@ public class SolrIndexInitializeListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
+    @Inject
+    private Provider<SolrInstance> solrInstance;
+
     @Inject
     private SolrConfiguration configuration;
 
@@ -99,6 +110,20 @@ public String getName()
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        if (event instanceof ApplicationReadyEvent && isSecurityScopeMissing()) {
+            // The entities indexed before the security scope was introduced need to be reindexed. The synchronization
+            // is not enough because it only reindexes the documents which were modified.
+            IndexerRequest request = new IndexerRequest();
+            request.setId(REQUEST_SECURITY_SCOPE_ID);
+            request.setOverwrite(true);
+
+            try {
+                this.solrIndexer.get().startIndex(request);
+            } catch (SolrIndexerException e) {
+                this.logger.error("Failed to start the Solr reindex of the security scopes", e);
+            }
+        }
+
         if (this.configuration.synchronizeAtStartup()) {
             SolrConfiguration.SynchronizeAtStartupMode startupMode =
                 this.configuration.synchronizeAtStartupMode();
@@ -137,4 +162,21 @@ public void onEvent(Event event, Object source, Object data)
             }
         }
     }
+
+    private boolean isSecurityScopeMissing()
+    {
+        SolrQuery query = new SolrQuery("*:*");
+        query.addFilterQuery(FieldUtils.TYPE + ':' + EntityType.DOCUMENT.name());
+        query.addFilterQuery('-' + FieldUtils.SECURITY_SCOPE + ":[* TO *]");
+        query.setRows(0);
+
+        try {
+            return this.solrInstance.get().query(query).getResults().getNumFound() > 0;
+        } catch (Exception e) {
+            this.logger.warn("Failed to check if the security scopes are indexed. Root cause is [{}].",
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return false;
+        }
+    }
 }
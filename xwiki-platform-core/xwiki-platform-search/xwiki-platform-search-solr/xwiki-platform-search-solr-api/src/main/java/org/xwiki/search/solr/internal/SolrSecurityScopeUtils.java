@@ -0,0 +1,191 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Compute the security scope indexed with each entity. The security scope is the closest entity in the hierarchy of
+ * the indexed entity which holds access rules: the document itself when it has rights objects, then the closest space
+ * with global rights objects in its preferences and finally the wiki. Two entities sharing the same space or wiki scope
+ * are thus covered by exactly the same rules, which allows checking view right once per scope at query time instead of
+ * once per result. The scope does not depend on the users or groups targeted by the rules so it does not have to be
+ * updated when the rules or the group members change, only when a scope appears or disappears.
+ * <p>
+ * Until the entities impacted by a scope change have been reindexed, the indexed scopes can't be trusted and each
+ * result has to be checked on its own.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = SolrSecurityScopeUtils.class)
+@Singleton
+public class SolrSecurityScopeUtils
+{
+    /**
+     * The name of the document holding the rights of a space.
+     */
+    public static final String SPACE_PREFERENCES = "WebPreferences";
+
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final LocalDocumentReference RIGHTS_CLASS = new LocalDocumentReference(XWIKI_SPACE, "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiGlobalRights");
+
+    private static final char TYPE_SEPARATOR = ':';
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private EntityReferenceResolver<String> resolver;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    private final AtomicInteger pendingScopeChanges = new AtomicInteger();
+
+    /**
+     * @param document the default translation of the document holding the indexed entity
+     * @return the security scope to index
+     * @throws XWikiException when failing to load the preferences of a parent space
+     */
+    public String getScope(XWikiDocument document) throws XWikiException
+    {
+        if (hasRules(document)) {
+            return FieldUtils.SECURITY_SCOPE_DOCUMENT;
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        // Start with the closest space
+        List<SpaceReference> spaces = document.getDocumentReference().getSpaceReferences();
+        for (int i = spaces.size() - 1; i >= 0; i--) {
+            SpaceReference space = spaces.get(i);
+            XWikiDocument preferences =
+                xcontext.getWiki().getDocument(new DocumentReference(SPACE_PREFERENCES, space), xcontext);
+            if (hasGlobalRules(preferences)) {
+                return serialize(space);
+            }
+        }
+
+        return serialize(document.getDocumentReference().getWikiReference());
+    }
+
+    /**
+     * @param scope the indexed security scope
+     * @return the reference of the entity holding the rules, or {@code null} if the scope does not designate a space
+     *         or a wiki
+     */
+    public EntityReference resolveScope(String scope)
+    {
+        String type = StringUtils.substringBefore(scope, TYPE_SEPARATOR);
+
+        EntityType entityType;
+        if (EntityType.SPACE.getLowerCase().equals(type)) {
+            entityType = EntityType.SPACE;
+        } else if (EntityType.WIKI.getLowerCase().equals(type)) {
+            entityType = EntityType.WIKI;
+        } else {
+            return null;
+        }
+
+        return this.resolver.resolve(StringUtils.substringAfter(scope, TYPE_SEPARATOR), entityType);
+    }
+
+    /**
+     * @param document the document
+     * @return {@code true} if the document holds rights objects applying to itself
+     */
+    public boolean hasRules(XWikiDocument document)
+    {
+        return hasObjects(document, RIGHTS_CLASS);
+    }
+
+    /**
+     * @param document the document
+     * @return {@code true} if the document is the preferences of a space and holds rights objects applying to the space
+     */
+    public boolean hasGlobalRules(XWikiDocument document)
+    {
+        return SPACE_PREFERENCES.equals(document.getDocumentReference().getName())
+            && hasObjects(document, GLOBAL_RIGHTS_CLASS);
+    }
+
+    /**
+     * Indicate that the reindex of the entities impacted by a scope change has been queued.
+     */
+    public void startScopeChange()
+    {
+        this.pendingScopeChanges.incrementAndGet();
+    }
+
+    /**
+     * Indicate that the entities impacted by a scope change have been reindexed.
+     */
+    public void endScopeChange()
+    {
+        this.pendingScopeChanges.decrementAndGet();
+    }
+
+    /**
+     * @return {@code true} if the indexed security scopes are up to date, {@code false} if some entities are waiting to
+     *         be reindexed after a scope change
+     */
+    public boolean isIndexedScopeReliable()
+    {
+        return this.pendingScopeChanges.get() == 0;
+    }
+
+    private boolean hasObjects(XWikiDocument document, LocalDocumentReference classReference)
+    {
+        List<BaseObject> objects = document.getXObjects(classReference);
+
+        return objects != null && objects.stream().anyMatch(object -> object != null);
+    }
+
+    private String serialize(EntityReference reference)
+    {
+        return reference.getType().getLowerCase() + TYPE_SEPARATOR + this.serializer.serialize(reference);
+    }
+}
@@ -248,6 +248,22 @@
      */
     public static final String HIDDEN = "hidden";
 
+    /**
+     * The entity holding the access rules that apply to the indexed entity (the closest space with global rights or
+     * the wiki), or {@link #SECURITY_SCOPE_DOCUMENT} when the owning document has its own rights.
+     *
+     * @since 14.9RC1
+     */
+    public static final String SECURITY_SCOPE = "security_scope";
+
+    /**
+     * The {@link #SECURITY_SCOPE} value used for entities whose owning document has its own rights and which thus need
+     * to be checked one by one.
+     *
+     * @since 14.9RC1
+     */
+    public static final String SECURITY_SCOPE_DOCUMENT = "document";
+
     /**
      * Document score, not an actual field. It's only computed at query time.
      */
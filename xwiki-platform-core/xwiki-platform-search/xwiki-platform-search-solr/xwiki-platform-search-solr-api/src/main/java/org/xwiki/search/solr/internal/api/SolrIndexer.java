@@ -55,6 +55,15 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Add a callback to the queue, to be executed once all the operations added to the queue before it have been
+     * committed to the index.
+     * 
+     * @param callback the callback to execute
+     * @since 14.9RC1
+     */
+    void afterCommit(Runnable callback);
+
     /**
      * @return the number of element in the index/delete queue
      */
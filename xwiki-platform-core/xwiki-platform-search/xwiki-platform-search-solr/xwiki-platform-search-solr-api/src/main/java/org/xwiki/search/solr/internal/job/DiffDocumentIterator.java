@@ -108,6 +108,16 @@ public boolean hasNext()
         return previous.hasNext() || next.hasNext();
     }
 
+    @Override
+    public void close()
+    {
+        try {
+            previous.close();
+        } finally {
+            next.close();
+        }
+    }
+
     @Override
     public Pair<DocumentReference, Action> next()
     {
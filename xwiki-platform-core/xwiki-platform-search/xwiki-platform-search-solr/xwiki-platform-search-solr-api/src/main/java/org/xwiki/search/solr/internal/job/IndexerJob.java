@@ -114,7 +114,7 @@ private void updateSolrIndex()
 
         this.progressManager.pushLevelProgress(2, this);
 
-        try {
+        try (iterator) {
             // Calculate index progress size
 
             this.progressManager.startStep(this);
@@ -44,6 +44,7 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.search.solr.internal.SolrSearchCoreUtils;
+import org.xwiki.search.solr.internal.SolrSecurityScopeUtils;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.tika.internal.TikaUtils;
@@ -122,6 +123,14 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected SolrLinkSerializer linkSerializer;
 
+    /**
+     * Used to compute the security scope of the indexed entities.
+     * 
+     * @since 14.9RC1
+     */
+    @Inject
+    protected SolrSecurityScopeUtils securityScopeUtils;
+
     private int shortTextLimit = -1;
 
     /**
@@ -253,6 +262,9 @@ protected boolean setDocumentFields(DocumentReference documentReference, SolrInp
 
         solrDocument.setField(FieldUtils.HIDDEN, originalDocument.isHidden());
 
+        // Allow the query executor to check view right once per group of entities sharing the same access rules.
+        solrDocument.setField(FieldUtils.SECURITY_SCOPE, this.securityScopeUtils.getScope(originalDocument));
+
         solrDocument.setField(FieldUtils.WIKI, documentReference.getWikiReference().getName());
         solrDocument.setField(FieldUtils.NAME, documentReference.getName());
 
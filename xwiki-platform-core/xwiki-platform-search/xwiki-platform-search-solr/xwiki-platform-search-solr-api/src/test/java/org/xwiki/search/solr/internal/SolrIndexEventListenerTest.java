@@ -25,11 +25,19 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.SpaceReferenceResolver;
 import org.xwiki.observation.EventListener;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.query.QueryParameter;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
@@ -37,7 +45,11 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -107,4 +119,49 @@ public void onDocumentDefaultTranslationUpdated() throws Exception
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.FRENCH), false);
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.GERMAN), false);
     }
+
+    @Test
+    public void onSpacePreferencesRightsAdded() throws Exception
+    {
+        SolrSecurityScopeUtils scopeUtils = this.mocker.getInstance(SolrSecurityScopeUtils.class);
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        SpaceReferenceResolver<String> spaceResolver =
+            this.mocker.getInstance(new DefaultParameterizedType(null, SpaceReferenceResolver.class, String.class));
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+
+        XWikiDocument previousPreferences = mock(XWikiDocument.class);
+        XWikiDocument preferences = mock(XWikiDocument.class);
+        when(preferences.getLocale()).thenReturn(Locale.ROOT);
+        when(preferences.getOriginalDocument()).thenReturn(previousPreferences);
+        DocumentReference preferencesReference = new DocumentReference("wiki", "Space", "WebPreferences");
+        when(preferences.getDocumentReference()).thenReturn(preferencesReference);
+        when(scopeUtils.hasGlobalRules(preferences)).thenReturn(true);
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery(anyString(), any())).thenReturn(query);
+        when(query.bindValue(anyString())).thenReturn(mock(QueryParameter.class, RETURNS_SELF));
+        when(query.<String>execute()).thenReturn(Arrays.asList("Space", "Space.Child"));
+        SpaceReference spaceReference = new SpaceReference("wiki", "Space");
+        when(spaceResolver.resolve("Space", preferencesReference.getWikiReference())).thenReturn(spaceReference);
+        SpaceReference childReference = new SpaceReference("Child", spaceReference);
+        when(spaceResolver.resolve("Space.Child", preferencesReference.getWikiReference())).thenReturn(childReference);
+
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), preferences, xcontext);
+
+        verify(this.indexer).index(preferencesReference, false);
+        verify(query).setWiki("wiki");
+
+        // The indexed scopes are not trusted until the nested spaces are reindexed.
+        InOrder inOrder = inOrder(scopeUtils, this.indexer);
+        inOrder.verify(scopeUtils).startScopeChange();
+        inOrder.verify(this.indexer).index(spaceReference, true);
+        inOrder.verify(this.indexer).index(childReference, true);
+        ArgumentCaptor<Runnable> callback = ArgumentCaptor.forClass(Runnable.class);
+        inOrder.verify(this.indexer).afterCommit(callback.capture());
+        verify(scopeUtils, never()).endScopeChange();
+
+        callback.getValue().run();
+        verify(scopeUtils).endScopeChange();
+    }
 }
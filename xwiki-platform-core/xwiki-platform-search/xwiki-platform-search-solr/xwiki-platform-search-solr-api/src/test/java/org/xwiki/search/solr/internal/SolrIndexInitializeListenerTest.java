@@ -23,6 +23,8 @@
 
 import javax.inject.Provider;
 
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.bridge.event.ApplicationReadyEvent;
@@ -32,6 +34,7 @@
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
+import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.IndexerRequest;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
@@ -64,6 +67,12 @@
     @MockComponent
     private SolrIndexer solrIndexer;
 
+    @MockComponent
+    private Provider<SolrInstance> solrInstanceProvider;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
     @MockComponent
     private SolrConfiguration configuration;
 
@@ -73,10 +82,33 @@
     @MockComponent
     private WikiDescriptorManager wikiDescriptorManager;
 
+    private SolrDocumentList documentsWithoutScope = new SolrDocumentList();
+
     @BeforeEach
-    void setup()
+    void setup() throws Exception
     {
         when(solrIndexerProvider.get()).thenReturn(solrIndexer);
+        when(this.solrInstanceProvider.get()).thenReturn(this.solrInstance);
+
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(this.documentsWithoutScope);
+        when(this.solrInstance.query(any())).thenReturn(response);
+    }
+
+    @Test
+    void onEventApplicationReadyWithoutSecurityScope() throws SolrIndexerException
+    {
+        when(this.configuration.synchronizeAtStartup()).thenReturn(false);
+        this.solrIndexInitializeListener.onEvent(new ApplicationReadyEvent(), null, null);
+        verify(this.solrIndexer, never()).startIndex(any());
+
+        // Documents indexed before the security scope was introduced.
+        this.documentsWithoutScope.setNumFound(42);
+        this.solrIndexInitializeListener.onEvent(new ApplicationReadyEvent(), null, null);
+        IndexerRequest indexerRequest = new IndexerRequest();
+        indexerRequest.setId(Arrays.asList("solr", "indexer", "security_scope"));
+        indexerRequest.setOverwrite(true);
+        verify(this.solrIndexer).startIndex(indexerRequest);
     }
 
     @Test
@@ -0,0 +1,153 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SolrSecurityScopeUtils}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ReferenceComponentList
+class SolrSecurityScopeUtilsTest
+{
+    private static final LocalDocumentReference RIGHTS_CLASS = new LocalDocumentReference("XWiki", "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference("XWiki", "XWikiGlobalRights");
+
+    @InjectMockComponents
+    private SolrSecurityScopeUtils scopeUtils;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+
+        mockPreferences(new SpaceReference("wiki", "A"));
+        mockPreferences(new SpaceReference("wiki", Arrays.asList("A", "B")));
+    }
+
+    private XWikiDocument mockDocument(DocumentReference reference)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+
+        return document;
+    }
+
+    private XWikiDocument mockPreferences(SpaceReference spaceReference) throws Exception
+    {
+        DocumentReference reference = new DocumentReference("WebPreferences", spaceReference);
+        XWikiDocument preferences = mockDocument(reference);
+        when(this.xwiki.getDocument(reference, this.xcontext)).thenReturn(preferences);
+
+        return preferences;
+    }
+
+    @Test
+    void getScopeWithDocumentRights() throws Exception
+    {
+        XWikiDocument document = mockDocument(new DocumentReference("wiki", Arrays.asList("A", "B"), "Page"));
+        when(document.getXObjects(RIGHTS_CLASS)).thenReturn(Arrays.asList(null, new BaseObject()));
+
+        assertEquals(FieldUtils.SECURITY_SCOPE_DOCUMENT, this.scopeUtils.getScope(document));
+    }
+
+    @Test
+    void getScopeWithSpaceRights() throws Exception
+    {
+        XWikiDocument document = mockDocument(new DocumentReference("wiki", Arrays.asList("A", "B"), "Page"));
+        when(document.getXObjects(RIGHTS_CLASS)).thenReturn(Arrays.asList((BaseObject) null));
+
+        XWikiDocument preferences = mockPreferences(new SpaceReference("wiki", "A"));
+        when(preferences.getXObjects(GLOBAL_RIGHTS_CLASS)).thenReturn(Collections.singletonList(new BaseObject()));
+
+        String scope = this.scopeUtils.getScope(document);
+
+        assertEquals("space:wiki:A", scope);
+        assertEquals(new SpaceReference("wiki", "A"), this.scopeUtils.resolveScope(scope));
+    }
+
+    @Test
+    void getScopeWithoutRights() throws Exception
+    {
+        XWikiDocument document = mockDocument(new DocumentReference("wiki", Arrays.asList("A", "B"), "Page"));
+
+        String scope = this.scopeUtils.getScope(document);
+
+        assertEquals("wiki:wiki", scope);
+        assertEquals(new WikiReference("wiki"), this.scopeUtils.resolveScope(scope));
+        assertNull(this.scopeUtils.resolveScope(FieldUtils.SECURITY_SCOPE_DOCUMENT));
+    }
+
+    @Test
+    void isIndexedScopeReliable()
+    {
+        assertTrue(this.scopeUtils.isIndexedScopeReliable());
+
+        this.scopeUtils.startScopeChange();
+        this.scopeUtils.startScopeChange();
+        assertFalse(this.scopeUtils.isIndexedScopeReliable());
+
+        this.scopeUtils.endScopeChange();
+        assertFalse(this.scopeUtils.isIndexedScopeReliable());
+
+        this.scopeUtils.endScopeChange();
+        assertTrue(this.scopeUtils.isIndexedScopeReliable());
+    }
+}
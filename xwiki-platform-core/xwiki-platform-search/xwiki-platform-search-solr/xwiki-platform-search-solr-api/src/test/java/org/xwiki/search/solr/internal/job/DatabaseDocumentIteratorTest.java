@@ -26,6 +26,7 @@
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.inject.Named;
 
@@ -49,7 +50,6 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -105,14 +105,11 @@ void sizeWithException() throws Exception
     @Test
     void iterateAllWikis() throws Exception
     {
-        Query emptyQuery = mock(Query.class);
-        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
-
         Query chessQuery = mock(Query.class);
-        when(chessQuery.setOffset(0)).thenReturn(chessQuery);
-        when(chessQuery.setOffset(100)).thenReturn(emptyQuery);
-        when(chessQuery.execute()).thenReturn(Arrays.asList(new Object[] { "Blog.Code", "WebHome", "", "3.2" },
-            new Object[] { "Main", "Welcome", "en", "1.1" }, new Object[] { "XWiki.Syntax", "Links", "fr", "2.5" }));
+        Runnable chessCloseHandler = mock(Runnable.class);
+        when(chessQuery.stream()).thenReturn(Stream.of(new Object[] { "Blog.Code", "WebHome", "", "3.2" },
+            new Object[] { "Main", "Welcome", "en", "1.1" }, new Object[] { "XWiki.Syntax", "Links", "fr", "2.5" })
+            .onClose(chessCloseHandler));
 
         DocumentReference chessBlogCodeWebHome =
             createDocumentReference("chess", Arrays.asList("Blog", "Code"), "WebHome", null);
@@ -122,9 +119,7 @@ void iterateAllWikis() throws Exception
             createDocumentReference("chess", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
 
         Query tennisQuery = mock(Query.class);
-        when(tennisQuery.setOffset(0)).thenReturn(tennisQuery);
-        when(tennisQuery.setOffset(100)).thenReturn(emptyQuery);
-        when(tennisQuery.execute()).thenReturn(Arrays.asList(new Object[] { "Main", "Welcome", "en", "2.1" },
+        when(tennisQuery.stream()).thenReturn(Stream.of(new Object[] { "Main", "Welcome", "en", "2.1" },
             new Object[] { "XWiki.Syntax", "Links", "fr", "1.3" }));
 
         DocumentReference tennisMainWelcome =
@@ -133,7 +128,6 @@ void iterateAllWikis() throws Exception
             createDocumentReference("tennis", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
 
         Query query = mock(Query.class);
-        when(query.setLimit(anyInt())).thenReturn(query);
         when(query.getNamedParameters()).thenReturn(Collections.emptyMap());
         when(query.setWiki("chess")).thenReturn(chessQuery);
         when(query.setWiki("tennis")).thenReturn(tennisQuery);
@@ -171,6 +165,9 @@ void iterateAllWikis() throws Exception
         expectedResults.add(new ImmutablePair<>(tennisXWikiSyntaxLinks, "1.3"));
 
         assertEquals(expectedResults, actualResults);
+
+        // The results of a wiki are closed as soon as they have been iterated
+        verify(chessCloseHandler).run();
     }
 
     @Test
@@ -178,15 +175,9 @@ void iterateOneWiki() throws Exception
     {
         DocumentReference rootReference = createDocumentReference("gang", Arrays.asList("A", "B"), "C", null);
 
-        Query emptyQuery = mock(Query.class);
-        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
-
         Query query = mock(Query.class);
-        when(query.setLimit(anyInt())).thenReturn(query);
         when(query.setWiki(rootReference.getWikiReference().getName())).thenReturn(query);
-        when(query.setOffset(0)).thenReturn(query);
-        when(query.setOffset(100)).thenReturn(emptyQuery);
-        when(query.execute()).thenReturn(Collections.singletonList(new Object[] { "A.B", "C", "de", "3.1" }));
+        when(query.stream()).thenReturn(Stream.<Object[]>of(new Object[] { "A.B", "C", "de", "3.1" }));
 
         Map<String, Object> namedParameters = new HashMap();
         namedParameters.put("space", "A.B");
@@ -55,6 +55,7 @@
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.search.solr.internal.SolrSearchCoreUtils;
+import org.xwiki.search.solr.internal.SolrSecurityScopeUtils;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrFieldNameEncoder;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
@@ -130,6 +131,9 @@
     @MockComponent
     private SolrFieldNameEncoder fieldNameEncoder;
 
+    @MockComponent
+    private SolrSecurityScopeUtils securityScopeUtils;
+
     @MockComponent
     @Named("document")
     private SolrReferenceResolver documentSolrReferenceResolver;
@@ -203,6 +207,9 @@ void getSimpleDocument() throws Exception
         String id = "wiki:Space.Name_" + Locale.ROOT.toString();
         when(documentSolrReferenceResolver.getId(documentReference)).thenReturn(id);
 
+        // Security scope
+        when(this.securityScopeUtils.getScope(this.document)).thenReturn("space:wiki:Path");
+
         // Creator.
         UserReference creatorUserReference = mock(UserReference.class);
         when(this.documentAuthors.getCreator()).thenReturn(creatorUserReference);
@@ -301,6 +308,7 @@ public Void answer(InvocationOnMock invocation)
         assertTrue(
             actualLocales.size() == 2 && actualLocales.contains("") && actualLocales.contains(Locale.US.toString()));
         assertEquals(this.document.isHidden(), solrDocument.getFieldValue(FieldUtils.HIDDEN));
+        assertEquals("space:wiki:Path", solrDocument.getFieldValue(FieldUtils.SECURITY_SCOPE));
         assertEquals(EntityType.DOCUMENT.name(), solrDocument.getFieldValue(FieldUtils.TYPE));
 
         assertEquals("Path.To.Page.WebHome", solrDocument.getFieldValue(FieldUtils.FULLNAME));
@@ -19,11 +19,16 @@
  */
 package org.xwiki.query.solr.internal;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -31,8 +36,12 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.slf4j.Logger;
@@ -40,10 +49,13 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryExecutor;
 import org.xwiki.query.SecureQuery;
+import org.xwiki.search.solr.internal.SolrSecurityScopeUtils;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
@@ -75,6 +87,19 @@ public class SolrQueryExecutor implements QueryExecutor
      */
     private static final String PARAM_SUPPORTED_LOCALES = "xwiki.supportedLocales";
 
+    /**
+     * The maximum number of denied security scopes to exclude from the query, above which the results are checked one
+     * by one (Solr limits the number of clauses of a boolean query).
+     */
+    private static final int MAX_DENIED_SCOPES = 1000;
+
+    /**
+     * The parameters which don't impact the list of matched entities and which we don't want to pay for when listing
+     * the security scopes of the matched entities.
+     */
+    private static final List<String> SCOPE_QUERY_IGNORED_PARAMETERS = Arrays.asList("sort", "fl", "cursorMark",
+        "debug", "debugQuery", "hl", "group", "stats", "spellcheck", "json.facet", "expand", "mlt");
+
     /**
      * Logging framework.
      */
@@ -105,6 +130,9 @@ public class SolrQueryExecutor implements QueryExecutor
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private SolrSecurityScopeUtils securityScopeUtils;
+
     @Override
     public <T> List<T> execute(Query query) throws QueryException
     {
@@ -116,33 +144,41 @@ public <T> List<T> execute(Query query) throws QueryException
 
             SolrQuery solrQuery = createSolrQuery(query);
 
+            List<DocumentReference> usersToCheck = getUsersToCheck(query);
+
+            // Exclude from the query the security scopes the users are not allowed to view so that the results,
+            // the facets and the number of results are right. The indexed scopes can't be trusted while the entities
+            // impacted by a scope change are waiting to be reindexed.
+            Set<String> allowedScopes = Collections.emptySet();
+            if (!usersToCheck.isEmpty() && this.securityScopeUtils.isIndexedScopeReliable()) {
+                try {
+                    allowedScopes = filterSecurityScopes(solrQuery, usersToCheck);
+                } catch (Exception e) {
+                    // The search core might not have been migrated yet.
+                    this.logger.warn("Failed to filter the query by security scope, each result will be checked."
+                        + " Root cause is [{}].", ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+
             this.progress.startStep(query, "query.solr.progress.execute.execute", "Execute");
 
             QueryResponse response = this.solrInstance.query(solrQuery);
 
             this.progress.startStep(query, "query.solr.progress.execute.filter", "Filter");
 
-            // Check access rights need to be checked before returning the response.
+            // The results which could not be filtered by security scope (documents with their own rights, entities
+            // indexed before the security scope was introduced) are checked one by one. All the results are checked
+            // if a scope change happened while the query was executed.
+            if (!this.securityScopeUtils.isIndexedScopeReliable()) {
+                allowedScopes = Collections.emptySet();
+            }
             // FIXME: this is not really the best way, mostly because at this point all grouping operations
             // have already been performed and any change on the result will not ensure that the grouping
             // information (facets, highlighting, maxScore, etc.) is still relevant.
             // A better way would be using a PostFilter as described in this article:
             // http://java.dzone.com/articles/custom-security-filtering-solr
-            // Basically, we would be asking
-            List<DocumentReference> usersToCheck = new ArrayList<>(2);
-            if (query instanceof SecureQuery) {
-                if (((SecureQuery) query).isCurrentUserChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getUserReference());
-                }
-                if (((SecureQuery) query).isCurrentAuthorChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getAuthorReference());
-                }
-            } else {
-                usersToCheck.add(xcontextProvider.get().getUserReference());
-                usersToCheck.add(xcontextProvider.get().getAuthorReference());
-            }
             if (!usersToCheck.isEmpty()) {
-                filterResponse(response, usersToCheck);
+                filterResponse(response, usersToCheck, allowedScopes);
             }
 
             return (List<T>) Arrays.asList(response);
@@ -154,6 +190,83 @@ public <T> List<T> execute(Query query) throws QueryException
         }
     }
 
+    private List<DocumentReference> getUsersToCheck(Query query)
+    {
+        List<DocumentReference> usersToCheck = new ArrayList<>(2);
+        if (query instanceof SecureQuery) {
+            if (((SecureQuery) query).isCurrentUserChecked()) {
+                usersToCheck.add(xcontextProvider.get().getUserReference());
+            }
+            if (((SecureQuery) query).isCurrentAuthorChecked()) {
+                usersToCheck.add(xcontextProvider.get().getAuthorReference());
+            }
+        } else {
+            usersToCheck.add(xcontextProvider.get().getUserReference());
+            usersToCheck.add(xcontextProvider.get().getAuthorReference());
+        }
+
+        return usersToCheck;
+    }
+
+    /**
+     * Check view right on each security scope matched by the query and exclude the denied ones from the query.
+     * 
+     * @param solrQuery the query to filter
+     * @param usersToCheck the users whose view right should be checked
+     * @return the security scopes the users are allowed to view
+     * @throws SolrServerException when failing to list the security scopes
+     * @throws IOException when failing to list the security scopes
+     */
+    private Set<String> filterSecurityScopes(SolrQuery solrQuery, List<DocumentReference> usersToCheck)
+        throws SolrServerException, IOException
+    {
+        SolrQuery scopeQuery = solrQuery.getCopy();
+        scopeQuery.setStart(0);
+        scopeQuery.setRows(0);
+        for (String parameterName : new ArrayList<>(scopeQuery.getParameterNames())) {
+            if (SCOPE_QUERY_IGNORED_PARAMETERS.contains(parameterName) || parameterName.startsWith("facet")
+                || parameterName.startsWith("f.")) {
+                scopeQuery.remove(parameterName);
+            }
+        }
+        scopeQuery.setFacet(true);
+        scopeQuery.addFacetField(FieldUtils.SECURITY_SCOPE);
+        scopeQuery.setFacetLimit(-1);
+        scopeQuery.setFacetMinCount(1);
+
+        FacetField scopes = this.solrInstance.query(scopeQuery).getFacetField(FieldUtils.SECURITY_SCOPE);
+        if (scopes == null || scopes.getValues() == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> allowedScopes = new HashSet<>();
+        List<String> deniedScopes = new ArrayList<>();
+        for (FacetField.Count scope : scopes.getValues()) {
+            EntityReference scopeReference = this.securityScopeUtils.resolveScope(scope.getName());
+            if (scopeReference != null) {
+                if (isAllowed(scopeReference, usersToCheck)) {
+                    allowedScopes.add(scope.getName());
+                } else {
+                    deniedScopes.add(scope.getName());
+                }
+            }
+        }
+
+        if (deniedScopes.size() > MAX_DENIED_SCOPES) {
+            return Collections.emptySet();
+        } else if (!deniedScopes.isEmpty()) {
+            solrQuery.addFilterQuery(deniedScopes.stream().map(ClientUtils::escapeQueryChars)
+                .collect(Collectors.joining(" OR ", '-' + FieldUtils.SECURITY_SCOPE + ":(", ")")));
+        }
+
+        // Make sure the security scope is returned so that we know which results don't need to be checked.
+        if (solrQuery.getFields() != null) {
+            solrQuery.addField(FieldUtils.SECURITY_SCOPE);
+        }
+
+        return allowedScopes;
+    }
+
     private SolrQuery createSolrQuery(Query query)
     {
         SolrQuery solrQuery = new SolrQuery(query.getStatement());
@@ -231,12 +344,30 @@ private String[] toStringArray(Iterable iterable)
      * @param response the Solr response to filter
      */
     protected void filterResponse(QueryResponse response, List<DocumentReference> usersToCheck)
+    {
+        filterResponse(response, usersToCheck, Collections.emptySet());
+    }
+
+    /**
+     * Filter out results from the response that the current user does not have access to view.
+     * 
+     * @param response the Solr response to filter
+     * @param usersToCheck the users whose view right should be checked
+     * @param allowedScopes the security scopes already known to be viewable by the users
+     * @since 14.9RC1
+     */
+    protected void filterResponse(QueryResponse response, List<DocumentReference> usersToCheck,
+        Set<String> allowedScopes)
     {
         SolrDocumentList results = response.getResults();
         long numFound = results.getNumFound();
 
         // Since we are modifying the results collection, we need to iterate over its copy.
         for (SolrDocument result : new ArrayList<SolrDocument>(results)) {
+            if (allowedScopes.contains(result.getFirstValue(FieldUtils.SECURITY_SCOPE))) {
+                continue;
+            }
+
             try {
                 DocumentReference resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
 
@@ -267,9 +398,14 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
     }
 
     protected boolean isAllowed(DocumentReference resultDocumentReference, List<DocumentReference> usersToCheck)
+    {
+        return isAllowed((EntityReference) resultDocumentReference, usersToCheck);
+    }
+
+    private boolean isAllowed(EntityReference reference, List<DocumentReference> usersToCheck)
     {
         for (DocumentReference user : usersToCheck) {
-            if (!this.authorization.hasAccess(Right.VIEW, user, resultDocumentReference)) {
+            if (!this.authorization.hasAccess(Right.VIEW, user, reference)) {
                 return false;
             }
         }
@@ -24,6 +24,7 @@
 import java.util.Locale;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -38,12 +39,16 @@
 import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.QueryExecutor;
 import org.xwiki.query.QueryManager;
 import org.xwiki.query.internal.DefaultQuery;
 import org.xwiki.query.internal.DefaultQueryExecutorManager;
 import org.xwiki.query.internal.DefaultQueryManager;
 import org.xwiki.query.solr.internal.SolrQueryExecutor;
+import org.xwiki.search.solr.internal.SolrSecurityScopeUtils;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
@@ -55,10 +60,14 @@
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 import com.xpn.xwiki.test.reference.ReferenceComponentList;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -228,4 +237,110 @@ public void filterResponse() throws Exception
         results = ((QueryResponse) this.componentManager.getComponentUnderTest().execute(query).get(0)).getResults();
         assertEquals(Arrays.asList(alice, bob), results);
     }
+
+    @Test
+    public void filterResponseWithSecurityScopes() throws Exception
+    {
+        ParameterizedType resolverType =
+            new DefaultParameterizedType(null, DocumentReferenceResolver.class, SolrDocument.class);
+        DocumentReferenceResolver<SolrDocument> resolver = this.componentManager.getInstance(resolverType);
+        AuthorizationManager authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        SolrSecurityScopeUtils scopeUtils = this.componentManager.getInstance(SolrSecurityScopeUtils.class);
+
+        DocumentReference currentUserReference = new DocumentReference("xwiki", "XWiki", "currentuser");
+        this.oldCore.getXWikiContext().setUserReference(currentUserReference);
+
+        when(scopeUtils.isIndexedScopeReliable()).thenReturn(true);
+        WikiReference wikiReference = new WikiReference("wiki");
+        when(scopeUtils.resolveScope("wiki:wiki")).thenReturn(wikiReference);
+        when(authorizationManager.hasAccess(Right.VIEW, currentUserReference, wikiReference)).thenReturn(true);
+        SpaceReference privateReference = new SpaceReference("wiki", "Private");
+        when(scopeUtils.resolveScope("space:wiki:Private")).thenReturn(privateReference);
+
+        FacetField scopes = new FacetField(FieldUtils.SECURITY_SCOPE);
+        scopes.add("wiki:wiki", 10);
+        scopes.add("space:wiki:Private", 5);
+        scopes.add(FieldUtils.SECURITY_SCOPE_DOCUMENT, 1);
+        QueryResponse scopeResponse = mock(QueryResponse.class);
+        when(scopeResponse.getFacetField(FieldUtils.SECURITY_SCOPE)).thenReturn(scopes);
+
+        SolrDocument alice = new SolrDocument();
+        alice.setField(FieldUtils.SECURITY_SCOPE, "wiki:wiki");
+
+        DocumentReference bobReference = new DocumentReference("wiki", "Users", "Bob");
+        SolrDocument bob = new SolrDocument();
+        bob.setField(FieldUtils.SECURITY_SCOPE, FieldUtils.SECURITY_SCOPE_DOCUMENT);
+        when(resolver.resolve(bob)).thenReturn(bobReference);
+
+        SolrDocumentList results = new SolrDocumentList();
+        results.addAll(Arrays.asList(alice, bob));
+        results.setNumFound(11);
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(results);
+
+        when(this.solr.query(any(SolrQuery.class))).then(invocation -> {
+            SolrQuery solrQuery = invocation.getArgument(0);
+            if (solrQuery.getRows() != null && solrQuery.getRows() == 0) {
+                assertArrayEquals(new String[] {FieldUtils.SECURITY_SCOPE}, solrQuery.getFacetFields());
+                assertNull(solrQuery.getFilterQueries());
+
+                return scopeResponse;
+            }
+
+            assertArrayEquals(new String[] {"-security_scope:(space\\:wiki\\:Private)"},
+                solrQuery.getFilterQueries());
+
+            return response;
+        });
+
+        DefaultQuery query = new DefaultQuery("", null);
+        query.checkCurrentUser(true);
+
+        results = ((QueryResponse) this.componentManager.getComponentUnderTest().execute(query).get(0)).getResults();
+
+        // Only the document with its own rights is checked.
+        assertEquals(Arrays.asList(alice), results);
+        assertEquals(10, results.getNumFound());
+        verify(resolver, never()).resolve(alice);
+        verify(authorizationManager).hasAccess(Right.VIEW, currentUserReference, privateReference);
+        verify(authorizationManager).hasAccess(Right.VIEW, currentUserReference, bobReference);
+    }
+
+    @Test
+    public void filterResponseWhileSecurityScopeChangeIsPending() throws Exception
+    {
+        ParameterizedType resolverType =
+            new DefaultParameterizedType(null, DocumentReferenceResolver.class, SolrDocument.class);
+        DocumentReferenceResolver<SolrDocument> resolver = this.componentManager.getInstance(resolverType);
+        AuthorizationManager authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        SolrSecurityScopeUtils scopeUtils = this.componentManager.getInstance(SolrSecurityScopeUtils.class);
+
+        DocumentReference currentUserReference = new DocumentReference("xwiki", "XWiki", "currentuser");
+        this.oldCore.getXWikiContext().setUserReference(currentUserReference);
+
+        // The document just got its first rights object but is still indexed with the scope of its wiki.
+        when(scopeUtils.isIndexedScopeReliable()).thenReturn(false);
+
+        DocumentReference aliceReference = new DocumentReference("wiki", "Users", "Alice");
+        SolrDocument alice = new SolrDocument();
+        alice.setField(FieldUtils.SECURITY_SCOPE, "wiki:wiki");
+        when(resolver.resolve(alice)).thenReturn(aliceReference);
+
+        SolrDocumentList results = new SolrDocumentList();
+        results.add(alice);
+        results.setNumFound(1);
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(results);
+        when(this.solr.query(any(SolrQuery.class))).thenReturn(response);
+
+        DefaultQuery query = new DefaultQuery("", null);
+        query.checkCurrentUser(true);
+
+        results = ((QueryResponse) this.componentManager.getComponentUnderTest().execute(query).get(0)).getResults();
+
+        // The indexed scope is ignored and the result is checked on its own.
+        assertEquals(Arrays.asList(), results);
+        verify(this.solr).query(any(SolrQuery.class));
+        verify(authorizationManager).hasAccess(Right.VIEW, currentUserReference, aliceReference);
+    }
 }
@@ -27,9 +27,12 @@
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
@@ -54,6 +57,9 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.sx.AbstractSxAction;
+import com.xpn.xwiki.web.sx.Extension;
+import com.xpn.xwiki.web.sx.SxDocumentSource;
 
 /**
  * Abstract SX plugin for wiki-document-based extensions (Extensions written as object of a XWiki Extension class).
@@ -82,6 +88,12 @@ public abstract class AbstractDocumentSkinExtensionPlugin extends AbstractSkinEx
      */
     private Map<String, Set<DocumentReference>> alwaysUsedExtensions;
 
+    /**
+     * The content hash of the extension documents, along with the document version it was computed for. The hash is
+     * {@code null} when the content is not static.
+     */
+    private final Map<DocumentReference, Pair<String, String>> contentHashes = new ConcurrentHashMap<>();
+
     /**
      * Used to match events on "use" property.
      */
@@ -368,8 +380,13 @@ public BaseClass getExtensionClass(XWikiContext context)
     public void onEvent(Event event, Object source, Object data)
     {
         if (event instanceof WikiDeletedEvent) {
-            this.alwaysUsedExtensions.remove(((WikiDeletedEvent) event).getWikiId());
+            String wikiId = ((WikiDeletedEvent) event).getWikiId();
+            this.alwaysUsedExtensions.remove(wikiId);
+            this.contentHashes.keySet().removeIf(reference -> reference.getWikiReference().getName().equals(wikiId));
         } else {
+            // The version alone does not identify the content of a document which is deleted and created again
+            this.contentHashes.remove(((XWikiDocument) source).getDocumentReference());
+
             onDocumentEvent((XWikiDocument) source);
         }
     }
@@ -460,29 +477,70 @@ protected boolean isAccessible(DocumentReference documentReference, XWikiContext
     /**
      * @param documentReference the Skin Extension's document reference
      * @param context the XWiki Context
-     * @return the version of the document
+     * @return the document, or {@code null} if it could not be loaded
      */
-    private String getDocumentVersion(DocumentReference documentReference, XWikiContext context)
+    private XWikiDocument getDocument(DocumentReference documentReference, XWikiContext context)
     {
         try {
-            return context.getWiki().getDocument(documentReference, context).getVersion();
+            return context.getWiki().getDocument(documentReference, context);
         } catch (XWikiException e) {
             LOGGER.error("Failed to load document [{}].", documentReference, e);
         }
-        return "";
+        return null;
     }
 
     /**
      * Return the query string part with the version of the document, to add to the URL of a resource. The objective is
      * to generate an URL specific to this version to avoid browsers using an outdated version from their cache.
      *  
-     * @param documentReference the Skin Extension's document reference
-     * @param context the XWiki Context
+     * @param document the Skin Extension's document
      * @return the query string part handling the version of the document
      */
-    private String getDocumentVersionQueryString(DocumentReference documentReference, XWikiContext context)
+    private String getDocumentVersionQueryString(XWikiDocument document)
+    {
+        return "docVersion=" + sanitize(document != null ? document.getVersion() : "");
+    }
+
+    /**
+     * Return the query string part with the hash of the extension content, when the content is static. Such URLs
+     * can be cached forever by the browser since they change as soon as the content changes.
+     *
+     * @param document the Skin Extension's document
+     * @param context the XWiki Context
+     * @return the query string part handling the hash of the content
+     */
+    private String getContentHashQueryString(XWikiDocument document, XWikiContext context)
     {
-        return "docVersion=" + sanitize(getDocumentVersion(documentReference, context));
+        Extension extension = getExtensionType();
+        if (document != null && extension != null) {
+            String hash = getStaticContentHash(document, extension, context);
+            if (hash != null) {
+                return '&' + AbstractSxAction.CONTENT_HASH_REQUEST_PARAMETER + '=' + hash;
+            }
+        }
+        return "";
+    }
+
+    private String getStaticContentHash(XWikiDocument document, Extension extension, XWikiContext context)
+    {
+        // Avoid hashing the content each time an URL is generated, it only changes with the document version
+        Pair<String, String> contentHash = this.contentHashes.get(document.getDocumentReference());
+        if (contentHash == null || !contentHash.getLeft().equals(document.getVersion())) {
+            contentHash = new ImmutablePair<>(document.getVersion(),
+                new SxDocumentSource(document, context, extension).getStaticContentHash());
+            this.contentHashes.put(document.getDocumentReference(), contentHash);
+        }
+
+        return contentHash.getRight();
+    }
+
+    /**
+     * @return the type of extension handled by this plugin, or {@code null} if unknown
+     * @since 14.9RC1
+     */
+    protected Extension getExtensionType()
+    {
+        return null;
     }
 
     /**
@@ -514,9 +572,11 @@ private String getLanguageQueryString(XWikiContext context)
     protected String getDocumentSkinExtensionURL(DocumentReference documentReference, String documentName,
             String pluginName, XWikiContext context)
     {
-        String queryString = String.format("%s&%s%s",
+        XWikiDocument document = getDocument(documentReference, context);
+        String queryString = String.format("%s&%s%s%s",
                 getLanguageQueryString(context),
-                getDocumentVersionQueryString(documentReference, context),
+                getDocumentVersionQueryString(document),
+                getContentHashQueryString(document, context),
                 parametersAsQueryString(documentName, context));
 
         return context.getWiki().getURL(documentReference, pluginName, queryString, "", context);
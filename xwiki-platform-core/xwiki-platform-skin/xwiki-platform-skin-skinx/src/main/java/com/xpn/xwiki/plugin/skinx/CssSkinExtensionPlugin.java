@@ -24,6 +24,8 @@
 import org.xwiki.xml.XMLUtils;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.SsxAction;
+import com.xpn.xwiki.web.sx.Extension;
 
 /**
  * Skin Extension plugin that allows pulling CSS code stored inside wiki documents as
@@ -74,6 +76,12 @@ public void virtualInit(XWikiContext context)
         super.virtualInit(context);
     }
 
+    @Override
+    protected Extension getExtensionType()
+    {
+        return SsxAction.CSSX;
+    }
+
     @Override
     public String getLink(String documentName, XWikiContext context)
     {
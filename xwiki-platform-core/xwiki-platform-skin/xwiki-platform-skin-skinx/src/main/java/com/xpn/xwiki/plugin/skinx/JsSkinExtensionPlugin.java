@@ -24,6 +24,8 @@
 import org.xwiki.xml.XMLUtils;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.JsxAction;
+import com.xpn.xwiki.web.sx.Extension;
 
 /**
  * Skin Extension plugin that allows pulling javascript code stored inside wiki documents as
@@ -78,6 +80,12 @@ public void virtualInit(XWikiContext context)
         super.virtualInit(context);
     }
 
+    @Override
+    protected Extension getExtensionType()
+    {
+        return JsxAction.JSX;
+    }
+
     @Override
     public String getLink(String documentName, XWikiContext context)
     {
@@ -19,12 +19,21 @@
  */
 package com.xpn.xwiki.web.sx;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -58,14 +67,61 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
-
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
+    /**
+     * The parameter holding the hash of the extension content in the URL.
+     *
+     * @since 14.9RC1
+     */
+    public static final String CONTENT_HASH_REQUEST_PARAMETER = "hash";
+
+    /** How many seconds a file should be cached for if its URL contains the hash of its content, 1 year. */
+    private static final long IMMUTABLE_CACHE_DURATION = 365 * 24 * 3600L;
+
+    /** The http header parameter used to identify the version of the content. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** The http header parameter used by the client to indicate the version of the content it already has. */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    private static final String GZIP = "gzip";
+
+    /** The maximum number of minified and compressed extensions to keep in memory. */
+    private static final int RESPONSE_CACHE_SIZE = 500;
+
     private DebugConfiguration debugConfiguration;
 
+    private volatile Cache<CachedResponse> responseCache;
+
+    /**
+     * The minified version of an extension content, ready to be sent.
+     */
+    private static final class CachedResponse
+    {
+        private final String hash;
+
+        private final byte[] content;
+
+        private final byte[] gzipContent;
+
+        private final String sourceMap;
+
+        CachedResponse(String hash, String content, String sourceMap) throws IOException
+        {
+            this.hash = hash;
+            this.content = content.getBytes(StandardCharsets.UTF_8);
+            this.sourceMap = sourceMap;
+
+            ByteArrayOutputStream gzipStream = new ByteArrayOutputStream();
+            try (GZIPOutputStream stream = new GZIPOutputStream(gzipStream)) {
+                stream.write(this.content);
+            }
+            this.gzipContent = gzipStream.toByteArray();
+        }
+    }
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -93,7 +149,12 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
 
         CachePolicy cachePolicy = sxSource.getCachePolicy();
 
-        if (cachePolicy != CachePolicy.FORBID) {
+        boolean minify = getDebugConfiguration().isMinify();
+
+        if (cachePolicy != CachePolicy.FORBID && isImmutable(sxSource, context)) {
+            // The URL contains the hash of the content so it will never change
+            response.setHeader(CACHE_CONTROL_HEADER, "public, max-age=" + IMMUTABLE_CACHE_DURATION + ", immutable");
+        } else if (cachePolicy != CachePolicy.FORBID) {
             response.setHeader(CACHE_CONTROL_HEADER, "public");
         }
         if (cachePolicy == CachePolicy.LONG) {
@@ -106,18 +167,164 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = compress(extensionContent, sxType.getCompressor(), context);
-        }
-
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            CachedResponse cachedResponse = getCachedResponse(extensionContent, minify, sxType, context);
+
+            if (cachedResponse.sourceMap != null) {
+                handleSourceMap(cachedResponse.sourceMap, context);
+            }
+
+            sendResponse(cachedResponse, context);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
     }
 
+    private boolean isImmutable(SxSource sxSource, XWikiContext context)
+    {
+        String hash = context.getRequest().getParameter(CONTENT_HASH_REQUEST_PARAMETER);
+
+        return hash != null && sxSource instanceof SxDocumentSource
+            && hash.equals(((SxDocumentSource) sxSource).getStaticContentHash());
+    }
+
+    private CachedResponse getCachedResponse(String content, boolean minify, Extension sxType, XWikiContext context)
+        throws IOException
+    {
+        // The key is a hash of everything which have an impact on the minified content
+        String hash = DigestUtils.sha256Hex(
+            sxType.getClass().getName() + '\0' + sxType.getContentType() + '\0' + minify + '\0' + content);
+
+        Cache<CachedResponse> cache = getResponseCache();
+
+        CachedResponse cachedResponse = cache != null ? cache.get(hash) : null;
+        if (cachedResponse == null) {
+            String output = content;
+            String sourceMap = null;
+            if (minify) {
+                SxCompressor compressor = sxType.getCompressor();
+                output = compress(content, compressor, context);
+                sourceMap = compressor.getSourceMap();
+            }
+
+            cachedResponse = new CachedResponse(hash, output, sourceMap);
+
+            if (cache != null) {
+                cache.set(hash, cachedResponse);
+            }
+        }
+
+        return cachedResponse;
+    }
+
+    private void sendResponse(CachedResponse cachedResponse, XWikiContext context) throws IOException
+    {
+        XWikiResponse response = context.getResponse();
+
+        boolean gzip = acceptsGzip(context.getRequest().getHeader("Accept-Encoding"));
+
+        // The compressed and uncompressed versions of the content are not the same representation
+        String etag = '"' + cachedResponse.hash + (gzip ? "-gzip\"" : "\"");
+        response.setHeader(ETAG_HEADER, etag);
+        response.setHeader("Vary", "Accept-Encoding");
+
+        if (etag.equals(context.getRequest().getHeader(IF_NONE_MATCH_HEADER))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+            return;
+        }
+
+        byte[] content;
+        if (gzip) {
+            response.setHeader("Content-Encoding", GZIP);
+            content = cachedResponse.gzipContent;
+        } else {
+            content = cachedResponse.content;
+        }
+
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    /**
+     * @param acceptEncoding the value of the Accept-Encoding header
+     * @return true if the client accepts a gzip body, taking into account the quality values (e.g. {@code gzip;q=0}
+     *         means that gzip is refused)
+     */
+    private static boolean acceptsGzip(String acceptEncoding)
+    {
+        Boolean gzip = null;
+        boolean any = false;
+
+        for (String element : StringUtils.split(StringUtils.defaultString(acceptEncoding), ',')) {
+            String[] parameters = StringUtils.split(element, ';');
+            if (parameters.length == 0) {
+                continue;
+            }
+
+            String coding = parameters[0].trim();
+            boolean accepted = getQuality(parameters) > 0;
+            if (GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                gzip = accepted;
+            } else if ("*".equals(coding)) {
+                any = accepted;
+            }
+        }
+
+        // An explicit gzip coding takes precedence over the wildcard
+        return gzip != null ? gzip : any;
+    }
+
+    private static float getQuality(String[] parameters)
+    {
+        for (int i = 1; i < parameters.length; ++i) {
+            String parameter = parameters[i].trim();
+            if (StringUtils.startsWithIgnoreCase(parameter, "q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // An invalid quality value is not acceptable
+                    return 0;
+                }
+            }
+        }
+
+        // The default quality is 1
+        return 1;
+    }
+
+    private Cache<CachedResponse> getResponseCache()
+    {
+        if (this.responseCache == null) {
+            synchronized (this) {
+                if (this.responseCache == null) {
+                    try {
+                        this.responseCache = Utils.getComponent(CacheManager.class).createNewCache(
+                            new LRUCacheConfiguration("skinx.responses." + getExtensionType().getClassName(),
+                                RESPONSE_CACHE_SIZE));
+                    } catch (CacheException e) {
+                        getLogger().warn("Failed to create the skin extensions response cache: [{}]",
+                            e.getMessage());
+                    }
+                }
+            }
+        }
+
+        return this.responseCache;
+    }
+
+    /**
+     * Called when the minified content was generated with a source map.
+     *
+     * @param sourceMap the source map associated with the minified content
+     * @param context the XWiki context
+     * @since 14.9RC1
+     */
+    protected void handleSourceMap(String sourceMap, XWikiContext context)
+    {
+        // Source maps are not exposed by default
+    }
+
     protected String compress(String source, SxCompressor compressor, XWikiContext context)
     {
         return compressor.compress(source);
@@ -34,4 +34,14 @@
      * @return A compressed version of the input source
      */
     String compress(String source);
+
+    /**
+     * @return the source map generated by the last call to {@link #compress(String)}, or {@code null} if the
+     *         compressor does not produce source maps
+     * @since 14.9RC1
+     */
+    default String getSourceMap()
+    {
+        return null;
+    }
 }
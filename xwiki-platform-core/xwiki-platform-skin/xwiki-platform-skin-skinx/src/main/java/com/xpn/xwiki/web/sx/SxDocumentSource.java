@@ -22,6 +22,7 @@
 import java.io.StringWriter;
 import java.util.List;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.velocity.VelocityContext;
@@ -89,6 +90,50 @@ public SxDocumentSource(XWikiContext context, Extension extension)
         this.extension = extension;
     }
 
+    /**
+     * Constructor for this extension source.
+     * 
+     * @param document the document containing the extension
+     * @param context The XWikiContext
+     * @param extension The Extension type
+     * @since 14.9RC1
+     */
+    public SxDocumentSource(XWikiDocument document, XWikiContext context, Extension extension)
+    {
+        this.context = context;
+        this.document = document;
+        this.extension = extension;
+    }
+
+    /**
+     * Compute a hash of the extension content which can be used in its URL to allow browsers to cache it forever.
+     * 
+     * @return the hash of the content, or {@code null} if the content is not static (i.e. it needs to be parsed or
+     *         compiled for each request and may change without the document being modified)
+     * @since 14.9RC1
+     */
+    public String getStaticContentHash()
+    {
+        List<BaseObject> objects = this.document.getObjects(this.extension.getClassName());
+        if (objects == null) {
+            return null;
+        }
+
+        StringBuilder contentBuilder = new StringBuilder();
+        for (BaseObject sxObj : objects) {
+            if (sxObj == null) {
+                continue;
+            }
+            if (sxObj.getIntValue(PARSE_CONTENT_PROPERTY_NAME) == 1
+                || "LESS".equals(sxObj.getStringValue(CONTENT_TYPE_PROPERTY_NAME))) {
+                return null;
+            }
+            contentBuilder.append(sxObj.getLargeStringValue(CONTENT_PROPERTY_NAME)).append('\n');
+        }
+
+        return contentBuilder.length() > 0 ? DigestUtils.sha256Hex(contentBuilder.toString()) : null;
+    }
+
     @Override
     public CachePolicy getCachePolicy()
     {
@@ -32,6 +32,7 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -59,6 +60,9 @@
 import com.xpn.xwiki.web.XWikiURLFactory;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -277,4 +281,39 @@ void hasPageExtensions()
         when(this.authorizationManager.hasAccess(Right.SCRIPT, userReference, documentReference)).thenReturn(true);
         assertTrue(this.skinExtensionPlugin.hasPageExtensions(context));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getDocumentSkinExtensionURLCachesContentHash() throws XWikiException
+    {
+        DocumentReference documentReference = new DocumentReference("xwiki", "MySpace", "MyJSXPage");
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        when(document.getVersion()).thenReturn("1.1");
+        when(document.getOriginalDocument()).thenReturn(mock(XWikiDocument.class, "original"));
+        BaseObject object = mock(BaseObject.class);
+        when(object.getLargeStringValue("code")).thenReturn("alert(1);");
+        Vector<BaseObject> objects = new Vector<>();
+        objects.add(object);
+        when(document.getObjects(JsSkinExtensionPlugin.JSX_CLASS_NAME)).thenReturn(objects);
+
+        XWiki wiki = this.mockitoOldcore.getSpyXWiki();
+        doReturn(document).when(wiki).getDocument(documentReference, this.context);
+        doReturn("url").when(wiki).getURL(eq(documentReference), eq("jsx"), anyString(), eq(""), eq(this.context));
+
+        String plugin = JsSkinExtensionPlugin.PLUGIN_NAME;
+        this.skinExtensionPlugin.getDocumentSkinExtensionURL(documentReference, "MySpace.MyJSXPage", plugin, context);
+        this.skinExtensionPlugin.getDocumentSkinExtensionURL(documentReference, "MySpace.MyJSXPage", plugin, context);
+
+        // The content is hashed only once per document version
+        verify(document).getObjects(JsSkinExtensionPlugin.JSX_CLASS_NAME);
+
+        when(document.getVersion()).thenReturn("1.2");
+        this.skinExtensionPlugin.getDocumentSkinExtensionURL(documentReference, "MySpace.MyJSXPage", plugin, context);
+        verify(document, times(2)).getObjects(JsSkinExtensionPlugin.JSX_CLASS_NAME);
+
+        // The hash is forgotten when the document is deleted
+        this.skinExtensionPlugin.onEvent(new DocumentDeletedEvent(documentReference), document, this.context);
+        this.skinExtensionPlugin.getDocumentSkinExtensionURL(documentReference, "MySpace.MyJSXPage", plugin, context);
+        verify(document, times(3)).getObjects(JsSkinExtensionPlugin.JSX_CLASS_NAME);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+class AbstractSxActionTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSxActionTest.class);
+
+    private static final String CONTENT = "var a = 1;";
+
+    private static final String MINIFIED_CONTENT = "var a=1;";
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String ETAG = "ETag";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private DebugConfiguration debugConfiguration;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    private final Map<String, Object> cachedResponses = new HashMap<>();
+
+    private final Extension extension = mock(Extension.class);
+
+    private final SxCompressor compressor = mock(SxCompressor.class);
+
+    private final SxSource source = mock(SxSource.class);
+
+    private AbstractSxAction action;
+
+    private XWikiContext context;
+
+    private XWikiRequest request;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        Cache<Object> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.cachedResponses.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cachedResponses.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(anyString(), any());
+        when(this.cacheManager.createNewCache(any())).thenReturn(cache);
+
+        when(this.debugConfiguration.isMinify()).thenReturn(true);
+
+        when(this.extension.getClassName()).thenReturn("XWiki.JavaScriptExtension");
+        when(this.extension.getContentType()).thenReturn("text/javascript; charset=UTF-8");
+        when(this.extension.getCompressor()).thenReturn(this.compressor);
+        when(this.compressor.compress(CONTENT)).thenReturn(MINIFIED_CONTENT);
+
+        when(this.source.getContent()).thenReturn(CONTENT);
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+
+        this.action = new AbstractSxAction()
+        {
+            @Override
+            protected Logger getLogger()
+            {
+                return LOGGER;
+            }
+
+            @Override
+            public Extension getExtensionType()
+            {
+                return extension;
+            }
+        };
+
+        this.context = this.oldcore.getXWikiContext();
+        this.request = mock(XWikiRequest.class);
+        this.context.setRequest(this.request);
+    }
+
+    private XWikiResponse render() throws Exception
+    {
+        XWikiResponse response = mock(XWikiResponse.class);
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        this.context.setResponse(response);
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        return response;
+    }
+
+    private byte[] getBody(XWikiResponse response) throws IOException
+    {
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(response.getOutputStream()).write(captor.capture());
+
+        return captor.getValue();
+    }
+
+    private String getHeader(XWikiResponse response, String name)
+    {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq(name), captor.capture());
+
+        return captor.getValue();
+    }
+
+    private byte[] gunzip(byte[] content) throws IOException
+    {
+        try (GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Test
+    void renderPlain() throws Exception
+    {
+        XWikiResponse response = render();
+
+        assertArrayEquals(MINIFIED_CONTENT.getBytes(StandardCharsets.UTF_8), getBody(response));
+        verify(response, never()).setHeader(eq(CONTENT_ENCODING), any());
+        verify(response).setHeader("Vary", ACCEPT_ENCODING);
+    }
+
+    @Test
+    void renderGzip() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("deflate, gzip;q=0.8");
+
+        XWikiResponse response = render();
+
+        assertArrayEquals(MINIFIED_CONTENT.getBytes(StandardCharsets.UTF_8), gunzip(getBody(response)));
+        verify(response).setHeader(CONTENT_ENCODING, "gzip");
+        assertEquals('"' + this.cachedResponses.keySet().iterator().next() + "-gzip\"", getHeader(response, ETAG));
+    }
+
+    @Test
+    void renderWhenGzipIsRefused() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("gzip;q=0, deflate");
+
+        XWikiResponse response = render();
+
+        assertArrayEquals(MINIFIED_CONTENT.getBytes(StandardCharsets.UTF_8), getBody(response));
+        verify(response, never()).setHeader(eq(CONTENT_ENCODING), any());
+    }
+
+    @Test
+    void renderWhenAnyEncodingIsAccepted() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("*");
+
+        XWikiResponse response = render();
+
+        verify(response).setHeader(CONTENT_ENCODING, "gzip");
+    }
+
+    @Test
+    void renderNotModified() throws Exception
+    {
+        String etag = getHeader(render(), ETAG);
+
+        when(this.request.getHeader("If-None-Match")).thenReturn(etag);
+
+        XWikiResponse response = render();
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    void renderCachedBody() throws Exception
+    {
+        XWikiResponse firstResponse = render();
+        XWikiResponse secondResponse = render();
+
+        assertArrayEquals(getBody(firstResponse), getBody(secondResponse));
+        assertEquals(getHeader(firstResponse, ETAG), getHeader(secondResponse, ETAG));
+        // The content is minified only once
+        verify(this.compressor, times(1)).compress(CONTENT);
+        assertEquals(1, this.cachedResponses.size());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxDocumentSource}.
+ *
+ * @version $Id$
+ */
+class SxDocumentSourceTest
+{
+    private static final Extension EXTENSION = new JsExtension();
+
+    private XWikiDocument document;
+
+    private SxDocumentSource source;
+
+    @BeforeEach
+    void setUp()
+    {
+        this.document = mock(XWikiDocument.class);
+        this.source = new SxDocumentSource(this.document, mock(XWikiContext.class), EXTENSION);
+    }
+
+    private BaseObject mockObject(String code, int parse, String contentType)
+    {
+        BaseObject object = mock(BaseObject.class);
+        when(object.getLargeStringValue("code")).thenReturn(code);
+        when(object.getIntValue("parse")).thenReturn(parse);
+        when(object.getStringValue("contentType")).thenReturn(contentType);
+        return object;
+    }
+
+    @Test
+    void getStaticContentHash()
+    {
+        BaseObject first = mockObject("var a = 1;", 0, "");
+        BaseObject second = mockObject("var b = 2;", 0, "");
+        when(this.document.getObjects(EXTENSION.getClassName())).thenReturn(Arrays.asList(first, null, second));
+
+        assertEquals(DigestUtils.sha256Hex("var a = 1;\nvar b = 2;\n"), this.source.getStaticContentHash());
+    }
+
+    @Test
+    void getStaticContentHashWhenParsed()
+    {
+        BaseObject first = mockObject("var a = 1;", 0, "");
+        BaseObject second = mockObject("var b = $b;", 1, "");
+        when(this.document.getObjects(EXTENSION.getClassName())).thenReturn(Arrays.asList(first, second));
+
+        assertNull(this.source.getStaticContentHash());
+    }
+
+    @Test
+    void getStaticContentHashWhenLESS()
+    {
+        BaseObject object = mockObject("@a: 1px;", 0, "LESS");
+        when(this.document.getObjects(EXTENSION.getClassName())).thenReturn(Collections.singletonList(object));
+
+        assertNull(this.source.getStaticContentHash());
+    }
+
+    @Test
+    void getStaticContentHashWithoutObjects()
+    {
+        assertNull(this.source.getStaticContentHash());
+    }
+}
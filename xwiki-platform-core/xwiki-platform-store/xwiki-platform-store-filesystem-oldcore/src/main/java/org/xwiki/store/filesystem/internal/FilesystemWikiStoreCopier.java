@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.store.internal.FileSystemStoreUtils;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.store.WikiStoreCopier;
+
+/**
+ * Copy the files (mainly attachments) stored for a wiki to another wiki.
+ * <p>
+ * The deleted documents and attachments are not copied since the recycle bin is specific to each wiki.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component
+@Named(FileSystemStoreUtils.HINT)
+@Singleton
+public class FilesystemWikiStoreCopier implements WikiStoreCopier
+{
+    private static final FileFilter FILTER = file -> !file.isDirectory()
+        || !(file.getName().equals(FilesystemStoreTools.DELETED_ATTACHMENTS_DIR_NAME)
+            || file.getName().equals(FilesystemStoreTools.DELETED_DOCUMENTS_DIR_NAME));
+
+    /**
+     * The content of the current version of an attachment is stored in a file named {@code f} followed by the
+     * extension of the attachment. The files of the previous versions have the version name after the {@code f}.
+     */
+    private static final String ATTACHMENT_CONTENT_PREFIX = StoreFileUtils.getStoredFilename("", null);
+
+    private static final FileFilter WITHOUT_HISTORY_FILTER = file -> FILTER.accept(file)
+        && (file.isDirectory() || !isAttachmentFile(file) || file.getName().equals(ATTACHMENT_CONTENT_PREFIX)
+            || file.getName().startsWith(ATTACHMENT_CONTENT_PREFIX + '.'));
+
+    @Inject
+    private FilesystemStoreTools store;
+
+    @Override
+    public boolean isSupported(String sourceWikiId, String targetWikiId)
+    {
+        return true;
+    }
+
+    @Override
+    public void copy(String sourceWikiId, String targetWikiId, boolean withHistory) throws XWikiException
+    {
+        File sourceDirectory = this.store.getWikiDir(sourceWikiId);
+        File targetDirectory = this.store.getWikiDir(targetWikiId);
+
+        try {
+            // Remove what was already initialized in the target wiki
+            FileUtils.deleteDirectory(targetDirectory);
+
+            if (sourceDirectory.isDirectory()) {
+                // Copy the files instead of linking them so that modifying a file in one wiki cannot affect the other
+                FileUtils.copyDirectory(sourceDirectory, targetDirectory,
+                    withHistory ? FILTER : WITHOUT_HISTORY_FILTER);
+            }
+        } catch (IOException e) {
+            throw new XWikiException(
+                String.format("Failed to copy the files of wiki [%s] to wiki [%s]", sourceWikiId, targetWikiId), e);
+        }
+    }
+
+    @Override
+    public void delete(String wikiId) throws XWikiException
+    {
+        try {
+            FileUtils.deleteDirectory(this.store.getWikiDir(wikiId));
+        } catch (IOException e) {
+            throw new XWikiException(String.format("Failed to delete the files of wiki [%s]", wikiId), e);
+        }
+    }
+
+    private static boolean isAttachmentFile(File file)
+    {
+        File attachmentDirectory = file.getParentFile();
+
+        return attachmentDirectory != null && attachmentDirectory.getParentFile() != null
+            && attachmentDirectory.getParentFile().getName().equals(FilesystemStoreTools.ATTACHMENTS_DIR_NAME);
+    }
+}
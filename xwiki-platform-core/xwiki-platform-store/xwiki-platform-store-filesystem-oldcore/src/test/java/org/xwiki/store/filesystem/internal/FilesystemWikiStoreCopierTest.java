@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link FilesystemWikiStoreCopier}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class FilesystemWikiStoreCopierTest
+{
+    @InjectMockComponents
+    private FilesystemWikiStoreCopier copier;
+
+    @MockComponent
+    private FilesystemStoreTools filesystemStoreTools;
+
+    @XWikiTempDir
+    private File tmpDir;
+
+    @Test
+    void copy() throws IOException, XWikiException
+    {
+        File targetDir = prepare();
+
+        this.copier.copy("source", "target", true);
+
+        assertEquals("content",
+            FileUtils.readFileToString(new File(targetDir, "a/b/Page/attachments/file.txt/f.txt"), "UTF-8"));
+        assertEquals("previous",
+            FileUtils.readFileToString(new File(targetDir, "a/b/Page/attachments/file.txt/fv1.1.txt"), "UTF-8"));
+        assertTrue(new File(targetDir, "a/b/Page/attachments/file.txt/~METADATA.xml").exists());
+        assertFalse(new File(targetDir, "a/b/Page/deleted-attachments").exists());
+        assertFalse(new File(targetDir, "c").exists());
+    }
+
+    @Test
+    void copyWithoutHistory() throws IOException, XWikiException
+    {
+        File targetDir = prepare();
+
+        this.copier.copy("source", "target", false);
+
+        assertEquals("content",
+            FileUtils.readFileToString(new File(targetDir, "a/b/Page/attachments/file.txt/f.txt"), "UTF-8"));
+        assertFalse(new File(targetDir, "a/b/Page/attachments/file.txt/fv1.1.txt").exists());
+        assertFalse(new File(targetDir, "a/b/Page/attachments/file.txt/~METADATA.xml").exists());
+        assertFalse(new File(targetDir, "a/b/Page/deleted-attachments").exists());
+        assertFalse(new File(targetDir, "c").exists());
+    }
+
+    @Test
+    void delete() throws IOException, XWikiException
+    {
+        File targetDir = prepare();
+
+        this.copier.delete("target");
+
+        assertFalse(targetDir.exists());
+    }
+
+    private File prepare() throws IOException
+    {
+        File sourceDir = new File(this.tmpDir, "source");
+        File targetDir = new File(this.tmpDir, "target");
+        when(this.filesystemStoreTools.getWikiDir("source")).thenReturn(sourceDir);
+        when(this.filesystemStoreTools.getWikiDir("target")).thenReturn(targetDir);
+
+        File attachmentDir = new File(sourceDir, "a/b/Page/attachments/file.txt");
+        FileUtils.write(new File(attachmentDir, "f.txt"), "content", "UTF-8");
+        FileUtils.write(new File(attachmentDir, "fv1.1.txt"), "previous", "UTF-8");
+        FileUtils.write(new File(attachmentDir, "~METADATA.xml"), "<history/>", "UTF-8");
+        FileUtils.write(new File(sourceDir, "a/b/Page/deleted-attachments/file.txt-id1/f.txt"), "deleted", "UTF-8");
+        FileUtils.write(new File(targetDir, "c/d/Other/attachments/other.txt/f.txt"), "other", "UTF-8");
+
+        return targetDir;
+    }
+}
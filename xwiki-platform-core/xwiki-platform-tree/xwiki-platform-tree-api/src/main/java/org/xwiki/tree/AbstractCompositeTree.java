@@ -19,7 +19,10 @@
  */
 package org.xwiki.tree;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -51,6 +54,32 @@ public int getChildCount(String nodeId)
         return treeNode != null ? treeNode.getChildCount(nodeId) : 0;
     }
 
+    @Override
+    public Map<String, Integer> getChildCounts(Collection<String> nodeIds)
+    {
+        // Group the nodes by type so that each tree node component can count the children of its nodes at once.
+        Map<TreeNode, List<String>> nodeIdsByTreeNode = new LinkedHashMap<>();
+        for (String nodeId : nodeIds) {
+            TreeNode treeNode = getTreeNode(nodeId);
+            if (treeNode != null) {
+                nodeIdsByTreeNode.computeIfAbsent(treeNode, key -> new ArrayList<>()).add(nodeId);
+            }
+        }
+
+        Map<String, Integer> childCounts = new HashMap<>();
+        for (Map.Entry<TreeNode, List<String>> entry : nodeIdsByTreeNode.entrySet()) {
+            childCounts.putAll(entry.getKey().getChildCounts(entry.getValue()));
+        }
+
+        // Preserve the order of the specified node ids.
+        Map<String, Integer> orderedChildCounts = new LinkedHashMap<>();
+        for (String nodeId : nodeIds) {
+            orderedChildCounts.put(nodeId, childCounts.getOrDefault(nodeId, 0));
+        }
+
+        return orderedChildCounts;
+    }
+
     @Override
     public String getParent(String nodeId)
     {
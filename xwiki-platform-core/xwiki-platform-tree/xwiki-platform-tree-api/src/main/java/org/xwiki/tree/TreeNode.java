@@ -19,6 +19,8 @@
  */
 package org.xwiki.tree;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -67,6 +69,24 @@
      */
     int getChildCount(String nodeId);
 
+    /**
+     * Retrieve the number of children of each of the specified nodes. Implementations are encouraged to override this
+     * method when the child nodes can be counted for multiple nodes at once (e.g. with a single query).
+     * 
+     * @param nodeIds the node ids
+     * @return the number of child nodes of each of the specified nodes, in the order of the specified node ids
+     * @since 14.9RC1
+     */
+    default Map<String, Integer> getChildCounts(Collection<String> nodeIds)
+    {
+        Map<String, Integer> childCounts = new LinkedHashMap<>();
+        for (String nodeId : nodeIds) {
+            childCounts.put(nodeId, getChildCount(nodeId));
+        }
+
+        return childCounts;
+    }
+
     /**
      * Retrieve the parent of the specified node.
      * 
@@ -22,6 +22,7 @@
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,6 +35,7 @@
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.stability.Unstable;
+import org.xwiki.websocket.internal.WebSocketMessageExecutor;
 
 /**
  * Base class for WebSocket end-points that require the XWiki execution context to be properly set-up.
@@ -52,6 +54,9 @@ public abstract class AbstractXWikiEndpoint extends Endpoint implements Endpoint
     @Inject
     protected WebSocketContext context;
 
+    @Inject
+    private WebSocketMessageExecutor messageExecutor;
+
     /**
      * Handles a received message by calling either {@code onMessage(Session, T)} or {@code onMessage(T)}. If the value
      * returned by {@code onMessage} matches the message type then we send it back.
@@ -62,7 +67,7 @@ public abstract class AbstractXWikiEndpoint extends Endpoint implements Endpoint
      */
     protected <T> void handleMessage(Session session, T message)
     {
-        handleMessage(session, message, true);
+        handleMessage(session, message, true, false);
     }
 
     /**
@@ -76,16 +81,28 @@ protected <T> void handleMessage(Session session, T message)
      */
     protected <T> void handleMessage(Session session, T message, boolean last)
     {
-        Method onMessage = getOnMessageMethod(message.getClass());
+        handleMessage(session, message, last, true);
+    }
+
+    /**
+     * Whole messages are handled on a virtual thread when this is enabled from the configuration, as long as their
+     * payload is not owned by the container. Partial messages, streams and decoded objects are handled on the current
+     * thread because the container can reuse them once the message handler returns.
+     */
+    private <T> void handleMessage(Session session, T receivedMessage, boolean last, boolean partial)
+    {
+        Method onMessage = getOnMessageMethod(receivedMessage.getClass());
         if (onMessage == null) {
             this.logger.warn("Failed to handle WebSocket message because onMessage method is missing.");
             return;
         }
 
-        this.context.run(session, () -> {
+        Object detachedMessage = partial ? null : detach(receivedMessage);
+        Object message = detachedMessage != null ? detachedMessage : receivedMessage;
+        Runnable task = () -> this.context.run(session, () -> {
             try {
                 Object output = invokeOnMessage(onMessage, session, message, last);
-                if (onMessage.getReturnType().equals(message.getClass()) && output != null) {
+                if (onMessage.getReturnType().equals(receivedMessage.getClass()) && output != null) {
                     session.getBasicRemote().sendObject(output);
                 }
             } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
@@ -96,6 +113,23 @@ protected <T> void handleMessage(Session session, T message, boolean last)
                     ExceptionUtils.getRootCauseMessage(e));
             }
         });
+
+        this.messageExecutor.execute(session, task, detachedMessage != null);
+    }
+
+    private Object detach(Object message)
+    {
+        if (message instanceof String || message instanceof byte[]) {
+            // Not reused by the container.
+            return message;
+        } else if (message instanceof ByteBuffer) {
+            ByteBuffer copy = ByteBuffer.allocate(((ByteBuffer) message).remaining());
+            copy.put(((ByteBuffer) message).duplicate());
+            copy.flip();
+            return copy;
+        }
+
+        return null;
     }
 
     private <T> Method getOnMessageMethod(Class<T> messageType)
@@ -119,7 +153,7 @@ private <T> Method getOnMessageMethod(Class<T> messageType)
         return null;
     }
 
-    private <T> Object invokeOnMessage(Method onMessage, Session session, T message, boolean last)
+    private Object invokeOnMessage(Method onMessage, Session session, Object message, boolean last)
         throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
     {
         if (onMessage.getParameterCount() == 1) {
@@ -133,6 +167,20 @@ private <T> Object invokeOnMessage(Method onMessage, Session session, T message,
         }
     }
 
+    /**
+     * Waits for the messages received in the given session to be handled. Subclasses overriding this method should call
+     * it first, so that the session is not cleaned up while a message is still being handled.
+     * 
+     * @param session the session that is being closed
+     * @param closeReason the reason for closing the session
+     * @since 14.9RC1
+     */
+    @Override
+    public void onClose(Session session, CloseReason closeReason)
+    {
+        this.messageExecutor.close(session);
+    }
+
     /**
      * Try to close the given session using the specified code and reason.
      * 
@@ -0,0 +1,186 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.websocket.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.websocket.Session;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Handles the WebSocket messages on virtual threads, when enabled from the configuration and supported by the Java
+ * runtime, instead of keeping busy the container thread that received them. The messages of a WebSocket session are
+ * still handled one at a time, in the order they were received, because they share the execution context bound to the
+ * session.
+ * 
+ * @version $Id$
+ * @since 14.9RC1
+ */
+@Component(roles = WebSocketMessageExecutor.class)
+@Singleton
+public class WebSocketMessageExecutor implements Initializable, Disposable
+{
+    /**
+     * The configuration property used to handle the WebSocket messages on virtual threads.
+     */
+    public static final String PROPERTY_VIRTUAL_THREADS = "websocket.virtualThreads";
+
+    /**
+     * The configuration property indicating the maximum number of messages of a WebSocket session waiting to be handled
+     * on virtual threads.
+     */
+    public static final String PROPERTY_QUEUE_SIZE = "websocket.virtualThreads.queueSize";
+
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private static final String CHAIN = WebSocketMessageExecutor.class.getName() + ".chain";
+
+    /**
+     * The messages of a WebSocket session, chained to be handled one after the other.
+     * 
+     * @version $Id$
+     */
+    private static final class MessageChain
+    {
+        private CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+        private int pending;
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private ExecutorService executor;
+
+    private int queueSize;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (this.configuration.getProperty(PROPERTY_VIRTUAL_THREADS, false)) {
+            try {
+                // Virtual threads are available only starting with Java 21.
+                this.executor =
+                    (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (Exception e) {
+                this.logger.warn("Virtual threads are not supported by the Java runtime. WebSocket messages are going"
+                    + " to be handled on the container threads. Root cause is [{}].",
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        this.queueSize = this.configuration.getProperty(PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    /**
+     * Handles a message received in the given WebSocket session, after the handling of the previous messages of the
+     * same session. The message is handled on a virtual thread only if this is enabled, if the message doesn't need to
+     * be handled before the caller returns and if the session doesn't have too many messages waiting already. Otherwise
+     * the message is handled on the current thread, once the previous messages are handled.
+     * 
+     * @param session the WebSocket session in which the message was received
+     * @param task the code that handles the message, responsible for setting up the XWiki execution context
+     * @param async {@code true} if the message can be handled after this method returns, {@code false} if the message
+     *            is owned by the container and needs to be handled before this method returns
+     */
+    public void execute(Session session, Runnable task, boolean async)
+    {
+        if (this.executor == null) {
+            task.run();
+            return;
+        }
+
+        MessageChain chain = getChain(session);
+        CompletableFuture<Void> previous;
+        CompletableFuture<Void> current;
+        synchronized (chain) {
+            if (async && chain.pending < this.queueSize) {
+                chain.pending++;
+                chain.last = chain.last.thenRunAsync(task, this.executor).handle((result, e) -> {
+                    // Don't prevent the handling of the next messages.
+                    if (e != null) {
+                        this.logger.warn("Failed to handle the WebSocket message. Root cause is [{}].",
+                            ExceptionUtils.getRootCauseMessage(e));
+                    }
+                    synchronized (chain) {
+                        chain.pending--;
+                    }
+                    return null;
+                });
+                return;
+            }
+
+            // Make sure the next messages wait for this one.
+            previous = chain.last;
+            current = new CompletableFuture<>();
+            chain.last = current;
+        }
+
+        try {
+            // Doesn't throw because the failures of the asynchronous messages are caught and logged.
+            previous.join();
+            task.run();
+        } finally {
+            current.complete(null);
+        }
+    }
+
+    /**
+     * Waits for the messages received in the given WebSocket session to be handled. Should be called when the session
+     * is closed, before releasing its resources.
+     * 
+     * @param session the WebSocket session that is being closed
+     */
+    public void close(Session session)
+    {
+        execute(session, () -> session.getUserProperties().remove(CHAIN), false);
+    }
+
+    private MessageChain getChain(Session session)
+    {
+        synchronized (session) {
+            return (MessageChain) session.getUserProperties().computeIfAbsent(CHAIN, key -> new MessageChain());
+        }
+    }
+}
@@ -40,6 +40,8 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -66,6 +68,9 @@
     @MockComponent
     protected WebSocketContext context;
 
+    @MockComponent
+    private WebSocketMessageExecutor messageExecutor;
+
     @Captor
     ArgumentCaptor<MessageHandler.Whole<String>> messageHandlerCaptor;
 
@@ -80,6 +85,11 @@ void setup()
     {
         Basic basicRemote = mock(Basic.class);
         when(this.session.getBasicRemote()).thenReturn(basicRemote);
+
+        doAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return null;
+        }).when(this.messageExecutor).execute(any(Session.class), any(Runnable.class), any(Boolean.class));
     }
 
     @Test
@@ -110,6 +120,16 @@ void onOpen() throws Exception
         this.messageHandlerCaptor.getValue().onMessage("Hi there!");
 
         verify(this.session.getBasicRemote()).sendObject("[test] test:Users.Alice -> Hi there!");
+        // Text messages are not reused by the container so they can be handled asynchronously.
+        verify(this.messageExecutor).execute(same(this.session), any(Runnable.class), eq(true));
+    }
+
+    @Test
+    void onClose()
+    {
+        this.echoEndPoint.onClose(this.session, null);
+
+        verify(this.messageExecutor).close(this.session);
     }
 
     private void setContext(String wiki, DocumentReference userReference)
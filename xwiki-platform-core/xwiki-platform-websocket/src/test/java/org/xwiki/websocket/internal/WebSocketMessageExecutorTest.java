@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.websocket.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.websocket.Session;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.test.junit5.mockito.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link WebSocketMessageExecutor}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class WebSocketMessageExecutorTest
+{
+    @InjectMockComponents
+    private WebSocketMessageExecutor messageExecutor;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Mock
+    private Session session;
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configuration.getProperty(WebSocketMessageExecutor.PROPERTY_VIRTUAL_THREADS, false))
+            .thenReturn(false);
+        when(this.configuration.getProperty(WebSocketMessageExecutor.PROPERTY_QUEUE_SIZE, 100)).thenReturn(100);
+    }
+
+    @AfterEach
+    void afterEach()
+    {
+        this.messageExecutor.dispose();
+    }
+
+    @Test
+    void executeWhenDisabled()
+    {
+        Runnable task = mock(Runnable.class);
+
+        this.messageExecutor.execute(this.session, task, true);
+
+        verify(task).run();
+    }
+
+    @Test
+    void executeOnVirtualThreads() throws Exception
+    {
+        enableVirtualThreads();
+
+        int messageCount = 1000;
+        List<Integer> handledMessages = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < messageCount; i++) {
+            int message = i;
+            this.messageExecutor.execute(this.session, () -> {
+                if (message == 0) {
+                    // Make sure the next message waits for this one.
+                    sleep();
+                }
+                handledMessages.add(message);
+            }, true);
+        }
+        this.messageExecutor.execute(this.session, done::countDown, true);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // The messages of a session are handled in the order they were received.
+        assertEquals(messageCount, handledMessages.size());
+        for (int i = 0; i < messageCount; i++) {
+            assertEquals(i, handledMessages.get(i));
+        }
+    }
+
+    @Test
+    void executeSynchronousMessageAfterAsynchronousMessages() throws Exception
+    {
+        enableVirtualThreads();
+
+        List<Thread> threads = new ArrayList<>();
+        this.messageExecutor.execute(this.session, () -> {
+            sleep();
+            threads.add(Thread.currentThread());
+        }, true);
+        // A message owned by the container is handled on the current thread, after the previous messages.
+        this.messageExecutor.execute(this.session, () -> threads.add(Thread.currentThread()), false);
+
+        assertEquals(2, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+        assertSame(Thread.currentThread(), threads.get(1));
+    }
+
+    @Test
+    void executeWhenQueueIsFull() throws Exception
+    {
+        when(this.configuration.getProperty(WebSocketMessageExecutor.PROPERTY_QUEUE_SIZE, 100)).thenReturn(1);
+        enableVirtualThreads();
+
+        List<Thread> threads = new ArrayList<>();
+        this.messageExecutor.execute(this.session, () -> {
+            sleep();
+            threads.add(Thread.currentThread());
+        }, true);
+        // The queue is full so the message is handled on the current thread, after the previous message.
+        this.messageExecutor.execute(this.session, () -> threads.add(Thread.currentThread()), true);
+
+        assertEquals(2, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+        assertSame(Thread.currentThread(), threads.get(1));
+    }
+
+    @Test
+    void close() throws Exception
+    {
+        enableVirtualThreads();
+
+        List<Integer> handledMessages = new ArrayList<>();
+        this.messageExecutor.execute(this.session, () -> {
+            sleep();
+            handledMessages.add(0);
+        }, true);
+
+        this.messageExecutor.close(this.session);
+
+        assertEquals(List.of(0), handledMessages);
+        assertTrue(this.session.getUserProperties().isEmpty());
+    }
+
+    private void enableVirtualThreads() throws Exception
+    {
+        when(this.configuration.getProperty(WebSocketMessageExecutor.PROPERTY_VIRTUAL_THREADS, false))
+            .thenReturn(true);
+        this.messageExecutor.initialize();
+
+        // Virtual threads are available only starting with Java 21.
+        assumeTrue(Runtime.version().feature() >= 21);
+
+        when(this.session.getUserProperties()).thenReturn(new HashMap<>());
+    }
+
+    private void sleep()
+    {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
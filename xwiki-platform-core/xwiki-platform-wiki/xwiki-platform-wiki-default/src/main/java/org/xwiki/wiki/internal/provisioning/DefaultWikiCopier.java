@@ -26,12 +26,18 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
@@ -41,6 +47,10 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.WikiStoreCopier;
+import com.xpn.xwiki.store.XWikiCacheStoreInterface;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
 
 /**
  * Default implementation for {@link WikiCopier}.
@@ -65,11 +75,160 @@ public class DefaultWikiCopier implements WikiCopier
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
     @Inject
     private Logger logger;
 
     @Override
     public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistory) throws WikiManagerException
+    {
+        // Copying the whole wiki at the store level is a lot faster than copying each document
+        if (!copyStore(fromWikiId, toWikiId, withHistory)) {
+            copyEachDocument(fromWikiId, toWikiId, withHistory);
+        }
+    }
+
+    private boolean copyStore(String fromWikiId, String toWikiId, boolean withHistory)
+    {
+        XWikiContext context = this.xcontextProvider.get();
+
+        // The documents must be stored in the database
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (context.getWiki().getHibernateStore() == null
+            || !componentManager.hasComponent(WikiStoreCopier.class, XWikiHibernateBaseStore.HINT)) {
+            return false;
+        }
+
+        List<WikiStoreCopier> copiers;
+        try {
+            copiers = componentManager.getInstanceList(WikiStoreCopier.class);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to get the store copiers. Root cause is [{}].",
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return false;
+        }
+
+        for (WikiStoreCopier copier : copiers) {
+            if (!copier.isSupported(fromWikiId, toWikiId)) {
+                return false;
+            }
+        }
+
+        this.progress.pushLevelProgress(2, this);
+
+        try {
+            this.progress.startStep(this, "Copy the wiki store");
+
+            this.logger.info("Copying the store of wiki [{}] to wiki [{}].", fromWikiId, toWikiId);
+            for (WikiStoreCopier copier : copiers) {
+                copier.copy(fromWikiId, toWikiId, withHistory);
+            }
+
+            this.progress.endStep(this);
+        } catch (Exception e) {
+            this.logger.warn("Failed to copy the store of wiki [{}] to wiki [{}], copying each document instead."
+                + " Root cause is [{}].", fromWikiId, toWikiId, ExceptionUtils.getRootCauseMessage(e));
+
+            // Don't keep what was partially copied
+            cleanStore(toWikiId, copiers, context);
+
+            this.progress.popLevelProgress(this);
+
+            return false;
+        }
+
+        // The documents are copied at this point so failing to notify about them must not trigger another copy (and
+        // another notification for the documents which were already notified)
+        try {
+            this.progress.startStep(this, "Notify about copied documents");
+
+            notifyCopiedDocuments(toWikiId, context);
+
+            this.progress.endStep(this);
+        } catch (Exception e) {
+            this.logger.error("Failed to notify about the documents copied from wiki [{}] to wiki [{}].", fromWikiId,
+                toWikiId, e);
+        } finally {
+            this.progress.popLevelProgress(this);
+        }
+
+        return true;
+    }
+
+    private void cleanStore(String wikiId, List<WikiStoreCopier> copiers, XWikiContext context)
+    {
+        for (WikiStoreCopier copier : copiers) {
+            try {
+                copier.delete(wikiId);
+            } catch (Exception e) {
+                this.logger.warn("Failed to clean the store of wiki [{}]. Root cause is [{}].", wikiId,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        XWiki xwiki = context.getWiki();
+        if (xwiki.getStore() instanceof XWikiCacheStoreInterface) {
+            ((XWikiCacheStoreInterface) xwiki.getStore()).flushCache();
+        }
+
+        // Initialize again the mandatory documents which were removed
+        String currentWiki = context.getWikiId();
+        try {
+            context.setWikiId(wikiId);
+
+            xwiki.initializeMandatoryDocuments(context);
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    private void notifyCopiedDocuments(String wikiId, XWikiContext context) throws QueryException, XWikiException
+    {
+        XWiki xwiki = context.getWiki();
+
+        // The cache might contain documents initialized in the target wiki before the copy
+        if (xwiki.getStore() instanceof XWikiCacheStoreInterface) {
+            ((XWikiCacheStoreInterface) xwiki.getStore()).flushCache();
+        }
+
+        String currentWiki = context.getWikiId();
+
+        try {
+            context.setWikiId(wikiId);
+
+            Query query =
+                this.queryManager.createQuery("select doc.fullName, doc.language from XWikiDocument as doc", Query.HQL);
+            query.setWiki(wikiId);
+            List<Object[]> documents = query.execute();
+
+            WikiReference wikiReference = new WikiReference(wikiId);
+            for (Object[] result : documents) {
+                DocumentReference documentReference = new DocumentReference(
+                    this.documentReferenceResolver.resolve((String) result[0], wikiReference),
+                    LocaleUtils.toLocale((String) result[1]));
+
+                // Like for any created document, the original document is a new empty document
+                XWikiDocument document = xwiki.getDocument(documentReference, context).clone();
+                document.setOriginalDocument(new XWikiDocument(documentReference, documentReference.getLocale()));
+
+                this.observation.notify(new DocumentCreatedEvent(documentReference), document, context);
+            }
+
+            // Make sure the mandatory documents which were not part of the copied wiki are still there
+            xwiki.initializeMandatoryDocuments(context);
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    private void copyEachDocument(String fromWikiId, String toWikiId, boolean withHistory) throws WikiManagerException
     {
         XWikiContext context = xcontextProvider.get();
         XWiki xwiki = context.getWiki();
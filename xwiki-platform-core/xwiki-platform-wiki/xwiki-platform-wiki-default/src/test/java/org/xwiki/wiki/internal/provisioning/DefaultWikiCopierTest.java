@@ -21,6 +21,7 @@
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import javax.inject.Provider;
 
@@ -29,19 +30,33 @@
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.slf4j.Logger;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.WikiStoreCopier;
+import com.xpn.xwiki.store.XWikiCacheStoreInterface;
+import com.xpn.xwiki.store.XWikiHibernateStore;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -129,4 +144,144 @@ public void copyDocuments() throws Exception
 
         inOrder.verify(progress).popLevelProgress(mocker.getComponentUnderTest());
     }
+
+    @Test
+    public void copyDocumentsWithStoreCopiers() throws Exception
+    {
+        when(xwiki.getHibernateStore()).thenReturn(mock(XWikiHibernateStore.class));
+        XWikiCacheStoreInterface store = mock(XWikiCacheStoreInterface.class);
+        when(xwiki.getStore()).thenReturn(store);
+
+        Provider<ComponentManager> componentManagerProvider =
+            mocker.getInstance(new DefaultParameterizedType(null, Provider.class, ComponentManager.class), "context");
+        ComponentManager componentManager = mock(ComponentManager.class);
+        when(componentManagerProvider.get()).thenReturn(componentManager);
+        WikiStoreCopier databaseCopier = mock(WikiStoreCopier.class);
+        when(databaseCopier.isSupported("wikiA", "wikiB")).thenReturn(true);
+        WikiStoreCopier fileCopier = mock(WikiStoreCopier.class);
+        when(fileCopier.isSupported("wikiA", "wikiB")).thenReturn(true);
+        when(componentManager.hasComponent(WikiStoreCopier.class, "hibernate")).thenReturn(true);
+        when(componentManager.<WikiStoreCopier>getInstanceList(WikiStoreCopier.class))
+            .thenReturn(Arrays.asList(databaseCopier, fileCopier));
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select doc.fullName, doc.language from XWikiDocument as doc", Query.HQL))
+            .thenReturn(query);
+        when(query.<Object[]>execute()).thenReturn(Arrays.<Object[]>asList(new Object[] {"Space.Doc1", ""}));
+        DocumentReference docRef1 = new DocumentReference("wikiB", "Space", "Doc1");
+        when(documentReferenceResolver.resolve("Space.Doc1", new WikiReference("wikiB"))).thenReturn(docRef1);
+        XWikiDocument document = mock(XWikiDocument.class);
+        XWikiDocument documentCopy = mock(XWikiDocument.class);
+        when(document.clone()).thenReturn(documentCopy);
+        when(xwiki.getDocument(new DocumentReference(docRef1, Locale.ROOT), xcontext)).thenReturn(document);
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", true);
+
+        verify(databaseCopier).copy("wikiA", "wikiB", true);
+        verify(fileCopier).copy("wikiA", "wikiB", true);
+        verify(store).flushCache();
+        verify(query).setWiki("wikiB");
+        verify(mocker.<ObservationManager>getInstance(ObservationManager.class))
+            .notify(new DocumentCreatedEvent(docRef1), documentCopy, xcontext);
+        verify(xwiki).initializeMandatoryDocuments(xcontext);
+        verify(xwiki, never()).copyDocument(any(DocumentReference.class), any(DocumentReference.class), any(),
+            anyBoolean(), anyBoolean(), any(XWikiContext.class));
+    }
+
+    @Test
+    public void copyDocumentsWhenStoreCopierFails() throws Exception
+    {
+        when(xwiki.getHibernateStore()).thenReturn(mock(XWikiHibernateStore.class));
+
+        Provider<ComponentManager> componentManagerProvider =
+            mocker.getInstance(new DefaultParameterizedType(null, Provider.class, ComponentManager.class), "context");
+        ComponentManager componentManager = mock(ComponentManager.class);
+        when(componentManagerProvider.get()).thenReturn(componentManager);
+        WikiStoreCopier databaseCopier = mock(WikiStoreCopier.class);
+        when(databaseCopier.isSupported("wikiA", "wikiB")).thenReturn(true);
+        WikiStoreCopier fileCopier = mock(WikiStoreCopier.class);
+        when(fileCopier.isSupported("wikiA", "wikiB")).thenReturn(true);
+        doThrow(new XWikiException()).when(fileCopier).copy("wikiA", "wikiB", true);
+        when(componentManager.hasComponent(WikiStoreCopier.class, "hibernate")).thenReturn(true);
+        when(componentManager.<WikiStoreCopier>getInstanceList(WikiStoreCopier.class))
+            .thenReturn(Arrays.asList(databaseCopier, fileCopier));
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select distinct doc.fullName from Document as doc", Query.XWQL))
+            .thenReturn(query);
+        when(query.<String>execute()).thenReturn(Arrays.asList("Space.Doc1"));
+        DocumentReference docRef1 = new DocumentReference("wikiA", "Space", "Doc1");
+        when(documentReferenceResolver.resolve("Space.Doc1", new WikiReference("wikiA"))).thenReturn(docRef1);
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", true);
+
+        // The tables copied before the failure are cleaned
+        InOrder inOrder = inOrder(databaseCopier, fileCopier, xwiki);
+        inOrder.verify(databaseCopier).copy("wikiA", "wikiB", true);
+        inOrder.verify(databaseCopier).delete("wikiB");
+        inOrder.verify(fileCopier).delete("wikiB");
+        inOrder.verify(xwiki).initializeMandatoryDocuments(xcontext);
+
+        // Fallback on the document by document copy
+        inOrder.verify(xwiki).copyDocument(docRef1, new DocumentReference("wikiB", "Space", "Doc1"), null, false,
+            true, xcontext);
+    }
+
+    private WikiStoreCopier mockStoreCopier() throws Exception
+    {
+        when(xwiki.getHibernateStore()).thenReturn(mock(XWikiHibernateStore.class));
+
+        Provider<ComponentManager> componentManagerProvider =
+            mocker.getInstance(new DefaultParameterizedType(null, Provider.class, ComponentManager.class), "context");
+        ComponentManager componentManager = mock(ComponentManager.class);
+        when(componentManagerProvider.get()).thenReturn(componentManager);
+        WikiStoreCopier databaseCopier = mock(WikiStoreCopier.class);
+        when(databaseCopier.isSupported("wikiA", "wikiB")).thenReturn(true);
+        when(componentManager.hasComponent(WikiStoreCopier.class, "hibernate")).thenReturn(true);
+        when(componentManager.<WikiStoreCopier>getInstanceList(WikiStoreCopier.class))
+            .thenReturn(Arrays.asList(databaseCopier));
+
+        return databaseCopier;
+    }
+
+    @Test
+    public void copyDocumentsWithoutHistory() throws Exception
+    {
+        WikiStoreCopier databaseCopier = mockStoreCopier();
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select doc.fullName, doc.language from XWikiDocument as doc", Query.HQL))
+            .thenReturn(query);
+        when(query.<Object[]>execute()).thenReturn(Arrays.<Object[]>asList());
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", false);
+
+        // The store copier takes care of resetting the copied documents
+        verify(databaseCopier).copy("wikiA", "wikiB", false);
+        verify(xwiki).initializeMandatoryDocuments(xcontext);
+        verify(xwiki, never()).copyDocument(any(DocumentReference.class), any(DocumentReference.class), any(),
+            anyBoolean(), anyBoolean(), any(XWikiContext.class));
+    }
+
+    @Test
+    public void copyDocumentsWhenNotificationFails() throws Exception
+    {
+        WikiStoreCopier databaseCopier = mockStoreCopier();
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select doc.fullName, doc.language from XWikiDocument as doc", Query.HQL))
+            .thenReturn(query);
+        when(query.<Object[]>execute()).thenThrow(new QueryException("error", query, null));
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", false);
+
+        // The copied documents are kept and not copied (and notified) a second time
+        verify(databaseCopier).copy("wikiA", "wikiB", false);
+        verify(databaseCopier, never()).delete(any());
+        verify(xwiki, never()).copyDocument(any(DocumentReference.class), any(DocumentReference.class), any(),
+            anyBoolean(), anyBoolean(), any(XWikiContext.class));
+        verify(mocker.getMockedLogger()).error(eq("Failed to notify about the documents copied from wiki [{}] to wiki"
+            + " [{}]."), eq("wikiA"), eq("wikiB"), any(QueryException.class));
+        verify(progress).popLevelProgress(mocker.getComponentUnderTest());
+    }
 }